@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.benchmarks;
+
+import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.piccolo2d.PNode;
+import org.piccolo2d.PRoot;
+import org.piccolo2d.activities.PActivity;
+import org.piccolo2d.activities.PActivityScheduler;
+import org.piccolo2d.activities.PBulkAnimationActivity;
+
+/**
+ * Measures one tick of {@link PActivityScheduler#processActivities}, and adding
+ * and removing an activity, with many scheduled activities.
+ * <p>
+ * <code>EMPTY</code> activities do nothing when stepped, so the measurement is
+ * dominated by the scheduler itself. <code>TRANSPARENCY</code> activities are
+ * created by <code>PNode.animateToTransparency</code> and include the cost of
+ * interpolating and invalidating the animated nodes. <code>BULK</code> animates
+ * the transparency of the same number of nodes with a single
+ * {@link PBulkAnimationActivity}. When <code>staggered</code> is true, half the
+ * activities start far in the future; it has no effect on <code>BULK</code>.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ActivityBenchmark {
+    /** Long enough for no activity to finish during a benchmark run. */
+    private static final long DURATION = TimeUnit.DAYS.toMillis(1);
+
+    @Param({ "EMPTY", "TRANSPARENCY", "BULK" })
+    private String kind;
+
+    @Param({ "100", "1000", "10000" })
+    private int count;
+
+    @Param({ "false", "true" })
+    private boolean staggered;
+
+    private PActivityScheduler scheduler;
+    private long time;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final PRoot root = new ManualRoot();
+        scheduler = root.getActivityScheduler();
+        time = System.currentTimeMillis();
+
+        if ("BULK".equals(kind)) {
+            final PNode[] nodes = new PNode[count];
+            for (int i = 0; i < count; i++) {
+                nodes[i] = new PNode();
+                nodes[i].setBounds(0, 0, 10, 10);
+                root.addChild(nodes[i]);
+            }
+            final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, DURATION);
+            activity.setDestinationTransparencies(new float[count]);
+            activity.setStartTime(time);
+            scheduler.addActivity(activity);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long startTime = time;
+            if (staggered && i % 2 == 1) {
+                startTime += DURATION / 2;
+            }
+
+            final PActivity activity;
+            if ("EMPTY".equals(kind)) {
+                activity = new PActivity(DURATION, 0, startTime);
+            }
+            else {
+                final PNode node = new PNode();
+                node.setBounds(0, 0, 10, 10);
+                root.addChild(node);
+                activity = node.animateToTransparency(0, DURATION);
+                activity.setStartTime(startTime);
+            }
+            scheduler.addActivity(activity);
+        }
+    }
+
+    @Benchmark
+    public PActivityScheduler processActivities() {
+        time++;
+        scheduler.processActivities(time);
+        return scheduler;
+    }
+
+    @Benchmark
+    public PActivityScheduler addAndRemoveActivity() {
+        final PActivity activity = new PActivity(DURATION, 0, time);
+        scheduler.addActivity(activity);
+        scheduler.removeActivity(activity);
+        return scheduler;
+    }
+
+    /**
+     * A root whose activity timer never fires, so that activities are only
+     * processed by the benchmark thread.
+     */
+    private static final class ManualRoot extends PRoot {
+        private static final long serialVersionUID = 1L;
+
+        public Timer createTimer(final int delay, final ActionListener listener) {
+            return new Timer(delay, listener) {
+                private static final long serialVersionUID = 1L;
+
+                public void start() {
+                    // never started
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.piccolo2d.PCamera;
+import org.piccolo2d.PNode;
+import org.piccolo2d.POffscreenCanvas;
+import org.piccolo2d.PRoot;
+
+/**
+ * Measures {@link PRoot#processInputs}, which validates full bounds and paint,
+ * after moving one leaf or every leaf of the scene.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BoundsValidationBenchmark {
+    @Param({ "WIDE", "DEEP", "BALANCED" })
+    private String shape;
+
+    @Param({ "1000", "10000", "100000" })
+    private int size;
+
+    @Param({ "false", "true" })
+    private boolean indexed;
+
+    private PRoot root;
+    private PNode[] leaves;
+    private int next;
+    private double delta;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final PCamera camera = SceneGraphs.createScene(indexed);
+        leaves = SceneGraphs.populate(camera.getLayer(0), shape, size);
+        root = camera.getRoot();
+
+        final POffscreenCanvas canvas = new POffscreenCanvas(800, 600);
+        canvas.setCamera(camera);
+        camera.setViewBounds(SceneGraphs.getSceneBounds(size));
+        root.processInputs();
+    }
+
+    /**
+     * Alternates the direction of the moves so that the scene does not drift.
+     */
+    private double nextDelta() {
+        if (delta > 0) {
+            delta = -1;
+        }
+        else {
+            delta = 1;
+        }
+        return delta;
+    }
+
+    @Benchmark
+    public PRoot moveOneLeaf() {
+        next = (next + 1) % leaves.length;
+        leaves[next].offset(nextDelta(), 0);
+        root.processInputs();
+        return root;
+    }
+
+    @Benchmark
+    public PRoot moveAllLeaves() {
+        final double dx = nextDelta();
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i].offset(dx, 0);
+        }
+        root.processInputs();
+        return root;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.benchmarks;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.piccolo2d.event.PNotification;
+import org.piccolo2d.event.PNotificationCenter;
+import org.piccolo2d.event.PNotificationListener;
+
+/**
+ * Measures posting one notification to each of many sources through the
+ * default {@link PNotificationCenter}, where every source has a few
+ * listeners registered by callback method name or as typed listeners. The
+ * burst benchmarks post several updates per source, either synchronously or
+ * queued for later and delivered in one coalesced batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class NotificationBenchmark {
+    private static final String NAME = "modelChanged";
+
+    private static final int UPDATES_PER_SOURCE = 10;
+
+    @Param({ "1000" })
+    private int size;
+
+    @Param({ "4" })
+    private int listenersPerSource;
+
+    @Param({ "false", "true" })
+    private boolean typed;
+
+    private PNotificationCenter center;
+    private Object[] sources;
+    private Counter[] counters;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        center = PNotificationCenter.defaultCenter();
+        center.setDeliveryExecutor(new Executor() {
+            public void execute(final Runnable task) {
+                // batches are delivered by the benchmark itself
+            }
+        });
+        sources = new Object[size];
+        counters = new Counter[size * listenersPerSource];
+        for (int i = 0; i < size; i++) {
+            sources[i] = new Object();
+            for (int j = 0; j < listenersPerSource; j++) {
+                final Counter counter = new Counter();
+                counters[i * listenersPerSource + j] = counter;
+                if (typed) {
+                    center.addListener((PNotificationListener) counter, NAME, sources[i]);
+                }
+                else {
+                    center.addListener(counter, "count", NAME, sources[i]);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        center.setDeliveryExecutor(null);
+        for (int i = 0; i < counters.length; i++) {
+            center.removeListener(counters[i]);
+        }
+    }
+
+    @Benchmark
+    public Object[] post() {
+        for (int i = 0; i < sources.length; i++) {
+            center.postNotification(NAME, sources[i]);
+        }
+        return sources;
+    }
+
+    @Benchmark
+    public Object[] postBurst() {
+        for (int update = 0; update < UPDATES_PER_SOURCE; update++) {
+            for (int i = 0; i < sources.length; i++) {
+                center.postNotification(NAME, sources[i]);
+            }
+        }
+        return sources;
+    }
+
+    @Benchmark
+    public Object[] postBurstLater() {
+        for (int update = 0; update < UPDATES_PER_SOURCE; update++) {
+            for (int i = 0; i < sources.length; i++) {
+                center.postNotificationLater(NAME, sources[i]);
+            }
+        }
+        center.deliverQueuedNotifications();
+        return sources;
+    }
+
+    /**
+     * Listener counting its notifications.
+     */
+    public static class Counter implements PNotificationListener {
+        private int count;
+
+        public void count(final PNotification notification) {
+            count++;
+        }
+
+        public void notificationPosted(final PNotification notification) {
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.benchmarks;
+
+import java.awt.Color;
+
+import org.piccolo2d.PCamera;
+import org.piccolo2d.PLayer;
+import org.piccolo2d.PNode;
+import org.piccolo2d.PRoot;
+import org.piccolo2d.nodes.PIndexedLayer;
+import org.piccolo2d.nodes.PPath;
+import org.piccolo2d.util.PBounds;
+
+/**
+ * Builds the scene graphs shared by the benchmarks.
+ * <p>
+ * Every tree has exactly <code>size</code> leaf rectangles laid out on a grid,
+ * so that trees of different shapes cover the same area and paint the same
+ * pixels. The shapes are:
+ * </p>
+ * <ul>
+ * <li><code>WIDE</code>: every leaf is a direct child of the layer.</li>
+ * <li><code>DEEP</code>: leaves are chained into paths of {@link #DEEP_DEPTH}
+ * nodes, each translated relative to its parent.</li>
+ * <li><code>BALANCED</code>: leaves are grouped under a tree of plain nodes with
+ * a branching factor of {@link #BALANCED_FANOUT}.</li>
+ * </ul>
+ */
+final class SceneGraphs {
+    /** Length of each chain of nodes in a <code>DEEP</code> tree. */
+    static final int DEEP_DEPTH = 64;
+
+    /** Number of children of each inner node in a <code>BALANCED</code> tree. */
+    static final int BALANCED_FANOUT = 8;
+
+    /** Size of each leaf rectangle. */
+    static final double LEAF_SIZE = 10;
+
+    /** Distance between the origins of adjacent leaf rectangles. */
+    static final double LEAF_SPACING = 20;
+
+    private SceneGraphs() {
+        // Not instantiable
+    }
+
+    /**
+     * Creates a camera looking at a layer, both attached to a new root.
+     * 
+     * @param indexed true to use a {@link PIndexedLayer}
+     * @return the new camera
+     */
+    static PCamera createScene(final boolean indexed) {
+        final PRoot root = new PRoot();
+        final PLayer layer;
+        if (indexed) {
+            layer = new PIndexedLayer();
+        }
+        else {
+            layer = new PLayer();
+        }
+        final PCamera camera = new PCamera();
+        root.addChild(camera);
+        root.addChild(layer);
+        camera.addLayer(layer);
+        return camera;
+    }
+
+    /**
+     * Adds a tree of the given shape and number of leaves to the layer.
+     * 
+     * @param layer layer to populate
+     * @param shape one of <code>WIDE</code>, <code>DEEP</code> or
+     *            <code>BALANCED</code>
+     * @param size number of leaves
+     * @return the leaves, in creation order
+     */
+    static PNode[] populate(final PLayer layer, final String shape, final int size) {
+        final PNode[] leaves = new PNode[size];
+        final int columns = getColumns(size);
+
+        if ("WIDE".equals(shape)) {
+            for (int i = 0; i < size; i++) {
+                leaves[i] = createLeaf(i, columns);
+                layer.addChild(leaves[i]);
+            }
+        }
+        else if ("DEEP".equals(shape)) {
+            PNode parent = null;
+            double parentX = 0;
+            double parentY = 0;
+            for (int i = 0; i < size; i++) {
+                final PNode leaf = createLeaf(i, columns);
+                final double x = leaf.getXOffset();
+                final double y = leaf.getYOffset();
+                if (i % DEEP_DEPTH == 0) {
+                    layer.addChild(leaf);
+                }
+                else {
+                    leaf.setOffset(x - parentX, y - parentY);
+                    parent.addChild(leaf);
+                }
+                leaves[i] = leaf;
+                parent = leaf;
+                parentX = x;
+                parentY = y;
+            }
+        }
+        else if ("BALANCED".equals(shape)) {
+            for (int i = 0; i < size; i++) {
+                leaves[i] = createLeaf(i, columns);
+            }
+            PNode[] level = leaves;
+            while (level.length > BALANCED_FANOUT) {
+                final PNode[] groups = new PNode[(level.length + BALANCED_FANOUT - 1) / BALANCED_FANOUT];
+                for (int i = 0; i < groups.length; i++) {
+                    groups[i] = new PNode();
+                }
+                for (int i = 0; i < level.length; i++) {
+                    groups[i / BALANCED_FANOUT].addChild(level[i]);
+                }
+                level = groups;
+            }
+            for (int i = 0; i < level.length; i++) {
+                layer.addChild(level[i]);
+            }
+        }
+        else {
+            throw new IllegalArgumentException("unknown shape " + shape);
+        }
+        return leaves;
+    }
+
+    /**
+     * Returns the bounds of the grid covered by a tree with the given number of
+     * leaves, in layer coordinates.
+     * 
+     * @param size number of leaves
+     * @return bounds covered by the leaves
+     */
+    static PBounds getSceneBounds(final int size) {
+        final int columns = getColumns(size);
+        final int rows = (size + columns - 1) / columns;
+        return new PBounds(0, 0, columns * LEAF_SPACING, rows * LEAF_SPACING);
+    }
+
+    private static int getColumns(final int size) {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(size)));
+    }
+
+    private static PNode createLeaf(final int i, final int columns) {
+        final PPath leaf = PPath.createRectangle(0, 0, LEAF_SIZE, LEAF_SIZE);
+        leaf.setPaint(new Color(i * 37 % 256, i * 67 % 256, i * 101 % 256));
+        leaf.setOffset(i % columns * LEAF_SPACING, i / columns * LEAF_SPACING);
+        return leaf;
+    }
+}
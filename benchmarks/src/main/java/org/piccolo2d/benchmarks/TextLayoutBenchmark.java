@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.piccolo2d.nodes.PText;
+import org.piccolo2d.util.PPaintContext;
+
+/**
+ * Measures creating and painting text nodes whose labels are drawn from a small
+ * vocabulary, as with axis ticks or status words, or are all distinct. Labels
+ * are painted zoomed out at a slightly different scale each time, as while
+ * zooming.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TextLayoutBenchmark {
+    private static final String[] WORDS = { "idle", "running", "blocked", "waiting", "done", "failed" };
+
+    @Param({ "1000" })
+    private int size;
+
+    @Param({ "false", "true" })
+    private boolean distinct;
+
+    private PText[] labels;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        labels = createLabels();
+        for (int i = 0; i < size; i++) {
+            labels[i].setOffset((i % 20) * 40, (i / 20) * 12);
+        }
+        image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB_PRE);
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public PText[] createLabels() {
+        final PText[] labels = new PText[size];
+        for (int i = 0; i < size; i++) {
+            labels[i] = new PText(distinct ? "label " + i : WORDS[i % WORDS.length]);
+        }
+        return labels;
+    }
+
+    @Benchmark
+    public BufferedImage paintLabels() {
+        frame = (frame + 1) % 1000;
+        final Graphics2D g2 = (Graphics2D) graphics.create();
+        g2.scale(0.4 + frame * 0.0002, 0.4 + frame * 0.0002);
+        final PPaintContext paintContext = new PPaintContext(g2);
+        for (int i = 0; i < labels.length; i++) {
+            labels[i].fullPaint(paintContext);
+        }
+        g2.dispose();
+        return image;
+    }
+}
@@ -39,8 +39,10 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.piccolo2d.activities.PTransformActivity;
 import org.piccolo2d.util.PAffineTransform;
@@ -50,6 +52,7 @@ import org.piccolo2d.util.PDimension;
 import org.piccolo2d.util.PObjectOutputStream;
 import org.piccolo2d.util.PPaintContext;
 import org.piccolo2d.util.PPickPath;
+import org.piccolo2d.util.PTileCache;
 import org.piccolo2d.util.PUtil;
 
 /**
@@ -122,6 +125,9 @@ public class PCamera extends PNode {
 	/** List of layers viewed by this camera. */
 	private transient List<PLayer> layers;
 
+	/** Tile caches of the layers painted from retained tiles, created lazily. */
+	private transient Map<PLayer, PTileCache> layerTileCaches;
+
 	/**
 	 * Transform applied to layers before they are rendered. This transform differs
 	 * from the transform applied to the children of this PCamera (sticky objects).
@@ -197,6 +203,11 @@ public class PCamera extends PNode {
 	 * @param repaintedLayer layer dispatching the repaint notification
 	 */
 	public void repaintFromLayer(final PBounds viewBounds, final PLayer repaintedLayer) {
+		final PTileCache tileCache = getLayerTileCache(repaintedLayer);
+		if (tileCache != null) {
+			tileCache.invalidate(viewBounds);
+		}
+
 		TEMP_REPAINT_RECT.setRect(viewBounds);
 		viewToLocal(TEMP_REPAINT_RECT);
 		if (getBoundsReference().intersects(TEMP_REPAINT_RECT)) {
@@ -287,6 +298,7 @@ public class PCamera extends PNode {
 	public PLayer removeLayer(final PLayer layer) {
 		layer.removeCamera(this);
 		if (layers.remove(layer)) {
+			removeLayerTileCache(layer);
 			invalidatePaint();
 			firePropertyChange(PROPERTY_CODE_LAYERS, PROPERTY_LAYERS, null, layers);
 		}
@@ -305,11 +317,85 @@ public class PCamera extends PNode {
 	public PLayer removeLayer(final int index) {
 		final PLayer layer = (PLayer) layers.remove(index);
 		layer.removeCamera(this);
+		removeLayerTileCache(layer);
 		invalidatePaint();
 		firePropertyChange(PROPERTY_CODE_LAYERS, PROPERTY_LAYERS, null, layers);
 		return layer;
 	}
 
+	/**
+	 * Set whether the specified layer is painted by this camera from retained
+	 * tiles. A cached layer is rasterized into tiles once per power of two of
+	 * the view scale, the tiles being shrunk to fit the scales in between, so
+	 * zooming only paints the layer again when the scale crosses a power of
+	 * two, panning over it only paints the newly exposed tiles and repainting
+	 * an unrelated region of the view does not paint the layer again. Tiles are
+	 * discarded as the layer repaints, so layers whose content changes every
+	 * frame should not be cached. Layers are painted normally whenever the view
+	 * is rotated or sheared.
+	 * 
+	 * @since 3.1
+	 * @param layer layer viewed by this camera
+	 * @param cached true if the layer should be painted from retained tiles
+	 * @throws IllegalArgumentException if the layer is not viewed by this camera
+	 */
+	public void setLayerCached(final PLayer layer, final boolean cached) {
+		if (!layers.contains(layer)) {
+			throw new IllegalArgumentException("layer is not viewed by this camera");
+		}
+		if (cached == getLayerCached(layer)) {
+			return;
+		}
+		if (cached) {
+			if (layerTileCaches == null) {
+				layerTileCaches = new IdentityHashMap<PLayer, PTileCache>();
+			}
+			layerTileCaches.put(layer, new PTileCache());
+		} else {
+			layerTileCaches.remove(layer);
+		}
+		invalidatePaint();
+	}
+
+	/**
+	 * Return true if the specified layer is painted by this camera from retained
+	 * tiles.
+	 * 
+	 * @since 3.1
+	 * @param layer layer to check
+	 * @return true if the layer is painted from retained tiles
+	 */
+	public boolean getLayerCached(final PLayer layer) {
+		return getLayerTileCache(layer) != null;
+	}
+
+	/**
+	 * Return the tile cache this camera paints the specified layer from, or
+	 * <code>null</code> if the layer is not cached.
+	 * 
+	 * @since 3.1
+	 * @param layer layer viewed by this camera
+	 * @return the tile cache of the layer, or <code>null</code> if the layer is
+	 *         not cached
+	 */
+	public PTileCache getLayerTileCache(final PLayer layer) {
+		if (layerTileCaches == null) {
+			return null;
+		}
+		return layerTileCaches.get(layer);
+	}
+
+	/**
+	 * Drop the tile cache of a layer once it is no longer viewed by this camera.
+	 * 
+	 * @param layer layer that has been removed
+	 */
+	private void removeLayerTileCache(final PLayer layer) {
+		if (layerTileCaches != null && !layers.contains(layer)) {
+			layerTileCaches.remove(layer);
+		}
+	}
+
 	/**
 	 * Return the union of the full bounds of each layer in the list of layers
 	 * viewed by this camera, or empty bounds if the list of layers viewed by this
@@ -359,7 +445,10 @@ public class PCamera extends PNode {
 		final int size = layers.size();
 		for (int i = 0; i < size; i++) {
 			final PLayer each = layers.get(i);
-			each.fullPaint(paintContext);
+			final PTileCache tileCache = getLayerTileCache(each);
+			if (tileCache == null || !each.getVisible() || !tileCache.paint(each, paintContext)) {
+				each.fullPaint(paintContext);
+			}
 		}
 	}
 
@@ -464,6 +553,61 @@ public class PCamera extends PNode {
 		return result;
 	}
 
+	/**
+	 * Pick the point x,y specified in the local coord system of this camera into
+	 * the specified pick path, reusing it instead of creating a new one. A new pick
+	 * path is created if <code>pickPath</code> is null or does not originate from
+	 * this camera. Picking into a reused pick path does not allocate once the path
+	 * has reached the depth of the scene.
+	 * 
+	 * @since 3.1
+	 * @param x        the x coordinate of the pick path given in local coordinates
+	 * @param y        the y coordinate of the pick path given in local coordinates
+	 * @param halo     the distance from the x,y coordinate that is considered for
+	 *                 inclusion in the pick path
+	 * @param pickPath pick path to reuse, may be null
+	 * @return the picked path, <code>pickPath</code> if it has been reused
+	 */
+	public PPickPath pick(final double x, final double y, final double halo, final PPickPath pickPath) {
+		if (pickPath == null || pickPath.getTopCamera() != this) {
+			return pick(x, y, halo);
+		}
+		pickPath.reset(x - halo, y - halo, 2 * halo, 2 * halo);
+
+		fullPick(pickPath);
+
+		// make sure this camera is pushed.
+		if (pickPath.getNodeStackReference().size() == 0) {
+			pickPath.pushNode(this);
+			pickPath.pushTransform(getTransformReference(false));
+		}
+
+		return pickPath;
+	}
+
+	/**
+	 * Collect every node under the point x,y specified in the local coord system
+	 * of this camera in a single traversal. Nodes are added to
+	 * <code>hits</code> in the order successive calls to
+	 * <code>PPickPath.nextPickedNode</code> would return them, topmost first and
+	 * ending with this camera if it is picked.
+	 * 
+	 * @since 3.1
+	 * @param x    the x coordinate of the pick given in local coordinates
+	 * @param y    the y coordinate of the pick given in local coordinates
+	 * @param halo the distance from the x,y coordinate that is considered for
+	 *             inclusion
+	 * @param hits list to add the picked nodes to
+	 * @return <code>hits</code>
+	 */
+	public List<PNode> pickAll(final double x, final double y, final double halo, final List<PNode> hits) {
+		final PBounds b = new PBounds(new Point2D.Double(x, y), -halo, -halo);
+		final PPickPath pickPath = new PPickPath(this, b);
+		pickPath.setHitList(hits);
+		fullPick(pickPath);
+		return hits;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -35,6 +35,7 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.KeyEventPostProcessor;
 import java.awt.KeyboardFocusManager;
+import java.awt.Rectangle;
 import java.awt.event.ActionListener;
 import java.awt.event.HierarchyEvent;
 import java.awt.event.HierarchyListener;
@@ -49,12 +50,14 @@ import java.awt.event.MouseWheelListener;
 import javax.swing.FocusManager;
 import javax.swing.JComponent;
 import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import org.piccolo2d.event.PInputEventListener;
 import org.piccolo2d.event.PPanEventHandler;
 import org.piccolo2d.event.PZoomEventHandler;
 import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PDamageRegion;
 import org.piccolo2d.util.PDebug;
 import org.piccolo2d.util.PPaintContext;
 import org.piccolo2d.util.PStack;
@@ -133,6 +136,15 @@ public class PCanvas extends JComponent implements PComponent {
 	 */
 	private transient MouseMotionListener mouseMotionListener;
 
+	/**
+	 * Repaint requests accumulated since the last flush, or null if repaint
+	 * requests are handed straight to Swing.
+	 */
+	private transient PDamageRegion damageRegion;
+
+	/** Whether a flush of the damage region has been scheduled. */
+	private transient boolean damageFlushScheduled;
+
 	private static final int ALL_BUTTONS_MASK = InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON2_DOWN_MASK
 			| InputEvent.BUTTON3_DOWN_MASK;
 
@@ -400,6 +412,59 @@ public class PCanvas extends JComponent implements PComponent {
 		}
 	}
 
+	/**
+	 * Returns true if repaint requests from the scene graph are coalesced into a
+	 * bounded set of disjoint regions before being painted.
+	 * 
+	 * @since 3.1
+	 * @return true if repaint requests are coalesced
+	 */
+	public boolean getCoalesceRepaints() {
+		return damageRegion != null;
+	}
+
+	/**
+	 * Sets whether repaint requests from the scene graph should be coalesced.
+	 * <p>
+	 * By default each repaint request is handed to Swing's
+	 * <code>RepaintManager</code>, which merges all requests for this canvas into
+	 * a single rectangle. When many scattered nodes change at once that rectangle
+	 * usually covers most of the canvas. When coalescing is enabled the requests
+	 * made while the scene graph is processed are accumulated in a
+	 * {@link PDamageRegion}, and once processing is finished each of its regions
+	 * is painted separately with its own clip.
+	 * </p>
+	 * 
+	 * @since 3.1
+	 * @param coalesceRepaints true to coalesce repaint requests
+	 */
+	public void setCoalesceRepaints(final boolean coalesceRepaints) {
+		if (coalesceRepaints == getCoalesceRepaints()) {
+			return;
+		}
+		if (coalesceRepaints) {
+			damageRegion = new PDamageRegion();
+		} else {
+			final PDamageRegion pending = damageRegion;
+			damageRegion = null;
+			for (int i = 0; i < pending.getRegionCount(); i++) {
+				repaint(pending.getRegion(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the damage region used to coalesce repaint requests, or null if
+	 * repaint requests are not coalesced. Its maximum number of regions and
+	 * region cost may be tuned.
+	 * 
+	 * @since 3.1
+	 * @return the damage region or null
+	 */
+	public PDamageRegion getDamageRegion() {
+		return damageRegion;
+	}
+
 	/**
 	 * Set the canvas cursor, and remember the previous cursor on the cursor stack.
 	 * 
@@ -528,7 +593,49 @@ public class PCanvas extends JComponent implements PComponent {
 		bounds.expandNearestIntegerDimensions();
 		bounds.inset(-1, -1);
 
-		repaint((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
+		if (damageRegion != null && SwingUtilities.isEventDispatchThread() && isShowing()) {
+			damageRegion.add((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
+			scheduleDamageFlush();
+		} else {
+			repaint((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
+		}
+	}
+
+	/**
+	 * Schedules painting of the accumulated damage after the current event,
+	 * typically the root's <code>processInputs</code>, has been handled.
+	 */
+	private void scheduleDamageFlush() {
+		if (!damageFlushScheduled) {
+			damageFlushScheduled = true;
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					damageFlushScheduled = false;
+					flushDamage();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Paints each region of the accumulated damage separately, so that every
+	 * paint uses a clip covering only that region.
+	 */
+	private void flushDamage() {
+		if (damageRegion == null || damageRegion.isEmpty()) {
+			return;
+		}
+
+		final Rectangle[] regions = damageRegion.getRegions();
+		damageRegion.clear();
+
+		for (int i = 0; i < regions.length; i++) {
+			if (isShowing()) {
+				paintImmediately(regions[i]);
+			} else {
+				repaint(regions[i]);
+			}
+		}
 	}
 
 	private PBounds repaintBounds = new PBounds();
@@ -538,6 +645,7 @@ public class PCanvas extends JComponent implements PComponent {
 	 */
 	public void paintComponent(final Graphics g) {
 		PDebug.startProcessingOutput();
+		final long paintStartNanos = System.nanoTime();
 
 		final Graphics2D g2 = (Graphics2D) g.create();
 
@@ -578,6 +686,11 @@ public class PCanvas extends JComponent implements PComponent {
 
 		animatingOnLastPaint = getAnimating();
 
+		final PRoot root = camera.getRoot();
+		if (root != null) {
+			root.getFrameClock().paintFinished(System.nanoTime() - paintStartNanos);
+		}
+
 		PDebug.endProcessingOutput(g2);
 	}
 
@@ -591,6 +704,7 @@ public class PCanvas extends JComponent implements PComponent {
 		}
 
 		paintingImmediately = true;
+		flushDamage();
 		RepaintManager.currentManager(this).paintDirtyRegions();
 		paintingImmediately = false;
 	}
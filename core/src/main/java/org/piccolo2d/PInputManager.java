@@ -79,6 +79,12 @@ public class PInputManager extends PBasicInputEventHandler implements PRoot.Inpu
 	/** Tracks the previous location of the mouse on the canvas. */
 	private PPickPath previousMouseOver;
 
+	/** True if pick paths are reused for mouse moves. */
+	private boolean recyclePickPaths;
+
+	/** Pick path no longer referenced by this input manager, may be null. */
+	private PPickPath sparePickPath;
+
 	/** Tracks the input event listener that should receive keyboard events. */
 	private PInputEventListener keyboardFocus;
 
@@ -164,6 +170,33 @@ public class PInputManager extends PBasicInputEventHandler implements PRoot.Inpu
 		mouseOver = path;
 	}
 
+	/**
+	 * Return true if pick paths are reused for mouse moves. Defaults to
+	 * <code>false</code>.
+	 * 
+	 * @since 3.1
+	 * @return true if pick paths are reused for mouse moves
+	 */
+	public boolean getRecyclePickPaths() {
+		return recyclePickPaths;
+	}
+
+	/**
+	 * Set whether pick paths are reused for mouse moves. When true, the pick path
+	 * under the mouse is picked again in place of a new one once this input
+	 * manager no longer refers to it as the mouse over or mouse focus path, so
+	 * that moving the mouse does not allocate a pick path per event. Event
+	 * listeners must then not keep events or their pick paths after handling
+	 * them.
+	 * 
+	 * @since 3.1
+	 * @param recyclePickPaths true if pick paths should be reused
+	 */
+	public void setRecyclePickPaths(final boolean recyclePickPaths) {
+		this.recyclePickPaths = recyclePickPaths;
+		sparePickPath = null;
+	}
+
 	/**
 	 * Returns the position on the Canvas of the last event.
 	 * 
@@ -313,6 +346,7 @@ public class PInputManager extends PBasicInputEventHandler implements PRoot.Inpu
 
 		Point2D newCurrentCanvasPosition = null;
 		Point2D newLastCanvasPosition = null;
+		PPickPath replacedMouseOver = null;
 
 		if (e.isMouseEvent()) {
 			if (e.isMouseEnteredOrMouseExited()) {
@@ -325,8 +359,15 @@ public class PInputManager extends PBasicInputEventHandler implements PRoot.Inpu
 			} else {
 				lastCanvasPosition.setLocation(currentCanvasPosition);
 				currentCanvasPosition.setLocation(((MouseEvent) nextInput).getX(), ((MouseEvent) nextInput).getY());
-				final PPickPath aPickPath = nextInputSource.pick(currentCanvasPosition.getX(),
-						currentCanvasPosition.getY(), 1);
+				final PPickPath aPickPath;
+				if (recyclePickPaths) {
+					aPickPath = nextInputSource.pick(currentCanvasPosition.getX(), currentCanvasPosition.getY(), 1,
+							sparePickPath);
+					sparePickPath = null;
+					replacedMouseOver = mouseOver;
+				} else {
+					aPickPath = nextInputSource.pick(currentCanvasPosition.getX(), currentCanvasPosition.getY(), 1);
+				}
 				setMouseOver(aPickPath);
 			}
 		}
@@ -336,6 +377,11 @@ public class PInputManager extends PBasicInputEventHandler implements PRoot.Inpu
 
 		processEvent(e, nextType);
 
+		if (replacedMouseOver != null && replacedMouseOver != mouseOver && replacedMouseOver != previousMouseOver
+				&& replacedMouseOver != mouseFocus && replacedMouseOver != previousMouseFocus) {
+			sparePickPath = replacedMouseOver;
+		}
+
 		if (newCurrentCanvasPosition != null && newLastCanvasPosition != null) {
 			currentCanvasPosition.setLocation(newCurrentCanvasPosition);
 			lastCanvasPosition.setLocation(newLastCanvasPosition);
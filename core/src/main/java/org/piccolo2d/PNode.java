@@ -62,6 +62,7 @@ import java.util.EventListener;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.event.EventListenerList;
 import javax.swing.event.SwingPropertyChangeSupport;
@@ -76,6 +77,7 @@ import org.piccolo2d.event.PInputEventListener;
 import org.piccolo2d.util.PAffineTransform;
 import org.piccolo2d.util.PAffineTransformException;
 import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PLevelOfDetail;
 import org.piccolo2d.util.PNodeFilter;
 import org.piccolo2d.util.PObjectOutputStream;
 import org.piccolo2d.util.PPaintContext;
@@ -292,6 +294,34 @@ public class PNode implements Cloneable, Serializable, Printable {
 	/** Transform that applies to this node in relation to its parent. */
 	private PAffineTransform transform;
 
+	/**
+	 * Counts the transform and parent changes of all nodes. While it has not
+	 * moved since a node last checked its cached global transform, the check of
+	 * the ancestors' versions can be skipped.
+	 */
+	private static final AtomicInteger TRANSFORM_CHANGES = new AtomicInteger();
+
+	/** Incremented whenever the transform or the parent of this node changes. */
+	private transient int transformVersion;
+
+	/** Value of TRANSFORM_CHANGES when globalTransform was last checked. */
+	private transient int globalTransformChecked;
+
+	/** Cached concatenation of the transforms from the top node to this node. */
+	private transient PAffineTransform globalTransform;
+
+	/**
+	 * Incremented whenever globalTransform is recomputed, so that children can
+	 * tell whether the global transform they were computed from is current.
+	 */
+	private transient int globalTransformVersion;
+
+	/** Value of transformVersion when globalTransform was computed. */
+	private transient int globalTransformStamp;
+
+	/** Value of the parent's globalTransformVersion when globalTransform was computed. */
+	private transient int parentGlobalTransformStamp;
+
 	/** The paint to use for the background of this node. */
 	private Paint paint;
 
@@ -304,6 +334,9 @@ public class PNode implements Cloneable, Serializable, Printable {
 	/** A modifiable set of client properties. */
 	private MutableAttributeSet clientProperties;
 
+	/** Level of detail rules applied when painting, may be null. */
+	private PLevelOfDetail levelOfDetail;
+
 	/**
 	 * An optimization that remembers the full bounds of a node rather than
 	 * computing it every time.
@@ -976,12 +1009,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return point in global coordinates
 	 */
 	public Point2D localToGlobal(final Point2D localPoint) {
-		PNode n = this;
-		while (n != null) {
-			n.localToParent(localPoint);
-			n = n.parent;
-		}
-		return localPoint;
+		return getGlobalTransformReference().transform(localPoint, localPoint);
 	}
 
 	/**
@@ -992,12 +1020,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return dimension in global coordinates
 	 */
 	public Dimension2D localToGlobal(final Dimension2D localDimension) {
-		PNode n = this;
-		while (n != null) {
-			n.localToParent(localDimension);
-			n = n.parent;
-		}
-		return localDimension;
+		return getGlobalTransformReference().transform(localDimension, localDimension);
 	}
 
 	/**
@@ -1008,12 +1031,42 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return rectangle in global coordinates
 	 */
 	public Rectangle2D localToGlobal(final Rectangle2D localRectangle) {
-		PNode n = this;
-		while (n != null) {
-			n.localToParent(localRectangle);
-			n = n.parent;
+		return getGlobalTransformReference().transform(localRectangle, localRectangle);
+	}
+
+	/**
+	 * Transform the given points from this node's local coordinate system to the
+	 * global coordinate system. Note that this will modify the points in the
+	 * array.
+	 * 
+	 * @since 3.1
+	 * @param localPoints points in local coordinate system to be transformed.
+	 * @return the array of points, now in global coordinates
+	 */
+	public Point2D[] localToGlobal(final Point2D[] localPoints) {
+		final PAffineTransform globalTransform = getGlobalTransformReference();
+		for (int i = 0; i < localPoints.length; i++) {
+			globalTransform.transform(localPoints[i], localPoints[i]);
+		}
+		return localPoints;
+	}
+
+	/**
+	 * Transform the given rectangles from this node's local coordinate system to
+	 * the global coordinate system. Note that this will modify the rectangles in
+	 * the array.
+	 * 
+	 * @since 3.1
+	 * @param localRectangles rectangles in local coordinate system to be
+	 *                        transformed.
+	 * @return the array of rectangles, now in global coordinates
+	 */
+	public Rectangle2D[] localToGlobal(final Rectangle2D[] localRectangles) {
+		final PAffineTransform globalTransform = getGlobalTransformReference();
+		for (int i = 0; i < localRectangles.length; i++) {
+			globalTransform.transform(localRectangles[i], localRectangles[i]);
 		}
-		return localRectangle;
+		return localRectangles;
 	}
 
 	/**
@@ -1024,20 +1077,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return point in this node's local coordinate system.
 	 */
 	public Point2D globalToLocal(final Point2D globalPoint) {
-		final PAffineTransform globalTransform = computeGlobalTransform(this);
-		return globalTransform.inverseTransform(globalPoint, globalPoint);
-	}
-
-	private PAffineTransform computeGlobalTransform(final PNode node) {
-		if (node == null) {
-			return new PAffineTransform();
-		}
-
-		final PAffineTransform parentGlobalTransform = computeGlobalTransform(node.parent);
-		if (node.transform != null) {
-			parentGlobalTransform.concatenate(node.transform);
-		}
-		return parentGlobalTransform;
+		return getGlobalTransformReference().inverseTransform(globalPoint, globalPoint);
 	}
 
 	/**
@@ -1048,10 +1088,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return dimension in this node's local coordinate system.
 	 */
 	public Dimension2D globalToLocal(final Dimension2D globalDimension) {
-		if (parent != null) {
-			parent.globalToLocal(globalDimension);
-		}
-		return parentToLocal(globalDimension);
+		return getGlobalTransformReference().inverseTransform(globalDimension, globalDimension);
 	}
 
 	/**
@@ -1062,10 +1099,40 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return rectangle in this node's local coordinate system.
 	 */
 	public Rectangle2D globalToLocal(final Rectangle2D globalRectangle) {
-		if (parent != null) {
-			parent.globalToLocal(globalRectangle);
+		return getGlobalTransformReference().inverseTransform(globalRectangle, globalRectangle);
+	}
+
+	/**
+	 * Transform the given points from global coordinates to this node's local
+	 * coordinate system. Note that this will modify the points in the array.
+	 * 
+	 * @since 3.1
+	 * @param globalPoints points in global coordinates to be transformed.
+	 * @return the array of points, now in this node's local coordinate system.
+	 */
+	public Point2D[] globalToLocal(final Point2D[] globalPoints) {
+		final PAffineTransform globalTransform = getGlobalTransformReference();
+		for (int i = 0; i < globalPoints.length; i++) {
+			globalTransform.inverseTransform(globalPoints[i], globalPoints[i]);
 		}
-		return parentToLocal(globalRectangle);
+		return globalPoints;
+	}
+
+	/**
+	 * Transform the given rectangles from global coordinates to this node's local
+	 * coordinate system. Note that this will modify the rectangles in the array.
+	 * 
+	 * @since 3.1
+	 * @param globalRectangles rectangles in global coordinates to be transformed.
+	 * @return the array of rectangles, now in this node's local coordinate
+	 *         system.
+	 */
+	public Rectangle2D[] globalToLocal(final Rectangle2D[] globalRectangles) {
+		final PAffineTransform globalTransform = getGlobalTransformReference();
+		for (int i = 0; i < globalRectangles.length; i++) {
+			globalTransform.inverseTransform(globalRectangles[i], globalRectangles[i]);
+		}
+		return globalRectangles;
 	}
 
 	/**
@@ -1076,21 +1143,11 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return The concatenation of transforms from the top node down to this node.
 	 */
 	public PAffineTransform getLocalToGlobalTransform(final PAffineTransform dest) {
-		PAffineTransform result = dest;
-		if (parent != null) {
-			result = parent.getLocalToGlobalTransform(result);
-			if (transform != null) {
-				result.concatenate(transform);
-			}
-		} else if (dest == null) {
-			result = getTransform();
-		} else if (transform != null) {
-			result.setTransform(transform);
-		} else {
-			result.setToIdentity();
+		if (dest == null) {
+			return new PAffineTransform(getGlobalTransformReference());
 		}
-
-		return result;
+		dest.setTransform(getGlobalTransformReference());
+		return dest;
 	}
 
 	/**
@@ -1112,6 +1169,63 @@ public class PNode implements Cloneable, Serializable, Printable {
 		return result;
 	}
 
+	/**
+	 * Return the cached concatenation of the transforms from the top node down to
+	 * this node, recomputing it if the transform or parent of this node or of
+	 * one of its ancestors changed since it was last computed. The returned
+	 * transform must not be modified.
+	 * 
+	 * @return reference to the global transform of this node
+	 */
+	private PAffineTransform getGlobalTransformReference() {
+		final int changes = TRANSFORM_CHANGES.get();
+		if (globalTransform != null && globalTransformChecked == changes) {
+			return globalTransform;
+		}
+
+		final PAffineTransform parentGlobalTransform;
+		final int parentVersion;
+		if (parent != null) {
+			parentGlobalTransform = parent.getGlobalTransformReference();
+			parentVersion = parent.globalTransformVersion;
+		} else {
+			parentGlobalTransform = null;
+			parentVersion = 0;
+		}
+
+		if (globalTransform == null || globalTransformStamp != transformVersion
+				|| parentGlobalTransformStamp != parentVersion) {
+			if (globalTransform == null) {
+				globalTransform = new PAffineTransform();
+			}
+			if (parentGlobalTransform != null) {
+				globalTransform.setTransform(parentGlobalTransform);
+				if (transform != null) {
+					globalTransform.concatenate(transform);
+				}
+			} else if (transform != null) {
+				globalTransform.setTransform(transform);
+			} else {
+				globalTransform.setToIdentity();
+			}
+			globalTransformVersion++;
+			globalTransformStamp = transformVersion;
+			parentGlobalTransformStamp = parentVersion;
+		}
+		globalTransformChecked = changes;
+		return globalTransform;
+	}
+
+	/**
+	 * Invalidates the cached global transform of this node and, through the
+	 * version checks in getGlobalTransformReference, of its descendants. Called
+	 * whenever the transform or the parent of this node changes.
+	 */
+	private void invalidateGlobalTransforms() {
+		transformVersion++;
+		TRANSFORM_CHANGES.incrementAndGet();
+	}
+
 	// ****************************************************************
 	// Event Listeners - Methods for adding and removing event listeners
 	// from a node.
@@ -1940,7 +2054,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 				// deep in the tree percolate up.
 				if (fullBoundsChanged) {
 					if (parent != null) {
-						parent.invalidateFullBounds();
+						parent.childFullBoundsChanged(this);
 					}
 					firePropertyChange(PROPERTY_CODE_FULL_BOUNDS, PROPERTY_FULL_BOUNDS, null, fullBoundsCache);
 
@@ -1964,6 +2078,20 @@ public class PNode implements Cloneable, Serializable, Printable {
 		return boundsVolatile || childBoundsVolatile;
 	}
 
+	/**
+	 * Notification that the full bounds of the given child have changed during its
+	 * validation. The default implementation invalidates this node's full bounds so
+	 * that the change percolates up the tree. Subclasses that maintain data derived
+	 * from their children's full bounds may override this method, but must call the
+	 * super implementation.
+	 * 
+	 * @since 3.1
+	 * @param child the child whose full bounds have changed
+	 */
+	protected void childFullBoundsChanged(final PNode child) {
+		invalidateFullBounds();
+	}
+
 	/**
 	 * Nodes that apply layout constraints to their children should override this
 	 * method and do the layout there.
@@ -2059,6 +2187,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		getTransformReference(true).rotate(theta, x, y);
 		invalidatePaint();
 		invalidateFullBounds();
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_TRANSFORM, PROPERTY_TRANSFORM, null, transform);
 	}
 
@@ -2148,6 +2277,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		getTransformReference(true).scaleAboutPoint(scale, x, y);
 		invalidatePaint();
 		invalidateFullBounds();
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_TRANSFORM, PROPERTY_TRANSFORM, null, transform);
 	}
 
@@ -2241,6 +2371,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		getTransformReference(true).setOffset(x, y);
 		invalidatePaint();
 		invalidateFullBounds();
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_TRANSFORM, PROPERTY_TRANSFORM, null, transform);
 	}
 
@@ -2270,6 +2401,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		getTransformReference(true).translate(dx, dy);
 		invalidatePaint();
 		invalidateFullBounds();
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_TRANSFORM, PROPERTY_TRANSFORM, null, transform);
 	}
 
@@ -2310,6 +2442,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		getTransformReference(true).concatenate(aTransform);
 		invalidatePaint();
 		invalidateFullBounds();
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_TRANSFORM, PROPERTY_TRANSFORM, null, transform);
 	}
 
@@ -2415,6 +2548,13 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * created it may return null. The createNewTransformIfNull parameter is used to
 	 * specify that the PNode should create a new transform (and assign that
 	 * transform to the nodes local transform variable) instead of returning null.
+	 * <p>
+	 * Since the returned transform may then be modified, passing true also
+	 * invalidates the cached global transforms of this node and its descendants.
+	 * Changes made to the reference after the global transform has been computed
+	 * again, or to a reference returned for false, are not seen until the
+	 * transform of this node or one of its ancestors is changed.
+	 * </p>
 	 * 
 	 * @param createNewTransformIfNull if the transform has not been initialised,
 	 *                                 should it be?
@@ -2422,8 +2562,11 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 * @return reference to this node's transform
 	 */
 	public PAffineTransform getTransformReference(final boolean createNewTransformIfNull) {
-		if (transform == null && createNewTransformIfNull) {
-			transform = new PAffineTransform();
+		if (createNewTransformIfNull) {
+			if (transform == null) {
+				transform = new PAffineTransform();
+			}
+			invalidateGlobalTransforms();
 		}
 		return transform;
 	}
@@ -2459,6 +2602,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 
 		invalidatePaint();
 		invalidateFullBounds();
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_TRANSFORM, PROPERTY_TRANSFORM, null, this.transform);
 	}
 
@@ -2565,9 +2709,14 @@ public class PNode implements Cloneable, Serializable, Printable {
 
 	/**
 	 * Mark the area on the screen represented by this nodes full bounds as needing
-	 * a repaint.
+	 * a repaint. While this node's root has a batch open the area is accumulated
+	 * and repainted when the batch ends.
 	 */
 	public void repaint() {
+		final PRoot batchingRoot = getBatchingRoot();
+		if (batchingRoot != null && batchingRoot.batchRepaint(this)) {
+			return;
+		}
 		TEMP_REPAINT_BOUNDS.setRect(getFullBoundsReference());
 		repaintFrom(TEMP_REPAINT_BOUNDS, this);
 	}
@@ -2625,6 +2774,36 @@ public class PNode implements Cloneable, Serializable, Printable {
 		this.occluded = occluded;
 	}
 
+	// ****************************************************************
+	// Level of Detail - Methods for painting cheaper representations of
+	// this node and its descendants at small scales.
+	// ****************************************************************
+
+	/**
+	 * Return the level of detail rules applied when painting this node, or
+	 * <code>null</code> if this node is always painted normally.
+	 * 
+	 * @since 3.1
+	 * @return the level of detail of this node, may be null
+	 */
+	public PLevelOfDetail getLevelOfDetail() {
+		return levelOfDetail;
+	}
+
+	/**
+	 * Set the level of detail rules applied when painting this node. When one of
+	 * its rules applies, <code>fullPaint</code> paints the level of detail's
+	 * collapsed fill or representation instead of this node and its descendants,
+	 * without visiting the descendants.
+	 * 
+	 * @since 3.1
+	 * @param levelOfDetail level of detail of this node, may be null
+	 */
+	public void setLevelOfDetail(final PLevelOfDetail levelOfDetail) {
+		this.levelOfDetail = levelOfDetail;
+		invalidatePaint();
+	}
+
 	// ****************************************************************
 	// Painting - Methods for painting this node and its children
 	//
@@ -2741,8 +2920,9 @@ public class PNode implements Cloneable, Serializable, Printable {
 	}
 
 	/**
-	 * Paint this node and all of its descendants. Most subclasses do not need to
-	 * override this method, they should override <code>paint</code> or
+	 * Paint this node and all of its descendants, or the representation chosen by
+	 * this node's level of detail. Most subclasses do not need to override this
+	 * method, they should override <code>paint</code> or
 	 * <code>paintAfterChildren</code> instead.
 	 * 
 	 * @param paintContext the paint context to use for painting this node and its
@@ -2750,6 +2930,10 @@ public class PNode implements Cloneable, Serializable, Printable {
 	 */
 	public void fullPaint(final PPaintContext paintContext) {
 		if (getVisible() && fullIntersects(paintContext.getLocalClip())) {
+			if (levelOfDetail != null && levelOfDetail.paint(this, paintContext)) {
+				return;
+			}
+
 			paintContext.pushTransform(transform);
 			paintContext.pushTransparency(transparency);
 
@@ -3059,7 +3243,9 @@ public class PNode implements Cloneable, Serializable, Printable {
 	/**
 	 * Try to pick this node and all of its descendants. Most subclasses should not
 	 * need to override this method. Instead they should override <code>pick</code>
-	 * or <code>pickAfterChildren</code>.
+	 * or <code>pickAfterChildren</code>. Overriding implementations must report
+	 * picks through <code>PPickPath.nodePicked</code>, which lets pick paths
+	 * collecting all hits continue the traversal.
 	 * 
 	 * @param pickPath the pick path to add the node to if its picked
 	 * @return true if this node or one of its descendants was picked.
@@ -3070,8 +3256,9 @@ public class PNode implements Cloneable, Serializable, Printable {
 			pickPath.pushTransform(transform);
 
 			final boolean thisPickable = getPickable() && pickPath.acceptsNode(this);
+			final boolean picked = thisPickable && pick(pickPath);
 
-			if (thisPickable && pick(pickPath)) {
+			if (picked && pickPath.nodePicked()) {
 				return true;
 			}
 
@@ -3085,7 +3272,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 				}
 			}
 
-			if (thisPickable && pickAfterChildren(pickPath)) {
+			if (thisPickable && !picked && pickAfterChildren(pickPath) && pickPath.nodePicked()) {
 				return true;
 			}
 
@@ -3175,7 +3362,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		child.invalidatePaint();
 		invalidateFullBounds();
 
-		firePropertyChange(PROPERTY_CODE_CHILDREN, PROPERTY_CHILDREN, null, children);
+		fireChildrenChanged();
 	}
 
 	/**
@@ -3392,6 +3579,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 	public void setParent(final PNode newParent) {
 		final PNode old = parent;
 		parent = newParent;
+		invalidateGlobalTransforms();
 		firePropertyChange(PROPERTY_CODE_PARENT, PROPERTY_PARENT, old, parent);
 	}
 
@@ -3446,7 +3634,7 @@ public class PNode implements Cloneable, Serializable, Printable {
 		child.setParent(null);
 		invalidateFullBounds();
 
-		firePropertyChange(PROPERTY_CODE_CHILDREN, PROPERTY_CHILDREN, null, children);
+		fireChildrenChanged();
 
 		return child;
 	}
@@ -3480,10 +3668,40 @@ public class PNode implements Cloneable, Serializable, Printable {
 			invalidatePaint();
 			invalidateFullBounds();
 
+			fireChildrenChanged();
+		}
+	}
+
+	/**
+	 * Fires the <code>PROPERTY_CHILDREN</code> change for this node, or defers it
+	 * to the end of the batch when this node's root has a batch open.
+	 */
+	void fireChildrenChanged() {
+		final PRoot batchingRoot = getBatchingRoot();
+		if (batchingRoot != null) {
+			batchingRoot.batchChildrenChanged(this);
+		} else {
 			firePropertyChange(PROPERTY_CODE_CHILDREN, PROPERTY_CHILDREN, null, children);
 		}
 	}
 
+	/**
+	 * Returns the root of this node if it currently has a batch open, null
+	 * otherwise. Avoids the walk to the root when no batch is open anywhere.
+	 * 
+	 * @return the batching root of this node, or null
+	 */
+	private PRoot getBatchingRoot() {
+		if (!PRoot.isAnyBatchOpen()) {
+			return null;
+		}
+		final PRoot root = getRoot();
+		if (root != null && root.isBatching()) {
+			return root;
+		}
+		return null;
+	}
+
 	/**
 	 * Delete this node by removing it from its parent's list of children.
 	 */
@@ -31,6 +31,10 @@ package org.piccolo2d;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PPaintContext;
@@ -38,6 +42,38 @@ import org.piccolo2d.util.PUtil;
 
 /**
  * Offscreen canvas.
+ * <p>
+ * Besides rendering on the calling thread, an offscreen canvas can split its
+ * area into tiles and paint them concurrently on a fork-join pool, see
+ * {@link #renderParallel(Graphics2D, ForkJoinPool)}. Parallel rendering paints
+ * the same scene graph from several threads at once, which is only safe if
+ * painting does not modify any node. The scene graph is validated once before
+ * painting starts, after which the following hold:
+ * </p>
+ * <ul>
+ * <li>plain nodes, layers, cameras and <code>PIndexedLayer</code>,
+ * <code>PPath</code>, <code>PShape</code> subclasses, <code>PText</code>,
+ * <code>PStyledText</code>, <code>PClip</code>, <code>PComposite</code>,
+ * <code>P3DRect</code> and <code>PImage</code> nodes given their image with
+ * <code>setImage</code> are safe to paint concurrently;</li>
+ * <li>layers cached with {@link PCamera#setLayerCached PCamera.setLayerCached}
+ * are safe, but the tile cache paints one tile at a time;</li>
+ * <li><code>PNodeCache</code> and <code>PCacheCamera</code> build their image
+ * caches lazily while painting and are not safe;</li>
+ * <li><code>PImage</code> nodes loading with <code>setImageAsync</code>, and
+ * <code>PShadow</code> and other images held by a <code>PRasterCache</code>,
+ * start loads or recreate their image while
+ * painting and are not safe;</li>
+ * <li><code>PSwing</code> and <code>PHtmlView</code> paint Swing components,
+ * which may only be painted on the event dispatch thread, and are not safe;</li>
+ * <li>custom nodes are safe if their <code>paint</code> methods only read
+ * state and do not share mutable temporaries, such as static scratch
+ * rectangles, between instances.</li>
+ * </ul>
+ * <p>
+ * The scene graph must not be modified, by activities or any other thread,
+ * while a parallel render is in progress.
+ * </p>
  *
  * @since 1.3
  */
@@ -48,6 +84,9 @@ public final class POffscreenCanvas implements PComponent {
 	 */
 	static final int DEFAULT_RENDER_QUALITY = PPaintContext.HIGH_QUALITY_RENDERING;
 
+	/** Default width and height of the tiles painted by a parallel render. */
+	public static final int DEFAULT_TILE_SIZE = 256;
+
 	/** Bounds of this offscreen canvas. */
 	private final PBounds bounds;
 
@@ -63,6 +102,9 @@ public final class POffscreenCanvas implements PComponent {
 	/** Background color for this offscreen canvas. */
 	private Color backgroundColor;
 
+	/** Width and height of the tiles painted by a parallel render. */
+	private int tileSize = DEFAULT_TILE_SIZE;
+
 	/**
 	 * Create a new offscreen canvas the specified width and height.
 	 * 
@@ -103,6 +145,101 @@ public final class POffscreenCanvas implements PComponent {
 		camera.fullPaint(paintContext);
 	}
 
+	/**
+	 * Render this offscreen canvas to the specified graphics, painting its tiles
+	 * concurrently on the specified fork-join pool. The scene graph is validated
+	 * on the calling thread, then each tile is painted into its own image with its
+	 * own paint context and drawn into <code>graphics</code> as soon as it is
+	 * complete. The method returns once all tiles have been drawn.
+	 * <p>
+	 * Tiles are painted at the resolution of this offscreen canvas and drawn
+	 * through the current transform of <code>graphics</code>. Tiles of an opaque
+	 * offscreen canvas are painted over its background color; tiles of a
+	 * translucent one are painted over transparent pixels, so antialiased text may
+	 * differ slightly from {@link #render render}. See the class
+	 * documentation for the node types that may be painted concurrently.
+	 * </p>
+	 *
+	 * @since 3.1
+	 * @param graphics graphics to render this offscreen canvas to, must not be null
+	 * @param pool     pool to paint tiles on, must not be null
+	 */
+	public void renderParallel(final Graphics2D graphics, final ForkJoinPool pool) {
+		if (graphics == null) {
+			throw new IllegalArgumentException("graphics must not be null");
+		}
+		if (pool == null) {
+			throw new IllegalArgumentException("pool must not be null");
+		}
+
+		if (opaque && backgroundColor != null) {
+			graphics.setBackground(backgroundColor);
+			graphics.clearRect(0, 0, (int) bounds.getWidth(), (int) bounds.getHeight());
+		}
+
+		if (camera == null) {
+			return;
+		}
+		validateForParallelPaint();
+
+		final int columns = (int) Math.ceil(bounds.getWidth() / tileSize);
+		final int rows = (int) Math.ceil(bounds.getHeight() / tileSize);
+		if (columns > 0 && rows > 0) {
+			pool.invoke(new TileRenderTask(graphics, columns, 0, columns * rows));
+		}
+	}
+
+	/**
+	 * Validate the bounds and paint of the scene graph rendered by this offscreen
+	 * canvas, so that painting it does not lazily modify it.
+	 */
+	private void validateForParallelPaint() {
+		final PRoot root = getRoot();
+		if (root != null) {
+			root.validateFullBounds();
+			root.validateFullPaint();
+		}
+		camera.validateFullBounds();
+		final List<PLayer> layers = camera.getLayersReference();
+		for (int i = 0; i < layers.size(); i++) {
+			layers.get(i).validateFullBounds();
+		}
+	}
+
+	/**
+	 * Paint the tile at the specified column and row into a new image and draw it
+	 * into the specified graphics.
+	 *
+	 * @param graphics graphics to draw the tile into
+	 * @param column   column of the tile
+	 * @param row      row of the tile
+	 */
+	private void renderTile(final Graphics2D graphics, final int column, final int row) {
+		final int x = column * tileSize;
+		final int y = row * tileSize;
+		final int width = Math.min(tileSize, (int) Math.ceil(bounds.getWidth()) - x);
+		final int height = Math.min(tileSize, (int) Math.ceil(bounds.getHeight()) - y);
+
+		final BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		final Graphics2D tileGraphics = tile.createGraphics();
+		if (opaque && backgroundColor != null) {
+			// Antialiased text blends differently over transparent pixels
+			tileGraphics.setBackground(backgroundColor);
+			tileGraphics.clearRect(0, 0, width, height);
+		}
+		tileGraphics.translate(-x, -y);
+		tileGraphics.clipRect(x, y, width, height);
+
+		final PPaintContext paintContext = new PPaintContext(tileGraphics);
+		paintContext.setRenderQuality(renderQuality);
+		camera.fullPaint(paintContext);
+		tileGraphics.dispose();
+
+		synchronized (graphics) {
+			graphics.drawImage(tile, x, y, null);
+		}
+	}
+
 	/**
 	 * Set the camera for this offscreen canvas to <code>camera</code>.
 	 * 
@@ -155,6 +292,32 @@ public final class POffscreenCanvas implements PComponent {
 		return renderQuality;
 	}
 
+	/**
+	 * Return the width and height of the tiles painted by a parallel render.
+	 * Defaults to <code>DEFAULT_TILE_SIZE</code>.
+	 *
+	 * @since 3.1
+	 * @return the width and height of the tiles painted by a parallel render
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Set the width and height of the tiles painted by a parallel render to
+	 * <code>tileSize</code>. Smaller tiles balance the work between threads
+	 * better, larger tiles repeat less of the scene graph traversal.
+	 *
+	 * @since 3.1
+	 * @param tileSize width and height of the tiles, must be at least one
+	 */
+	public void setTileSize(final int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("tileSize must be at least one, was " + tileSize);
+		}
+		this.tileSize = tileSize;
+	}
+
 	/** {@inheritDoc} */
 	public void paintImmediately() {
 		// empty
@@ -233,4 +396,41 @@ public final class POffscreenCanvas implements PComponent {
 	public void setBackground(final Color backgroundColor) {
 		this.backgroundColor = backgroundColor;
 	}
+
+	/**
+	 * Paints a range of tiles, splitting it in halves until a single tile is left.
+	 */
+	private final class TileRenderTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** Graphics the tiles are drawn into. */
+		private final Graphics2D graphics;
+
+		/** Number of tiles per row. */
+		private final int columns;
+
+		/** Index of the first tile to paint. */
+		private final int from;
+
+		/** Index after the last tile to paint. */
+		private final int to;
+
+		TileRenderTask(final Graphics2D graphics, final int columns, final int from, final int to) {
+			this.graphics = graphics;
+			this.columns = columns;
+			this.from = from;
+			this.to = to;
+		}
+
+		/** {@inheritDoc} */
+		protected void compute() {
+			if (to - from == 1) {
+				renderTile(graphics, from % columns, from / columns);
+			} else {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new TileRenderTask(graphics, columns, from, middle), new TileRenderTask(graphics, columns,
+						middle, to));
+			}
+		}
+	}
 }
@@ -31,14 +31,22 @@ package org.piccolo2d;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import org.piccolo2d.activities.PActivity;
 import org.piccolo2d.activities.PActivityScheduler;
+import org.piccolo2d.event.PNotificationCenter;
+import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PDebug;
+import org.piccolo2d.util.PFrameClock;
 import org.piccolo2d.util.PNodeFilter;
 
 /**
@@ -114,12 +122,33 @@ public class PRoot extends PNode {
 	 */
 	private transient long globalTime;
 
+	/** Time base and frame pacing of this root, created lazily. */
+	private transient PFrameClock frameClock;
+
 	/**
 	 * Object responsible for scheduling activities, regardless of where in the
 	 * scene they take place.
 	 */
 	private final PActivityScheduler activityScheduler;
 
+	/**
+	 * Number of batches open on any root, lets nodes skip the root lookup.
+	 * Shared by roots that may live on different threads.
+	 */
+	private static final AtomicInteger OPEN_BATCH_COUNT = new AtomicInteger();
+
+	/** Nesting depth of the batches open on this root. */
+	private transient int batchDepth;
+
+	/** Parents whose children changed during the current batch. */
+	private transient Set<PNode> batchedChildrenChanges;
+
+	/**
+	 * Areas needing repaint accumulated during the current batch, keyed by parent
+	 * and in that parent's local coordinates.
+	 */
+	private transient Map<PNode, PBounds> batchedRepaints;
+
 	/**
 	 * Construct a new PRoot(). Note the PCanvas already creates a basic scene graph
 	 * for you so often you will not need to construct your own roots.
@@ -127,7 +156,7 @@ public class PRoot extends PNode {
 	public PRoot() {
 		super();
 		inputSources = new ArrayList<InputSource>();
-		globalTime = System.currentTimeMillis();
+		globalTime = getFrameClock().currentTimeMillis();
 		activityScheduler = new PActivityScheduler(this);
 	}
 
@@ -177,6 +206,153 @@ public class PRoot extends PNode {
 		}
 	}
 
+	// ****************************************************************
+	// Batching
+	// ****************************************************************
+
+	/**
+	 * Open a batch of scene graph mutations on this root. Until the matching
+	 * <code>endBatch</code> no process inputs are scheduled, repaints of nodes
+	 * below this root are accumulated into one area per parent and
+	 * <code>PROPERTY_CHILDREN</code> changes are deferred. Other property changes
+	 * are still fired immediately since layout and embedding code relies on them.
+	 * Batches may be nested; only the outermost <code>endBatch</code> commits.
+	 * 
+	 * @since 3.1
+	 */
+	public void beginBatch() {
+		if (batchDepth == 0) {
+			OPEN_BATCH_COUNT.incrementAndGet();
+		}
+		batchDepth++;
+	}
+
+	/**
+	 * Close a batch opened by <code>beginBatch</code>. When the outermost batch
+	 * closes, the bounds and paint of the scene graph are validated once, the
+	 * accumulated areas are repainted and a single <code>PROPERTY_CHILDREN</code>
+	 * change is fired for each parent whose children changed.
+	 * 
+	 * @since 3.1
+	 * @throws IllegalStateException if no batch is open on this root
+	 */
+	public void endBatch() {
+		if (batchDepth == 0) {
+			throw new IllegalStateException("endBatch called without a matching beginBatch");
+		}
+		if (batchDepth > 1) {
+			batchDepth--;
+			return;
+		}
+
+		try {
+			// validate while still batching so the repaints of invalid nodes coalesce
+			validateFullBounds();
+			validateFullPaint();
+		} finally {
+			batchDepth = 0;
+			OPEN_BATCH_COUNT.decrementAndGet();
+		}
+
+		final Map<PNode, PBounds> repaints = batchedRepaints;
+		final Set<PNode> childrenChanges = batchedChildrenChanges;
+		batchedRepaints = null;
+		batchedChildrenChanges = null;
+
+		if (repaints != null) {
+			final Iterator<Map.Entry<PNode, PBounds>> i = repaints.entrySet().iterator();
+			while (i.hasNext()) {
+				final Map.Entry<PNode, PBounds> each = i.next();
+				each.getKey().repaintFrom(each.getValue(), null);
+			}
+		}
+
+		if (childrenChanges != null) {
+			final Iterator<PNode> i = childrenChanges.iterator();
+			while (i.hasNext()) {
+				i.next().fireChildrenChanged();
+			}
+		}
+		scheduleProcessInputsIfNeeded();
+	}
+
+	/**
+	 * Run the given mutations inside a batch on this root, committing the batch
+	 * even if the mutations throw.
+	 * 
+	 * @since 3.1
+	 * @param mutations scene graph mutations to run
+	 */
+	public void batch(final Runnable mutations) {
+		beginBatch();
+		try {
+			mutations.run();
+		} finally {
+			endBatch();
+		}
+	}
+
+	/**
+	 * Return true if a batch is open on this root.
+	 * 
+	 * @since 3.1
+	 * @return true if a batch is open on this root
+	 */
+	public boolean isBatching() {
+		return batchDepth > 0;
+	}
+
+	/**
+	 * Return true if a batch is open on any root.
+	 * 
+	 * @return true if a batch is open on any root
+	 */
+	static boolean isAnyBatchOpen() {
+		return OPEN_BATCH_COUNT.get() > 0;
+	}
+
+	/**
+	 * Record that the children of the given parent changed during the current
+	 * batch.
+	 * 
+	 * @param parent node whose children changed
+	 */
+	void batchChildrenChanged(final PNode parent) {
+		if (batchedChildrenChanges == null) {
+			batchedChildrenChanges = new LinkedHashSet<PNode>();
+		}
+		batchedChildrenChanges.add(parent);
+	}
+
+	/**
+	 * Accumulate the full bounds of the given node into the area of its parent
+	 * that is repainted when the current batch ends. Nodes directly below this
+	 * root, such as layers and cameras, dispatch their own repaints and are not
+	 * accumulated.
+	 * 
+	 * @param node node requesting a repaint
+	 * @return true if the repaint was accumulated, false if the node should
+	 *         repaint immediately
+	 */
+	boolean batchRepaint(final PNode node) {
+		final PNode parent = node.getParent();
+		if (parent == null || parent.getParent() == null) {
+			return false;
+		}
+		if (node.getVisible()) {
+			if (batchedRepaints == null) {
+				batchedRepaints = new LinkedHashMap<PNode, PBounds>();
+			}
+			PBounds area = batchedRepaints.get(parent);
+			if (area == null) {
+				area = new PBounds();
+				batchedRepaints.put(parent, area);
+			}
+			area.add(node.getFullBoundsReference());
+		}
+		return true;
+	}
+
 	/**
 	 * Since getRoot is handled recursively, and root is the lowest point in the
 	 * hierarchy, simply returns itself.
@@ -296,10 +472,12 @@ public class PRoot extends PNode {
 	// ****************************************************************
 
 	/**
-	 * Get the global Piccolo2D time. This is set to System.currentTimeMillis() at
-	 * the beginning of the roots <code>processInputs</code> method. Activities
-	 * should usually use this global time instead of System. currentTimeMillis() so
-	 * that multiple activities will be synchronized.
+	 * Get the global Piccolo2D time. This is set to the current time of the
+	 * frame clock at the beginning of the roots <code>processInputs</code>
+	 * method. That time is on the System.currentTimeMillis() scale, never
+	 * behind it and never going backwards. Activities should usually use this
+	 * global time instead of System.currentTimeMillis() so that multiple
+	 * activities will be synchronized.
 	 * 
 	 * @return time as recorded at the beginning of activity scheduling
 	 */
@@ -307,16 +485,49 @@ public class PRoot extends PNode {
 		return globalTime;
 	}
 
+	/**
+	 * Returns the frame clock providing the global time of this root and
+	 * pacing its activities. Its frame statistics describe how animation is
+	 * performing.
+	 * 
+	 * @since 3.1
+	 * @return the frame clock of this root
+	 */
+	public PFrameClock getFrameClock() {
+		if (frameClock == null) {
+			frameClock = new PFrameClock();
+		}
+		return frameClock;
+	}
+
+	/**
+	 * Sets the frame clock providing the global time of this root and pacing
+	 * its activities. Its time should be on the
+	 * <code>System.currentTimeMillis</code> scale used by activity start times.
+	 * 
+	 * @since 3.1
+	 * @param frameClock the new frame clock, may not be null
+	 */
+	public void setFrameClock(final PFrameClock frameClock) {
+		if (frameClock == null) {
+			throw new IllegalArgumentException("frame clock may not be null");
+		}
+		this.frameClock = frameClock;
+	}
+
 	/**
 	 * This is the heartbeat of the Piccolo2D framework. Pending input events are
-	 * processed. Activities are given a chance to run, and the bounds caches and
+	 * processed and notifications queued for the event dispatch thread are
+	 * delivered. Activities are given a chance to run, and the bounds caches and
 	 * any paint damage is validated.
 	 */
 	public void processInputs() {
 		PDebug.startProcessingInput();
 		processingInputs = true;
 
-		globalTime = System.currentTimeMillis();
+		final PFrameClock clock = getFrameClock();
+		clock.frameStarted();
+		globalTime = clock.currentTimeMillis();
 		if (inputSources.size() > 0) {
 			final Iterator<InputSource> inputSourceIterator = inputSources.iterator();
 			while (inputSourceIterator.hasNext()) {
@@ -325,6 +536,11 @@ public class PRoot extends PNode {
 			}
 		}
 
+		final PNotificationCenter notificationCenter = PNotificationCenter.defaultCenter();
+		if (notificationCenter.getDeliveryExecutor() == null) {
+			notificationCenter.deliverQueuedNotifications();
+		}
+
 		activityScheduler.processActivities(globalTime);
 		validateFullBounds();
 		validateFullPaint();
@@ -365,9 +581,10 @@ public class PRoot extends PNode {
 		 * The reason for the special case here (when not in the event dispatch thread)
 		 * is that the SwingUtilitiles.invokeLater code below only invokes later with
 		 * respect to the event dispatch thread, it will invoke concurrently with other
-		 * threads.
+		 * threads. While a batch is open nothing is scheduled, the batch validates the
+		 * scene graph when it ends.
 		 */
-		if (!SwingUtilities.isEventDispatchThread()) {
+		if (batchDepth > 0 || !SwingUtilities.isEventDispatchThread()) {
 			/*
 			 * Piccolo2D is not thread safe and should almost always be called from the
 			 * Swing event dispatch thread. It should only reach this point when a new
@@ -147,6 +147,7 @@ public class PActivity {
      */
     public void setStartTime(final long aTriggerTime) {
         startTime = aTriggerTime;
+        timingChanged();
     }
 
     /**
@@ -165,6 +166,7 @@ public class PActivity {
      */
     public void setStepRate(final long aStepRate) {
         stepRate = aStepRate;
+        timingChanged();
     }
 
     /**
@@ -196,6 +198,7 @@ public class PActivity {
      */
     public void setDuration(final long aDuration) {
         duration = aDuration;
+        timingChanged();
     }
 
     /**
@@ -217,6 +220,16 @@ public class PActivity {
         scheduler = aScheduler;
     }
 
+    /**
+     * Lets the scheduler of this activity know that it needs to derive the
+     * next time to process this activity again.
+     */
+    private void timingChanged() {
+        if (scheduler != null) {
+            scheduler.rescheduleActivity(this);
+        }
+    }
+
     // ****************************************************************
     // Stepping
     // ****************************************************************
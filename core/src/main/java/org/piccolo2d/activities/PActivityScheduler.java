@@ -31,8 +31,15 @@ package org.piccolo2d.activities;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.Timer;
 
@@ -50,18 +57,80 @@ import org.piccolo2d.util.PUtil;
  * <li>PActivity.terminate - to terminate a running activity
  * <li>PRoot.processInputs - already calls processActivities for you.
  * </ul>
+ * <p>
+ * The time each activity next needs to be processed is derived from the value
+ * returned by {@link PActivity#processStep} and from the activity's next step
+ * and stop times. Activities due within a default step rate are kept in an
+ * active list that is processed on every call to
+ * <code>processActivities</code>. Activities due later, such as ones whose
+ * start time is far in the future, sleep in a priority queue and are not
+ * touched until they are due. Adding and removing an activity take at most
+ * logarithmic time. Activities that change their timing other than through
+ * <code>setStartTime</code>, <code>setStepRate</code> or
+ * <code>setDuration</code> should call {@link #rescheduleActivity}.
+ * </p>
  * 
  * @version 1.0
  * @author Jesse Grosjean
  */
 public class PActivityScheduler implements Serializable {
     private static final long serialVersionUID = 1L;
+
+    /** Orders activities by descending sequence, the order they are processed in. */
+    private static final Comparator<ScheduledActivity> PROCESSING_ORDER = new Comparator<ScheduledActivity>() {
+        public int compare(final ScheduledActivity a, final ScheduledActivity b) {
+            return a.sequence < b.sequence ? 1 : a.sequence > b.sequence ? -1 : 0;
+        }
+    };
+
+    /**
+     * Activities due within this many milliseconds stay in the active list
+     * rather than sleeping in the queue.
+     */
+    private static final long ACTIVE_WINDOW = PUtil.DEFAULT_ACTIVITY_STEP_RATE;
+
     private transient Timer activityTimer = null;
+
+    /** Whether the activity timer is waiting for a sleeping activity. */
+    private transient boolean timerSleeping;
     private final PRoot root;
-    private final List<PActivity> activities;    
-    private boolean activitiesChanged;
-    private boolean animating;
-    private final ArrayList<PActivity> processingActivities;
+
+    /** Scheduled activities and their scheduling state, in no particular order. */
+    private final Map<PActivity, ScheduledActivity> scheduled;
+
+    /**
+     * The same scheduling states in no particular order, indexed for the
+     * activities view. An entry is removed by moving the last one into its
+     * place.
+     */
+    private final ArrayList<ScheduledActivity> scheduledList;
+
+    /**
+     * Activities processed on every call to <code>processActivities</code>, in
+     * processing order. Removed activities stay in the array, marked removed,
+     * until the next call.
+     */
+    private ScheduledActivity[] active;
+    private int activeSize;
+
+    /** Activities added or woken up since the last call, in no particular order. */
+    private final ArrayList<ScheduledActivity> pending;
+
+    /** Min-heap by wake time of the activities that are not due soon. */
+    private ScheduledActivity[] queue;
+    private int queueSize;
+
+    /** Sequence numbers of activities added normally and with processLast. */
+    private long nextSequence;
+    private long nextLastSequence;
+
+    /** Number of scheduled activities that are animations. */
+    private int animatingCount;
+
+    /** Spare array the pending activities are merged into. */
+    private ScheduledActivity[] mergedActivities;
+
+    private final List<PActivity> activitiesReference;
 
     /**
      * Constructs an instance of PActivityScheduler. All activities it will
@@ -72,8 +141,13 @@ public class PActivityScheduler implements Serializable {
      */
     public PActivityScheduler(final PRoot rootNode) {        
         root = rootNode;
-        activities = new ArrayList<PActivity>();
-        processingActivities = new ArrayList<PActivity>();
+        scheduled = new IdentityHashMap<PActivity, ScheduledActivity>();
+        scheduledList = new ArrayList<ScheduledActivity>();
+        queue = new ScheduledActivity[16];
+        active = new ScheduledActivity[16];
+        mergedActivities = new ScheduledActivity[16];
+        pending = new ArrayList<ScheduledActivity>();
+        activitiesReference = new ActivitiesView();
     }
 
     /**
@@ -104,24 +178,29 @@ public class PActivityScheduler implements Serializable {
      *            all other scheduled activities
      */
     public void addActivity(final PActivity activity, final boolean processLast) {
-        if (activities.contains(activity)) {
+        if (scheduled.containsKey(activity)) {
             return;
         }
 
-        activitiesChanged = true;
-
+        final long sequence;
         if (processLast) {
-            activities.add(0, activity);
+            sequence = --nextLastSequence;
         }
         else {
-            activities.add(activity);
+            sequence = ++nextSequence;
+        }
+        final ScheduledActivity entry = new ScheduledActivity(activity, sequence, activity.isAnimation());
+        scheduled.put(activity, entry);
+        entry.listIndex = scheduledList.size();
+        scheduledList.add(entry);
+        if (entry.animation) {
+            animatingCount++;
         }
+        addPending(entry);
 
         activity.setActivityScheduler(this);
 
-        if (!getActivityTimer().isRunning()) {
-            startActivityTimer();
-        }
+        wakeActivityTimer();
     }
 
     /**
@@ -131,14 +210,25 @@ public class PActivityScheduler implements Serializable {
      * @param activity the activity to be removed
      */
     public void removeActivity(final PActivity activity) {
-        if (!activities.contains(activity)) {
+        final ScheduledActivity entry = scheduled.remove(activity);
+        if (entry == null) {
             return;
         }
 
-        activitiesChanged = true;
-        activities.remove(activity);
+        entry.removed = true;
+        final ScheduledActivity last = scheduledList.remove(scheduledList.size() - 1);
+        if (last != entry) {
+            scheduledList.set(entry.listIndex, last);
+            last.listIndex = entry.listIndex;
+        }
+        if (entry.queueIndex >= 0) {
+            removeAt(entry.queueIndex);
+        }
+        if (entry.animation) {
+            animatingCount--;
+        }
 
-        if (activities.size() == 0) {
+        if (scheduled.isEmpty()) {
             stopActivityTimer();
         }
     }
@@ -147,53 +237,231 @@ public class PActivityScheduler implements Serializable {
      * Removes all activities from the list of scheduled activities.
      */
     public void removeAllActivities() {
-        activitiesChanged = true;
-        activities.clear();
+        final Iterator<ScheduledActivity> i = scheduled.values().iterator();
+        while (i.hasNext()) {
+            i.next().removed = true;
+        }
+        scheduled.clear();
+        scheduledList.clear();
+        pending.clear();
+        Arrays.fill(queue, 0, queueSize, null);
+        queueSize = 0;
+        animatingCount = 0;
         stopActivityTimer();
     }
 
     /**
-     * Returns a reference to the current activities list. Handle with care.
+     * Makes the given activity due at the next call to
+     * <code>processActivities</code>, so that its next processing time is
+     * derived again. Called by activities whose start time, step rate or
+     * duration changed while scheduled. Does nothing if the activity is not
+     * scheduled.
+     * 
+     * @since 3.1
+     * @param activity the activity whose timing changed
+     */
+    public void rescheduleActivity(final PActivity activity) {
+        final ScheduledActivity entry = scheduled.get(activity);
+        if (entry != null && entry.queueIndex >= 0) {
+            removeAt(entry.queueIndex);
+            addPending(entry);
+            wakeActivityTimer();
+        }
+    }
+
+    /**
+     * Returns a read only view of the currently scheduled activities, in no
+     * particular order. Handle with care, the view changes as activities are
+     * added and removed, and removing an activity may move another one to its
+     * index. <code>size</code>, <code>get</code> and <code>contains</code>
+     * take constant time.
+     * <p>
+     * Since 3.1 the list is a read only view in no particular order. It used
+     * to be the modifiable list the scheduler processed activities from, in
+     * the order they were added.
+     * </p>
      * 
      * @return reference to the current activities list.
      */
     public List<PActivity> getActivitiesReference() {
-        return activities;
+        return activitiesReference;
     }
 
     /**
-     * Process all scheduled activities for the given time. Each activity is
-     * given one "step", equivalent to one frame of animation.
+     * Process all due activities for the given time. Each activity is given
+     * one "step", equivalent to one frame of animation. Activities that are not
+     * due, such as ones whose start time is in the future, are not touched.
      * 
      * @param currentTime the current unix time in milliseconds.
      */
     public void processActivities(final long currentTime) {
-        final int size = activities.size();
-        if (size > 0) {
-            processingActivities.addAll(activities);
-            for (int i = size - 1; i >= 0; i--) {
-                final PActivity each = (PActivity) processingActivities.get(i);
-                each.processStep(currentTime);
+        while (queueSize > 0 && queue[0].wakeTime <= currentTime) {
+            pending.add(removeAt(0));
+        }
+        if (!pending.isEmpty()) {
+            mergePending();
+        }
+
+        // activities added while processing go to pending, the active array
+        // is compacted in place
+        final ScheduledActivity[] processing = active;
+        final int size = activeSize;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            final ScheduledActivity each = processing[i];
+            if (each.removed) {
+                continue;
             }
-            processingActivities.clear();
+
+            final long delay = each.activity.processStep(currentTime);
+
+            if (!each.removed && staysActive(each, currentTime, delay)) {
+                processing[kept++] = each;
+            }
+        }
+        Arrays.fill(processing, kept, size, null);
+        activeSize = kept;
+
+        scheduleActivityTimer(currentTime);
+    }
+
+    /**
+     * Restarts the activity timer for the next time activities need to be
+     * processed: after the root's frame clock delay while activities are
+     * active, or when the first sleeping activity is due otherwise.
+     * 
+     * @param currentTime time activities were just processed at
+     */
+    private void scheduleActivityTimer(final long currentTime) {
+        if (scheduled.isEmpty()) {
+            return;
+        }
+        if (activeSize > 0 || !pending.isEmpty() || queueSize == 0) {
+            timerSleeping = false;
+            restartActivityTimer(root.getFrameClock().getFrameDelayMillis());
+        }
+        else {
+            timerSleeping = true;
+            restartActivityTimer(queue[0].wakeTime - currentTime);
         }
     }
 
+    /**
+     * Makes sure the activity timer fires within a frame, for activities that
+     * were just added or woken up.
+     */
+    private void wakeActivityTimer() {
+        if (timerSleeping || !getActivityTimer().isRunning()) {
+            timerSleeping = false;
+            restartActivityTimer(PUtil.ACTIVITY_SCHEDULER_FRAME_DELAY);
+        }
+    }
+
+    /**
+     * Starts the activity timer, or restarts it if running, so that it next
+     * fires after the given delay.
+     * 
+     * @param delay delay in milliseconds
+     */
+    private void restartActivityTimer(final long delay) {
+        final Timer timer = getActivityTimer();
+        final int timerDelay = (int) Math.max(0, Math.min(Integer.MAX_VALUE, delay));
+        timer.setInitialDelay(timerDelay);
+        timer.setDelay(Math.max(1, timerDelay));
+        if (timer.isRunning()) {
+            timer.restart();
+        }
+        else {
+            startActivityTimer();
+        }
+    }
+
+    /**
+     * Returns true if the given activity is due soon enough to stay active,
+     * otherwise puts it to sleep in the queue until it is due.
+     * 
+     * @param entry the activity just processed
+     * @param currentTime time the activity was processed at
+     * @param delay value returned by <code>processStep</code>
+     * @return true if the activity stays active
+     */
+    private boolean staysActive(final ScheduledActivity entry, final long currentTime, final long delay) {
+        if (delay <= ACTIVE_WINDOW) {
+            return true;
+        }
+        entry.wakeTime = nextWakeTime(entry.activity, currentTime, delay);
+        if (entry.wakeTime - currentTime <= ACTIVE_WINDOW) {
+            return true;
+        }
+        offer(entry);
+        return false;
+    }
+
+    /**
+     * Adds the given activity to the pending activities, first dropping removed
+     * ones if many activities were added and removed since the last call to
+     * <code>processActivities</code>.
+     * 
+     * @param entry the activity to add
+     */
+    private void addPending(final ScheduledActivity entry) {
+        final int size = pending.size();
+        if (size > 2 * scheduled.size() + 16) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                final ScheduledActivity each = pending.get(i);
+                if (!each.removed) {
+                    pending.set(kept++, each);
+                }
+            }
+            pending.subList(kept, size).clear();
+        }
+        pending.add(entry);
+    }
+
+    /**
+     * Merges the pending activities into the active array, keeping it in
+     * processing order: most recently added first, and activities added with
+     * processLast after all others.
+     */
+    private void mergePending() {
+        final int pendingSize = pending.size();
+        if (pendingSize > 1) {
+            Collections.sort(pending, PROCESSING_ORDER);
+        }
+        if (mergedActivities.length < activeSize + pendingSize) {
+            mergedActivities = new ScheduledActivity[Math.max(16, (activeSize + pendingSize) * 2)];
+        }
+        final ScheduledActivity[] merged = mergedActivities;
+        int mergedSize = 0;
+        int a = 0;
+        int p = 0;
+        while (a < activeSize || p < pendingSize) {
+            final ScheduledActivity next;
+            if (p == pendingSize || a < activeSize && active[a].sequence > pending.get(p).sequence) {
+                next = active[a++];
+            }
+            else {
+                next = pending.get(p++);
+            }
+            if (!next.removed) {
+                merged[mergedSize++] = next;
+            }
+        }
+        pending.clear();
+        Arrays.fill(active, 0, activeSize, null);
+        mergedActivities = active;
+        active = merged;
+        activeSize = mergedSize;
+    }
+
     /**
      * Return true if any of the scheduled activities are animations.
      * 
      * @return true if any of the scheduled activities are animations.
      */
     public boolean getAnimating() {
-        if (activitiesChanged) {
-            animating = false;
-            for (int i = 0; i < activities.size(); i++) {
-                final PActivity each = (PActivity) activities.get(i);
-                animating |= each.isAnimation();
-            }
-            activitiesChanged = false;
-        }
-        return animating;
+        return animatingCount > 0;
     }
 
     /**
@@ -226,4 +494,132 @@ public class PActivityScheduler implements Serializable {
         }
         return activityTimer;
     }
+
+    /**
+     * Returns the time at which the given activity next needs to be processed.
+     * An activity is processed no later than its next step time and the first
+     * millisecond after its stop time, and no earlier than the delay it
+     * returned from <code>processStep</code>.
+     * 
+     * @param activity the activity just processed
+     * @param currentTime time the activity was processed at
+     * @param delay value returned by <code>processStep</code>
+     * @return the next time to process the activity at
+     */
+    private static long nextWakeTime(final PActivity activity, final long currentTime, final long delay) {
+        if (delay <= 0) {
+            return currentTime;
+        }
+        long wakeTime = currentTime + delay;
+        final long nextStepTime = activity.getNextStepTime();
+        if (nextStepTime > currentTime && nextStepTime < wakeTime) {
+            wakeTime = nextStepTime;
+        }
+        final long stopTime = activity.getStopTime();
+        if (stopTime != Long.MAX_VALUE && stopTime >= currentTime && stopTime + 1 < wakeTime) {
+            wakeTime = stopTime + 1;
+        }
+        return wakeTime;
+    }
+
+    private void offer(final ScheduledActivity entry) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, queueSize * 2);
+        }
+        siftUp(queueSize++, entry);
+    }
+
+    private ScheduledActivity removeAt(final int index) {
+        final ScheduledActivity removed = queue[index];
+        removed.queueIndex = -1;
+        final int last = --queueSize;
+        if (index != last) {
+            final ScheduledActivity moved = queue[last];
+            queue[last] = null;
+            siftDown(index, moved);
+            if (queue[index] == moved) {
+                siftUp(index, moved);
+            }
+        }
+        else {
+            queue[last] = null;
+        }
+        return removed;
+    }
+
+    private void siftUp(final int index, final ScheduledActivity entry) {
+        int i = index;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            final ScheduledActivity p = queue[parent];
+            if (p.wakeTime <= entry.wakeTime) {
+                break;
+            }
+            queue[i] = p;
+            p.queueIndex = i;
+            i = parent;
+        }
+        queue[i] = entry;
+        entry.queueIndex = i;
+    }
+
+    private void siftDown(final int index, final ScheduledActivity entry) {
+        int i = index;
+        final int half = queueSize >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            final int right = child + 1;
+            if (right < queueSize && queue[right].wakeTime < queue[child].wakeTime) {
+                child = right;
+            }
+            if (entry.wakeTime <= queue[child].wakeTime) {
+                break;
+            }
+            queue[i] = queue[child];
+            queue[i].queueIndex = i;
+            i = child;
+        }
+        queue[i] = entry;
+        entry.queueIndex = i;
+    }
+
+    /**
+     * Scheduling state of an activity.
+     */
+    private static final class ScheduledActivity implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final PActivity activity;
+        private final long sequence;
+        private final boolean animation;
+        private long wakeTime;
+        private int queueIndex = -1;
+        private int listIndex;
+        private boolean removed;
+
+        private ScheduledActivity(final PActivity activity, final long sequence, final boolean animation) {
+            this.activity = activity;
+            this.sequence = sequence;
+            this.animation = animation;
+        }
+    }
+
+    /**
+     * Read only list view of the scheduled activities.
+     */
+    private final class ActivitiesView extends AbstractList<PActivity> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public PActivity get(final int index) {
+            return scheduledList.get(index).activity;
+        }
+
+        public boolean contains(final Object activity) {
+            return scheduled.containsKey(activity);
+        }
+
+        public int size() {
+            return scheduledList.size();
+        }
+    }
 }
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.activities;
+
+import java.awt.Color;
+import java.awt.Paint;
+
+import org.piccolo2d.PNode;
+import org.piccolo2d.PRoot;
+import org.piccolo2d.util.PAffineTransform;
+import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PUtil;
+
+/**
+ * <b>PBulkAnimationActivity</b> animates many nodes with a single activity.
+ * The source and destination values of every node are kept in primitive
+ * arrays, so each step interpolates all nodes in one loop instead of
+ * stepping an activity per node.
+ * <p>
+ * Any combination of transforms, offsets, bounds, transparencies and colors
+ * may be animated by setting destination arrays before the activity starts.
+ * Array entries are indexed by node, so node <code>i</code> uses the
+ * destination transform at <code>6 * i</code>, the destination offset at
+ * <code>2 * i</code>, the destination bounds at <code>4 * i</code>, and the
+ * destination transparency and color at <code>i</code>. Source values are
+ * read from the nodes when the activity starts.
+ * </p>
+ * <p>
+ * Each step pushes its results to the nodes inside a batch on the root of the
+ * activity's scheduler. Their invalidation is therefore validated and
+ * repainted once per step. All nodes share one {@link PEasing} curve, which
+ * replaces the slow in slow out setting of other interpolating activities and
+ * defaults to the same curve.
+ * Individual nodes can be dropped from the animation with
+ * {@link #cancel(int)}. The whole animation stops with <code>terminate</code>.
+ * </p>
+ * <pre>
+ * PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 500);
+ * activity.setDestinationOffsets(offsets);
+ * activity.setEasing(PEasing.EASE_IN_OUT);
+ * root.addActivity(activity);
+ * </pre>
+ * 
+ * @since 3.1
+ */
+public class PBulkAnimationActivity extends PInterpolatingActivity {
+
+    private final PNode[] nodes;
+    private final boolean[] cancelled;
+    private PEasing easing = PEasing.EASE_IN_OUT;
+
+    private double[] sourceTransforms;
+    private double[] destinationTransforms;
+    private double[] sourceOffsets;
+    private double[] destinationOffsets;
+    private double[] sourceBounds;
+    private double[] destinationBounds;
+    private float[] sourceTransparencies;
+    private float[] destinationTransparencies;
+    private int[] sourceColors;
+    private int[] destinationColors;
+    private int[] currentColors;
+
+    private final PAffineTransform transform = new PAffineTransform();
+
+    /**
+     * Constructs an activity that animates the given nodes over the given
+     * duration at the default step rate.
+     * 
+     * @param nodes nodes to animate, the array is copied
+     * @param duration duration in milliseconds of the animation
+     */
+    public PBulkAnimationActivity(final PNode[] nodes, final long duration) {
+        this(nodes, duration, PUtil.DEFAULT_ACTIVITY_STEP_RATE);
+    }
+
+    /**
+     * Constructs an activity that animates the given nodes over the given
+     * duration at the given step rate.
+     * 
+     * @param nodes nodes to animate, the array is copied
+     * @param duration duration in milliseconds of the animation
+     * @param stepRate interval in milliseconds between steps
+     */
+    public PBulkAnimationActivity(final PNode[] nodes, final long duration, final long stepRate) {
+        super(duration, stepRate);
+        setSlowInSlowOut(false);
+        this.nodes = nodes.clone();
+        cancelled = new boolean[nodes.length];
+    }
+
+    /**
+     * Returns the number of nodes animated by this activity.
+     * 
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the node at the given index.
+     * 
+     * @param index index of the node
+     * @return the node at the index
+     */
+    public PNode getNode(final int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the easing curve shared by all nodes of this activity.
+     * 
+     * @return the easing curve
+     */
+    public PEasing getEasing() {
+        return easing;
+    }
+
+    /**
+     * Sets the easing curve shared by all nodes of this activity. Use
+     * {@link PEasing#LINEAR} to disable easing.
+     * 
+     * @param easing the easing curve, may not be null
+     */
+    public void setEasing(final PEasing easing) {
+        if (easing == null) {
+            throw new IllegalArgumentException("easing may not be null");
+        }
+        this.easing = easing;
+    }
+
+    /**
+     * Sets the transforms the nodes are animated to, six matrix entries per
+     * node in the order of <code>AffineTransform.getMatrix</code>. Can not be
+     * combined with destination offsets.
+     * 
+     * @param matrices destination matrices, copied, or null to not animate
+     *            transforms
+     */
+    public void setDestinationTransforms(final double[] matrices) {
+        if (matrices != null && destinationOffsets != null) {
+            throw new IllegalStateException("transforms and offsets can not both be animated");
+        }
+        destinationTransforms = copy(matrices, 6);
+        sourceTransforms = allocate(destinationTransforms, 6);
+    }
+
+    /**
+     * Sets the offsets the nodes are animated to, an x and a y per node. The
+     * other components of the node transforms are left alone. Can not be
+     * combined with destination transforms.
+     * 
+     * @param offsets destination offsets, copied, or null to not animate
+     *            offsets
+     */
+    public void setDestinationOffsets(final double[] offsets) {
+        if (offsets != null && destinationTransforms != null) {
+            throw new IllegalStateException("transforms and offsets can not both be animated");
+        }
+        destinationOffsets = copy(offsets, 2);
+        sourceOffsets = allocate(destinationOffsets, 2);
+    }
+
+    /**
+     * Sets the bounds the nodes are animated to, an x, y, width and height per
+     * node.
+     * 
+     * @param bounds destination bounds, copied, or null to not animate bounds
+     */
+    public void setDestinationBounds(final double[] bounds) {
+        destinationBounds = copy(bounds, 4);
+        sourceBounds = allocate(destinationBounds, 4);
+    }
+
+    /**
+     * Sets the transparencies the nodes are animated to, one per node.
+     * 
+     * @param transparencies destination transparencies, copied, or null to not
+     *            animate transparency
+     */
+    public void setDestinationTransparencies(final float[] transparencies) {
+        if (transparencies == null) {
+            destinationTransparencies = null;
+            sourceTransparencies = null;
+            return;
+        }
+        checkLength(transparencies.length, 1);
+        destinationTransparencies = transparencies.clone();
+        sourceTransparencies = new float[nodes.length];
+    }
+
+    /**
+     * Sets the colors the nodes' paints are animated to, one packed ARGB value
+     * per node. Nodes whose paint is not a <code>Color</code> when the
+     * activity starts jump to their destination color.
+     * 
+     * @param argb destination colors, copied, or null to not animate paint
+     */
+    public void setDestinationColors(final int[] argb) {
+        if (argb == null) {
+            destinationColors = null;
+            sourceColors = null;
+            currentColors = null;
+            return;
+        }
+        checkLength(argb.length, 1);
+        destinationColors = argb.clone();
+        sourceColors = new int[nodes.length];
+        currentColors = new int[nodes.length];
+    }
+
+    /**
+     * Stops animating the node at the given index, leaving it at its current
+     * state. The other nodes keep animating.
+     * 
+     * @param index index of the node
+     */
+    public void cancel(final int index) {
+        cancelled[index] = true;
+    }
+
+    /**
+     * Returns true if the node at the given index is no longer animated.
+     * 
+     * @param index index of the node
+     * @return true if the node's animation was cancelled
+     */
+    public boolean isCancelled(final int index) {
+        return cancelled[index];
+    }
+
+    /**
+     * Whether each step invalidates paint.
+     * 
+     * @return true since the animated properties affect the nodes' display
+     */
+    protected boolean isAnimation() {
+        return true;
+    }
+
+    /**
+     * Reads the source values from the nodes when the first loop starts.
+     */
+    protected void activityStarted() {
+        if (getFirstLoop()) {
+            readSources();
+        }
+        super.activityStarted();
+    }
+
+    /**
+     * Sets every animated node to the interpolation between its source and
+     * destination values, eased by the easing curve of this activity.
+     * 
+     * @param zeroToOne how far along the activity has progressed. 0 = not at
+     *            all, 1 = completed
+     */
+    public void setRelativeTargetValue(final float zeroToOne) {
+        super.setRelativeTargetValue(zeroToOne);
+
+        final float t = easing.ease(zeroToOne);
+        final PRoot root = getRoot();
+        if (root != null) {
+            root.beginBatch();
+        }
+        try {
+            for (int i = 0; i < nodes.length; i++) {
+                if (!cancelled[i]) {
+                    push(i, t);
+                }
+            }
+        }
+        finally {
+            if (root != null) {
+                root.endBatch();
+            }
+        }
+    }
+
+    private PRoot getRoot() {
+        final PActivityScheduler scheduler = getActivityScheduler();
+        if (scheduler == null) {
+            return null;
+        }
+        return scheduler.getRoot();
+    }
+
+    private void push(final int i, final float t) {
+        final PNode node = nodes[i];
+        if (destinationTransforms != null) {
+            final int j = i * 6;
+            final double[] s = sourceTransforms;
+            final double[] d = destinationTransforms;
+            transform.setTransform(s[j] + t * (d[j] - s[j]), s[j + 1] + t * (d[j + 1] - s[j + 1]), s[j + 2] + t
+                    * (d[j + 2] - s[j + 2]), s[j + 3] + t * (d[j + 3] - s[j + 3]), s[j + 4] + t
+                    * (d[j + 4] - s[j + 4]), s[j + 5] + t * (d[j + 5] - s[j + 5]));
+            node.setTransform(transform);
+        }
+        else if (destinationOffsets != null) {
+            final int j = i * 2;
+            node.setOffset(sourceOffsets[j] + t * (destinationOffsets[j] - sourceOffsets[j]), sourceOffsets[j + 1]
+                    + t * (destinationOffsets[j + 1] - sourceOffsets[j + 1]));
+        }
+        if (destinationBounds != null) {
+            final int j = i * 4;
+            final double[] s = sourceBounds;
+            final double[] d = destinationBounds;
+            node.setBounds(s[j] + t * (d[j] - s[j]), s[j + 1] + t * (d[j + 1] - s[j + 1]), s[j + 2] + t
+                    * (d[j + 2] - s[j + 2]), s[j + 3] + t * (d[j + 3] - s[j + 3]));
+        }
+        if (destinationTransparencies != null) {
+            node.setTransparency(sourceTransparencies[i] + t
+                    * (destinationTransparencies[i] - sourceTransparencies[i]));
+        }
+        if (destinationColors != null) {
+            final int color = interpolateColor(sourceColors[i], destinationColors[i], t);
+            if (color != currentColors[i]) {
+                currentColors[i] = color;
+                node.setPaint(new Color(color, true));
+            }
+        }
+    }
+
+    private void readSources() {
+        for (int i = 0; i < nodes.length; i++) {
+            final PNode node = nodes[i];
+            if (sourceTransforms != null) {
+                final PAffineTransform nodeTransform = node.getTransformReference(false);
+                final int j = i * 6;
+                if (nodeTransform == null) {
+                    sourceTransforms[j] = 1;
+                    sourceTransforms[j + 1] = 0;
+                    sourceTransforms[j + 2] = 0;
+                    sourceTransforms[j + 3] = 1;
+                    sourceTransforms[j + 4] = 0;
+                    sourceTransforms[j + 5] = 0;
+                }
+                else {
+                    sourceTransforms[j] = nodeTransform.getScaleX();
+                    sourceTransforms[j + 1] = nodeTransform.getShearY();
+                    sourceTransforms[j + 2] = nodeTransform.getShearX();
+                    sourceTransforms[j + 3] = nodeTransform.getScaleY();
+                    sourceTransforms[j + 4] = nodeTransform.getTranslateX();
+                    sourceTransforms[j + 5] = nodeTransform.getTranslateY();
+                }
+            }
+            if (sourceOffsets != null) {
+                sourceOffsets[i * 2] = node.getXOffset();
+                sourceOffsets[i * 2 + 1] = node.getYOffset();
+            }
+            if (sourceBounds != null) {
+                final PBounds bounds = node.getBoundsReference();
+                sourceBounds[i * 4] = bounds.getX();
+                sourceBounds[i * 4 + 1] = bounds.getY();
+                sourceBounds[i * 4 + 2] = bounds.getWidth();
+                sourceBounds[i * 4 + 3] = bounds.getHeight();
+            }
+            if (sourceTransparencies != null) {
+                sourceTransparencies[i] = node.getTransparency();
+            }
+            if (sourceColors != null) {
+                final Paint paint = node.getPaint();
+                if (paint instanceof Color) {
+                    sourceColors[i] = ((Color) paint).getRGB();
+                    currentColors[i] = sourceColors[i];
+                }
+                else {
+                    sourceColors[i] = destinationColors[i];
+                    // differs from every color pushed, so the first step sets the paint
+                    currentColors[i] = ~destinationColors[i];
+                }
+            }
+        }
+    }
+
+    private static int interpolateColor(final int source, final int destination, final float t) {
+        if (source == destination) {
+            return source;
+        }
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            final int s = source >>> shift & 0xff;
+            final int d = destination >>> shift & 0xff;
+            result |= Math.round(s + t * (d - s)) << shift;
+        }
+        return result;
+    }
+
+    private double[] copy(final double[] values, final int perNode) {
+        if (values == null) {
+            return null;
+        }
+        checkLength(values.length, perNode);
+        return values.clone();
+    }
+
+    private double[] allocate(final double[] destination, final int perNode) {
+        if (destination == null) {
+            return null;
+        }
+        return new double[nodes.length * perNode];
+    }
+
+    private void checkLength(final int length, final int perNode) {
+        if (length != nodes.length * perNode) {
+            throw new IllegalArgumentException("expected " + nodes.length * perNode + " values but got " + length);
+        }
+    }
+}
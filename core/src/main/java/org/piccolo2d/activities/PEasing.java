@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.activities;
+
+/**
+ * <b>PEasing</b> maps the linear progress of an animation to eased progress.
+ * Easing curves hold no state and may be shared by any number of activities.
+ * 
+ * @since 3.1
+ */
+public interface PEasing {
+
+    /** Progress is not eased. */
+    PEasing LINEAR = new PEasing() {
+        public float ease(final float t) {
+            return t;
+        }
+    };
+
+    /** Starts slowly and accelerates. */
+    PEasing EASE_IN = new PEasing() {
+        public float ease(final float t) {
+            return t * t;
+        }
+    };
+
+    /** Starts quickly and decelerates. */
+    PEasing EASE_OUT = new PEasing() {
+        public float ease(final float t) {
+            final float complement = 1.0f - t;
+            return 1.0f - complement * complement;
+        }
+    };
+
+    /**
+     * Accelerates and then decelerates, the same curve as
+     * {@link PInterpolatingActivity#computeSlowInSlowOut}.
+     */
+    PEasing EASE_IN_OUT = new PEasing() {
+        public float ease(final float t) {
+            if (t < 0.5f) {
+                return 2.0f * t * t;
+            }
+            final float complement = 1.0f - t;
+            return 1.0f - 2.0f * complement * complement;
+        }
+    };
+
+    /**
+     * Returns the eased progress for the given linear progress. Should return 0
+     * for 0 and 1 for 1.
+     * 
+     * @param t linear progress, from 0 to 1
+     * @return eased progress
+     */
+    float ease(float t);
+}
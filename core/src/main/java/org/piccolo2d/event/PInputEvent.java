@@ -190,6 +190,21 @@ public class PInputEvent {
         return pickPath.getPickedNode();
     }
 
+    /**
+     * Return the index of the item picked within the picked node, for nodes that
+     * paint many items themselves such as <code>PPointCloud</code>. Returns -1
+     * if the picked node did not report a picked item.
+     * 
+     * @since 3.1
+     * @return index of the picked item within the picked node, or -1
+     */
+    public int getPickedItem() {
+        if (pickPath == null) {
+            return -1;
+        }
+        return pickPath.getPickedItem();
+    }
+
     // ****************************************************************
     // Basics
     // ****************************************************************
@@ -43,10 +43,14 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
 
 /**
  * <b>PNotificationCenter</b> provides a way for objects that don't know about
@@ -55,9 +59,28 @@ import java.util.Set;
  * listeners don't need to know about the event source, and the event source
  * doesn't need to maintain the list of listeners.
  * <p>
- * Listeners of the notifications center are held by weak references. So the
- * notification center will not create garbage collection problems as standard
- * java event listeners do.
+ * Listeners registered with a callback method name are held by weak
+ * references. So the notification center will not create garbage collection
+ * problems as standard java event listeners do. A {@link PNotificationListener}
+ * is held strongly, like a standard java event listener, so an anonymous
+ * listener keeps receiving notifications until it is removed with one of the
+ * <code>removeListener</code> methods. Either kind of listener registered for
+ * a particular object is released when that object is garbage collected.
+ * </p>
+ * <p>
+ * Listeners are either registered with the name of a callback method, which is
+ * invoked through reflection, or as a {@link PNotificationListener}, which is
+ * called directly. Notifications may be posted from any thread. Posting does
+ * not lock; listeners are kept in copy on write lists, so a notification is
+ * delivered to the listeners that were registered when it was posted.
+ * Listeners are called on the posting thread.
+ * </p>
+ * <p>
+ * Notifications posted with one of the <code>postNotificationLater</code>
+ * methods are queued instead and delivered in a batch on the delivery
+ * executor, by default the event dispatch thread. A queued notification with
+ * the same name and object as a newer one is replaced by it, so a burst of
+ * notifications about the same object reaches listeners once per batch.
  * </p>
  * 
  * @author Jesse Grosjean
@@ -66,30 +89,75 @@ public final class PNotificationCenter {
     /** Used as a place holder for null names or objects. */
     public static final Object NULL_MARKER = new Object();
 
+    /**
+     * Default maximum number of notifications waiting for asynchronous
+     * delivery.
+     * 
+     * @since 3.1
+     */
+    public static final int DEFAULT_MAXIMUM_QUEUE_SIZE = 10000;
+
     /** Singleton instance of the notification center. */
-    private  static volatile PNotificationCenter DEFAULT_CENTER;
+    private static final PNotificationCenter DEFAULT_CENTER = new PNotificationCenter();
+
+    /**
+     * A map of listeners keyed by NotificationKey objects. It is looked up
+     * with LookupKey objects, which are equal to the matching NotificationKey.
+     */
+    private final ConcurrentHashMap<Object, CopyOnWriteArrayList<NotificationTarget>> listenersMap;
 
-    /** A map of listeners keyed by NotificationKey objects. */
-    private HashMap<NotificationKey,List<NotificationTarget>> listenersMap;
+    /** The keys of listenersMap indexed by notification name. */
+    private final HashMap<Object, List<NotificationKey>> keysByName;
+
+    /** The keys of listenersMap indexed by the identity hash code of their object. */
+    private final HashMap<Integer, List<NotificationKey>> keysByObject;
 
     /** A queue of NotificationKeys that are available to be garbage collected. */
-    private ReferenceQueue<NotificationKey> keyQueue;
+    private final ReferenceQueue<Object> keyQueue;
+
+    /** Guards the fields of asynchronous delivery. */
+    private final Object queueLock = new Object();
+
+    /** Notifications waiting for asynchronous delivery, in posting order. */
+    private LinkedHashMap<LookupKey, PNotification> queuedNotifications;
+
+    /** Whether a delivery of the queued notifications has been scheduled. */
+    private boolean deliveryScheduled;
+
+    /** Executor delivering queued notifications, null for the event dispatch thread. */
+    private volatile Executor deliveryExecutor;
+
+    /** Maximum number of notifications waiting for asynchronous delivery. */
+    private int maximumQueueSize = DEFAULT_MAXIMUM_QUEUE_SIZE;
+
+    /** Number of queued notifications replaced by a newer one. */
+    private long coalescedCount;
+
+    /** Number of notifications dropped because the queue was full. */
+    private long droppedCount;
+
+    /** Delivers the queued notifications when run on the delivery executor. */
+    private final Runnable deliveryTask = new Runnable() {
+        public void run() {
+            deliverQueuedNotifications();
+        }
+    };
 
     /**
      * Singleton accessor for the PNotificationCenter.
      * 
      * @return singleton instance of PNotificationCenter
      */
-    public synchronized static PNotificationCenter defaultCenter() {
-        if (DEFAULT_CENTER == null) {
-            DEFAULT_CENTER = new PNotificationCenter();
-        }
+    public static PNotificationCenter defaultCenter() {
         return DEFAULT_CENTER;
     }
 
     private PNotificationCenter() {
-        listenersMap = new HashMap<NotificationKey,List<NotificationTarget>>();
-        keyQueue = new ReferenceQueue<NotificationKey>();
+        listenersMap = new ConcurrentHashMap<Object, CopyOnWriteArrayList<NotificationTarget>>();
+        keysByName = new HashMap<Object, List<NotificationKey>>();
+        keysByObject = new HashMap<Integer, List<NotificationKey>>();
+        keyQueue = new ReferenceQueue<Object>();
+        queuedNotifications = new LinkedHashMap<LookupKey, PNotification>();
     }
 
     /**
@@ -110,30 +178,58 @@ public final class PNotificationCenter {
      */
     public boolean addListener(final Object listener, final String callbackMethodName, final String notificationName,
             final Object object) {
-        processKeyQueue();
-
-        final Object name = nullify(notificationName);
-        final Object sanitizedObject = nullify(object);
-
         final Method method = extractCallbackMethod(listener, callbackMethodName);
         if (method == null) {
             return false;
         }
 
-        final NotificationKey key = new NotificationKey(name, sanitizedObject);
-        final NotificationTarget notificationTarget = new NotificationTarget(listener, method);
+        addTarget(new NotificationTarget(listener, method), notificationName, object);
+        return true;
+    }
 
-        List<NotificationTarget> list = listenersMap.get(key);
-        if (list == null) {
-            list = new ArrayList<NotificationTarget>();
-            listenersMap.put(new NotificationKey(name, sanitizedObject, keyQueue), list);
+    /**
+     * Registers the listener to receive notifications with the name
+     * notificationName and/or containing object. If notificationName is null
+     * then the listener will receive all notifications with an object matching
+     * object. If object is null the listener will receive all notifications
+     * with the name notificationName. The listener is called directly, without
+     * reflection.
+     * <p>
+     * Unlike a listener registered with a callback method name, the listener
+     * is held strongly until it is removed with one of the
+     * <code>removeListener</code> methods.
+     * </p>
+     * 
+     * @since 3.1
+     * @param listener listener to be notified of notifications
+     * @param notificationName name of notifications to filter on
+     * @param object source of notification messages that this listener is
+     *            interested in
+     */
+    public void addListener(final PNotificationListener listener, final String notificationName, final Object object) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null");
         }
+        addTarget(new NotificationTarget(listener, null), notificationName, object);
+    }
 
-        if (!list.contains(notificationTarget)) {
-            list.add(notificationTarget);
+    private synchronized void addTarget(final NotificationTarget target, final String notificationName,
+            final Object object) {
+        processKeyQueue();
+
+        final Object name = nullify(notificationName);
+        final Object sanitizedObject = nullify(object);
+
+        CopyOnWriteArrayList<NotificationTarget> list = listenersMap.get(new LookupKey(name, sanitizedObject));
+        if (list == null) {
+            final NotificationKey key = new NotificationKey(name, sanitizedObject, keyQueue);
+            list = new CopyOnWriteArrayList<NotificationTarget>();
+            listenersMap.put(key, list);
+            index(keysByName, name, key);
+            index(keysByObject, Integer.valueOf(key.objectHashCode), key);
         }
 
-        return true;
+        list.addIfAbsent(target);
     }
 
     private Method extractCallbackMethod(final Object listener, final String methodName) {
@@ -181,13 +277,12 @@ public final class PNotificationCenter {
      * 
      * @param listener listener to be removed from this notification center
      */
-    public void removeListener(final Object listener) {
+    public synchronized void removeListener(final Object listener) {
         processKeyQueue();
 
-        Set<NotificationKey> keys = listenersMap.keySet();
-        final Iterator<NotificationKey> i = new LinkedList<NotificationKey>(keys).iterator();
-        while (i.hasNext()) {
-            removeListener(listener, i.next());
+        final List<NotificationKey> keys = registeredKeys();
+        for (int i = 0; i < keys.size(); i++) {
+            removeListener(listener, keys.get(i));
         }
     }
 
@@ -208,13 +303,12 @@ public final class PNotificationCenter {
      * @param notificationName name of notifications or null for all
      * @param object notification source or null for all
      */
-    public void removeListener(final Object listener, final String notificationName, final Object object) {
+    public synchronized void removeListener(final Object listener, final String notificationName, final Object object) {
         processKeyQueue();
 
         final List<NotificationKey> keys = matchingKeys(notificationName, object);
-        final Iterator<NotificationKey> it = keys.iterator();
-        while (it.hasNext()) {
-            removeListener(listener, it.next());
+        for (int i = 0; i < keys.size(); i++) {
+            removeListener(listener, keys.get(i));
         }
     }
 
@@ -255,7 +349,10 @@ public final class PNotificationCenter {
      *            listeners
      */
     public void postNotification(final PNotification notification) {
-        final List<NotificationTarget> mergedListeners = new LinkedList<>();
+        if (listenersMap.isEmpty()) {
+            return;
+        }
+        final List<NotificationTarget> mergedListeners = new ArrayList<NotificationTarget>();
 
         final Object name = notification.getName();
         final Object object = notification.getObject();
@@ -278,41 +375,54 @@ public final class PNotificationCenter {
     }
 
     /**
-     * Adds all listeners that are registered to receive notifications to the
-     * end of the list provided.
+     * Adds all listeners that are registered with the given name and object to
+     * the end of the list provided, dropping listeners that have been garbage
+     * collected. Listeners are collected before any is notified, so that
+     * listeners added or removed while dispatching only take effect for the
+     * next notification.
      * 
-     * @param notificationName name of the notification being emitted
-     * @param object source of the notification
+     * @param notificationName name the listeners were registered with
+     * @param object object the listeners were registered with
      * @param listeners list to append listeners to
      */
-    private void fillWithMatchingListeners(final Object notificationName, final Object object, final List<NotificationTarget> listeners) {
-        final Object key = new NotificationKey(nullify(notificationName), nullify(object));
-        final List<NotificationTarget> globalListeners = listenersMap.get(key);
-        if (globalListeners != null) {
-            listeners.addAll(globalListeners);
+    private void fillWithMatchingListeners(final Object notificationName, final Object object,
+            final List<NotificationTarget> listeners) {
+        final List<NotificationTarget> registered = listenersMap.get(new LookupKey(nullify(notificationName),
+                nullify(object)));
+        if (registered == null) {
+            return;
         }
-    }
-
-    private void dispatchNotifications(final PNotification notification, final List<NotificationTarget> listeners) {
-        NotificationTarget listener;
-        final Iterator<NotificationTarget> listenerIterator = listeners.iterator();
 
-        while (listenerIterator.hasNext()) {
-            listener = listenerIterator.next();
-            if (listener.get() == null) {
-                listenerIterator.remove();
+        for (final NotificationTarget target : registered) {
+            if (target.get() == null) {
+                registered.remove(target);
             }
             else {
-                notifyListener(notification, listener);
+                listeners.add(target);
             }
         }
     }
 
-    private void notifyListener(final PNotification notification, final NotificationTarget listener) {
+    private void dispatchNotifications(final PNotification notification, final List<NotificationTarget> listeners) {
+        for (int i = 0; i < listeners.size(); i++) {
+            final NotificationTarget target = listeners.get(i);
+            final Object listener = target.get();
+            if (listener != null) {
+                notifyListener(notification, target, listener);
+            }
+        }
+    }
+
+    private void notifyListener(final PNotification notification, final NotificationTarget target,
+            final Object listener) {
+        final Method method = target.getMethod();
+        if (method == null) {
+            ((PNotificationListener) listener).notificationPosted(notification);
+            return;
+        }
+
         try {
-            Object[] objects = new Object[1];
-            objects[0] = notification;
-            listener.getMethod().invoke(listener.get(), objects);
+            method.invoke(listener, notification);
         }
         catch (final IllegalAccessException e) {
             throw new RuntimeException("Impossible Situation: invoking inaccessible method on listener", e);
@@ -322,29 +432,256 @@ public final class PNotificationCenter {
         }
     }
 
+    // ****************************************************************
+    // Asynchronous Delivery Methods
+    // ****************************************************************
+
+    /**
+     * Queues a new notification with notificationName and object for
+     * asynchronous delivery. The object may be null.
+     * 
+     * @since 3.1
+     * @param notificationName name of notification to post
+     * @param object source of the notification, null signifies unknown
+     */
+    public void postNotificationLater(final String notificationName, final Object object) {
+        postNotificationLater(notificationName, object, null);
+    }
+
+    /**
+     * Queues a new notification with notificationName, object and properties
+     * for asynchronous delivery. The object may be null.
+     * 
+     * @since 3.1
+     * @param notificationName name of notification being posted
+     * @param object source of the notification, may be null
+     * @param properties properties associated with the notification
+     */
+    public void postNotificationLater(final String notificationName, final Object object,
+            final Map<?, ?> properties) {
+        postNotificationLater(new PNotification(notificationName, object, properties));
+    }
+
+    /**
+     * Queues the notification for asynchronous delivery and returns
+     * immediately. If a notification with the same name and object is already
+     * queued, the new notification takes its place in the queue. If the queue
+     * is full the notification is dropped. Otherwise a delivery of the queue
+     * is scheduled on the delivery executor, unless one is pending.
+     * 
+     * @since 3.1
+     * @param notification notification to be delivered later
+     */
+    public void postNotificationLater(final PNotification notification) {
+        final LookupKey key = new LookupKey(nullify(notification.getName()), nullify(notification.getObject()));
+        synchronized (queueLock) {
+            if (queuedNotifications.containsKey(key)) {
+                queuedNotifications.put(key, notification);
+                coalescedCount++;
+                return;
+            }
+            if (queuedNotifications.size() >= maximumQueueSize) {
+                droppedCount++;
+                return;
+            }
+            queuedNotifications.put(key, notification);
+            if (deliveryScheduled) {
+                return;
+            }
+            deliveryScheduled = true;
+        }
+
+        final Executor executor = deliveryExecutor;
+        if (executor == null) {
+            SwingUtilities.invokeLater(deliveryTask);
+        }
+        else {
+            executor.execute(deliveryTask);
+        }
+    }
+
+    /**
+     * Delivers the queued notifications on the calling thread, in the order
+     * they were first queued. Notifications queued while delivering wait for
+     * the next delivery. This is called on the delivery executor, and at the
+     * start of every frame by {@link org.piccolo2d.PRoot#processInputs()} when
+     * the notifications are delivered on the event dispatch thread.
+     * 
+     * @since 3.1
+     */
+    public void deliverQueuedNotifications() {
+        final LinkedHashMap<LookupKey, PNotification> batch;
+        synchronized (queueLock) {
+            deliveryScheduled = false;
+            if (queuedNotifications.isEmpty()) {
+                return;
+            }
+            batch = queuedNotifications;
+            queuedNotifications = new LinkedHashMap<LookupKey, PNotification>();
+        }
+
+        RuntimeException failure = null;
+        final Iterator<PNotification> notifications = batch.values().iterator();
+        while (notifications.hasNext()) {
+            try {
+                postNotification(notifications.next());
+            }
+            catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the executor delivering queued notifications, or null if they
+     * are delivered on the event dispatch thread.
+     * 
+     * @since 3.1
+     * @return the delivery executor, may be null
+     */
+    public Executor getDeliveryExecutor() {
+        return deliveryExecutor;
+    }
+
     /**
-     * Returns a list of keys with the given name and object.
+     * Sets the executor delivering queued notifications. When it is null,
+     * the default, notifications are delivered on the event dispatch thread,
+     * by <code>SwingUtilities.invokeLater</code> or at the start of the next
+     * frame of a PRoot, whichever comes first.
      * 
-     * @param name name of key
-     * @param object key associated with the object
+     * @since 3.1
+     * @param deliveryExecutor the delivery executor, may be null
+     */
+    public void setDeliveryExecutor(final Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Returns the maximum number of notifications waiting for asynchronous
+     * delivery.
+     * 
+     * @since 3.1
+     * @return the maximum queue size
+     */
+    public int getMaximumQueueSize() {
+        synchronized (queueLock) {
+            return maximumQueueSize;
+        }
+    }
+
+    /**
+     * Sets the maximum number of notifications waiting for asynchronous
+     * delivery. Notifications posted for later while the queue is full are
+     * dropped, unless they replace a queued notification.
+     * 
+     * @since 3.1
+     * @param maximumQueueSize the maximum queue size, must be positive
+     */
+    public void setMaximumQueueSize(final int maximumQueueSize) {
+        if (maximumQueueSize < 1) {
+            throw new IllegalArgumentException("Maximum queue size must be positive");
+        }
+        synchronized (queueLock) {
+            this.maximumQueueSize = maximumQueueSize;
+        }
+    }
+
+    /**
+     * Returns the number of notifications waiting for asynchronous delivery.
+     * 
+     * @since 3.1
+     * @return the queue depth
+     */
+    public int getQueueSize() {
+        synchronized (queueLock) {
+            return queuedNotifications.size();
+        }
+    }
+
+    /**
+     * Returns the number of queued notifications that were replaced by a
+     * newer notification with the same name and object.
+     * 
+     * @since 3.1
+     * @return the number of coalesced notifications
+     */
+    public long getCoalescedCount() {
+        synchronized (queueLock) {
+            return coalescedCount;
+        }
+    }
+
+    /**
+     * Returns the number of notifications dropped because the queue was full.
+     * 
+     * @since 3.1
+     * @return the number of dropped notifications
+     */
+    public long getDroppedCount() {
+        synchronized (queueLock) {
+            return droppedCount;
+        }
+    }
+
+    /**
+     * Resets the coalesced and dropped counts to zero.
+     * 
+     * @since 3.1
+     */
+    public void resetStatistics() {
+        synchronized (queueLock) {
+            coalescedCount = 0;
+            droppedCount = 0;
+        }
+    }
+
+    /**
+     * Returns the registered keys matching the given name and object, where a
+     * null name or object matches any. Uses the name and object indexes rather
+     * than scanning every key.
+     * 
+     * @param name name of key, or null for all
+     * @param object object of key, or null for all
      * 
      * @return list of matching keys
      */
     private List<NotificationKey> matchingKeys(final String name, final Object object) {
-        final List<NotificationKey> result = new LinkedList<NotificationKey>();
-
-        final NotificationKey searchKey = new NotificationKey(name, object);
-        final Iterator<NotificationKey> it = listenersMap.keySet().iterator();
-        while (it.hasNext()) {
-            final NotificationKey key = it.next();
-            if (searchKey.equals(key)) {
-                result.add(key);
-            }
+        final List<NotificationKey> candidates;
+        if (name != null) {
+            candidates = keysByName.get(name);
+        }
+        else if (object != null) {
+            candidates = keysByObject.get(Integer.valueOf(System.identityHashCode(object)));
+        }
+        else {
+            return registeredKeys();
         }
 
+        final List<NotificationKey> result = new ArrayList<NotificationKey>();
+        if (candidates != null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                final NotificationKey key = candidates.get(i);
+                if (object == null || key.get() == object) {
+                    result.add(key);
+                }
+            }
+        }
         return result;
     }
 
+    private List<NotificationKey> registeredKeys() {
+        final List<NotificationKey> keys = new ArrayList<NotificationKey>(listenersMap.size());
+        for (final Object key : listenersMap.keySet()) {
+            keys.add((NotificationKey) key);
+        }
+        return keys;
+    }
+
     /**
      * Removes the given listener from receiving notifications with the given
      * key.
@@ -352,60 +689,92 @@ public final class PNotificationCenter {
      * @param listener the listener being unregistered
      * @param key the key that identifies the listener
      */
-    private void removeListener(final Object listener, final Object key) {
+    private void removeListener(final Object listener, final NotificationKey key) {
         if (listener == null) {
-            listenersMap.remove(key);
+            removeKey(key);
             return;
         }
 
-        final List<NotificationTarget> list = listenersMap.get(key);
+        final CopyOnWriteArrayList<NotificationTarget> list = listenersMap.get(key);
         if (list == null) {
             return;
         }
 
-        final Iterator<NotificationTarget> it = list.iterator();
-        while (it.hasNext()) {
-            final Object observer = it.next().get();
+        final List<NotificationTarget> removed = new ArrayList<NotificationTarget>();
+        for (final NotificationTarget target : list) {
+            final Object observer = target.get();
             if (observer == null || listener == observer) {
-                it.remove();
+                removed.add(target);
             }
         }
+        list.removeAll(removed);
+
+        if (list.isEmpty()) {
+            removeKey(key);
+        }
+    }
+
+    /**
+     * Removes the key from the listener map and from the indexes.
+     * 
+     * @param key key to be removed
+     */
+    private void removeKey(final NotificationKey key) {
+        if (listenersMap.remove(key) != null) {
+            unindex(keysByName, key.name(), key);
+            unindex(keysByObject, Integer.valueOf(key.objectHashCode), key);
+        }
+    }
 
-        if (list.size() == 0) {
-            listenersMap.remove(key);
+    private static <K> void index(final Map<K, List<NotificationKey>> index, final K indexKey,
+            final NotificationKey key) {
+        List<NotificationKey> keys = index.get(indexKey);
+        if (keys == null) {
+            keys = new ArrayList<NotificationKey>(1);
+            index.put(indexKey, keys);
+        }
+        keys.add(key);
+    }
+
+    private static <K> void unindex(final Map<K, List<NotificationKey>> index, final K indexKey,
+            final NotificationKey key) {
+        final List<NotificationKey> keys = index.get(indexKey);
+        if (keys == null) {
+            return;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i) == key) {
+                keys.remove(i);
+                break;
+            }
+        }
+        if (keys.isEmpty()) {
+            index.remove(indexKey);
         }
     }
 
     /**
-     * Iterates over available keys in the key queue and removes the queue from
-     * the listener map.
+     * Iterates over available keys in the key queue and removes them from the
+     * listener map.
      */
     private void processKeyQueue() {
         NotificationKey key;
         while ((key = (NotificationKey) keyQueue.poll()) != null) {
-            listenersMap.remove(key);
+            removeKey(key);
         }
     }
 
     /**
      * Represents a notification type from a particular object.
      */
-    private static class NotificationKey extends WeakReference {
+    private static class NotificationKey extends WeakReference<Object> {
         private final Object name;
         private final int hashCode;
 
         /**
-         * Creates a notification key with the provided name associated to the
-         * object given.
-         * 
-         * @param name name of notification
-         * @param object associated object
+         * Identity hash code of the object, used to index keys by object.
          */
-        public NotificationKey(final Object name, final Object object) {
-            super(object);
-            this.name = name;
-            hashCode = name.hashCode() + object.hashCode();
-        }
+        private final int objectHashCode;
 
         /**
          * Creates a notification key with the provided name associated with the
@@ -416,10 +785,11 @@ public final class PNotificationCenter {
          * @param queue ReferenceQueue in which this NotificationKey will be
          *            appended once it has been cleared to be garbage collected
          */
-        public NotificationKey(final Object name, final Object object, final ReferenceQueue queue) {
+        public NotificationKey(final Object name, final Object object, final ReferenceQueue<Object> queue) {
             super(object, queue);
             this.name = name;
             hashCode = name.hashCode() + object.hashCode();
+            objectHashCode = System.identityHashCode(object);
         }
 
         /**
@@ -451,6 +821,11 @@ public final class PNotificationCenter {
                 return true;
             }
 
+            if (anObject instanceof LookupKey) {
+                final LookupKey key = (LookupKey) anObject;
+                return key.matches(name, get());
+            }
+
             if (!(anObject instanceof NotificationKey)) {
                 return false;
             }
@@ -476,34 +851,128 @@ public final class PNotificationCenter {
         }
     }
 
+    /**
+     * A strongly referencing key used to look up listeners while posting,
+     * which is equal to the NotificationKey with the same name and object.
+     */
+    private static final class LookupKey {
+        private final Object name;
+        private final Object object;
+        private final int hashCode;
+
+        /**
+         * Creates a lookup key for the provided name and object.
+         * 
+         * @param name name of notification
+         * @param object associated object
+         */
+        public LookupKey(final Object name, final Object object) {
+            this.name = name;
+            this.object = object;
+            hashCode = name.hashCode() + object.hashCode();
+        }
+
+        /**
+         * Returns true if this key has the given name and object.
+         * 
+         * @param otherName name of notification
+         * @param otherObject associated object, null if it has been garbage
+         *            collected
+         * @return true if this key has the name and object
+         */
+        boolean matches(final Object otherName, final Object otherObject) {
+            return otherObject != null && object == otherObject && (name == otherName || name.equals(otherName));
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /**
+         * Two lookup keys are equal if they have the same name and object. A
+         * lookup key is equal to the NotificationKey with the same name and
+         * object.
+         * 
+         * @param anObject object being tested for equivalence to this LookupKey
+         * 
+         * @return true if this object is logically equivalent to the one passed
+         *         in
+         */
+        public boolean equals(final Object anObject) {
+            if (this == anObject) {
+                return true;
+            }
+
+            if (anObject instanceof LookupKey) {
+                final LookupKey key = (LookupKey) anObject;
+                return matches(key.name, key.object);
+            }
+
+            if (anObject instanceof NotificationKey) {
+                final NotificationKey key = (NotificationKey) anObject;
+                return matches(key.name(), key.get());
+            }
+
+            return false;
+        }
+    }
+
     /**
      * A NotificationTarget is a method on a particular object that can be
-     * invoked.
+     * invoked, or a PNotificationListener when the method is null.
      */
-    private static class NotificationTarget extends WeakReference {
+    private static class NotificationTarget extends WeakReference<Object> {
         /** Cached hashcode value computed at construction time. */
         protected int hashCode;
 
-        /** Method to be invoked on the object. */
+        /** Method to be invoked on the object, null for a PNotificationListener. */
         protected Method method;
 
+        /**
+         * Strong reference to the object if it is a PNotificationListener,
+         * which is often an anonymous class referenced nowhere else.
+         */
+        private final Object listener;
+
         /**
          * Creates a notification target representing the method on the
          * particular object provided.
          * 
          * @param object object on which method can be invoked
-         * @param method method to be invoked
+         * @param method method to be invoked, or null if object is a
+         *            PNotificationListener
          */
         public NotificationTarget(final Object object, final Method method) {
             super(object);
-            hashCode = object.hashCode() + method.hashCode();
+            hashCode = System.identityHashCode(object) + (method == null ? 0 : method.hashCode());
             this.method = method;
+            if (method == null) {
+                listener = object;
+            }
+            else {
+                listener = null;
+            }
+        }
+
+        /**
+         * Returns the listener object, or null if it was held weakly and has
+         * been garbage collected.
+         * 
+         * @return listener object
+         */
+        public Object get() {
+            if (listener != null) {
+                return listener;
+            }
+            return super.get();
         }
 
         /**
          * Returns the method that will be invoked on the listener object.
          * 
-         * @return method to be invoked with notification is to be dispatched
+         * @return method to be invoked with notification is to be dispatched,
+         *         or null if the listener is a PNotificationListener
          */
         public Method getMethod() {
             return method;
@@ -552,6 +1021,9 @@ public final class PNotificationCenter {
          * @return string representation
          */
         public String toString() {
+            if (method == null) {
+                return "[CompoundValue:" + get() + "]";
+            }
             return "[CompoundValue:" + get() + ":" + getMethod().getName() + "]";
         }
     }
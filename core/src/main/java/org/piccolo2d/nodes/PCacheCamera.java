@@ -29,50 +29,110 @@
 package org.piccolo2d.nodes;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
 import java.awt.Paint;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
 
 import org.piccolo2d.PCamera;
+import org.piccolo2d.PLayer;
 import org.piccolo2d.PRoot;
 import org.piccolo2d.activities.PTransformActivity;
 import org.piccolo2d.util.PAffineTransform;
 import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PDimension;
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PRasterCache;
 import org.piccolo2d.util.PUtil;
 
 
 /**
  * An extension to PCamera that provides a fast image based
  * animationToCenterBounds method.
+ * <p>
+ * A cache camera can also keep its view cached for interactive panning and
+ * zooming, see {@link #setViewCached(boolean)}. The layers are then rendered
+ * into a buffer larger than the view, and while the viewed layers do not
+ * change, pans and zooms are painted by transforming that buffer. When the
+ * view moves towards the edge of the buffer, or zooms in far enough for the
+ * buffer to look blurry, a sharper buffer around the new view is rendered and
+ * swapped in when it is ready. Until a buffer covers the view, and whenever a
+ * viewed layer has changed since the buffer was rendered, the layers are
+ * painted directly.
+ * </p>
+ * <p>
+ * A new buffer is rendered on the event dispatch thread, a few strips at a
+ * time, with other events handled between the strips. Rendering is abandoned
+ * as soon as a viewed layer changes, so a buffer never mixes states of the
+ * layers.
+ * </p>
  * 
  * @author Lance Good
  */
 public class PCacheCamera extends PCamera {
 
     private static final long serialVersionUID = 1L;
-    private transient BufferedImage paintBuffer;
+
+    /** Default margin of the view cache, as a fraction of the view size. */
+    public static final double DEFAULT_VIEW_CACHE_MARGIN = 0.5;
+
+    /** Largest number of pixels of the view cache buffer. */
+    private static final long MAX_VIEW_CACHE_PIXELS = 4096L * 4096L;
+
+    /** Zoom in factor beyond which the view cache is rendered again. */
+    private static final double MAX_VIEW_CACHE_MAGNIFICATION = 1.05;
+
+    /** Zoom out factor beyond which the view cache is rendered again. */
+    private static final double MIN_VIEW_CACHE_MAGNIFICATION = 0.5;
+
+    /** Height in pixels of the strips a view cache buffer is rendered in. */
+    private static final int VIEW_CACHE_STRIP_HEIGHT = 64;
+
+    /** Time in milliseconds spent rendering strips before yielding to other events. */
+    private static final long VIEW_CACHE_SLICE_MILLIS = 8;
+
+    private transient PRasterCache.Handle paintBuffer;
     private boolean imageAnimate;
     private PBounds imageAnimateBounds;
 
+    private boolean viewCached;
+    private double viewCacheMargin = DEFAULT_VIEW_CACHE_MARGIN;
+    private transient PRasterCache.Handle viewCache;
+    private transient PBounds viewCacheBounds;
+    private transient double viewCacheScale;
+    private transient List<PLayer> viewCacheLayers;
+    private transient int viewCacheGeneration;
+    private transient int layerGeneration;
+    private transient ViewCacheRender viewCacheRender;
+
     /**
-     * Get the buffer used to provide fast image based animation.
+     * Get the buffer used to provide fast image based animation. The buffer
+     * is held in the shared {@link PRasterCache}; if the cache drops it during
+     * an animation the camera paints normally until the animation ends.
      * 
      * @return buffered image used to provide fast image based animation
      */
     protected BufferedImage getPaintBuffer() {
         final PBounds fRef = getFullBoundsReference();
-        if (paintBuffer == null || isBufferSmallerThanBounds(fRef)) {
-            paintBuffer = buildPaintBuffer(fRef);
+        if (paintBuffer == null) {
+            paintBuffer = PRasterCache.getShared().createHandle();
         }
-        return paintBuffer;
+        BufferedImage buffer = paintBuffer.get();
+        if (buffer == null || isBufferSmallerThanBounds(buffer, fRef)) {
+            buffer = buildPaintBuffer(fRef);
+            paintBuffer.set(buffer);
+        }
+        return buffer;
     }
 
-    private boolean isBufferSmallerThanBounds(final PBounds bounds) {
-        return paintBuffer.getWidth() < bounds.getWidth() || paintBuffer.getHeight() < bounds.getHeight();
+    private boolean isBufferSmallerThanBounds(final BufferedImage buffer, final PBounds bounds) {
+        return buffer.getWidth() < bounds.getWidth() || buffer.getHeight() < bounds.getHeight();
     }
 
     private BufferedImage buildPaintBuffer(final PBounds fRef) {
@@ -206,6 +266,231 @@ public class PCacheCamera extends PCamera {
         return ta;
     }
 
+    /**
+     * Returns true if this camera keeps its view cached for interactive
+     * panning and zooming.
+     * 
+     * @since 3.1
+     * @return true if the view is cached
+     */
+    public boolean getViewCached() {
+        return viewCached;
+    }
+
+    /**
+     * Sets whether this camera keeps its view cached for interactive panning
+     * and zooming. See the class documentation.
+     * 
+     * @since 3.1
+     * @param viewCached true to cache the view
+     */
+    public void setViewCached(final boolean viewCached) {
+        this.viewCached = viewCached;
+        if (!viewCached) {
+            clearViewCacheBuffer();
+        }
+        invalidatePaint();
+    }
+
+    /**
+     * Returns the margin the view cache extends beyond each side of the view,
+     * as a fraction of the view's width and height.
+     * 
+     * @since 3.1
+     * @return the view cache margin
+     */
+    public double getViewCacheMargin() {
+        return viewCacheMargin;
+    }
+
+    /**
+     * Sets the margin the view cache extends beyond each side of the view, as
+     * a fraction of the view's width and height. Larger margins allow longer
+     * pans before a new buffer is needed, at the cost of memory and rendering
+     * time.
+     * 
+     * @since 3.1
+     * @param viewCacheMargin the view cache margin, must not be negative
+     */
+    public void setViewCacheMargin(final double viewCacheMargin) {
+        if (viewCacheMargin < 0) {
+            throw new IllegalArgumentException("viewCacheMargin must not be negative: " + viewCacheMargin);
+        }
+        this.viewCacheMargin = viewCacheMargin;
+    }
+
+    /**
+     * Returns the view bounds covered by the current view cache buffer.
+     * 
+     * @since 3.1
+     * @return the bounds in view coordinates, or null if there is no buffer
+     */
+    public PBounds getViewCacheBounds() {
+        if (viewCache == null || viewCache.get() == null) {
+            return null;
+        }
+        return new PBounds(viewCacheBounds);
+    }
+
+    /**
+     * Notes that a viewed layer changed, so that the view cache is no longer
+     * used until it has been rendered again.
+     * 
+     * @param viewBounds bounds that require repainting, in view coordinates
+     * @param repaintedLayer layer dispatching the repaint notification
+     */
+    public void repaintFromLayer(final PBounds viewBounds, final PLayer repaintedLayer) {
+        layerGeneration++;
+        super.repaintFromLayer(viewBounds, repaintedLayer);
+    }
+
+    /**
+     * Paints the viewed layers from the view cache when it covers the view
+     * and is up to date, and requests a new buffer when it is missing, stale,
+     * blurry or close to being exhausted.
+     * 
+     * @param paintContext context in which painting occurs
+     */
+    protected void paintCameraView(final PPaintContext paintContext) {
+        if (!viewCached) {
+            super.paintCameraView(paintContext);
+            return;
+        }
+
+        final double scale = paintContext.getScale();
+        final PBounds view = getViewBounds();
+        final BufferedImage buffer;
+        if (viewCache == null || viewCacheGeneration != layerGeneration
+                || !getLayersReference().equals(viewCacheLayers)) {
+            buffer = null;
+        }
+        else {
+            buffer = viewCache.get();
+        }
+
+        if (buffer == null || !viewCacheBounds.contains(view)) {
+            super.paintCameraView(paintContext);
+            requestViewCache(view, scale, paintContext.getRenderQuality());
+            return;
+        }
+
+        final AffineTransform bufferTransform = new AffineTransform(1 / viewCacheScale, 0, 0, 1 / viewCacheScale,
+                viewCacheBounds.x, viewCacheBounds.y);
+        paintContext.getGraphics().drawImage(buffer, bufferTransform, null);
+
+        final double magnification = scale / viewCacheScale;
+        final PBounds inner = new PBounds(viewCacheBounds);
+        inner.inset(view.width * viewCacheMargin / 2, view.height * viewCacheMargin / 2);
+        if (magnification > MAX_VIEW_CACHE_MAGNIFICATION || magnification < MIN_VIEW_CACHE_MAGNIFICATION
+                || !inner.contains(view)) {
+            requestViewCache(view, scale, paintContext.getRenderQuality());
+        }
+    }
+
+    /**
+     * Starts rendering a view cache buffer around the given view at the given
+     * scale, unless one is already being rendered.
+     */
+    private void requestViewCache(final PBounds view, final double scale, final int renderQuality) {
+        if (viewCacheRender != null || view.isEmpty()) {
+            return;
+        }
+        final PBounds bounds = new PBounds(view);
+        bounds.inset(-view.width * viewCacheMargin, -view.height * viewCacheMargin);
+        final int width = (int) Math.ceil(bounds.width * scale);
+        final int height = (int) Math.ceil(bounds.height * scale);
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_VIEW_CACHE_PIXELS) {
+            return;
+        }
+
+        viewCacheRender = new ViewCacheRender(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE),
+                bounds, scale, renderQuality, new ArrayList<PLayer>(getLayersReference()), layerGeneration);
+        SwingUtilities.invokeLater(viewCacheRender);
+    }
+
+    private void clearViewCacheBuffer() {
+        viewCacheRender = null;
+        if (viewCache != null) {
+            viewCache.clear();
+        }
+        viewCacheBounds = null;
+        viewCacheLayers = null;
+    }
+
+    /**
+     * Renders a view cache buffer on the event dispatch thread, one time slice
+     * per run, and installs it once all strips have been rendered.
+     */
+    private final class ViewCacheRender implements Runnable {
+        private final BufferedImage image;
+        private final PBounds bounds;
+        private final double scale;
+        private final int renderQuality;
+        private final List<PLayer> layers;
+        private final int generation;
+        private int nextStrip;
+
+        ViewCacheRender(final BufferedImage image, final PBounds bounds, final double scale,
+                final int renderQuality, final List<PLayer> layers, final int generation) {
+            this.image = image;
+            this.bounds = bounds;
+            this.scale = scale;
+            this.renderQuality = renderQuality;
+            this.layers = layers;
+            this.generation = generation;
+        }
+
+        public void run() {
+            if (viewCacheRender != this) {
+                return;
+            }
+            if (!viewCached || generation != layerGeneration) {
+                viewCacheRender = null;
+                return;
+            }
+
+            final long start = System.currentTimeMillis();
+            do {
+                renderStrip(nextStrip++);
+            } while (nextStrip * VIEW_CACHE_STRIP_HEIGHT < image.getHeight()
+                    && System.currentTimeMillis() - start < VIEW_CACHE_SLICE_MILLIS);
+
+            if (nextStrip * VIEW_CACHE_STRIP_HEIGHT < image.getHeight()) {
+                SwingUtilities.invokeLater(this);
+                return;
+            }
+
+            viewCacheRender = null;
+            if (viewCache == null) {
+                viewCache = PRasterCache.getShared().createHandle();
+            }
+            viewCache.set(image);
+            viewCacheBounds = bounds;
+            viewCacheScale = scale;
+            viewCacheLayers = layers;
+            viewCacheGeneration = generation;
+            repaint();
+        }
+
+        private void renderStrip(final int strip) {
+            final Graphics2D g2 = image.createGraphics();
+            g2.setClip(0, strip * VIEW_CACHE_STRIP_HEIGHT, image.getWidth(), VIEW_CACHE_STRIP_HEIGHT);
+            g2.scale(scale, scale);
+            g2.translate(-bounds.x, -bounds.y);
+            final PPaintContext paintContext = new PPaintContext(g2);
+            paintContext.setRenderQuality(renderQuality);
+            paintContext.pushCamera(PCacheCamera.this);
+            try {
+                for (int i = 0; i < layers.size(); i++) {
+                    layers.get(i).fullPaint(paintContext);
+                }
+            }
+            finally {
+                g2.dispose();
+            }
+        }
+    }
+
     /**
      * Overrides the camera's full paint method to do the fast rendering when
      * possible.
@@ -213,7 +498,11 @@ public class PCacheCamera extends PCamera {
      * @param paintContext Paint Contex in which the painting is done
      */
     public void fullPaint(final PPaintContext paintContext) {
-        if (imageAnimate) {
+        BufferedImage buffer = null;
+        if (imageAnimate && paintBuffer != null) {
+            buffer = paintBuffer.get();
+        }
+        if (buffer != null) {
             final PBounds fRef = getFullBoundsReference();
             final PBounds viewBounds = getViewBounds();
             final double scale = getFullBoundsReference().getWidth() / imageAnimateBounds.getWidth();
@@ -221,7 +510,7 @@ public class PCacheCamera extends PCamera {
             final double yOffset = (viewBounds.getY() - imageAnimateBounds.getY()) * scale;
             final double scaleW = viewBounds.getWidth() * scale;
             final double scaleH = viewBounds.getHeight() * scale;
-            paintContext.getGraphics().drawImage(paintBuffer, 0, 0, (int) Math.ceil(fRef.getWidth()),
+            paintContext.getGraphics().drawImage(buffer, 0, 0, (int) Math.ceil(fRef.getWidth()),
                     (int) Math.ceil(fRef.getHeight()), (int) Math.floor(xOffset), (int) Math.floor(yOffset),
                     (int) Math.ceil(xOffset + scaleW), (int) Math.ceil(yOffset + scaleH), null);
         }
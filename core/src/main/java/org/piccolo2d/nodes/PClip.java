@@ -132,7 +132,9 @@ public class PClip extends PPath.Float {
             pickPath.pushNode(this);
             pickPath.pushTransform(getTransformReference(false));
 
-            if (pick(pickPath)) {
+            final boolean picked = pick(pickPath);
+
+            if (picked && pickPath.nodePicked()) {
                 return true;
             }
 
@@ -146,7 +148,7 @@ public class PClip extends PPath.Float {
                 }
             }
 
-            if (pickAfterChildren(pickPath)) {
+            if (!picked && pickAfterChildren(pickPath) && pickPath.nodePicked()) {
                 return true;
             }
 
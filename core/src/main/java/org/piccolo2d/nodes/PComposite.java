@@ -28,6 +28,8 @@
  */
 package org.piccolo2d.nodes;
 
+import java.util.List;
+
 import org.piccolo2d.PNode;
 import org.piccolo2d.util.PPickPath;
 
@@ -75,6 +77,18 @@ public class PComposite extends PNode {
      * @return true if this node or one of its descendants was picked
      */
     public boolean fullPick(final PPickPath pickPath) {
+        final List<PNode> hitList = pickPath.getHitList();
+        if (hitList != null) {
+            // replace the hits of this node and its descendants with this node
+            final int hitCount = hitList.size();
+            super.fullPick(pickPath);
+            if (hitList.size() > hitCount) {
+                hitList.subList(hitCount, hitList.size()).clear();
+                hitList.add(this);
+            }
+            return false;
+        }
+
         if (super.fullPick(pickPath)) {
             PNode picked = pickPath.getPickedNode();
 
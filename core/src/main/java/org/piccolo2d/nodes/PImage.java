@@ -33,18 +33,28 @@ import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.MediaTracker;
+import java.awt.Paint;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
 
 import org.piccolo2d.PNode;
 import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PRasterCache;
 
 
 /**
@@ -78,8 +88,38 @@ public class PImage extends PNode {
     
     public static final int PROPERTY_CODE_IMAGE = 1 << 15;
 
+    /** Maximum number of images decoded at the same time by asynchronous loads. */
+    private static final int LOADER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /** Executor shared by the asynchronous image loads of this package, created on first use. */
+    private static ExecutorService loader;
+
     private transient Image image;
 
+    /**
+     * Holds the image instead of the image field when it can be dropped by the
+     * raster cache and recreated, or null.
+     */
+    private transient PRasterCache.Handle imageHandle;
+
+    /** Cache holding the image of imageHandle. */
+    private transient PRasterCache rasterCache = PRasterCache.getShared();
+
+    /** Source the image held by imageHandle was loaded from, or null. */
+    private transient URL cachedSource;
+
+    /** Source of the pending asynchronous load, or null if none. */
+    private transient URL loadSource;
+
+    /** Whether the bounds given with the pending load are kept once loaded. */
+    private transient boolean keepLoadBounds;
+
+    /** The in-flight decode of loadSource, or null if it has not started. */
+    private transient Future<?> loadFuture;
+
+    /** Identifies the current load so that stale or cancelled decodes are ignored. */
+    private transient int loadGeneration;
+
     /** Constructs a PImage without a java.awt.Image attached. */
     public PImage() {
     }
@@ -118,11 +158,20 @@ public class PImage extends PNode {
     }
 
     /**
-     * Returns the image that is shown by this node, or null if none.
+     * Returns the image that is shown by this node, or null if none. An image
+     * dropped by the shared raster cache is recreated; null is only returned
+     * for it while it is being loaded again from its source.
      * 
      * @return java.awt.Image being wrapped by this node
      */
     public Image getImage() {
+        if (imageHandle != null) {
+            final Image cached = imageHandle.get();
+            if (cached != null) {
+                return cached;
+            }
+            return restoreImage();
+        }
         return image;
     }
 
@@ -143,7 +192,18 @@ public class PImage extends PNode {
      * @param newImage image to be displayed by this PImage
      */
     public void setImage(final Image newImage) {
-        final Image oldImage = image;
+        clearLoad();
+        final Image oldImage;
+        if (imageHandle != null) {
+            // a dropped image is not restored only to be replaced
+            oldImage = imageHandle.get();
+            imageHandle.clear();
+            imageHandle = null;
+            cachedSource = null;
+        }
+        else {
+            oldImage = image;
+        }
 
         if (newImage == null || newImage instanceof BufferedImage) {
             image = newImage;
@@ -160,6 +220,246 @@ public class PImage extends PNode {
         firePropertyChange(PROPERTY_CODE_IMAGE, PROPERTY_IMAGE, oldImage, image);
     }
 
+    /**
+     * Set the image that is wrapped by this PImage node to the one at the given
+     * url, decoding it in the background. The node shows no image until the
+     * decoded image is swapped in on the event dispatch thread; while loading,
+     * the paint of this node, if any, fills its bounds as a placeholder.
+     * Decoding only starts once the node is first painted, so images that are
+     * never scrolled into view are never loaded.
+     * <p>
+     * Once loaded, the bounds of this node are set to the size of the image,
+     * as with {@link #setImage(Image)}. The load is cancelled if this node is
+     * removed from its parent.
+     * </p>
+     * <p>
+     * The decoded image is held in the raster cache of this node, the shared
+     * {@link PRasterCache} by default. If the cache drops it, <code>getImage</code> returns null and the image is
+     * loaded again the next time this node is painted.
+     * </p>
+     * 
+     * @since 3.1
+     * @param url URL of image resource to load, or null to clear the image
+     */
+    public void setImageAsync(final URL url) {
+        setImageAsync(url, false);
+    }
+
+    /**
+     * Set the image that is wrapped by this PImage node to the one at the given
+     * url, decoding it in the background, as with {@link #setImageAsync(URL)}.
+     * The bounds of this node are set to the given size right away and are
+     * kept once the image is loaded, the image being scaled to fit, so that
+     * layout does not change when the image arrives.
+     * 
+     * @since 3.1
+     * @param url URL of image resource to load, or null to clear the image
+     * @param width known or expected width of the image
+     * @param height known or expected height of the image
+     */
+    public void setImageAsync(final URL url, final double width, final double height) {
+        setImageAsync(url, true);
+        if (url != null) {
+            setBounds(0, 0, width, height);
+        }
+    }
+
+    private void setImageAsync(final URL url, final boolean keepBounds) {
+        setImage((Image) null);
+        if (url != null) {
+            loadSource = url;
+            keepLoadBounds = keepBounds;
+            invalidatePaint();
+        }
+    }
+
+    /**
+     * Returns the cache holding the image of this node once it has been loaded
+     * with <code>setImageAsync</code>.
+     * 
+     * @since 3.1
+     * @return the raster cache
+     */
+    public PRasterCache getRasterCache() {
+        return rasterCache;
+    }
+
+    /**
+     * Sets the cache holding the image of this node once it has been loaded
+     * with <code>setImageAsync</code>, the shared cache by default. An image
+     * already held in the previous cache is moved to the given one.
+     * 
+     * @since 3.1
+     * @param rasterCache the raster cache, may not be null
+     */
+    public void setRasterCache(final PRasterCache rasterCache) {
+        if (rasterCache == null) {
+            throw new IllegalArgumentException("rasterCache may not be null");
+        }
+        if (imageHandle != null && imageHandle.getCache() != rasterCache) {
+            final BufferedImage cached = imageHandle.get();
+            imageHandle.clear();
+            imageHandle = rasterCache.createHandle();
+            if (cached != null) {
+                imageHandle.set(cached);
+            }
+        }
+        this.rasterCache = rasterCache;
+    }
+
+    /**
+     * Returns true if an image set with <code>setImageAsync</code> has not been
+     * swapped in yet, whether or not its decoding has started.
+     * 
+     * @since 3.1
+     * @return true if this node is waiting for its image
+     */
+    public boolean isLoading() {
+        return loadSource != null;
+    }
+
+    /**
+     * Cancels the in-flight decode of an image set with
+     * <code>setImageAsync</code>, for example when it has been scrolled far out
+     * of view. The image is still pending, and decoding starts again the next
+     * time this node is painted.
+     * 
+     * @since 3.1
+     */
+    public void cancelLoading() {
+        if (loadFuture != null) {
+            loadFuture.cancel(true);
+            loadFuture = null;
+            loadGeneration++;
+        }
+    }
+
+    /**
+     * Cancels any in-flight decode when this node is removed from its parent.
+     * 
+     * @param newParent the parent to which this node should be added
+     */
+    public void setParent(final PNode newParent) {
+        if (newParent == null) {
+            cancelLoading();
+        }
+        super.setParent(newParent);
+    }
+
+    private void clearLoad() {
+        cancelLoading();
+        loadSource = null;
+    }
+
+    private void startLoading() {
+        final URL url = loadSource;
+        final int generation = ++loadGeneration;
+        loadFuture = getLoader().submit(new Runnable() {
+            public void run() {
+                BufferedImage decoded = null;
+                try {
+                    decoded = ImageIO.read(url);
+                }
+                catch (final IOException e) {
+                    // delivered as a failed load below
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    deliver(generation, decoded);
+                }
+            }
+        });
+    }
+
+    private void deliver(final int generation, final BufferedImage decoded) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (generation != loadGeneration || loadSource == null) {
+                    return;
+                }
+                final URL url = loadSource;
+                final boolean keepBounds = keepLoadBounds;
+                final PBounds bounds = getBounds();
+                loadFuture = null;
+                setImage(decoded);
+                if (keepBounds) {
+                    setBounds(bounds);
+                }
+                else if (decoded == null) {
+                    invalidatePaint();
+                }
+                if (decoded != null) {
+                    releaseImageToCache();
+                    cachedSource = url;
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves the image of this node into its raster cache, which may drop it to
+     * stay within its budget. The image is then recreated by
+     * {@link #recreateImage()} or loaded again from its source when this node
+     * is painted.
+     */
+    void releaseImageToCache() {
+        if (image instanceof BufferedImage) {
+            imageHandle = rasterCache.createHandle();
+            imageHandle.set((BufferedImage) image);
+            image = null;
+        }
+    }
+
+    /**
+     * Recreates an image that was dropped by the raster cache. Subclasses that
+     * can compute their image again override this method.
+     * 
+     * @return the recreated image, or null if it can not be recreated
+     */
+    BufferedImage recreateImage() {
+        return null;
+    }
+
+    /**
+     * Restores the image dropped by the raster cache, either by recreating it
+     * or by loading it again from its source in the background.
+     * 
+     * @return the restored image, or null if it is not available yet
+     */
+    private Image restoreImage() {
+        final BufferedImage restored = recreateImage();
+        if (restored != null) {
+            imageHandle.set(restored);
+        }
+        else if (cachedSource != null && loadSource == null) {
+            loadSource = cachedSource;
+            keepLoadBounds = true;
+        }
+        return restored;
+    }
+
+    /**
+     * Returns the executor that decodes images in the background, shared by
+     * the image nodes of this package.
+     * 
+     * @return the shared image loading executor
+     */
+    static synchronized ExecutorService getLoader() {
+        if (loader == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(LOADER_THREADS, LOADER_THREADS, 1,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        public Thread newThread(final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "PImage loader");
+                            thread.setDaemon(true);
+                            thread.setPriority(Thread.MIN_PRIORITY);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            loader = executor;
+        }
+        return loader;
+    }
+
     /**
      * Ensures the image is loaded enough (loading is fine).
      * 
@@ -184,7 +484,9 @@ public class PImage extends PNode {
      * @param paintContext context into which the rendering will occur
      */
     protected void paint(final PPaintContext paintContext) {
-        if (getImage() == null) {
+        final Image image = getImage();
+        if (image == null) {
+            paintPlaceholder(paintContext);
             return;
         }
 
@@ -207,6 +509,27 @@ public class PImage extends PNode {
 
     }
 
+    /**
+     * Fills the bounds of this node with its paint while its image is loading,
+     * and starts decoding the image if it has not started yet.
+     * 
+     * @param paintContext context into which the rendering will occur
+     */
+    private void paintPlaceholder(final PPaintContext paintContext) {
+        if (loadSource == null) {
+            return;
+        }
+        if (loadFuture == null) {
+            startLoading();
+        }
+        final Paint placeholder = getPaint();
+        if (placeholder != null) {
+            final Graphics2D g2 = paintContext.getGraphics();
+            g2.setPaint(placeholder);
+            g2.fill(getBoundsReference());
+        }
+    }
+
     /**
      * Serializes this PImage to the stream provided. The java.awt.Image wrapped
      * by this PImage is converted into a BufferedImage when serialized.
@@ -216,14 +539,15 @@ public class PImage extends PNode {
      */
     private void writeObject(final ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
-        final BufferedImage bufferedImage = toBufferedImage(image, false);
+        final BufferedImage bufferedImage = toBufferedImage(getImage(), false);
         if (bufferedImage != null) {
             ImageIO.write(bufferedImage, "png", out);
         }
     }
 
     /**
-     * Deserializes a PImage from the input stream provided.
+     * Deserializes a PImage from the input stream provided, which uses the
+     * shared raster cache.
      * 
      * @param in stream from which the PImage should be read
      * @throws IOException if problem occurs while reading from input stream
@@ -232,6 +556,7 @@ public class PImage extends PNode {
      */
     private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        rasterCache = PRasterCache.getShared();
         image = ImageIO.read(in);
     }
 
@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+
+import org.piccolo2d.PNode;
+import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PPaintContext;
+
+/**
+ * <b>PImagePyramid</b> is an image node that paints a large image from a
+ * pyramid of power of two downsampled levels, each split into square tiles.
+ * Level 0 is the full resolution image and every following level halves its
+ * width and height.
+ * <p>
+ * When painted the node picks the coarsest level that still has at least one
+ * image pixel per device pixel at the paint context's scale, and only draws
+ * the tiles of that level that intersect the local clip. Zoomed out views
+ * therefore never resample the full resolution image, and zoomed in views
+ * only touch the visible tiles. Tiles come from a {@link TileSource} and are
+ * kept in a least recently used cache bounded by the number of bytes of its
+ * tiles.
+ * </p>
+ * <p>
+ * By default tiles are loaded while painting. With asynchronous loading tiles
+ * are decoded on background threads instead, and until a tile arrives the
+ * part of the nearest coarser level that is cached is painted in its place.
+ * </p>
+ * <p>
+ * Like <code>PImage</code> the image is stretched to fill the bounds of this
+ * node, which are initially the size of the full resolution image. The tile
+ * source and cache are not serialized.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PImagePyramid extends PNode {
+
+    /**
+     * Allows for future serialization code to understand versioned binary
+     * formats.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** Default width and height of tiles in pixels. */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /** Default maximum size of the tile cache in bytes. */
+    public static final long DEFAULT_MAXIMUM_CACHE_SIZE = 32L * 1024 * 1024;
+
+    private transient TileSource tileSource;
+    private transient LinkedHashMap<Long, BufferedImage> tileCache = new LinkedHashMap<Long, BufferedImage>(16,
+            0.75f, true);
+    private transient long cacheSize;
+    private long maximumCacheSize = DEFAULT_MAXIMUM_CACHE_SIZE;
+    private boolean asynchronousLoading;
+    private transient HashMap<Long, Future<?>> pendingTiles = new HashMap<Long, Future<?>>();
+    private transient int cacheGeneration;
+    private final AffineTransform tileTransform = new AffineTransform();
+
+    /**
+     * Constructs a pyramid node showing the given image, split into tiles of
+     * the default size. Downsampled levels are computed from the image the
+     * first time they are painted.
+     * 
+     * @param image full resolution image
+     */
+    public PImagePyramid(final BufferedImage image) {
+        this(new ImageTileSource(image, DEFAULT_TILE_SIZE));
+    }
+
+    /**
+     * Constructs a pyramid node showing the tiles of the given source.
+     * 
+     * @param tileSource source of the tiles of every level
+     */
+    public PImagePyramid(final TileSource tileSource) {
+        setTileSource(tileSource);
+    }
+
+    /**
+     * Returns the source of the tiles painted by this node.
+     * 
+     * @return the tile source, or null if this node was copied or deserialized
+     */
+    public TileSource getTileSource() {
+        return tileSource;
+    }
+
+    /**
+     * Sets the source of the tiles painted by this node, clearing the tile
+     * cache and setting the bounds of this node to the size of the source's
+     * full resolution image.
+     * 
+     * @param tileSource source of the tiles of every level, may not be null
+     */
+    public void setTileSource(final TileSource tileSource) {
+        if (tileSource == null) {
+            throw new IllegalArgumentException("tileSource may not be null");
+        }
+        this.tileSource = tileSource;
+        clearCache();
+        setBounds(0, 0, tileSource.getWidth(), tileSource.getHeight());
+        invalidatePaint();
+    }
+
+    /**
+     * Returns true if tiles are decoded on background threads rather than
+     * while painting.
+     * 
+     * @return true if tiles are loaded asynchronously
+     */
+    public boolean getAsynchronousLoading() {
+        return asynchronousLoading;
+    }
+
+    /**
+     * Sets whether tiles are decoded on background threads rather than while
+     * painting. The tile source must then support being called from any
+     * thread.
+     * 
+     * @param asynchronousLoading true to load tiles asynchronously
+     */
+    public void setAsynchronousLoading(final boolean asynchronousLoading) {
+        this.asynchronousLoading = asynchronousLoading;
+    }
+
+    /**
+     * Returns the maximum number of bytes of tiles kept in the tile cache.
+     * 
+     * @return the maximum cache size in bytes
+     */
+    public long getMaximumCacheSize() {
+        return maximumCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of bytes of tiles kept in the tile cache,
+     * evicting the least recently painted tiles if the cache is larger.
+     * 
+     * @param maximumCacheSize the maximum cache size in bytes
+     */
+    public void setMaximumCacheSize(final long maximumCacheSize) {
+        if (maximumCacheSize < 0) {
+            throw new IllegalArgumentException("maximumCacheSize must be non-negative: " + maximumCacheSize);
+        }
+        this.maximumCacheSize = maximumCacheSize;
+        evictTiles();
+    }
+
+    /**
+     * Returns the number of bytes of tiles currently in the tile cache.
+     * 
+     * @return the cache size in bytes
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Removes all tiles from the tile cache and cancels any tiles being loaded
+     * asynchronously.
+     */
+    public void clearCache() {
+        tileCache.clear();
+        cacheSize = 0;
+        final Iterator<Future<?>> i = pendingTiles.values().iterator();
+        while (i.hasNext()) {
+            i.next().cancel(true);
+        }
+        pendingTiles.clear();
+        cacheGeneration++;
+    }
+
+    /**
+     * Returns the level painted when one full resolution pixel of the image
+     * covers the given number of device pixels: the coarsest level that still
+     * has at least one pixel per device pixel.
+     * 
+     * @param pixelScale device pixels per full resolution image pixel
+     * @return the level to paint, between 0 and the level count minus one
+     */
+    public int getLevel(final double pixelScale) {
+        if (tileSource == null) {
+            return 0;
+        }
+        int level = 0;
+        final int lastLevel = tileSource.getLevelCount() - 1;
+        double levelScale = pixelScale;
+        while (level < lastLevel && levelScale <= 0.5) {
+            levelScale *= 2;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Paints the tiles of the level matching the paint context's scale that
+     * intersect its local clip.
+     * 
+     * @param paintContext context into which the rendering will occur
+     */
+    protected void paint(final PPaintContext paintContext) {
+        if (tileSource == null) {
+            return;
+        }
+        final int width = tileSource.getWidth();
+        final int height = tileSource.getHeight();
+        final PBounds b = getBoundsReference();
+        if (width <= 0 || height <= 0 || b.isEmpty()) {
+            return;
+        }
+
+        final Rectangle2D clip = paintContext.getLocalClip().createIntersection(b);
+        if (clip.isEmpty()) {
+            return;
+        }
+
+        final double sx = b.width / width;
+        final double sy = b.height / height;
+        final int level = getLevel(paintContext.getScale() * Math.max(sx, sy));
+        final int levelTileSize = tileSource.getTileSize() << level;
+
+        final int firstColumn = Math.max(0, (int) Math.floor((clip.getMinX() - b.x) / sx / levelTileSize));
+        final int firstRow = Math.max(0, (int) Math.floor((clip.getMinY() - b.y) / sy / levelTileSize));
+        final int lastColumn = Math.min((width - 1) / levelTileSize,
+                (int) Math.ceil((clip.getMaxX() - b.x) / sx / levelTileSize) - 1);
+        final int lastRow = Math.min((height - 1) / levelTileSize,
+                (int) Math.ceil((clip.getMaxY() - b.y) / sy / levelTileSize) - 1);
+
+        final Graphics2D g2 = paintContext.getGraphics();
+        final double tileScaleX = sx * (1 << level);
+        final double tileScaleY = sy * (1 << level);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final BufferedImage tile = getTile(level, column, row);
+                final double x = b.x + column * levelTileSize * sx;
+                final double y = b.y + row * levelTileSize * sy;
+                if (tile != null) {
+                    tileTransform.setTransform(tileScaleX, 0, 0, tileScaleY, x, y);
+                    g2.drawImage(tile, tileTransform, null);
+                }
+                else if (asynchronousLoading) {
+                    paintCoarserTile(g2, level, column, row, x, y, tileScaleX, tileScaleY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Paints the part of the nearest cached tile of a coarser level that covers
+     * the given tile, if any.
+     */
+    private void paintCoarserTile(final Graphics2D g2, final int level, final int column, final int row,
+            final double x, final double y, final double tileScaleX, final double tileScaleY) {
+        final int tileSize = tileSource.getTileSize();
+        final int levelCount = tileSource.getLevelCount();
+        for (int shift = 1; level + shift < levelCount; shift++) {
+            final BufferedImage coarse = tileCache.get(tileKey(level + shift, column >> shift, row >> shift));
+            if (coarse != null) {
+                final int subX = column * tileSize / (1 << shift) - (column >> shift) * tileSize;
+                final int subY = row * tileSize / (1 << shift) - (row >> shift) * tileSize;
+                final int subSize = tileSize + (1 << shift) - 1 >> shift;
+                final int subWidth = Math.min(subSize, coarse.getWidth() - subX);
+                final int subHeight = Math.min(subSize, coarse.getHeight() - subY);
+                if (subWidth > 0 && subHeight > 0) {
+                    tileTransform.setTransform(tileScaleX * (1 << shift), 0, 0, tileScaleY * (1 << shift), x, y);
+                    g2.drawImage(coarse.getSubimage(subX, subY, subWidth, subHeight), tileTransform, null);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the given tile from the tile cache, loading it from the tile
+     * source if it is not cached. With asynchronous loading a tile that is
+     * not cached is requested and null is returned.
+     * 
+     * @param level level of the tile
+     * @param column column of the tile
+     * @param row row of the tile
+     * @return the tile, or null if it could not be loaded
+     */
+    private BufferedImage getTile(final int level, final int column, final int row) {
+        final Long key = tileKey(level, column, row);
+        BufferedImage tile = tileCache.get(key);
+        if (tile == null && asynchronousLoading) {
+            requestTile(key, level, column, row);
+        }
+        else if (tile == null) {
+            try {
+                tile = tileSource.getTile(level, column, row);
+            }
+            catch (final IOException e) {
+                return null;
+            }
+            if (tile != null) {
+                tileCache.put(key, tile);
+                cacheSize += sizeOf(tile);
+                evictTiles();
+            }
+        }
+        return tile;
+    }
+
+    private void requestTile(final Long key, final int level, final int column, final int row) {
+        if (pendingTiles.containsKey(key)) {
+            return;
+        }
+        final TileSource source = tileSource;
+        final int generation = cacheGeneration;
+        pendingTiles.put(key, PImage.getLoader().submit(new Runnable() {
+            public void run() {
+                BufferedImage tile = null;
+                try {
+                    tile = source.getTile(level, column, row);
+                }
+                catch (final IOException e) {
+                    // delivered as a missing tile below
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    deliverTile(generation, key, tile);
+                }
+            }
+        }));
+    }
+
+    private void deliverTile(final int generation, final Long key, final BufferedImage tile) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (generation != cacheGeneration) {
+                    return;
+                }
+                pendingTiles.remove(key);
+                if (tile != null && !tileCache.containsKey(key)) {
+                    tileCache.put(key, tile);
+                    cacheSize += sizeOf(tile);
+                    evictTiles();
+                    invalidatePaint();
+                }
+            }
+        });
+    }
+
+    private static Long tileKey(final int level, final int column, final int row) {
+        return Long.valueOf((long) level << 48 | (long) column << 24 | row);
+    }
+
+    private void evictTiles() {
+        final Iterator<BufferedImage> i = tileCache.values().iterator();
+        while (cacheSize > maximumCacheSize && i.hasNext()) {
+            cacheSize -= sizeOf(i.next());
+            i.remove();
+        }
+    }
+
+    private static long sizeOf(final BufferedImage tile) {
+        return (long) tile.getWidth() * tile.getHeight() * 4;
+    }
+
+    /**
+     * Deserializes this node, which has no tile source until one is set.
+     * 
+     * @param in stream from which the node should be read
+     * @throws IOException if problem occurs while reading from input stream
+     * @throws ClassNotFoundException occurs is no mapping from the bytes in the
+     *             stream can be found to classes available
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        tileCache = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true);
+        pendingTiles = new HashMap<Long, Future<?>>();
+    }
+
+    /**
+     * <b>TileSource</b> provides the tiles of an image pyramid. Tile
+     * <code>(column, row)</code> of level <code>n</code> covers the pixels of
+     * the full resolution image from <code>column * tileSize * 2^n</code> and
+     * <code>row * tileSize * 2^n</code>, downsampled by <code>2^n</code>. Tiles
+     * are square except at the right and bottom edges of the image.
+     */
+    public interface TileSource {
+
+        /**
+         * Returns the width of the full resolution image in pixels.
+         * 
+         * @return the width of level 0
+         */
+        int getWidth();
+
+        /**
+         * Returns the height of the full resolution image in pixels.
+         * 
+         * @return the height of level 0
+         */
+        int getHeight();
+
+        /**
+         * Returns the width and height of tiles in pixels.
+         * 
+         * @return the tile size
+         */
+        int getTileSize();
+
+        /**
+         * Returns the number of levels, at least 1.
+         * 
+         * @return the number of levels
+         */
+        int getLevelCount();
+
+        /**
+         * Returns the given tile, loading or computing it if necessary. Tiles
+         * are cached by the pyramid node, so this is called at most once per
+         * tile until the tile is evicted.
+         * 
+         * @param level level of the tile
+         * @param column column of the tile
+         * @param row row of the tile
+         * @return the tile, or null if there is no such tile
+         * @throws IOException if the tile could not be loaded
+         */
+        BufferedImage getTile(int level, int column, int row) throws IOException;
+    }
+
+    /**
+     * <b>ImageTileSource</b> provides tiles of an image in memory. Each
+     * downsampled level is computed from the previous level the first time one
+     * of its tiles is requested, and tiles share the level's raster.
+     */
+    public static class ImageTileSource implements TileSource {
+        private final BufferedImage[] levels;
+        private final int tileSize;
+
+        /**
+         * Constructs a tile source for the given image. Its last level is the
+         * first to fit in a single tile.
+         * 
+         * @param image full resolution image
+         * @param tileSize width and height of tiles in pixels
+         */
+        public ImageTileSource(final BufferedImage image, final int tileSize) {
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+            }
+            this.tileSize = tileSize;
+            int levelCount = 1;
+            int size = Math.max(image.getWidth(), image.getHeight());
+            while (size > tileSize) {
+                size = (size + 1) / 2;
+                levelCount++;
+            }
+            levels = new BufferedImage[levelCount];
+            levels[0] = image;
+        }
+
+        /** {@inheritDoc} */
+        public int getWidth() {
+            return levels[0].getWidth();
+        }
+
+        /** {@inheritDoc} */
+        public int getHeight() {
+            return levels[0].getHeight();
+        }
+
+        /** {@inheritDoc} */
+        public int getTileSize() {
+            return tileSize;
+        }
+
+        /** {@inheritDoc} */
+        public int getLevelCount() {
+            return levels.length;
+        }
+
+        /** {@inheritDoc} */
+        public BufferedImage getTile(final int level, final int column, final int row) {
+            final BufferedImage levelImage = getLevelImage(level);
+            final int x = column * tileSize;
+            final int y = row * tileSize;
+            if (x >= levelImage.getWidth() || y >= levelImage.getHeight()) {
+                return null;
+            }
+            return levelImage.getSubimage(x, y, Math.min(tileSize, levelImage.getWidth() - x), Math.min(tileSize,
+                    levelImage.getHeight() - y));
+        }
+
+        /**
+         * Returns the image of the given level, computing it and any finer
+         * levels it depends on if necessary.
+         * 
+         * @param level level of the image
+         * @return the image of the level
+         */
+        public synchronized BufferedImage getLevelImage(final int level) {
+            if (levels[level] == null) {
+                final BufferedImage previous = getLevelImage(level - 1);
+                final int width = (previous.getWidth() + 1) / 2;
+                final int height = (previous.getHeight() + 1) / 2;
+                final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                final Graphics2D g2 = image.createGraphics();
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g2.drawImage(previous, 0, 0, width, height, null);
+                g2.dispose();
+                levels[level] = image;
+            }
+            return levels[level];
+        }
+    }
+}
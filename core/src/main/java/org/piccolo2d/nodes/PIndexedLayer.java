@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.piccolo2d.PLayer;
+import org.piccolo2d.PNode;
+import org.piccolo2d.util.PAffineTransform;
+import org.piccolo2d.util.PLevelOfDetail;
+import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PPickPath;
+import org.piccolo2d.util.PQuadTree;
+
+/**
+ * <b>PIndexedLayer</b> is a layer that keeps a spatial index over the full
+ * bounds of its children so that painting, picking and
+ * {@link #findIntersectingNodes findIntersectingNodes} only visit the children
+ * that intersect the clip or pick bounds.
+ * <p>
+ * A plain {@link PLayer} tests every child against the paint clip on every
+ * repaint and against the pick bounds on every mouse event. For layers with
+ * many thousands of children of which only a few are on screen this is the
+ * dominant cost. PIndexedLayer keeps the children in a {@link PQuadTree} which
+ * is updated incrementally as the full bounds of individual children are
+ * validated, so the cost of a repaint or pick becomes proportional to the
+ * number of visible children instead.
+ * </p>
+ * <p>
+ * Children must be added and removed through the usual structure methods such
+ * as <code>addChild</code> and <code>removeChild</code>; modifying the list
+ * returned by <code>getChildrenReference</code> directly bypasses the index.
+ * The index tracks direct children only, grandchildren are indexed as part of
+ * the full bounds of their ancestor child.
+ * </p>
+ * 
+ * @see PQuadTree
+ * @since 3.1
+ */
+public class PIndexedLayer extends PLayer {
+    /**
+     * Allows for future serialization code to understand versioned binary
+     * formats.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * When the index returns more than this fraction of the children it is
+     * cheaper to visit the children in order than to sort the candidates.
+     */
+    private static final double LINEAR_SCAN_RATIO = 0.25;
+
+    /** Index of the children's full bounds, in this layer's local coordinates. */
+    private transient PQuadTree<PNode> spatialIndex;
+
+    /** Children whose full bounds may have changed since the index was updated. */
+    private transient Set<PNode> dirtyChildren;
+
+    /** Position of each child in the children list, rebuilt lazily. */
+    private transient volatile Map<PNode, Integer> childOrder;
+
+    /** Sorts candidate children by their position in the children list. */
+    private transient Comparator<PNode> childOrderComparator;
+
+    /**
+     * Creates an empty indexed layer.
+     */
+    public PIndexedLayer() {
+        super();
+        initIndex();
+    }
+
+    private void initIndex() {
+        spatialIndex = new PQuadTree<PNode>();
+        dirtyChildren = new HashSet<PNode>();
+        childOrderComparator = new Comparator<PNode>() {
+            public int compare(final PNode a, final PNode b) {
+                return childOrder.get(a).intValue() - childOrder.get(b).intValue();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of children currently held in the spatial index.
+     * 
+     * @return number of indexed children
+     */
+    public int getIndexedChildrenCount() {
+        validateFullBounds();
+        return spatialIndex.size();
+    }
+
+    // ****************************************************************
+    // Structure - Keep the index in sync with the children list.
+    // ****************************************************************
+
+    /** {@inheritDoc} */
+    public void addChild(final int index, final PNode child) {
+        super.addChild(index, child);
+        dirtyChildren.add(child);
+        childOrder = null;
+    }
+
+    /** {@inheritDoc} */
+    public PNode removeChild(final int index) {
+        final PNode child = super.removeChild(index);
+        if (child != null) {
+            spatialIndex.remove(child);
+            dirtyChildren.remove(child);
+            childOrder = null;
+        }
+        return child;
+    }
+
+    /** {@inheritDoc} */
+    public void removeAllChildren() {
+        super.removeAllChildren();
+        spatialIndex.clear();
+        dirtyChildren.clear();
+        childOrder = null;
+    }
+
+    // ****************************************************************
+    // Bounds - Update the index as children's full bounds are validated.
+    // ****************************************************************
+
+    /**
+     * Records that the given child needs to be reindexed and invalidates this
+     * layer's full bounds.
+     * 
+     * @param child the child whose full bounds have changed
+     */
+    protected void childFullBoundsChanged(final PNode child) {
+        if (dirtyChildren != null) {
+            dirtyChildren.add(child);
+        }
+        super.childFullBoundsChanged(child);
+    }
+
+    /**
+     * Validates the full bounds of this layer and its descendants, then updates
+     * the index entries of any children whose full bounds have changed.
+     * 
+     * @return true if this node or any of its descendants have volatile bounds
+     */
+    protected boolean validateFullBounds() {
+        final boolean result = super.validateFullBounds();
+        if (dirtyChildren != null && !dirtyChildren.isEmpty()) {
+            updateIndex();
+        }
+        return result;
+    }
+
+    private void updateIndex() {
+        final PNode[] changed = dirtyChildren.toArray(new PNode[dirtyChildren.size()]);
+        dirtyChildren.clear();
+        for (int i = 0; i < changed.length; i++) {
+            final PNode each = changed[i];
+            if (each.getParent() == this) {
+                spatialIndex.put(each, each.getFullBoundsReference());
+            }
+        }
+    }
+
+    // ****************************************************************
+    // Painting and Picking - Only visit candidate children returned by
+    // the index, in children list order.
+    // ****************************************************************
+
+    /**
+     * Returns the children whose full bounds may intersect the given bounds,
+     * ordered as in the children list. Returns null if it is cheaper to visit
+     * all children in order.
+     * 
+     * @param localBounds bounds in this layer's local coordinates
+     * @return candidate children in paint order, or null
+     */
+    private List<PNode> getCandidateChildren(final Rectangle2D localBounds) {
+        if (localBounds == null) {
+            return null;
+        }
+
+        final List<PNode> candidates = new ArrayList<PNode>();
+        spatialIndex.query(localBounds, candidates);
+
+        if (candidates.size() > getChildrenCount() * LINEAR_SCAN_RATIO) {
+            return null;
+        }
+        if (candidates.size() > 1) {
+            validateChildOrder();
+            Collections.sort(candidates, childOrderComparator);
+        }
+        return candidates;
+    }
+
+    private void validateChildOrder() {
+        if (childOrder == null) {
+            // Publish the order only once it is complete, threads painting
+            // concurrently may build it at the same time
+            final int count = getChildrenCount();
+            final Map<PNode, Integer> order = new IdentityHashMap<PNode, Integer>(count);
+            for (int i = 0; i < count; i++) {
+                order.put(getChild(i), Integer.valueOf(i));
+            }
+            childOrder = order;
+        }
+    }
+
+    /**
+     * Paints this layer and those of its descendants that intersect the paint
+     * context's clip, using the index to skip children that lie outside it.
+     * 
+     * @param paintContext the paint context to use for painting this layer and
+     *            its children
+     */
+    public void fullPaint(final PPaintContext paintContext) {
+        if (getVisible() && fullIntersects(paintContext.getLocalClip())) {
+            final PLevelOfDetail levelOfDetail = getLevelOfDetail();
+            if (levelOfDetail != null && levelOfDetail.paint(this, paintContext)) {
+                return;
+            }
+
+            final PAffineTransform transform = getTransformReference(false);
+            final float transparency = getTransparency();
+            paintContext.pushTransform(transform);
+            paintContext.pushTransparency(transparency);
+
+            if (!getOccluded()) {
+                paint(paintContext);
+            }
+
+            final List<PNode> candidates = getCandidateChildren(paintContext.getLocalClip());
+            if (candidates == null) {
+                final int count = getChildrenCount();
+                for (int i = 0; i < count; i++) {
+                    getChild(i).fullPaint(paintContext);
+                }
+            }
+            else {
+                final int count = candidates.size();
+                for (int i = 0; i < count; i++) {
+                    candidates.get(i).fullPaint(paintContext);
+                }
+            }
+
+            paintAfterChildren(paintContext);
+
+            paintContext.popTransparency(transparency);
+            paintContext.popTransform(transform);
+        }
+    }
+
+    /**
+     * Tries to pick this layer and its descendants, using the index to skip
+     * children that lie outside the pick bounds.
+     * 
+     * @param pickPath the pick path to add the node to if its picked
+     * @return true if this node or one of its descendants was picked
+     */
+    public boolean fullPick(final PPickPath pickPath) {
+        if (getVisible() && (getPickable() || getChildrenPickable()) && fullIntersects(pickPath.getPickBounds())) {
+            final PAffineTransform transform = getTransformReference(false);
+            pickPath.pushNode(this);
+            pickPath.pushTransform(transform);
+
+            final boolean thisPickable = getPickable() && pickPath.acceptsNode(this);
+            final boolean picked = thisPickable && pick(pickPath);
+
+            if (picked && pickPath.nodePicked()) {
+                return true;
+            }
+
+            if (getChildrenPickable()) {
+                final List<PNode> candidates = getCandidateChildren(pickPath.getPickBounds());
+                if (candidates == null) {
+                    for (int i = getChildrenCount() - 1; i >= 0; i--) {
+                        if (getChild(i).fullPick(pickPath)) {
+                            return true;
+                        }
+                    }
+                }
+                else {
+                    for (int i = candidates.size() - 1; i >= 0; i--) {
+                        if (candidates.get(i).fullPick(pickPath)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+
+            if (thisPickable && !picked && pickAfterChildren(pickPath) && pickPath.nodePicked()) {
+                return true;
+            }
+
+            pickPath.popTransform(transform);
+            pickPath.popNode(this);
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds all descendants of this layer that intersect with the given bounds
+     * and adds them to the results array, using the index to skip children that
+     * lie outside the bounds.
+     * 
+     * @param fullBounds bounds to compare against
+     * @param results array into which to add matches
+     */
+    public void findIntersectingNodes(final Rectangle2D fullBounds, final ArrayList<PNode> results) {
+        if (fullIntersects(fullBounds)) {
+            final Rectangle2D localBounds = parentToLocal((Rectangle2D) fullBounds.clone());
+
+            if (intersects(localBounds)) {
+                results.add(this);
+            }
+
+            final List<PNode> candidates = getCandidateChildren(localBounds);
+            if (candidates == null) {
+                for (int i = getChildrenCount() - 1; i >= 0; i--) {
+                    getChild(i).findIntersectingNodes(localBounds, results);
+                }
+            }
+            else {
+                for (int i = candidates.size() - 1; i >= 0; i--) {
+                    candidates.get(i).findIntersectingNodes(localBounds, results);
+                }
+            }
+        }
+    }
+
+    // ****************************************************************
+    // Serialization - The index is rebuilt after deserialization.
+    // ****************************************************************
+
+    /**
+     * Deserializes this layer and rebuilds the index of its children.
+     * 
+     * @param in stream from which the layer should be read
+     * @throws IOException if an error occurs while reading from the stream
+     * @throws ClassNotFoundException may occur is serialized stream has been
+     *             renamed after serialization
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initIndex();
+        final int count = getChildrenCount();
+        for (int i = 0; i < count; i++) {
+            dirtyChildren.add(getChild(i));
+        }
+        invalidateFullBounds();
+    }
+}
@@ -43,6 +43,7 @@ import org.piccolo2d.PNode;
 import org.piccolo2d.util.LineShape;
 import org.piccolo2d.util.PAffineTransform;
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PStrokedOutline;
 import org.piccolo2d.util.PUtil;
 
 
@@ -67,6 +68,7 @@ public class PLine extends PNode {
     private final transient LineShape lineShape;
     private transient Stroke stroke;
     private Paint strokePaint;
+    private transient PStrokedOutline strokedOutline;
 
     /**
      * Constructs a new PLine with an empty LineShape.
@@ -168,6 +170,7 @@ public class PLine extends PNode {
         TEMP_TRANSFORM.scale(adjustedWidth / lineBounds.getWidth(), adjustedHeight / lineBounds.getHeight());
         TEMP_TRANSFORM.translate(-lineBounds.getX(), -lineBounds.getY());
         lineShape.transformPoints(TEMP_TRANSFORM);
+        getStrokedOutline().invalidate();
 
         return true;
     }
@@ -179,7 +182,7 @@ public class PLine extends PNode {
                 return true;
             }
             else if (stroke != null && strokePaint != null) {
-                return stroke.createStrokedShape(lineShape).intersects(aBounds);
+                return getStrokedOutline().intersects(stroke, lineShape, aBounds);
             }
         }
         return false;
@@ -193,7 +196,7 @@ public class PLine extends PNode {
      */
     public Rectangle2D getLineBoundsWithStroke() {
         if (stroke != null) {
-            return stroke.createStrokedShape(lineShape).getBounds2D();
+            return getStrokedOutline().getBounds(stroke, lineShape);
         }
         else {
             return lineShape.getBounds2D();
@@ -201,9 +204,11 @@ public class PLine extends PNode {
     }
 
     /**
-     * Recalculates the bounds when a change to the underlying line occurs.
+     * Recalculates the bounds when a change to the underlying line occurs, and
+     * discards the cached outline of the line drawn with the stroke.
      */
     public void updateBoundsFromLine() {
+        getStrokedOutline().invalidate();
         if (lineShape.getPointCount() == 0) {
             resetBounds();
         }
@@ -213,6 +218,13 @@ public class PLine extends PNode {
         }
     }
 
+    private PStrokedOutline getStrokedOutline() {
+        if (strokedOutline == null) {
+            strokedOutline = new PStrokedOutline();
+        }
+        return strokedOutline;
+    }
+
     /**
      * Paints the PLine in the provided context if it has both a stroke and a
      * stroke paint assigned.
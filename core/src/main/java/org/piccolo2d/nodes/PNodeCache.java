@@ -28,15 +28,23 @@
  */
 package org.piccolo2d.nodes;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 
 import org.piccolo2d.PNode;
 import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PDamageRegion;
 import org.piccolo2d.util.PDimension;
 import org.piccolo2d.util.PPaintContext;
 import org.piccolo2d.util.PPickPath;
+import org.piccolo2d.util.PRasterCache;
 
 
 /**
@@ -54,14 +62,36 @@ import org.piccolo2d.util.PPickPath;
  * overriding the method createImageCache and returing an image with the desired
  * effect applied.
  * </p>
+ * <p>
+ * Unless createImageCache is overridden the cache is kept as rasters at power
+ * of two scales, from 1/4 to 4, and the raster nearest above the paint
+ * context's scale is painted, so zooming in stays sharp. Repaints reported by
+ * descendants through repaintFrom only re-render the damaged part of each
+ * raster. The rasters are held in a {@link PRasterCache}, which bounds the
+ * memory of all caches sharing it and drops least recently used rasters;
+ * dropped rasters are rendered again when next painted.
+ * </p>
  * 
  * @version 1.0
  * @author Jesse Grosjean
  */
 public class PNodeCache extends PNode {
     private static final long serialVersionUID = 1L;
+
+    /** Exponent of the power of two scale of the smallest raster. */
+    private static final int MIN_SCALE_EXPONENT = -2;
+
+    /** Exponent of the power of two scale of the largest raster. */
+    private static final int MAX_SCALE_EXPONENT = 2;
+
+    /** Largest number of pixels of a single raster. */
+    private static final long MAX_RASTER_PIXELS = 4096L * 4096L;
+
     private transient Image imageCache;
     private boolean validatingCache;
+    private transient PRasterCache rasterCache = PRasterCache.getShared();
+    private transient Raster[] rasters;
+    private transient Boolean incremental;
 
     /**
      * Override this method to customize the image cache creation process. For
@@ -98,10 +128,45 @@ public class PNodeCache extends PNode {
 
     /**
      * Clears the cache, forcing it to be recalculated on the next call to
-     * getImageCache.
+     * getImageCache and the scaled rasters to be rendered again when next
+     * painted.
      */
     public void invalidateCache() {
         imageCache = null;
+        if (rasters != null) {
+            for (int i = 0; i < rasters.length; i++) {
+                if (rasters[i] != null) {
+                    rasters[i].handle.clear();
+                    rasters[i].area = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cache holding the scaled rasters of this node.
+     * 
+     * @since 3.1
+     * @return the raster cache
+     */
+    public PRasterCache getRasterCache() {
+        return rasterCache;
+    }
+
+    /**
+     * Sets the cache holding the scaled rasters of this node, the shared cache
+     * by default.
+     * 
+     * @since 3.1
+     * @param rasterCache the raster cache, may not be null
+     */
+    public void setRasterCache(final PRasterCache rasterCache) {
+        if (rasterCache == null) {
+            throw new IllegalArgumentException("rasterCache may not be null");
+        }
+        invalidateCache();
+        rasters = null;
+        this.rasterCache = rasterCache;
     }
 
     /**
@@ -122,8 +187,10 @@ public class PNodeCache extends PNode {
      */
     public void repaintFrom(final PBounds localBounds, final PNode childOrThis) {
         if (!validatingCache) {
+            // record the damage before super maps localBounds to the parent
+            imageCache = null;
+            addDamage(localBounds);
             super.repaintFrom(localBounds, childOrThis);
-            invalidateCache();
         }
     }
 
@@ -136,10 +203,161 @@ public class PNodeCache extends PNode {
         if (validatingCache) {
             super.fullPaint(paintContext);
         }
-        else {
+        else if (!isIncremental()) {
             final Graphics2D g2 = paintContext.getGraphics();
             g2.drawImage(getImageCache(), (int) getX(), (int) getY(), null);
         }
+        else if (getVisible() && fullIntersects(paintContext.getLocalClip())) {
+            paintContext.pushTransform(getTransformReference(false));
+            paintContext.pushTransparency(getTransparency());
+            if (!paintRaster(paintContext)) {
+                paintUncached(paintContext);
+            }
+            paintContext.popTransparency(getTransparency());
+            paintContext.popTransform(getTransformReference(false));
+        }
+    }
+
+    /**
+     * Paints the raster of this node at the scale nearest above the paint
+     * context's, bringing it up to date first.
+     * 
+     * @param paintContext context in which painting should occur
+     * @return false if the area of this node is too large to be cached at any
+     *         scale
+     */
+    private boolean paintRaster(final PPaintContext paintContext) {
+        final PBounds area = getUnionOfChildrenBounds(null);
+        if (!getBoundsReference().isEmpty()) {
+            area.add(getBoundsReference());
+        }
+        if (area.isEmpty()) {
+            return true;
+        }
+        final double minX = Math.floor(area.getMinX());
+        final double minY = Math.floor(area.getMinY());
+        area.setRect(minX, minY, Math.ceil(area.getMaxX()) - minX, Math.ceil(area.getMaxY()) - minY);
+
+        int exponent = (int) Math.ceil(Math.log(paintContext.getScale()) / Math.log(2));
+        exponent = Math.max(MIN_SCALE_EXPONENT, Math.min(MAX_SCALE_EXPONENT, exponent));
+        while (pixels(area, exponent) > MAX_RASTER_PIXELS) {
+            if (exponent == MIN_SCALE_EXPONENT) {
+                return false;
+            }
+            exponent--;
+        }
+        final double scale = Math.pow(2, exponent);
+
+        if (rasters == null) {
+            rasters = new Raster[MAX_SCALE_EXPONENT - MIN_SCALE_EXPONENT + 1];
+        }
+        Raster raster = rasters[exponent - MIN_SCALE_EXPONENT];
+        if (raster == null) {
+            raster = new Raster(rasterCache.createHandle(), scale);
+            rasters[exponent - MIN_SCALE_EXPONENT] = raster;
+        }
+
+        BufferedImage image = raster.handle.get();
+        if (image == null || !area.equals(raster.area) || raster.renderQuality != paintContext.getRenderQuality()) {
+            image = new BufferedImage((int) Math.ceil(area.width * scale), (int) Math.ceil(area.height * scale),
+                    BufferedImage.TYPE_INT_ARGB_PRE);
+            raster.area = area;
+            raster.renderQuality = paintContext.getRenderQuality();
+            raster.damage.clear();
+            render(image, raster, new Rectangle(0, 0, image.getWidth(), image.getHeight()), paintContext);
+            raster.handle.set(image);
+        }
+        else if (!raster.damage.isEmpty()) {
+            final Rectangle[] regions = raster.damage.getRegions();
+            raster.damage.clear();
+            for (int i = 0; i < regions.length; i++) {
+                render(image, raster, regions[i], paintContext);
+            }
+        }
+
+        final AffineTransform imageTransform = new AffineTransform(1 / scale, 0, 0, 1 / scale, area.x, area.y);
+        paintContext.getGraphics().drawImage(image, imageTransform, null);
+        return true;
+    }
+
+    /**
+     * Renders this node and its descendants into the given region of a raster,
+     * in the raster's pixel coordinates.
+     */
+    private void render(final BufferedImage image, final Raster raster, final Rectangle region,
+            final PPaintContext paintContext) {
+        final Graphics2D g2 = image.createGraphics();
+        g2.setComposite(AlphaComposite.Clear);
+        g2.fill(region);
+        g2.setComposite(AlphaComposite.SrcOver);
+        g2.clip(region);
+        g2.scale(raster.scale, raster.scale);
+        g2.translate(-raster.area.x, -raster.area.y);
+
+        final PPaintContext rasterContext = new PPaintContext(g2);
+        rasterContext.setRenderQuality(raster.renderQuality);
+        rasterContext.pushCamera(paintContext.getCamera());
+        paintUncached(rasterContext);
+        rasterContext.popCamera();
+        g2.dispose();
+    }
+
+    /**
+     * Paints this node and its descendants without using the cache, in the
+     * local coordinates of this node.
+     */
+    private void paintUncached(final PPaintContext paintContext) {
+        if (!getOccluded()) {
+            paint(paintContext);
+        }
+        final int count = getChildrenCount();
+        for (int i = 0; i < count; i++) {
+            getChild(i).fullPaint(paintContext);
+        }
+        paintAfterChildren(paintContext);
+    }
+
+    /**
+     * Records the given local bounds as damaged in every raster.
+     */
+    private void addDamage(final PBounds localBounds) {
+        if (rasters == null) {
+            return;
+        }
+        for (int i = 0; i < rasters.length; i++) {
+            final Raster raster = rasters[i];
+            if (raster != null && raster.area != null) {
+                final int x = (int) Math.floor((localBounds.getMinX() - raster.area.x) * raster.scale) - 1;
+                final int y = (int) Math.floor((localBounds.getMinY() - raster.area.y) * raster.scale) - 1;
+                final int maxX = (int) Math.ceil((localBounds.getMaxX() - raster.area.x) * raster.scale) + 1;
+                final int maxY = (int) Math.ceil((localBounds.getMaxY() - raster.area.y) * raster.scale) + 1;
+                raster.damage.add(x, y, maxX - x, maxY - y);
+            }
+        }
+    }
+
+    private static double pixels(final PBounds area, final int exponent) {
+        final double scale = Math.pow(2, exponent);
+        return Math.ceil(area.width * scale) * Math.ceil(area.height * scale);
+    }
+
+    /**
+     * Whether the scaled, damage tracking rasters are used, which is the case
+     * unless a subclass customizes createImageCache.
+     */
+    private boolean isIncremental() {
+        if (incremental == null) {
+            boolean overridden;
+            try {
+                overridden = getClass().getMethod("createImageCache", Dimension2D.class).getDeclaringClass()
+                        != PNodeCache.class;
+            }
+            catch (final NoSuchMethodException e) {
+                overridden = false;
+            }
+            incremental = Boolean.valueOf(!overridden);
+        }
+        return incremental.booleanValue();
     }
 
     /**
@@ -151,4 +369,34 @@ public class PNodeCache extends PNode {
     protected boolean pickAfterChildren(final PPickPath pickPath) {
         return false;
     }
+
+    /**
+     * Deserializes this node, which uses the shared raster cache.
+     * 
+     * @param in stream from which the node should be read
+     * @throws IOException if problem occurs while reading from input stream
+     * @throws ClassNotFoundException occurs is no mapping from the bytes in the
+     *             stream can be found to classes available
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rasterCache = PRasterCache.getShared();
+    }
+
+    /**
+     * A raster of the cache at one scale, with the local area it covers, the
+     * render quality it was rendered with and its damaged pixels.
+     */
+    private static final class Raster {
+        private final PRasterCache.Handle handle;
+        private final double scale;
+        private final PDamageRegion damage = new PDamageRegion();
+        private PBounds area;
+        private int renderQuality;
+
+        Raster(final PRasterCache.Handle handle, final double scale) {
+            this.handle = handle;
+            this.scale = scale;
+        }
+    }
 }
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <b>PPackedTileSource</b> reads the tiles of an image pyramid from a single
+ * packed tile file through memory mapped I/O, so that images far larger than
+ * the heap can be shown by a {@link PImagePyramid}. Only the tiles that are
+ * painted are decoded, and the decoded tiles are bounded by the pyramid's
+ * cache. Tiles may be read from any thread, so the source can be used with
+ * asynchronous loading.
+ * <p>
+ * Packed tile files are written by {@link #write(PImagePyramid.TileSource, String, File)}.
+ * A file starts with a header of big endian integers: the magic number
+ * <code>0x5054494C</code>, the format version, the width and height of the
+ * full resolution image, the tile size and the level count. An index follows
+ * with a long offset and an int length for every tile, ordered by level, row
+ * and column, a length of 0 marking a missing tile. The encoded tiles follow
+ * the index.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PPackedTileSource implements PImagePyramid.TileSource {
+
+    /** Magic number at the start of packed tile files. */
+    public static final int MAGIC = 0x5054494C;
+
+    /** Version of the packed tile file format written by this class. */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    /** Largest region of the file mapped at once. */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int levelCount;
+    private final int[] levelColumns;
+    private final int[] levelIndex;
+
+    /**
+     * Opens the given packed tile file. The file stays open until
+     * {@link #close()} is called.
+     * 
+     * @param file packed tile file
+     * @throws IOException if the file could not be read or is not a packed
+     *             tile file
+     */
+    public PPackedTileSource(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        channel = randomAccessFile.getChannel();
+        try {
+            final long size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size
+                        - position));
+            }
+            if (size < HEADER_SIZE) {
+                throw new IOException("not a packed tile file: " + file);
+            }
+
+            final ByteBuffer header = segments[0];
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("not a packed tile file: " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("unsupported packed tile file version " + header.getInt(4) + ": " + file);
+            }
+            width = header.getInt(8);
+            height = header.getInt(12);
+            tileSize = header.getInt(16);
+            levelCount = header.getInt(20);
+            if (width <= 0 || height <= 0 || tileSize <= 0 || levelCount <= 0) {
+                throw new IOException("corrupt packed tile file header: " + file);
+            }
+
+            levelColumns = new int[levelCount];
+            levelIndex = new int[levelCount + 1];
+            int levelWidth = width;
+            int levelHeight = height;
+            for (int level = 0; level < levelCount; level++) {
+                levelColumns[level] = (levelWidth + tileSize - 1) / tileSize;
+                final int rows = (levelHeight + tileSize - 1) / tileSize;
+                levelIndex[level + 1] = levelIndex[level] + levelColumns[level] * rows;
+                levelWidth = (levelWidth + 1) / 2;
+                levelHeight = (levelHeight + 1) / 2;
+            }
+            if (HEADER_SIZE + (long) levelIndex[levelCount] * INDEX_ENTRY_SIZE > size) {
+                throw new IOException("truncated packed tile file: " + file);
+            }
+        }
+        catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public int getWidth() {
+        return width;
+    }
+
+    /** {@inheritDoc} */
+    public int getHeight() {
+        return height;
+    }
+
+    /** {@inheritDoc} */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /** {@inheritDoc} */
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /** {@inheritDoc} */
+    public BufferedImage getTile(final int level, final int column, final int row) throws IOException {
+        if (level < 0 || level >= levelCount || column < 0 || column >= levelColumns[level] || row < 0) {
+            return null;
+        }
+        final int tile = levelIndex[level] + row * levelColumns[level] + column;
+        if (tile >= levelIndex[level + 1]) {
+            return null;
+        }
+
+        final long entry = HEADER_SIZE + (long) tile * INDEX_ENTRY_SIZE;
+        final long offset = readLong(entry);
+        final int length = readInt(entry + 8);
+        if (length == 0) {
+            return null;
+        }
+        return ImageIO.read(new ByteBufferInputStream(read(offset, length)));
+    }
+
+    /**
+     * Closes the packed tile file. Mapped regions stay valid until they are
+     * garbage collected.
+     * 
+     * @throws IOException if the file could not be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long readLong(final long position) throws IOException {
+        return read(position, 8).getLong();
+    }
+
+    private int readInt(final long position) throws IOException {
+        return read(position, 4).getInt();
+    }
+
+    /**
+     * Returns a buffer positioned on the given region of the file, a view of
+     * the mapped file unless the region crosses two mapped segments.
+     */
+    private ByteBuffer read(final long position, final int length) throws IOException {
+        final int segment = (int) (position / SEGMENT_SIZE);
+        final int start = (int) (position % SEGMENT_SIZE);
+        if (segment < segments.length && start + (long) length <= segments[segment].capacity()) {
+            final ByteBuffer view = segments[segment].duplicate();
+            view.position(start);
+            view.limit(start + length);
+            return view.slice();
+        }
+
+        final ByteBuffer copy = ByteBuffer.allocate(length);
+        while (copy.hasRemaining()) {
+            if (channel.read(copy, position + copy.position()) < 0) {
+                throw new IOException("truncated packed tile file");
+            }
+        }
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * Writes every tile of the given source to a packed tile file, encoding
+     * each tile in the given image format. Missing tiles are recorded as
+     * such. Use with a {@link PImagePyramid.ImageTileSource} to produce a
+     * packed tile file from an image.
+     * 
+     * @param source source of the tiles to write
+     * @param formatName informal name of the image format, such as "png" or
+     *            "jpeg"
+     * @param file file to write
+     * @throws IOException if a tile could not be read or the file could not be
+     *             written
+     */
+    public static void write(final PImagePyramid.TileSource source, final String formatName, final File file)
+            throws IOException {
+        final int tileSize = source.getTileSize();
+        int tileCount = 0;
+        int levelWidth = source.getWidth();
+        int levelHeight = source.getHeight();
+        for (int level = 0; level < source.getLevelCount(); level++) {
+            tileCount += ((levelWidth + tileSize - 1) / tileSize) * ((levelHeight + tileSize - 1) / tileSize);
+            levelWidth = (levelWidth + 1) / 2;
+            levelHeight = (levelHeight + 1) / 2;
+        }
+
+        final RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(source.getWidth());
+            out.writeInt(source.getHeight());
+            out.writeInt(tileSize);
+            out.writeInt(source.getLevelCount());
+
+            long dataOffset = HEADER_SIZE + (long) tileCount * INDEX_ENTRY_SIZE;
+            long indexOffset = HEADER_SIZE;
+            final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            levelWidth = source.getWidth();
+            levelHeight = source.getHeight();
+            for (int level = 0; level < source.getLevelCount(); level++) {
+                final int columns = (levelWidth + tileSize - 1) / tileSize;
+                final int rows = (levelHeight + tileSize - 1) / tileSize;
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        final BufferedImage tile = source.getTile(level, column, row);
+                        encoded.reset();
+                        if (tile != null && !ImageIO.write(tile, formatName, encoded)) {
+                            throw new IOException("could not encode tile as " + formatName);
+                        }
+                        out.seek(indexOffset);
+                        out.writeLong(dataOffset);
+                        out.writeInt(encoded.size());
+                        indexOffset += INDEX_ENTRY_SIZE;
+
+                        out.seek(dataOffset);
+                        out.write(encoded.toByteArray());
+                        dataOffset += encoded.size();
+                    }
+                }
+                levelWidth = (levelWidth + 1) / 2;
+                levelHeight = (levelHeight + 1) / 2;
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * An input stream reading the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RectangularShape;
+import java.util.Arrays;
+
+import org.piccolo2d.PNode;
+import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PPickPath;
+
+/**
+ * <b>PPointCloud</b> is a node that paints a large number of simple marks,
+ * such as the points of a scatter plot. Instead of a <code>PNode</code> per
+ * mark it stores the position, size, color and flags of each item in
+ * primitive arrays, and paints, picks and hit tests the items by index.
+ * <p>
+ * Item positions are the centers of the marks in this node's local coordinate
+ * system, and sizes are their widths. When an item is picked the node is
+ * placed on the pick path and the item's index is available from
+ * {@link org.piccolo2d.event.PInputEvent#getPickedItem()} or
+ * {@link PPickPath#getPickedItem()}. When items overlap the one added last is
+ * painted on top and picked first.
+ * </p>
+ * <p>
+ * Adding or moving items grows this node's bounds to contain them. Removing
+ * an item recomputes the bounds; call {@link #updateBoundsFromItems()} to
+ * shrink them after moving items inward.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PPointCloud extends PNode {
+
+    /**
+     * Allows for future serialization code to understand versioned binary
+     * formats.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The property name that identifies a change of this node's items. The old
+     * and new values of the property change event are null.
+     */
+    public static final String PROPERTY_ITEMS = "items";
+
+    /**
+     * The property code that identifies a change of this node's items. The old
+     * and new values of the property change event are null.
+     */
+    public static final int PROPERTY_CODE_ITEMS = 1 << 23;
+
+    /** Items are painted as squares. */
+    public static final int SHAPE_SQUARE = 0;
+
+    /** Items are painted as circles. */
+    public static final int SHAPE_CIRCLE = 1;
+
+    /** Item flag, hidden items are neither painted nor picked. */
+    public static final int FLAG_HIDDEN = 1;
+
+    /** Item flag, unpickable items are painted but not picked. */
+    public static final int FLAG_UNPICKABLE = 2;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] itemX;
+    private float[] itemY;
+    private float[] itemSize;
+    private int[] itemColor;
+    private byte[] itemFlags;
+    private int itemCount;
+    private int itemShape = SHAPE_SQUARE;
+
+    /**
+     * Creates an empty point cloud painting its items as squares.
+     */
+    public PPointCloud() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty point cloud with room for the given number of items
+     * before its arrays have to grow.
+     * 
+     * @param capacity initial number of items to allocate storage for
+     */
+    public PPointCloud(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be non-negative: " + capacity);
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the number of items in this point cloud.
+     * 
+     * @return the number of items
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns the shape items are painted as, one of <code>SHAPE_SQUARE</code>
+     * or <code>SHAPE_CIRCLE</code>.
+     * 
+     * @return the item shape
+     */
+    public int getItemShape() {
+        return itemShape;
+    }
+
+    /**
+     * Sets the shape items are painted as, one of <code>SHAPE_SQUARE</code> or
+     * <code>SHAPE_CIRCLE</code>. Picking always tests the square around each
+     * item.
+     * 
+     * @param itemShape the item shape
+     */
+    public void setItemShape(final int itemShape) {
+        if (itemShape != SHAPE_SQUARE && itemShape != SHAPE_CIRCLE) {
+            throw new IllegalArgumentException("unknown item shape: " + itemShape);
+        }
+        if (this.itemShape != itemShape) {
+            this.itemShape = itemShape;
+            invalidatePaint();
+        }
+    }
+
+    /**
+     * Adds an item to this point cloud.
+     * 
+     * @param x x coordinate of the item's center
+     * @param y y coordinate of the item's center
+     * @param size width and height of the item
+     * @param argb color of the item as packed ARGB
+     * @return the index of the new item
+     */
+    public int addItem(final double x, final double y, final double size, final int argb) {
+        if (itemCount == itemX.length) {
+            grow(itemCount + 1);
+        }
+        final int index = itemCount++;
+        itemX[index] = (float) x;
+        itemY[index] = (float) y;
+        itemSize[index] = (float) size;
+        itemColor[index] = argb;
+        itemFlags[index] = 0;
+        itemChanged(index);
+        return index;
+    }
+
+    /**
+     * Replaces all items of this point cloud with the first <code>count</code>
+     * entries of the given arrays, which are copied.
+     * 
+     * @param x x coordinates of the item centers
+     * @param y y coordinates of the item centers
+     * @param size widths and heights of the items
+     * @param argb colors of the items as packed ARGB
+     * @param count number of items to copy from the arrays
+     */
+    public void setItems(final float[] x, final float[] y, final float[] size, final int[] argb, final int count) {
+        if (count < 0 || count > x.length || count > y.length || count > size.length || count > argb.length) {
+            throw new IllegalArgumentException("count does not fit the item arrays: " + count);
+        }
+        allocate(count);
+        System.arraycopy(x, 0, itemX, 0, count);
+        System.arraycopy(y, 0, itemY, 0, count);
+        System.arraycopy(size, 0, itemSize, 0, count);
+        System.arraycopy(argb, 0, itemColor, 0, count);
+        itemCount = count;
+        itemsChanged();
+    }
+
+    /**
+     * Removes the item at the given index, shifting the items after it down by
+     * one index.
+     * 
+     * @param index index of the item to remove
+     */
+    public void removeItem(final int index) {
+        checkIndex(index);
+        final int moved = itemCount - index - 1;
+        System.arraycopy(itemX, index + 1, itemX, index, moved);
+        System.arraycopy(itemY, index + 1, itemY, index, moved);
+        System.arraycopy(itemSize, index + 1, itemSize, index, moved);
+        System.arraycopy(itemColor, index + 1, itemColor, index, moved);
+        System.arraycopy(itemFlags, index + 1, itemFlags, index, moved);
+        itemCount--;
+        itemsChanged();
+    }
+
+    /**
+     * Removes all items from this point cloud.
+     */
+    public void removeAllItems() {
+        itemCount = 0;
+        itemsChanged();
+    }
+
+    /**
+     * Returns the x coordinate of the center of the given item.
+     * 
+     * @param index index of the item
+     * @return x coordinate of the item's center
+     */
+    public float getItemX(final int index) {
+        checkIndex(index);
+        return itemX[index];
+    }
+
+    /**
+     * Returns the y coordinate of the center of the given item.
+     * 
+     * @param index index of the item
+     * @return y coordinate of the item's center
+     */
+    public float getItemY(final int index) {
+        checkIndex(index);
+        return itemY[index];
+    }
+
+    /**
+     * Moves the center of the given item.
+     * 
+     * @param index index of the item
+     * @param x new x coordinate of the item's center
+     * @param y new y coordinate of the item's center
+     */
+    public void setItemPosition(final int index, final double x, final double y) {
+        checkIndex(index);
+        repaintItem(index);
+        itemX[index] = (float) x;
+        itemY[index] = (float) y;
+        itemChanged(index);
+    }
+
+    /**
+     * Returns the width and height of the given item.
+     * 
+     * @param index index of the item
+     * @return size of the item
+     */
+    public float getItemSize(final int index) {
+        checkIndex(index);
+        return itemSize[index];
+    }
+
+    /**
+     * Sets the width and height of the given item.
+     * 
+     * @param index index of the item
+     * @param size new size of the item
+     */
+    public void setItemSize(final int index, final double size) {
+        checkIndex(index);
+        repaintItem(index);
+        itemSize[index] = (float) size;
+        itemChanged(index);
+    }
+
+    /**
+     * Returns the color of the given item as packed ARGB.
+     * 
+     * @param index index of the item
+     * @return color of the item
+     */
+    public int getItemColor(final int index) {
+        checkIndex(index);
+        return itemColor[index];
+    }
+
+    /**
+     * Sets the color of the given item as packed ARGB.
+     * 
+     * @param index index of the item
+     * @param argb new color of the item
+     */
+    public void setItemColor(final int index, final int argb) {
+        checkIndex(index);
+        itemColor[index] = argb;
+        itemChanged(index);
+    }
+
+    /**
+     * Returns the flags of the given item, a combination of
+     * <code>FLAG_HIDDEN</code> and <code>FLAG_UNPICKABLE</code>.
+     * 
+     * @param index index of the item
+     * @return flags of the item
+     */
+    public int getItemFlags(final int index) {
+        checkIndex(index);
+        return itemFlags[index];
+    }
+
+    /**
+     * Sets the flags of the given item, a combination of
+     * <code>FLAG_HIDDEN</code> and <code>FLAG_UNPICKABLE</code>.
+     * 
+     * @param index index of the item
+     * @param flags new flags of the item
+     */
+    public void setItemFlags(final int index, final int flags) {
+        checkIndex(index);
+        itemFlags[index] = (byte) flags;
+        itemChanged(index);
+    }
+
+    /**
+     * Returns the bounds of the given item in this node's local coordinates.
+     * 
+     * @param index index of the item
+     * @param dst rectangle to store the bounds in, or null to allocate one
+     * @return the bounds of the item
+     */
+    public Rectangle2D getItemBounds(final int index, final Rectangle2D dst) {
+        checkIndex(index);
+        final Rectangle2D result;
+        if (dst == null) {
+            result = new Rectangle2D.Double();
+        }
+        else {
+            result = dst;
+        }
+        final double half = itemSize[index] / 2.0;
+        result.setRect(itemX[index] - half, itemY[index] - half, itemSize[index], itemSize[index]);
+        return result;
+    }
+
+    /**
+     * Returns the index of the topmost pickable item intersecting the given
+     * bounds, or -1 if there is none.
+     * 
+     * @param localBounds bounds in this node's local coordinates
+     * @return index of the topmost intersecting item, or -1
+     */
+    public int pickItem(final Rectangle2D localBounds) {
+        final double minX = localBounds.getMinX();
+        final double minY = localBounds.getMinY();
+        final double maxX = localBounds.getMaxX();
+        final double maxY = localBounds.getMaxY();
+        for (int i = itemCount - 1; i >= 0; i--) {
+            if ((itemFlags[i] & (FLAG_HIDDEN | FLAG_UNPICKABLE)) != 0) {
+                continue;
+            }
+            final double half = itemSize[i] / 2.0;
+            if (itemX[i] + half >= minX && itemX[i] - half <= maxX && itemY[i] + half >= minY
+                    && itemY[i] - half <= maxY) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recomputes this node's bounds so that they tightly contain its items.
+     */
+    public void updateBoundsFromItems() {
+        if (itemCount == 0) {
+            resetBounds();
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < itemCount; i++) {
+            final double half = itemSize[i] / 2.0;
+            minX = Math.min(minX, itemX[i] - half);
+            minY = Math.min(minY, itemY[i] - half);
+            maxX = Math.max(maxX, itemX[i] + half);
+            maxY = Math.max(maxY, itemY[i] + half);
+        }
+        setBounds(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Returns true if any pickable item of this point cloud intersects the
+     * given bounds.
+     * 
+     * @param localBounds bounds in this node's local coordinates
+     * @return true if a pickable item intersects the bounds
+     */
+    public boolean intersects(final Rectangle2D localBounds) {
+        return pickItem(localBounds) >= 0;
+    }
+
+    /**
+     * Picks the topmost item under the pick bounds and records its index on the
+     * pick path.
+     * 
+     * @param pickPath the pick path used for the pick operation
+     * @return true if an item was picked
+     */
+    protected boolean pickAfterChildren(final PPickPath pickPath) {
+        final int item = pickItem(pickPath.getPickBounds());
+        if (item < 0) {
+            return false;
+        }
+        pickPath.setPickedItem(this, item);
+        return true;
+    }
+
+    /**
+     * Paints the visible items that intersect the paint context's clip. Items
+     * smaller than a device pixel are painted as one device pixel around their
+     * center so that they remain visible when zoomed out.
+     * 
+     * @param paintContext the paint context to use for painting the items
+     */
+    protected void paint(final PPaintContext paintContext) {
+        if (itemCount == 0) {
+            return;
+        }
+        final Graphics2D g2 = paintContext.getGraphics();
+        final Rectangle2D clip = paintContext.getLocalClip();
+        final double clipMinX = clip.getMinX();
+        final double clipMinY = clip.getMinY();
+        final double clipMaxX = clip.getMaxX();
+        final double clipMaxY = clip.getMaxY();
+        final double minSize = 1.0 / paintContext.getScale();
+
+        final RectangularShape mark;
+        if (itemShape == SHAPE_CIRCLE) {
+            mark = new Ellipse2D.Double();
+        }
+        else {
+            mark = new Rectangle2D.Double();
+        }
+
+        final Paint oldPaint = g2.getPaint();
+        Color color = null;
+        for (int i = 0; i < itemCount; i++) {
+            if ((itemFlags[i] & FLAG_HIDDEN) != 0) {
+                continue;
+            }
+            final double size = Math.max(itemSize[i], minSize);
+            final double half = size / 2.0;
+            final double x = itemX[i] - half;
+            final double y = itemY[i] - half;
+            if (x > clipMaxX || y > clipMaxY || x + size < clipMinX || y + size < clipMinY) {
+                continue;
+            }
+            if (color == null || color.getRGB() != itemColor[i]) {
+                color = new Color(itemColor[i], true);
+                g2.setPaint(color);
+            }
+            mark.setFrame(x, y, size, size);
+            g2.fill(mark);
+        }
+        g2.setPaint(oldPaint);
+    }
+
+    /**
+     * Grows the bounds of this node to contain the given item and notifies
+     * listeners of the change.
+     * 
+     * @param index index of the changed item
+     */
+    private void itemChanged(final int index) {
+        final double half = itemSize[index] / 2.0;
+        final double x = itemX[index] - half;
+        final double y = itemY[index] - half;
+        final double size = itemSize[index];
+        final PBounds bounds = getBoundsReference();
+        if (bounds.isEmpty()) {
+            setBounds(x, y, size, size);
+        }
+        else if (x < bounds.x || y < bounds.y || x + size > bounds.x + bounds.width
+                || y + size > bounds.y + bounds.height) {
+            final double minX = Math.min(x, bounds.x);
+            final double minY = Math.min(y, bounds.y);
+            setBounds(minX, minY, Math.max(x + size, bounds.x + bounds.width) - minX, Math.max(y + size,
+                    bounds.y + bounds.height)
+                    - minY);
+        }
+        repaintItem(index);
+        firePropertyChange(PROPERTY_CODE_ITEMS, PROPERTY_ITEMS, null, null);
+    }
+
+    /**
+     * Recomputes the bounds of this node after many items changed and notifies
+     * listeners of the change.
+     */
+    private void itemsChanged() {
+        updateBoundsFromItems();
+        invalidatePaint();
+        firePropertyChange(PROPERTY_CODE_ITEMS, PROPERTY_ITEMS, null, null);
+    }
+
+    /**
+     * Repaints the area covered by the given item.
+     * 
+     * @param index index of the item
+     */
+    private void repaintItem(final int index) {
+        if (getParent() == null) {
+            return;
+        }
+        final PBounds itemBounds = new PBounds();
+        getItemBounds(index, itemBounds);
+        localToParent(itemBounds);
+        repaintFrom(itemBounds, this);
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= itemCount) {
+            throw new IndexOutOfBoundsException("item index " + index + " out of range 0.." + (itemCount - 1));
+        }
+    }
+
+    /**
+     * Replaces the item arrays with empty arrays of the given capacity.
+     * 
+     * @param capacity number of items to allocate storage for
+     */
+    private void allocate(final int capacity) {
+        itemX = new float[capacity];
+        itemY = new float[capacity];
+        itemSize = new float[capacity];
+        itemColor = new int[capacity];
+        itemFlags = new byte[capacity];
+        itemCount = 0;
+    }
+
+    /**
+     * Grows the item arrays to hold at least the given number of items.
+     * 
+     * @param minCapacity number of items the arrays must hold
+     */
+    private void grow(final int minCapacity) {
+        final int capacity = Math.max(minCapacity, Math.max(DEFAULT_CAPACITY, itemX.length * 2));
+        itemX = Arrays.copyOf(itemX, capacity);
+        itemY = Arrays.copyOf(itemY, capacity);
+        itemSize = Arrays.copyOf(itemSize, capacity);
+        itemColor = Arrays.copyOf(itemColor, capacity);
+        itemFlags = Arrays.copyOf(itemFlags, capacity);
+    }
+}
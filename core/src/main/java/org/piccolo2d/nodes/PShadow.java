@@ -30,6 +30,7 @@ package org.piccolo2d.nodes;
 
 import java.awt.Image;
 import java.awt.Paint;
+import java.awt.image.BufferedImage;
 
 import org.piccolo2d.util.ShadowUtils;
 
@@ -37,6 +38,11 @@ import org.piccolo2d.util.ShadowUtils;
 
 /**
  * Shadow node.
+ * <p>
+ * The shadow image is held in the raster cache of the node, the shared
+ * {@link org.piccolo2d.util.PRasterCache} by default, and is computed again
+ * from the source image if the cache drops it.
+ * </p>
  *
  * @since 1.3
  */
@@ -45,6 +51,15 @@ public final class PShadow extends PImage {
     /** Default serial version UID. */
     private static final long serialVersionUID = 1L;
 
+    /** Source image of the shadow, kept to recompute a dropped shadow image. */
+    private final transient Image src;
+
+    /** Shadow paint. */
+    private final transient Paint shadowPaint;
+
+    /** Gaussian blur radius. */
+    private final transient int blurRadius;
+
 
     /**
      * Create a new shadow node containing a shadow of the specified source image using the
@@ -60,5 +75,21 @@ public final class PShadow extends PImage {
      */
     public PShadow(final Image src, final Paint shadowPaint, final int blurRadius) {
         super(ShadowUtils.createShadow(src, shadowPaint, blurRadius));
+        this.src = src;
+        this.shadowPaint = shadowPaint;
+        this.blurRadius = blurRadius;
+        releaseImageToCache();
+    }
+
+    /**
+     * Computes the shadow image again from the source image.
+     *
+     * @return the shadow image, or null if this node was deserialized
+     */
+    BufferedImage recreateImage() {
+        if (src == null) {
+            return null;
+        }
+        return ShadowUtils.createShadow(src, shadowPaint, blurRadius);
     }
-}
+}
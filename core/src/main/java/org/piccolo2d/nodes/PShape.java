@@ -41,6 +41,7 @@ import java.awt.geom.Rectangle2D;
 import org.piccolo2d.PNode;
 
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PStrokedOutline;
 
 /**
  * Abstract shape node.
@@ -58,6 +59,9 @@ public abstract class PShape extends PNode {
     /** True if bounds are currently being updated to match the shape. */
     private transient boolean updatingBoundsFromShape = false;
 
+    /** Cached outline of the shape drawn with the stroke, created lazily. */
+    private transient PStrokedOutline strokedOutline;
+
     /** Default paint for this shape node, <code>Color.WHITE</code>. */
     public static final Paint DEFAULT_PAINT = Color.WHITE;
 
@@ -138,9 +142,12 @@ public abstract class PShape extends PNode {
     }
 
     /**
-     * Update the bounds of this shape node from its shape.
+     * Update the bounds of this shape node from its shape.  Subclasses must call
+     * this whenever their shape changes, as it also discards the cached stroked
+     * outline of the shape.
      */
     protected final void updateBoundsFromShape() {
+        getStrokedOutline().invalidate();
         updatingBoundsFromShape = true;
         final Rectangle2D b = getBoundsWithStroke();
         setBounds(b.getX(), b.getY(), b.getWidth(), b.getHeight());
@@ -154,7 +161,7 @@ public abstract class PShape extends PNode {
      */
     protected final Rectangle2D getBoundsWithStroke() {
         if (stroke != null) {
-            return stroke.createStrokedShape(getShape()).getBounds2D();
+            return getStrokedOutline().getBounds(stroke, getShape());
         }
         else {
             return getShape().getBounds2D();
@@ -197,6 +204,7 @@ public abstract class PShape extends PNode {
         transform.scale(scaleX, scaleY);
         transform.translate(-bounds.getX(), -bounds.getY());
         transform(transform);
+        getStrokedOutline().invalidate();
     }
 
     /** {@inheritDoc} */
@@ -206,12 +214,19 @@ public abstract class PShape extends PNode {
                 return true;
             }
             else if (stroke != null && strokePaint != null) {
-                return stroke.createStrokedShape(getShape()).intersects(bounds);
+                return getStrokedOutline().intersects(stroke, getShape(), bounds);
             }
         }
         return false;
     }
 
+    private PStrokedOutline getStrokedOutline() {
+        if (strokedOutline == null) {
+            strokedOutline = new PStrokedOutline();
+        }
+        return strokedOutline;
+    }
+
     /** {@inheritDoc} */
     protected void paint(final PPaintContext paintContext) {
         final Paint p = getPaint();
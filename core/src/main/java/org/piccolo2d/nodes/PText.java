@@ -36,17 +36,27 @@ import java.awt.Paint;
 import java.awt.font.LineBreakMeasurer;
 import java.awt.font.TextAttribute;
 import java.awt.font.TextLayout;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
 import java.util.ArrayList;
 
 import org.piccolo2d.PNode;
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PTextLayoutCache;
 
 
 /**
  * <b>PText</b> is a multi-line text node. The text will flow to base on the
  * width of the node's bounds.
+ * <p>
+ * The lines of text are looked up in a {@link PTextLayoutCache}, the shared
+ * cache by default, so that text nodes showing the same text in the same font
+ * and width share their layout instead of each laying the text out again.
+ * Subclasses that customize {@link #computeNextLayout computeNextLayout} lay
+ * out their text themselves.
+ * </p>
  * 
  * @version 1.1
  * @author Jesse Grosjean
@@ -173,9 +183,15 @@ public class PText extends PNode {
      */
     private boolean constrainWidthToTextWidth = true;
 
-    /** One or more lines of text layout. */
+    /** One or more lines of text layout, possibly shared with other nodes. */
     private transient TextLayout[] lines;
 
+    /** Cache of line layouts shared with other text nodes, or null. */
+    private transient PTextLayoutCache layoutCache = PTextLayoutCache.getShared();
+
+    /** Whether computeNextLayout is not customized, computed lazily. */
+    private transient Boolean standardLayout;
+
     /**
      * Create a new text node with no text (<code>""</code>).
      */
@@ -420,20 +436,37 @@ public class PText extends PNode {
         firePropertyChange(PROPERTY_CODE_FONT, PROPERTY_FONT, oldFont, this.font);
     }
 
+    /**
+     * Return the cache in which the line layouts of this node are shared with
+     * other text nodes.
+     * 
+     * @since 3.1
+     * @return the layout cache, or null if the layout is not shared
+     */
+    public PTextLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
+    /**
+     * Set the cache in which the line layouts of this node are shared with
+     * other text nodes, the shared cache by default.
+     * 
+     * @since 3.1
+     * @param layoutCache the layout cache, or null to not share the layout
+     */
+    public void setLayoutCache(final PTextLayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
     /**
      * Compute the bounds of the text wrapped by this node. The text layout is
      * wrapped based on the bounds of this node.
      */
     public void recomputeLayout() {
-        final ArrayList<TextLayout> linesList = new ArrayList<TextLayout>();
         double textWidth = 0;
         double textHeight = 0;
 
         if (text != null && text.length() > 0) {
-            final AttributedString atString = new AttributedString(text);
-            atString.addAttribute(TextAttribute.FONT, getFont());
-            final AttributedCharacterIterator itr = atString.getIterator();
-            final LineBreakMeasurer measurer = new LineBreakMeasurer(itr, PPaintContext.RENDER_QUALITY_HIGH_FRC);
             final float availableWidth;
             if (constrainWidthToTextWidth) {
                 availableWidth = Float.MAX_VALUE;
@@ -442,35 +475,34 @@ public class PText extends PNode {
                 availableWidth = (float) getWidth();
             }
 
-            int nextLineBreakOffset = text.indexOf('\n');
-            if (nextLineBreakOffset == -1) {
-                nextLineBreakOffset = Integer.MAX_VALUE;
+            final PTextLayoutCache cache;
+            if (isStandardLayout()) {
+                cache = layoutCache;
             }
             else {
-                nextLineBreakOffset++;
+                cache = null;
             }
-
-            while (measurer.getPosition() < itr.getEndIndex()) {
-                final TextLayout aTextLayout = computeNextLayout(measurer, availableWidth, nextLineBreakOffset);
-
-                if (nextLineBreakOffset == measurer.getPosition()) {
-                    nextLineBreakOffset = text.indexOf('\n', measurer.getPosition());
-                    if (nextLineBreakOffset == -1) {
-                        nextLineBreakOffset = Integer.MAX_VALUE;
-                    }
-                    else {
-                        nextLineBreakOffset++;
-                    }
+            if (cache == null) {
+                lines = layoutText(availableWidth);
+            }
+            else {
+                lines = cache.get(text, getFont(), availableWidth, PPaintContext.RENDER_QUALITY_HIGH_FRC);
+                if (lines == null) {
+                    lines = layoutText(availableWidth);
+                    cache.put(text, getFont(), availableWidth, PPaintContext.RENDER_QUALITY_HIGH_FRC, lines);
                 }
+            }
 
-                linesList.add(aTextLayout);
+            for (int i = 0; i < lines.length; i++) {
+                final TextLayout aTextLayout = lines[i];
                 textHeight += aTextLayout.getAscent();
                 textHeight += aTextLayout.getDescent() + aTextLayout.getLeading();
                 textWidth = Math.max(textWidth, aTextLayout.getAdvance());
             }
         }
-
-        lines = (TextLayout[]) linesList.toArray(EMPTY_TEXT_LAYOUT_ARRAY);
+        else {
+            lines = EMPTY_TEXT_LAYOUT_ARRAY;
+        }
 
         if (constrainWidthToTextWidth || constrainHeightToTextHeight) {
             double newWidth = getWidth();
@@ -488,6 +520,63 @@ public class PText extends PNode {
         }
     }
 
+    /**
+     * Break the text of this node into lines no wider than the given width.
+     */
+    private TextLayout[] layoutText(final float availableWidth) {
+        final ArrayList<TextLayout> linesList = new ArrayList<TextLayout>();
+        final AttributedString atString = new AttributedString(text);
+        atString.addAttribute(TextAttribute.FONT, getFont());
+        final AttributedCharacterIterator itr = atString.getIterator();
+        final LineBreakMeasurer measurer = new LineBreakMeasurer(itr, PPaintContext.RENDER_QUALITY_HIGH_FRC);
+
+        int nextLineBreakOffset = text.indexOf('\n');
+        if (nextLineBreakOffset == -1) {
+            nextLineBreakOffset = Integer.MAX_VALUE;
+        }
+        else {
+            nextLineBreakOffset++;
+        }
+
+        while (measurer.getPosition() < itr.getEndIndex()) {
+            final TextLayout aTextLayout = computeNextLayout(measurer, availableWidth, nextLineBreakOffset);
+
+            if (nextLineBreakOffset == measurer.getPosition()) {
+                nextLineBreakOffset = text.indexOf('\n', measurer.getPosition());
+                if (nextLineBreakOffset == -1) {
+                    nextLineBreakOffset = Integer.MAX_VALUE;
+                }
+                else {
+                    nextLineBreakOffset++;
+                }
+            }
+
+            linesList.add(aTextLayout);
+        }
+        return (TextLayout[]) linesList.toArray(EMPTY_TEXT_LAYOUT_ARRAY);
+    }
+
+    /**
+     * Whether the line layouts can be shared, which is the case unless a
+     * subclass customizes computeNextLayout.
+     */
+    private boolean isStandardLayout() {
+        if (standardLayout == null) {
+            boolean overridden = false;
+            for (Class<?> c = getClass(); c != PText.class && !overridden; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod("computeNextLayout", LineBreakMeasurer.class, float.class, int.class);
+                    overridden = true;
+                }
+                catch (final NoSuchMethodException e) {
+                    // not customized by this class
+                }
+            }
+            standardLayout = Boolean.valueOf(!overridden);
+        }
+        return standardLayout.booleanValue();
+    }
+
     /**
      * Compute the next layout using the specified line break measurer,
      * available width, and next line break offset.
@@ -567,4 +656,17 @@ public class PText extends PNode {
     protected void internalUpdateBounds(final double x, final double y, final double width, final double height) {
         recomputeLayout();
     }
+
+    /**
+     * Deserializes this node, which uses the shared layout cache.
+     * 
+     * @param in stream from which the node should be read
+     * @throws IOException if problem occurs while reading from input stream
+     * @throws ClassNotFoundException occurs is no mapping from the bytes in the
+     *             stream can be found to classes available
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        layoutCache = PTextLayoutCache.getShared();
+    }
 }
@@ -33,6 +33,7 @@ import org.piccolo2d.PLayer;
 import org.piccolo2d.PNode;
 import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PRasterCache;
 
 import javax.swing.JComponent;
 import javax.swing.RepaintManager;
@@ -222,8 +223,8 @@ public class PSwing extends PNode implements Serializable, PropertyChangeListene
      */
     private boolean useBufferedPainting = false;
 
-    /** Used when buffered painting is enabled. */
-    private BufferedImage buffer;
+    /** Holds the buffer used when buffered painting is enabled. */
+    private transient PRasterCache.Handle buffer;
 
     /** Minimum font size. */
     private double minFontSize = Double.MAX_VALUE;
@@ -493,9 +494,10 @@ public class PSwing extends PNode implements Serializable, PropertyChangeListene
         final RenderingHints oldHints = g2.getRenderingHints();
 
         if (useBufferedPainting) {
-            Graphics2D bufferedGraphics = getBufferedGraphics(g2);
+            final BufferedImage image = getBuffer();
+            Graphics2D bufferedGraphics = getBufferedGraphics(image, g2);
             component.paint(bufferedGraphics);
-            g2.drawRenderedImage(buffer, IDENTITY_TRANSFORM);
+            g2.drawRenderedImage(image, IDENTITY_TRANSFORM);
         } else {
             g2.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
             component.paint(g2);
@@ -506,21 +508,34 @@ public class PSwing extends PNode implements Serializable, PropertyChangeListene
         manager.unlockRepaint(component);
     }
 
-    private Graphics2D getBufferedGraphics(Graphics2D source) {
-        final Graphics2D bufferedGraphics;
-        if(!isBufferValid()) {
-            // Get the graphics context associated with a new buffered image.
+    /**
+     * Returns the buffer for the image of the Swing component, creating a new
+     * one if the shared raster cache dropped it or the component was resized.
+     *
+     * @return the buffer, cleared if it was reused
+     */
+    private BufferedImage getBuffer() {
+        if (buffer == null) {
+            buffer = PRasterCache.getShared().createHandle();
+        }
+        BufferedImage image = buffer.get();
+        if (!isBufferValid(image)) {
             // Use TYPE_INT_ARGB_PRE so that transparent components look good on Windows.
-            buffer = new BufferedImage(component.getWidth(), component.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
-            bufferedGraphics = buffer.createGraphics();
+            image = new BufferedImage(component.getWidth(), component.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+            buffer.set(image);
         }
         else {
-            // Use the graphics context associated with the existing buffered image
-            bufferedGraphics = buffer.createGraphics();
             // Clear the buffered image to prevent artifacts on Macintosh
-            bufferedGraphics.setBackground(BUFFER_BACKGROUND_COLOR);
-            bufferedGraphics.clearRect(0, 0, component.getWidth(), component.getHeight());
+            final Graphics2D clearGraphics = image.createGraphics();
+            clearGraphics.setBackground(BUFFER_BACKGROUND_COLOR);
+            clearGraphics.clearRect(0, 0, component.getWidth(), component.getHeight());
+            clearGraphics.dispose();
         }
+        return image;
+    }
+
+    private Graphics2D getBufferedGraphics(final BufferedImage image, Graphics2D source) {
+        final Graphics2D bufferedGraphics = image.createGraphics();
         bufferedGraphics.setRenderingHints(source.getRenderingHints());
         return bufferedGraphics;
     }
@@ -529,10 +544,11 @@ public class PSwing extends PNode implements Serializable, PropertyChangeListene
      * Tells whether the buffer for the image of the Swing components
      * is currently valid.
      *
+     * @param image the buffer, may be null
      * @return true if the buffer is currently valid
      */
-    private boolean isBufferValid() {
-        return !(buffer == null || buffer.getWidth() != component.getWidth() || buffer.getHeight() != component.getHeight());
+    private boolean isBufferValid(final BufferedImage image) {
+        return !(image == null || image.getWidth() != component.getWidth() || image.getHeight() != component.getHeight());
     }
 
     /**
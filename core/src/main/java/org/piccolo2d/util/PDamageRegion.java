@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <b>PDamageRegion</b> accumulates the rectangles of a component that need to
+ * be repainted and coalesces them into a bounded set of disjoint regions.
+ * <p>
+ * Each region that is painted separately costs a traversal of the scene graph,
+ * while each region that is merged into another may cause pixels that are not
+ * damaged to be repainted. Two regions are merged when they overlap, or when
+ * the number of pixels their bounding rectangle adds to them is no more than
+ * the region cost, which estimates the cost of painting one more region in
+ * pixels. If the number of regions exceeds the maximum, the pair that wastes the
+ * fewest pixels when merged is merged until the limit is met.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PDamageRegion {
+    /** Default maximum number of regions. */
+    public static final int DEFAULT_MAX_REGIONS = 8;
+
+    /** Default cost, in pixels, of painting one more region. */
+    public static final long DEFAULT_REGION_COST = 64 * 64;
+
+    private final List<Rectangle> regions;
+    private int maxRegions;
+    private long regionCost;
+
+    /**
+     * Creates an empty damage region with the default maximum number of regions
+     * and region cost.
+     */
+    public PDamageRegion() {
+        this(DEFAULT_MAX_REGIONS, DEFAULT_REGION_COST);
+    }
+
+    /**
+     * Creates an empty damage region.
+     * 
+     * @param maxRegions maximum number of disjoint regions, must be at least one
+     * @param regionCost cost, in pixels, of painting one more region
+     */
+    public PDamageRegion(final int maxRegions, final long regionCost) {
+        regions = new ArrayList<Rectangle>();
+        setMaxRegions(maxRegions);
+        setRegionCost(regionCost);
+    }
+
+    /**
+     * Returns the maximum number of disjoint regions kept by this damage region.
+     * 
+     * @return maximum number of regions
+     */
+    public int getMaxRegions() {
+        return maxRegions;
+    }
+
+    /**
+     * Sets the maximum number of disjoint regions kept by this damage region.
+     * 
+     * @param maxRegions maximum number of regions, must be at least one
+     */
+    public void setMaxRegions(final int maxRegions) {
+        if (maxRegions < 1) {
+            throw new IllegalArgumentException("maxRegions must be at least one, was " + maxRegions);
+        }
+        this.maxRegions = maxRegions;
+        enforceMaxRegions();
+    }
+
+    /**
+     * Returns the estimated cost, in pixels, of painting one more region.
+     * 
+     * @return region cost in pixels
+     */
+    public long getRegionCost() {
+        return regionCost;
+    }
+
+    /**
+     * Sets the estimated cost, in pixels, of painting one more region. Larger
+     * values produce fewer, larger regions.
+     * 
+     * @param regionCost region cost in pixels, must be at least zero
+     */
+    public void setRegionCost(final long regionCost) {
+        if (regionCost < 0) {
+            throw new IllegalArgumentException("regionCost must be at least zero, was " + regionCost);
+        }
+        this.regionCost = regionCost;
+    }
+
+    /**
+     * Adds the given rectangle to the damaged area. Empty rectangles are ignored.
+     * 
+     * @param x left of the damaged rectangle
+     * @param y top of the damaged rectangle
+     * @param width width of the damaged rectangle
+     * @param height height of the damaged rectangle
+     */
+    public void add(final int x, final int y, final int width, final int height) {
+        if (width > 0 && height > 0) {
+            addRegion(new Rectangle(x, y, width, height));
+            enforceMaxRegions();
+        }
+    }
+
+    /**
+     * Adds the given rectangle to the damaged area. Empty rectangles are ignored.
+     * 
+     * @param rectangle the damaged rectangle, it is not modified
+     */
+    public void add(final Rectangle rectangle) {
+        add(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+    }
+
+    /**
+     * Returns true if no damage has been added since the last call to
+     * <code>clear</code>.
+     * 
+     * @return true if there is no damage
+     */
+    public boolean isEmpty() {
+        return regions.isEmpty();
+    }
+
+    /**
+     * Returns the number of disjoint regions.
+     * 
+     * @return number of regions
+     */
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * Returns a copy of the region at the given index.
+     * 
+     * @param index index of the region
+     * @return copy of the region
+     */
+    public Rectangle getRegion(final int index) {
+        return new Rectangle(regions.get(index));
+    }
+
+    /**
+     * Returns copies of all regions.
+     * 
+     * @return copies of the regions, in no particular order
+     */
+    public Rectangle[] getRegions() {
+        final Rectangle[] result = new Rectangle[regions.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getRegion(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bounding rectangle of all regions, or an empty rectangle if
+     * there is no damage.
+     * 
+     * @return bounding rectangle of all regions
+     */
+    public Rectangle getBounds() {
+        final Rectangle result = new Rectangle();
+        for (int i = 0; i < regions.size(); i++) {
+            final Rectangle each = regions.get(i);
+            if (i == 0) {
+                result.setBounds(each);
+            }
+            else {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total area of all regions in pixels.
+     * 
+     * @return area of the regions
+     */
+    public long getArea() {
+        long result = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            result += area(regions.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Removes all damage.
+     */
+    public void clear() {
+        regions.clear();
+    }
+
+    /**
+     * Adds the region, merging it with every region it overlaps or is cheap to
+     * merge with. Merging may grow the region into others, so the scan restarts
+     * after each merge.
+     */
+    private void addRegion(final Rectangle region) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = regions.size() - 1; i >= 0; i--) {
+                final Rectangle each = regions.get(i);
+                if (shouldMerge(each, region)) {
+                    regions.remove(i);
+                    region.add(each);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+        regions.add(region);
+    }
+
+    private boolean shouldMerge(final Rectangle a, final Rectangle b) {
+        return a.intersects(b) || mergeWaste(a, b) <= regionCost;
+    }
+
+    /**
+     * Merges the cheapest pair of regions until there are no more than
+     * <code>maxRegions</code>.
+     */
+    private void enforceMaxRegions() {
+        while (regions.size() > maxRegions) {
+            int bestI = 0;
+            int bestJ = 1;
+            long bestWaste = Long.MAX_VALUE;
+            for (int i = 0; i < regions.size(); i++) {
+                for (int j = i + 1; j < regions.size(); j++) {
+                    final long waste = mergeWaste(regions.get(i), regions.get(j));
+                    if (waste < bestWaste) {
+                        bestWaste = waste;
+                        bestI = i;
+                        bestJ = j;
+                    }
+                }
+            }
+
+            final Rectangle b = regions.remove(bestJ);
+            final Rectangle a = regions.remove(bestI);
+            a.add(b);
+            addRegion(a);
+        }
+    }
+
+    /**
+     * Returns the number of pixels covered by the bounding rectangle of two
+     * disjoint regions but by neither region.
+     */
+    private static long mergeWaste(final Rectangle a, final Rectangle b) {
+        final Rectangle union = a.union(b);
+        return area(union) - area(a) - area(b);
+    }
+
+    private static long area(final Rectangle rectangle) {
+        return (long) rectangle.width * (long) rectangle.height;
+    }
+}
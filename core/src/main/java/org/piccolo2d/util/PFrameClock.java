@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.io.Serializable;
+
+/**
+ * <b>PFrameClock</b> provides the time base and frame pacing used to run
+ * activities. Time is measured with <code>System.nanoTime</code> and reported
+ * in milliseconds on the <code>System.currentTimeMillis</code> scale, so it is
+ * both monotonic and compatible with activity start times. The clock is
+ * resynchronized with the system time whenever the system time is ahead of
+ * it, so it never falls behind start times taken from
+ * <code>System.currentTimeMillis</code>. When the system time is set back, the
+ * clock keeps advancing from where it was instead of going backwards.
+ * <p>
+ * <code>PRoot.processInputs</code> calls {@link #frameStarted()} at the start
+ * of each frame and <code>PCanvas</code> reports how long painting took
+ * through {@link #paintFinished(long)}. While activities are running the
+ * activity scheduler asks {@link #getFrameDelayMillis()} how long to wait
+ * before the next frame. That delay aims for the target frame rate. When a
+ * frame's work takes longer than a frame, whole frames are skipped so ticks
+ * stay aligned to the target rate.
+ * </p>
+ * <p>
+ * Frame statistics are only gathered between frames that were paced, so the
+ * time spent sleeping while no activity is due does not count as slow or
+ * skipped frames. Subclasses may override {@link #nanoTime()} and
+ * {@link #systemTimeMillis()} to provide different time sources.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PFrameClock implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Default target frame rate, in frames per second. */
+    public static final int DEFAULT_TARGET_FPS = 60;
+
+    /** Weight of the newest sample in the running averages. */
+    private static final double SMOOTHING = 0.1;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private long baseMillis;
+    private long baseNanos;
+    private int targetFps = DEFAULT_TARGET_FPS;
+
+    private boolean frameStarted;
+    private long frameStartNanos;
+    private boolean paced;
+
+    private long frameCount;
+    private long skippedFrameCount;
+    private long lastFrameNanos;
+    private double averageFrameNanos;
+    private long lastPaintNanos;
+    private double averagePaintNanos;
+
+    /**
+     * Creates a frame clock whose time starts at the current system time.
+     */
+    public PFrameClock() {
+        baseNanos = nanoTime();
+        baseMillis = systemTimeMillis();
+    }
+
+    /**
+     * Returns the current value of the time source of this clock, in
+     * nanoseconds. Only differences between values are meaningful.
+     * 
+     * @return current time source value in nanoseconds
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the current system time, in milliseconds, which the time of this
+     * clock is kept from falling behind.
+     * 
+     * @return current system time in milliseconds
+     */
+    protected long systemTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the current time in milliseconds on the
+     * <code>System.currentTimeMillis</code> scale. Unlike the system time this
+     * never goes backwards, and it is never behind the system time.
+     * 
+     * @return current time in milliseconds
+     */
+    public long currentTimeMillis() {
+        final long nanos = nanoTime();
+        final long millis = baseMillis + (nanos - baseNanos) / NANOS_PER_MILLI;
+        final long systemMillis = systemTimeMillis();
+        if (systemMillis > millis) {
+            baseMillis = systemMillis;
+            baseNanos = nanos;
+            return systemMillis;
+        }
+        return millis;
+    }
+
+    /**
+     * Returns the frame rate this clock paces frames for.
+     * 
+     * @return target frames per second
+     */
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * Sets the frame rate this clock paces frames for.
+     * 
+     * @param targetFps target frames per second, must be positive
+     */
+    public void setTargetFps(final int targetFps) {
+        if (targetFps <= 0) {
+            throw new IllegalArgumentException("target fps must be positive: " + targetFps);
+        }
+        this.targetFps = targetFps;
+    }
+
+    /**
+     * Returns the duration of a frame at the target frame rate.
+     * 
+     * @return target frame duration in nanoseconds
+     */
+    public long getTargetFrameNanos() {
+        return NANOS_PER_SECOND / targetFps;
+    }
+
+    /**
+     * Marks the start of a frame. If the previous frame was paced, the time
+     * since it started is recorded in the frame statistics. Frames that would
+     * have fitted in that time are counted as skipped.
+     */
+    public void frameStarted() {
+        final long now = nanoTime();
+        if (frameStarted && paced) {
+            final long frameNanos = now - frameStartNanos;
+            final long targetNanos = getTargetFrameNanos();
+            lastFrameNanos = frameNanos;
+            averageFrameNanos = average(averageFrameNanos, frameNanos);
+            frameCount++;
+            final long frames = (frameNanos + targetNanos / 2) / targetNanos;
+            if (frames > 1) {
+                skippedFrameCount += frames - 1;
+            }
+        }
+        frameStarted = true;
+        paced = false;
+        frameStartNanos = now;
+    }
+
+    /**
+     * Records how long painting a frame took.
+     * 
+     * @param paintNanos duration of the paint in nanoseconds
+     */
+    public void paintFinished(final long paintNanos) {
+        lastPaintNanos = paintNanos;
+        averagePaintNanos = average(averagePaintNanos, paintNanos);
+    }
+
+    /**
+     * Returns how long to wait before starting the next frame. Called when
+     * another frame is needed. The wait is the rest of the target frame
+     * duration after the work of the current frame: the time since it
+     * started plus the average paint duration. If that work takes longer
+     * than a frame, the wait lasts until the next whole frame at the target
+     * rate, skipping frames.
+     * 
+     * @return delay before the next frame in milliseconds
+     */
+    public long getFrameDelayMillis() {
+        final long targetNanos = getTargetFrameNanos();
+        long workNanos = (long) averagePaintNanos;
+        if (frameStarted) {
+            workNanos += nanoTime() - frameStartNanos;
+        }
+        long periodNanos = targetNanos;
+        if (workNanos > targetNanos) {
+            periodNanos = (workNanos + targetNanos - 1) / targetNanos * targetNanos;
+        }
+        paced = true;
+        return (periodNanos - workNanos + NANOS_PER_MILLI / 2) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the number of paced frames measured since the statistics were
+     * last reset.
+     * 
+     * @return number of measured frames
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of frames at the target rate that were skipped
+     * because frames took too long, since the statistics were last reset.
+     * 
+     * @return number of skipped frames
+     */
+    public long getSkippedFrameCount() {
+        return skippedFrameCount;
+    }
+
+    /**
+     * Returns the duration of the last measured frame, from its start to the
+     * start of the next frame.
+     * 
+     * @return duration of the last frame in nanoseconds
+     */
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    /**
+     * Returns the running average of the measured frame durations.
+     * 
+     * @return average frame duration in nanoseconds
+     */
+    public double getAverageFrameNanos() {
+        return averageFrameNanos;
+    }
+
+    /**
+     * Returns the frame rate achieved on average, or 0 if no frame has been
+     * measured.
+     * 
+     * @return average frames per second
+     */
+    public double getAverageFps() {
+        if (averageFrameNanos == 0) {
+            return 0;
+        }
+        return NANOS_PER_SECOND / averageFrameNanos;
+    }
+
+    /**
+     * Returns the duration of the last paint.
+     * 
+     * @return duration of the last paint in nanoseconds
+     */
+    public long getLastPaintNanos() {
+        return lastPaintNanos;
+    }
+
+    /**
+     * Returns the running average of the paint durations.
+     * 
+     * @return average paint duration in nanoseconds
+     */
+    public double getAveragePaintNanos() {
+        return averagePaintNanos;
+    }
+
+    /**
+     * Resets the frame statistics.
+     */
+    public void resetStatistics() {
+        frameCount = 0;
+        skippedFrameCount = 0;
+        lastFrameNanos = 0;
+        averageFrameNanos = 0;
+        lastPaintNanos = 0;
+        averagePaintNanos = 0;
+    }
+
+    private static double average(final double average, final long sample) {
+        if (average == 0) {
+            return sample;
+        }
+        return average + SMOOTHING * (sample - average);
+    }
+}
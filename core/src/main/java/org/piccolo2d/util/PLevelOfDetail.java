@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.piccolo2d.PNode;
+/**
+ * <b>PLevelOfDetail</b> lets a node be painted more cheaply when it is viewed
+ * at small scales. It holds two kinds of rules, which are applied by
+ * {@link PNode#fullPaint PNode.fullPaint} before the node and its descendants
+ * are painted:
+ * <ul>
+ * <li>a <em>collapse size</em>: when the node's full bounds are smaller than
+ * this many device pixels in both directions, the whole subtree is replaced by
+ * a single fill of its full bounds and no descendant is visited;</li>
+ * <li>alternative <em>representations</em>, each with a maximum scale: when the
+ * scale of the node's local coordinate system is below the maximum scale of a
+ * representation, that representation is painted in place of the node and its
+ * descendants. If several representations apply the one with the smallest
+ * maximum scale is painted.</li>
+ * </ul>
+ * Representations for the node's bounding box, a simplified shape and a cached
+ * image are provided by {@link #createBoundsRepresentation
+ * createBoundsRepresentation}, {@link #createShapeRepresentation
+ * createShapeRepresentation} and {@link #createImageRepresentation
+ * createImageRepresentation}.
+ * <p>
+ * Changes to a level of detail take effect the next time the node using it is
+ * painted. A level of detail may be shared between nodes.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PLevelOfDetail implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Alternative representation of a node and its descendants.
+     */
+    public interface Representation extends Serializable {
+        /**
+         * Paints a cheaper stand-in for the node and its descendants. The paint
+         * context is set up in the node's local coordinate system, with the
+         * node's transparency applied.
+         * 
+         * @param node node being represented
+         * @param paintContext paint context to paint into
+         */
+        void paint(PNode node, PPaintContext paintContext);
+    }
+
+    /** Representations ordered by increasing maximum scale. */
+    private final List<Level> levels = new ArrayList<Level>();
+
+    /** Size in device pixels below which subtrees are collapsed. */
+    private double collapseSize;
+
+    /** Paint of collapsed subtrees, null to use the node's paint. */
+    private Paint collapsePaint;
+
+    /**
+     * Creates a level of detail without representations that never collapses
+     * subtrees.
+     */
+    public PLevelOfDetail() {
+    }
+
+    /**
+     * Returns the size in device pixels below which a subtree is collapsed into
+     * a single fill. Defaults to zero, which disables collapsing.
+     * 
+     * @return collapse size in device pixels
+     */
+    public double getCollapseSize() {
+        return collapseSize;
+    }
+
+    /**
+     * Sets the size in device pixels below which a subtree is collapsed into a
+     * single fill of its full bounds. Zero disables collapsing.
+     * 
+     * @param collapseSize collapse size in device pixels, must be at least zero
+     */
+    public void setCollapseSize(final double collapseSize) {
+        if (collapseSize < 0) {
+            throw new IllegalArgumentException("collapseSize must be at least zero, was " + collapseSize);
+        }
+        this.collapseSize = collapseSize;
+    }
+
+    /**
+     * Returns the paint used to fill collapsed subtrees, or null if the node's
+     * own paint is used.
+     * 
+     * @return paint of collapsed subtrees, may be null
+     */
+    public Paint getCollapsePaint() {
+        return collapsePaint;
+    }
+
+    /**
+     * Sets the paint used to fill collapsed subtrees. When null, which is the
+     * default, the node's own paint is used, and collapsed subtrees of nodes
+     * without paint are not painted at all.
+     * 
+     * @param collapsePaint paint of collapsed subtrees, may be null
+     */
+    public void setCollapsePaint(final Paint collapsePaint) {
+        this.collapsePaint = collapsePaint;
+    }
+
+    /**
+     * Adds a representation that is painted while the scale of the node's local
+     * coordinate system is below <code>maxScale</code>.
+     * 
+     * @param maxScale scale below which the representation is painted, must be
+     *            greater than zero
+     * @param representation representation to add, must not be null
+     */
+    public void addRepresentation(final double maxScale, final Representation representation) {
+        if (!(maxScale > 0)) {
+            throw new IllegalArgumentException("maxScale must be greater than zero, was " + maxScale);
+        }
+        if (representation == null) {
+            throw new IllegalArgumentException("representation must not be null");
+        }
+        int index = 0;
+        while (index < levels.size() && levels.get(index).maxScale <= maxScale) {
+            index++;
+        }
+        levels.add(index, new Level(maxScale, representation));
+    }
+
+    /**
+     * Removes every occurrence of the specified representation.
+     * 
+     * @param representation representation to remove
+     * @return true if the representation has been removed
+     */
+    public boolean removeRepresentation(final Representation representation) {
+        boolean removed = false;
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            if (levels.get(i).representation == representation) {
+                levels.remove(i);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of representations.
+     * 
+     * @return number of representations
+     */
+    public int getRepresentationCount() {
+        return levels.size();
+    }
+
+    /**
+     * Returns the representation painted at the specified scale, or null if
+     * the node is painted normally at that scale.
+     * 
+     * @param scale scale of the node's local coordinate system
+     * @return representation painted at the scale, or null
+     */
+    public Representation getRepresentation(final double scale) {
+        final int count = levels.size();
+        for (int i = 0; i < count; i++) {
+            final Level each = levels.get(i);
+            if (scale < each.maxScale) {
+                return each.representation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Paints the node's collapsed fill or representation if one applies. The
+     * paint context must be set up in the node's parent coordinate system, as
+     * it is at the start of {@link PNode#fullPaint PNode.fullPaint}.
+     * 
+     * @param node node being painted
+     * @param paintContext paint context to paint into
+     * @return true if the node has been painted, or skipped, and its normal
+     *         painting must not occur
+     */
+    public boolean paint(final PNode node, final PPaintContext paintContext) {
+        if (collapseSize <= 0 && levels.isEmpty()) {
+            return false;
+        }
+
+        final double parentScale = paintContext.getScale();
+        if (collapseSize > 0) {
+            final PBounds fullBounds = node.getFullBoundsReference();
+            if (fullBounds.getWidth() * parentScale < collapseSize
+                    && fullBounds.getHeight() * parentScale < collapseSize) {
+                paintCollapsed(node, fullBounds, paintContext);
+                return true;
+            }
+        }
+
+        final Representation representation = getRepresentation(parentScale * node.getScale());
+        if (representation == null) {
+            return false;
+        }
+        final PAffineTransform transform = node.getTransformReference(false);
+        final float transparency = node.getTransparency();
+        paintContext.pushTransform(transform);
+        paintContext.pushTransparency(transparency);
+        representation.paint(node, paintContext);
+        paintContext.popTransparency(transparency);
+        paintContext.popTransform(transform);
+        return true;
+    }
+
+    private void paintCollapsed(final PNode node, final PBounds fullBounds, final PPaintContext paintContext) {
+        final Paint paint;
+        if (collapsePaint == null) {
+            paint = node.getPaint();
+        }
+        else {
+            paint = collapsePaint;
+        }
+        if (paint != null) {
+            final float transparency = node.getTransparency();
+            paintContext.pushTransparency(transparency);
+            final Graphics2D graphics = paintContext.getGraphics();
+            graphics.setPaint(paint);
+            graphics.fill(fullBounds);
+            paintContext.popTransparency(transparency);
+        }
+    }
+
+    /**
+     * Creates a representation that fills the bounding box of the node and its
+     * descendants.
+     * 
+     * @param paint paint of the bounding box, or null to use the node's paint
+     * @return a new bounding box representation
+     */
+    public static Representation createBoundsRepresentation(final Paint paint) {
+        return new BoundsRepresentation(paint);
+    }
+
+    /**
+     * Creates a representation that fills a shape, typically a simplified
+     * outline of the node, in the node's local coordinate system.
+     * 
+     * @param shape shape to fill, must not be null
+     * @param paint paint of the shape, or null to use the node's paint
+     * @return a new shape representation
+     */
+    public static Representation createShapeRepresentation(final Shape shape, final Paint paint) {
+        if (shape == null) {
+            throw new IllegalArgumentException("shape must not be null");
+        }
+        return new ShapeRepresentation(shape, paint);
+    }
+
+    /**
+     * Creates a representation that draws an image, typically a cached
+     * rendering of the node and its descendants, scaled to the bounding box of
+     * the node and its descendants.
+     * 
+     * @param image image to draw, must not be null
+     * @return a new image representation
+     */
+    public static Representation createImageRepresentation(final BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("image must not be null");
+        }
+        return new ImageRepresentation(image);
+    }
+
+    /**
+     * Returns the bounds of the node and its descendants in the node's local
+     * coordinate system.
+     * 
+     * @param node node to measure
+     * @return bounds of the node and its descendants
+     */
+    private static PBounds getLocalFullBounds(final PNode node) {
+        final PBounds bounds = node.getUnionOfChildrenBounds(null);
+        bounds.add(node.getBoundsReference());
+        return bounds;
+    }
+
+    /**
+     * Representation at a maximum scale.
+     */
+    private static final class Level implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final double maxScale;
+        private final Representation representation;
+
+        Level(final double maxScale, final Representation representation) {
+            this.maxScale = maxScale;
+            this.representation = representation;
+        }
+    }
+
+    /**
+     * Fills the bounding box of the node and its descendants.
+     */
+    private static final class BoundsRepresentation implements Representation {
+        private static final long serialVersionUID = 1L;
+        private final Paint paint;
+
+        BoundsRepresentation(final Paint paint) {
+            this.paint = paint;
+        }
+
+        public void paint(final PNode node, final PPaintContext paintContext) {
+            final Paint fill;
+            if (paint == null) {
+                fill = node.getPaint();
+            }
+            else {
+                fill = paint;
+            }
+            if (fill != null) {
+                final Rectangle2D bounds;
+                if (node.getChildrenCount() == 0) {
+                    bounds = node.getBoundsReference();
+                }
+                else {
+                    bounds = getLocalFullBounds(node);
+                }
+                final Graphics2D graphics = paintContext.getGraphics();
+                graphics.setPaint(fill);
+                graphics.fill(bounds);
+            }
+        }
+    }
+
+    /**
+     * Fills a shape in the node's local coordinate system.
+     */
+    private static final class ShapeRepresentation implements Representation {
+        private static final long serialVersionUID = 1L;
+        private final Shape shape;
+        private final Paint paint;
+
+        ShapeRepresentation(final Shape shape, final Paint paint) {
+            this.shape = shape;
+            this.paint = paint;
+        }
+
+        public void paint(final PNode node, final PPaintContext paintContext) {
+            final Paint fill;
+            if (paint == null) {
+                fill = node.getPaint();
+            }
+            else {
+                fill = paint;
+            }
+            if (fill != null) {
+                final Graphics2D graphics = paintContext.getGraphics();
+                graphics.setPaint(fill);
+                graphics.fill(shape);
+            }
+        }
+    }
+
+    /**
+     * Draws an image scaled to the bounding box of the node and its
+     * descendants.
+     */
+    private static final class ImageRepresentation implements Representation {
+        private static final long serialVersionUID = 1L;
+        private transient BufferedImage image;
+
+        ImageRepresentation(final BufferedImage image) {
+            this.image = image;
+        }
+
+        public void paint(final PNode node, final PPaintContext paintContext) {
+            final PBounds bounds = getLocalFullBounds(node);
+            if (image != null && !bounds.isEmpty()) {
+                paintContext.getGraphics().drawImage(image, (int) bounds.getX(), (int) bounds.getY(),
+                        (int) Math.ceil(bounds.getWidth()), (int) Math.ceil(bounds.getHeight()), null);
+            }
+        }
+
+        private void writeObject(final ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            ImageIO.write(image, "png", out);
+        }
+
+        private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            image = ImageIO.read(in);
+        }
+    }
+}
@@ -35,7 +35,7 @@ import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Rectangle2D;
 
 import org.piccolo2d.PCamera;
@@ -45,6 +45,21 @@ import org.piccolo2d.PCamera;
  * <b>PPaintContext</b> is used by piccolo nodes to paint themselves on the
  * screen. PPaintContext wraps a Graphics2D to implement painting.
  * <P>
+ * Pushing and popping transforms and transparencies does not allocate once
+ * the paint context has reached the depth of the scene being painted: local
+ * clips are kept in reused rectangles, saved transforms in a primitive array
+ * and alpha composites in a small cache. The rectangle returned by
+ * {@link #getLocalClip()} is therefore only valid until the transform or clip
+ * it belongs to is popped. Transforms applied directly to the graphics must be
+ * undone before the next push or pop, since the paint context tracks the
+ * graphics' transform itself.
+ * </P>
+ * <P>
+ * Since 3.1 the protected <code>compositeStack</code>,
+ * <code>localClipStack</code> and <code>transformStack</code> fields no longer
+ * exist; subclasses use the push, pop and {@link #getLocalClip()} methods
+ * instead.
+ * </P>
  * 
  * @version 1.0
  * @author Jesse Grosjean
@@ -62,30 +77,54 @@ public class PPaintContext {
     /** Font context to use while in high quality rendering. */
     public static final FontRenderContext RENDER_QUALITY_HIGH_FRC = new FontRenderContext(null, true, true);
 
-    /** Used while calculating scale at which rendering is occurring. */
-    private static final double[] PTS = new double[4];
+    /** Initial capacity of the transform, clip and composite stacks. */
+    private static final int INITIAL_DEPTH = 16;
+
+    /** Number of entries in the alpha composite cache, a power of two. */
+    private static final int COMPOSITE_CACHE_SIZE = 64;
 
     /** PaintContext is associated with this graphics context. */
     private final Graphics2D graphics;
 
-    /** Used while computing transparency. */
-    protected PStack compositeStack;
-
     /** Used to optimize clipping region. */
     protected PStack clipStack;
 
-    /** Tracks clipping region in local coordinate system. */
-    protected PStack localClipStack;
-
     /** Stack of cameras through which the node being painted is being viewed. */
     protected PStack cameraStack;
 
-    /** Stack of transforms being applied to the drawing context. */
-    protected PStack transformStack;
-
     /** The current render quality that all rendering should be done in. */
     protected int renderQuality;
 
+    /** Clipping regions in local coordinate systems, reused between pushes. */
+    private Rectangle2D[] localClips;
+
+    /** Index of the current local clip. */
+    private int localClipIndex;
+
+    /** Transform of the graphics, tracked to avoid copying it on every push. */
+    private final AffineTransform currentTransform;
+
+    /** Matrices of the transforms saved by pushTransform, six per transform. */
+    private double[] savedTransforms;
+
+    /** Number of transforms saved by pushTransform. */
+    private int savedTransformCount;
+
+    /** Composites saved by pushTransparency. */
+    private Composite[] savedComposites;
+
+    /** Number of composites saved by pushTransparency. */
+    private int savedCompositeCount;
+
+    /** Alpha of the cached alpha composites. */
+    private final float[] cachedAlphas;
+
+    /** Cached source over alpha composites, indexed by a hash of their alpha. */
+    private final AlphaComposite[] cachedComposites;
+
+    /** Used while inverse transforming local clips and computing scales. */
+    private final double[] points = new double[8];
+
     /**
      * Creates a PPaintContext associated with the given graphics context.
      * 
@@ -93,20 +132,24 @@ public class PPaintContext {
      */
     public PPaintContext(final Graphics2D graphics) {
         this.graphics = graphics;
-        compositeStack = new PStack();
         clipStack = new PStack();
-        localClipStack = new PStack();
         cameraStack = new PStack();
-        transformStack = new PStack();
         renderQuality = HIGH_QUALITY_RENDERING;
 
+        localClips = new Rectangle2D[INITIAL_DEPTH];
+        currentTransform = graphics.getTransform();
+        savedTransforms = new double[INITIAL_DEPTH * 6];
+        savedComposites = new Composite[INITIAL_DEPTH];
+        cachedAlphas = new float[COMPOSITE_CACHE_SIZE];
+        cachedComposites = new AlphaComposite[COMPOSITE_CACHE_SIZE];
+
         Shape clip = graphics.getClip();
         if (clip == null) {
             clip = new PBounds(-Integer.MAX_VALUE / 2, -Integer.MAX_VALUE / 2, Integer.MAX_VALUE, Integer.MAX_VALUE);
             graphics.setClip(clip);
         }
 
-        localClipStack.push(clip.getBounds2D());
+        localClips[0] = clip.getBounds2D();
     }
 
     /**
@@ -120,13 +163,14 @@ public class PPaintContext {
 
     /**
      * Returns the clipping region in the local coordinate system applied by
-     * graphics.
+     * graphics. The returned rectangle is reused once its transform or clip has
+     * been popped and must not be modified.
      * 
      * @return clipping region in the local coordinate system applied by
      *         graphics
      */
     public Rectangle2D getLocalClip() {
-        return (Rectangle2D) localClipStack.peek();
+        return localClips[localClipIndex];
     }
 
     /**
@@ -137,13 +181,9 @@ public class PPaintContext {
      * @return scale of the current graphics context's transformation
      */
     public double getScale() {
-        // x1, y1, x2, y2
-        PTS[0] = 0;
-        PTS[1] = 0;
-        PTS[2] = 1;
-        PTS[3] = 0;
-        graphics.getTransform().transform(PTS, 0, PTS, 0, 2);
-        return Point2D.distance(PTS[0], PTS[1], PTS[2], PTS[3]);
+        final double scaleX = currentTransform.getScaleX();
+        final double shearY = currentTransform.getShearY();
+        return Math.sqrt(scaleX * scaleX + shearY * shearY);
     }
 
     /**
@@ -183,9 +223,15 @@ public class PPaintContext {
         final Shape currentClip = graphics.getClip();
         clipStack.push(currentClip);
         graphics.clip(clip);
-        final Rectangle2D newLocalClip = clip.getBounds2D();
+        final Rectangle2D newLocalClip = nextLocalClip();
+        if (clip instanceof Rectangle2D) {
+            newLocalClip.setRect((Rectangle2D) clip);
+        }
+        else {
+            newLocalClip.setRect(clip.getBounds2D());
+        }
         Rectangle2D.intersect(getLocalClip(), newLocalClip, newLocalClip);
-        localClipStack.push(newLocalClip);
+        localClipIndex++;
     }
 
     /**
@@ -196,7 +242,7 @@ public class PPaintContext {
     public void popClip(final Shape clip) {
         final Shape newClip = (Shape) clipStack.pop();
         graphics.setClip(newClip);
-        localClipStack.pop();
+        localClipIndex--;
     }
 
     /**
@@ -211,14 +257,17 @@ public class PPaintContext {
         }
         final Composite current = graphics.getComposite();
         float currentAlaph = 1.0f;
-        compositeStack.push(current);
+        if (savedCompositeCount == savedComposites.length) {
+            final Composite[] grown = new Composite[savedComposites.length * 2];
+            System.arraycopy(savedComposites, 0, grown, 0, savedCompositeCount);
+            savedComposites = grown;
+        }
+        savedComposites[savedCompositeCount++] = current;
 
         if (current instanceof AlphaComposite) {
             currentAlaph = ((AlphaComposite) current).getAlpha();
         }
-        final AlphaComposite newComposite = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, currentAlaph
-                * transparency);
-        graphics.setComposite(newComposite);
+        graphics.setComposite(getSourceOverComposite(currentAlaph * transparency));
     }
 
     /**
@@ -231,10 +280,30 @@ public class PPaintContext {
         if (transparency == 1.0f) {
             return;
         }
-        final Composite c = (Composite) compositeStack.pop();
+        final Composite c = savedComposites[--savedCompositeCount];
+        savedComposites[savedCompositeCount] = null;
         graphics.setComposite(c);
     }
 
+    /**
+     * Returns a source over alpha composite with the specified alpha, from the
+     * cache if possible.
+     * 
+     * @param alpha alpha of the composite
+     * @return a source over alpha composite with the specified alpha
+     */
+    private AlphaComposite getSourceOverComposite(final float alpha) {
+        final int bits = Float.floatToIntBits(alpha);
+        final int index = (bits ^ bits >>> 16) & COMPOSITE_CACHE_SIZE - 1;
+        AlphaComposite composite = cachedComposites[index];
+        if (composite == null || Float.floatToIntBits(cachedAlphas[index]) != bits) {
+            composite = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha);
+            cachedComposites[index] = composite;
+            cachedAlphas[index] = alpha;
+        }
+        return composite;
+    }
+
     /**
      * Pushed the provided transform onto the transform stack if it is not null.
      * 
@@ -242,10 +311,19 @@ public class PPaintContext {
      */
     public void pushTransform(final PAffineTransform transform) {
         if (transform != null) {
-            final Rectangle2D newLocalClip = (Rectangle2D) getLocalClip().clone();
-            transform.inverseTransform(newLocalClip, newLocalClip);
-            transformStack.push(graphics.getTransform());
-            localClipStack.push(newLocalClip);
+            inverseTransform(transform, getLocalClip(), nextLocalClip());
+            localClipIndex++;
+
+            if (savedTransformCount * 6 == savedTransforms.length) {
+                final double[] grown = new double[savedTransforms.length * 2];
+                System.arraycopy(savedTransforms, 0, grown, 0, savedTransforms.length);
+                savedTransforms = grown;
+            }
+            currentTransform.getMatrix(points);
+            System.arraycopy(points, 0, savedTransforms, savedTransformCount * 6, 6);
+            savedTransformCount++;
+
+            currentTransform.concatenate(transform);
             graphics.transform(transform);
         }
     }
@@ -258,9 +336,77 @@ public class PPaintContext {
      */
     public void popTransform(final PAffineTransform transform) {
         if (transform != null) {
-            graphics.setTransform((AffineTransform) transformStack.pop());
-            localClipStack.pop();
+            final int offset = --savedTransformCount * 6;
+            currentTransform.setTransform(savedTransforms[offset], savedTransforms[offset + 1],
+                    savedTransforms[offset + 2], savedTransforms[offset + 3], savedTransforms[offset + 4],
+                    savedTransforms[offset + 5]);
+            graphics.setTransform(currentTransform);
+            localClipIndex--;
+        }
+    }
+
+    /**
+     * Returns the reusable rectangle above the current local clip, growing the
+     * local clip stack if necessary.
+     * 
+     * @return rectangle to store the next local clip in
+     */
+    private Rectangle2D nextLocalClip() {
+        final int index = localClipIndex + 1;
+        if (index == localClips.length) {
+            final Rectangle2D[] grown = new Rectangle2D[localClips.length * 2];
+            System.arraycopy(localClips, 0, grown, 0, localClips.length);
+            localClips = grown;
+        }
+        if (localClips[index] == null) {
+            localClips[index] = new Rectangle2D.Double();
+        }
+        return localClips[index];
+    }
+
+    /**
+     * Stores the bounds of the rectangle transformed by the inverse of the
+     * transform in the destination rectangle.
+     * 
+     * @param transform transform to invert
+     * @param src rectangle to inverse transform
+     * @param dst rectangle to store the result in
+     */
+    private void inverseTransform(final PAffineTransform transform, final Rectangle2D src, final Rectangle2D dst) {
+        final int type = transform.getType();
+        if (src.isEmpty() || type == AffineTransform.TYPE_IDENTITY || type == AffineTransform.TYPE_TRANSLATION
+                || type == AffineTransform.TYPE_UNIFORM_SCALE
+                || type == (AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) {
+            transform.inverseTransform(src, dst);
+            return;
+        }
+
+        points[0] = src.getX();
+        points[1] = src.getY();
+        points[2] = src.getMaxX();
+        points[3] = src.getY();
+        points[4] = src.getMaxX();
+        points[5] = src.getMaxY();
+        points[6] = src.getX();
+        points[7] = src.getMaxY();
+        try {
+            transform.inverseTransform(points, 0, points, 0, 4);
+        }
+        catch (final NoninvertibleTransformException e) {
+            throw new PAffineTransformException("Could not invert transform", e, transform);
+        }
+
+        double minX = points[0];
+        double minY = points[1];
+        double maxX = points[0];
+        double maxY = points[1];
+        for (int i = 2; i < 8; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxY = Math.max(maxY, points[i + 1]);
         }
+        dst.setRect(minX, minY, maxX - minX, maxY - minY);
     }
 
     /**
@@ -32,6 +32,7 @@ import java.awt.geom.Dimension2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.HashMap;
+import java.util.List;
 
 import javax.swing.event.EventListenerList;
 
@@ -58,6 +59,15 @@ import org.piccolo2d.event.PInputEventListener;
  * Note that PInputEvent wraps most of the useful PPickPath methods, so often
  * you can use a PInputEvent directly instead of having to access its pick path.
  * <p>
+ * Pushing and popping transforms does not allocate once a pick path has
+ * reached the depth of the scene being picked, and a pick path can be
+ * {@link #reset reset} and picked again. The bounds returned by
+ * {@link #getPickBounds()} are therefore only valid until the transform they
+ * belong to is popped.
+ * <p>
+ * A pick path given a {@link #setHitList hit list} collects every picked node
+ * in a single traversal, topmost first, instead of stopping at the first one.
+ * <p>
  * 
  * @see org.piccolo2d.event.PInputEvent
  * @version 1.0
@@ -67,18 +77,47 @@ public class PPickPath implements PInputEventListener {
     /** Global pick path. */
     public static PPickPath CURRENT_PICK_PATH;
 
+    /** Initial capacity of the transform and pick bounds stacks. */
+    private static final int INITIAL_DEPTH = 16;
+
     /** Used when calculating the scale. */
-    private static final double[] PTS = new double[4];
+    private final double[] scalePoints = new double[4];
 
     /** Stack of nodes representing all picked nodes. */
     private PStack nodeStack;
 
     private final PCamera topCamera;
-    private PStack transformStack;
-    private PStack pickBoundsStack;
+
+    /** Nodes on top of the node stack when each transform was pushed. */
+    private PNode[] transformNodes;
+
+    /** Transforms pushed onto this pick path, may contain nulls. */
+    private PAffineTransform[] transforms;
+
+    /** Number of transforms pushed onto this pick path. */
+    private int transformCount;
+
+    /** Pick bounds in local coordinate systems, reused between pushes. */
+    private PBounds[] pickBounds;
+
+    /** Index of the current pick bounds. */
+    private int pickBoundsIndex;
+
+    /** Screen pick bounds owned by this pick path once it has been reset. */
+    private PBounds resetScreenPickBounds;
+
     private PCamera bottomCamera;
     private HashMap<PNode, PNode> excludedNodes;
 
+    /** Collects every picked node when not null. */
+    private List<PNode> hitList;
+
+    /** Node whose item was last picked, see {@link #setPickedItem}. */
+    private PNode pickedItemNode;
+
+    /** Index of the item last picked within <code>pickedItemNode</code>. */
+    private int pickedItem = -1;
+
     /**
      * Creates a pick pack originating from the provided camera and with the
      * given screen pick bounds.
@@ -88,22 +127,107 @@ public class PPickPath implements PInputEventListener {
      */
     public PPickPath(final PCamera camera, final PBounds aScreenPickBounds) {
         super();
-        pickBoundsStack = new PStack();
         topCamera = camera;
         nodeStack = new PStack();
-        transformStack = new PStack();
-        pickBoundsStack.push(aScreenPickBounds);
+        transformNodes = new PNode[INITIAL_DEPTH];
+        transforms = new PAffineTransform[INITIAL_DEPTH];
+        pickBounds = new PBounds[INITIAL_DEPTH];
+        pickBounds[0] = aScreenPickBounds;
+
+        CURRENT_PICK_PATH = this;
+    }
+
+    /**
+     * Clears this pick path so that it can be picked again from its top camera
+     * with the given screen pick bounds. Excluded nodes are forgotten, the hit
+     * list is kept.
+     * 
+     * @since 3.1
+     * @param x x coordinate of the screen pick bounds
+     * @param y y coordinate of the screen pick bounds
+     * @param width width of the screen pick bounds
+     * @param height height of the screen pick bounds
+     */
+    public void reset(final double x, final double y, final double width, final double height) {
+        if (resetScreenPickBounds == null) {
+            resetScreenPickBounds = new PBounds();
+        }
+        resetScreenPickBounds.setRect(x, y, width, height);
+        excludedNodes = null;
+        clearStacks(resetScreenPickBounds);
 
         CURRENT_PICK_PATH = this;
     }
 
+    /**
+     * Pops every node and transform, leaving only the screen pick bounds.
+     * 
+     * @param screenPickBounds screen pick bounds
+     */
+    private void clearStacks(final PBounds screenPickBounds) {
+        nodeStack.clear();
+        for (int i = 0; i < transformCount; i++) {
+            transformNodes[i] = null;
+            transforms[i] = null;
+        }
+        transformCount = 0;
+        pickBounds[0] = screenPickBounds;
+        pickBoundsIndex = 0;
+        bottomCamera = null;
+        pickedItemNode = null;
+        pickedItem = -1;
+    }
+
     /**
      * Returns the bounds of the entire PickPath taken as a whole.
      * 
      * @return bounds of the entire PickPath
      */
     public PBounds getPickBounds() {
-        return (PBounds) pickBoundsStack.peek();
+        return pickBounds[pickBoundsIndex];
+    }
+
+    /**
+     * Returns the list this pick path collects every picked node in, or null if
+     * picking stops at the first picked node.
+     * 
+     * @since 3.1
+     * @return the hit list, may be null
+     */
+    public List<PNode> getHitList() {
+        return hitList;
+    }
+
+    /**
+     * Sets the list this pick path collects every picked node in. While a hit
+     * list is set picking does not stop at the first picked node; each picked
+     * node is added to the list, topmost first, and the traversal continues, so
+     * that the node stack is empty once picking completes.
+     * 
+     * @since 3.1
+     * @param hitList list to add picked nodes to, or null to stop at the first
+     *            picked node
+     */
+    public void setHitList(final List<PNode> hitList) {
+        this.hitList = hitList;
+    }
+
+    /**
+     * Notifies this pick path that the node on top of its node stack has been
+     * picked. Called by <code>fullPick</code> implementations, which must stop
+     * picking and leave the node on the path if this returns true, and pop it
+     * and continue otherwise.
+     * 
+     * @since 3.1
+     * @return true if picking is complete, false if this pick path collects all
+     *         hits and the traversal should continue
+     */
+    public boolean nodePicked() {
+        if (hitList == null) {
+            return true;
+        }
+        hitList.add(getPickedNode());
+        return false;
     }
 
     /**
@@ -150,6 +274,34 @@ public class PPickPath implements PInputEventListener {
         return (PNode) nodeStack.peek();
     }
 
+    /**
+     * Records which item within the given node was picked. Called by nodes that
+     * paint many items themselves, such as <code>PPointCloud</code>, before they
+     * report the node as picked.
+     * 
+     * @since 3.1
+     * @param node node containing the picked item
+     * @param item index of the picked item within the node
+     */
+    public void setPickedItem(final PNode node, final int item) {
+        pickedItemNode = node;
+        pickedItem = item;
+    }
+
+    /**
+     * Returns the index of the item picked within the picked node, or -1 if the
+     * picked node did not report a picked item.
+     * 
+     * @since 3.1
+     * @return index of the picked item within the picked node, or -1
+     */
+    public int getPickedItem() {
+        if (pickedItemNode != null && pickedItemNode == getPickedNode()) {
+            return pickedItem;
+        }
+        return -1;
+    }
+
     // ****************************************************************
     // Iterating over picked nodes.
     // ****************************************************************
@@ -175,15 +327,8 @@ public class PPickPath implements PInputEventListener {
         // exclude current picked node
         excludedNodes.put(picked, picked);
 
-        final Object screenPickBounds = pickBoundsStack.get(0);
-
         // reset path state
-        pickBoundsStack = new PStack();
-        nodeStack = new PStack();
-        transformStack = new PStack();
-        pickBoundsStack = new PStack();
-
-        pickBoundsStack.push(screenPickBounds);
+        clearStacks(pickBounds[0]);
 
         // pick again
         topCamera.fullPick(this);
@@ -252,20 +397,19 @@ public class PPickPath implements PInputEventListener {
      */
     public double getScale() {
         // x1, y1, x2, y3
-        PTS[0] = 0;
-        PTS[1] = 0;
-        PTS[2] = 1;
-        PTS[3] = 0;
-
-        final int count = transformStack.size();
-        for (int i = 0; i < count; i++) {
-            final PAffineTransform each = ((PTuple) transformStack.get(i)).transform;
+        scalePoints[0] = 0;
+        scalePoints[1] = 0;
+        scalePoints[2] = 1;
+        scalePoints[3] = 0;
+
+        for (int i = 0; i < transformCount; i++) {
+            final PAffineTransform each = transforms[i];
             if (each != null) {
-                each.transform(PTS, 0, PTS, 0, 2);
+                each.transform(scalePoints, 0, scalePoints, 0, 2);
             }
         }
 
-        return Point2D.distance(PTS[0], PTS[1], PTS[2], PTS[3]);
+        return Point2D.distance(scalePoints[0], scalePoints[1], scalePoints[2], scalePoints[3]);
     }
 
     /**
@@ -275,11 +419,30 @@ public class PPickPath implements PInputEventListener {
      * @param transform transform to be added to applied to the pickpath.
      */
     public void pushTransform(final PAffineTransform transform) {
-        transformStack.push(new PTuple(getPickedNode(), transform));
+        if (transformCount == transforms.length) {
+            final PNode[] grownNodes = new PNode[transformCount * 2];
+            System.arraycopy(transformNodes, 0, grownNodes, 0, transformCount);
+            transformNodes = grownNodes;
+            final PAffineTransform[] grownTransforms = new PAffineTransform[transformCount * 2];
+            System.arraycopy(transforms, 0, grownTransforms, 0, transformCount);
+            transforms = grownTransforms;
+        }
+        transformNodes[transformCount] = getPickedNode();
+        transforms[transformCount] = transform;
+        transformCount++;
+
         if (transform != null) {
-            final Rectangle2D newPickBounds = (Rectangle2D) getPickBounds().clone();
-            transform.inverseTransform(newPickBounds, newPickBounds);
-            pickBoundsStack.push(newPickBounds);
+            final int index = pickBoundsIndex + 1;
+            if (index == pickBounds.length) {
+                final PBounds[] grown = new PBounds[index * 2];
+                System.arraycopy(pickBounds, 0, grown, 0, index);
+                pickBounds = grown;
+            }
+            if (pickBounds[index] == null) {
+                pickBounds[index] = new PBounds();
+            }
+            transform.inverseTransform(pickBounds[pickBoundsIndex], pickBounds[index]);
+            pickBoundsIndex = index;
         }
     }
 
@@ -289,9 +452,11 @@ public class PPickPath implements PInputEventListener {
      * @param transform unused in this method
      */
     public void popTransform(final PAffineTransform transform) {
-        transformStack.pop();
+        transformCount--;
+        transformNodes[transformCount] = null;
+        transforms[transformCount] = null;
         if (transform != null) {
-            pickBoundsStack.pop();
+            pickBoundsIndex--;
         }
     }
 
@@ -306,13 +471,11 @@ public class PPickPath implements PInputEventListener {
     public PAffineTransform getPathTransformTo(final PNode nodeOnPath) {
         final PAffineTransform aTransform = new PAffineTransform();
 
-        final int count = transformStack.size();
-        for (int i = 0; i < count; i++) {
-            final PTuple each = (PTuple) transformStack.get(i);
-            if (each.transform != null) {
-                aTransform.concatenate(each.transform);
+        for (int i = 0; i < transformCount; i++) {
+            if (transforms[i] != null) {
+                aTransform.concatenate(transforms[i]);
             }
-            if (nodeOnPath == each.node) {
+            if (nodeOnPath == transformNodes[i]) {
                 return aTransform;
             }
         }
@@ -407,17 +570,4 @@ public class PPickPath implements PInputEventListener {
     public Rectangle2D canvasToLocal(final Rectangle2D canvasRectangle, final PNode nodeOnPath) {
         return getPathTransformTo(nodeOnPath).inverseTransform(canvasRectangle, canvasRectangle);
     }
-
-    /**
-     * Used to associated nodes with their transforms on the transform stack.
-     */
-    private static class PTuple {
-        public PNode node;
-        public PAffineTransform transform;
-
-        public PTuple(final PNode n, final PAffineTransform t) {
-            node = n;
-            transform = t;
-        }
-    }
 }
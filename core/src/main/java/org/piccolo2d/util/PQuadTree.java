@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <b>PQuadTree</b> is a loose quadtree that indexes objects by their bounding
+ * rectangles so that all objects overlapping a query rectangle can be found
+ * without visiting every object.
+ * <p>
+ * Each object is stored in the deepest cell whose center region contains the
+ * center of the object and whose size is at least the size of the object. Cells
+ * are "loose", meaning their effective bounds are twice as large as their
+ * center region, so an object never has to be split across cells and moving it
+ * a little rarely moves it to another cell. The root cell grows as needed, so
+ * there are no limits on the coordinates that can be indexed.
+ * </p>
+ * <p>
+ * Queries are conservative: they may return objects whose bounds touch but do
+ * not strictly intersect the query rectangle, callers are expected to perform
+ * their own exact test. Objects with empty bounds are remembered but never
+ * returned by queries. Objects are compared by identity.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @param <T> the type of the indexed objects
+ * @since 3.1
+ */
+public class PQuadTree<T> {
+    /** Maximum depth of a cell below the root cell. */
+    private static final int MAX_DEPTH = 20;
+
+    /** Smallest half size given to a newly created root cell. */
+    private static final double MIN_ROOT_HALF_SIZE = 1;
+
+    /** Entries of all objects in the tree, keyed by the object. */
+    private final Map<T, Entry<T>> entries;
+
+    /** Entries whose bounds are not finite, these match every query. */
+    private final List<Entry<T>> unboundedEntries;
+
+    /** Root cell, or null if no finite bounds have been indexed. */
+    private Cell<T> root;
+
+    /**
+     * Creates an empty quadtree.
+     */
+    public PQuadTree() {
+        entries = new IdentityHashMap<T, Entry<T>>();
+        unboundedEntries = new ArrayList<Entry<T>>();
+    }
+
+    /**
+     * Returns the number of objects in this tree, including those with empty
+     * bounds.
+     * 
+     * @return number of objects in this tree
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns true if the given object has been added to this tree.
+     * 
+     * @param object object to look for
+     * @return true if the object is in this tree
+     */
+    public boolean contains(final T object) {
+        return entries.containsKey(object);
+    }
+
+    /**
+     * Adds the object to this tree with the given bounds, or updates its bounds
+     * if it is already in the tree. The bounds are copied.
+     * 
+     * @param object object to index
+     * @param bounds bounds of the object, null or empty bounds are never returned
+     *            by queries
+     */
+    public void put(final T object, final Rectangle2D bounds) {
+        Entry<T> entry = entries.get(object);
+        if (entry == null) {
+            entry = new Entry<T>(object);
+            entries.put(object, entry);
+        }
+        else if (entry.sameBounds(bounds)) {
+            return;
+        }
+        else if (entry.cell != null && entry.cell.fits(bounds)) {
+            entry.setBounds(bounds);
+            return;
+        }
+        else {
+            unlink(entry);
+        }
+
+        entry.setBounds(bounds);
+        link(entry);
+    }
+
+    /**
+     * Removes the object from this tree.
+     * 
+     * @param object object to remove
+     * @return true if the object was in this tree
+     */
+    public boolean remove(final T object) {
+        final Entry<T> entry = entries.remove(object);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Removes all objects from this tree.
+     */
+    public void clear() {
+        entries.clear();
+        unboundedEntries.clear();
+        root = null;
+    }
+
+    /**
+     * Returns the union of the bounds of all indexed objects whose bounds are not
+     * empty.
+     * 
+     * @param dstBounds if not null the result is stored here
+     * @return union of the bounds of the objects in this tree
+     */
+    public PBounds getBounds(final PBounds dstBounds) {
+        final PBounds result;
+        if (dstBounds == null) {
+            result = new PBounds();
+        }
+        else {
+            result = dstBounds;
+            result.resetToZero();
+        }
+
+        for (final Entry<T> entry : entries.values()) {
+            if (!entry.empty) {
+                result.add(entry.x, entry.y);
+                result.add(entry.x + entry.width, entry.y + entry.height);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds to results every object whose bounds intersect or touch the given
+     * rectangle. The order of the results is unspecified.
+     * 
+     * @param bounds rectangle to query
+     * @param results collection to which matching objects are added
+     */
+    public void query(final Rectangle2D bounds, final Collection<? super T> results) {
+        final double minX = bounds.getX();
+        final double minY = bounds.getY();
+        final double maxX = minX + bounds.getWidth();
+        final double maxY = minY + bounds.getHeight();
+
+        final int count = unboundedEntries.size();
+        for (int i = 0; i < count; i++) {
+            results.add(unboundedEntries.get(i).object);
+        }
+
+        if (root != null) {
+            query(root, minX, minY, maxX, maxY, results);
+        }
+    }
+
+    private void query(final Cell<T> cell, final double minX, final double minY, final double maxX, final double maxY,
+            final Collection<? super T> results) {
+        final double looseHalfSize = cell.halfSize * 2;
+        if (cell.count == 0 || cell.centerX - looseHalfSize > maxX || cell.centerX + looseHalfSize < minX
+                || cell.centerY - looseHalfSize > maxY || cell.centerY + looseHalfSize < minY) {
+            return;
+        }
+
+        if (cell.entries != null) {
+            final int count = cell.entries.size();
+            for (int i = 0; i < count; i++) {
+                final Entry<T> entry = cell.entries.get(i);
+                if (entry.overlaps(minX, minY, maxX, maxY)) {
+                    results.add(entry.object);
+                }
+            }
+        }
+
+        if (cell.children != null) {
+            for (int i = 0; i < 4; i++) {
+                final Cell<T> child = cell.children[i];
+                if (child != null) {
+                    query(child, minX, minY, maxX, maxY, results);
+                }
+            }
+        }
+    }
+
+    private void link(final Entry<T> entry) {
+        if (entry.empty) {
+            return;
+        }
+        if (!entry.finite) {
+            unboundedEntries.add(entry);
+            return;
+        }
+
+        final double centerX = entry.x + entry.width / 2;
+        final double centerY = entry.y + entry.height / 2;
+        final double extent = Math.max(entry.width, entry.height) / 2;
+
+        if (root == null) {
+            root = new Cell<T>(null, 0, centerX, centerY, Math.max(extent, MIN_ROOT_HALF_SIZE));
+        }
+        while (!root.containsCenter(centerX, centerY) || extent > root.halfSize) {
+            growRoot(centerX, centerY);
+        }
+
+        Cell<T> cell = root;
+        for (int depth = 0; depth < MAX_DEPTH && extent <= cell.halfSize / 2; depth++) {
+            cell = cell.getChild(centerX, centerY);
+        }
+        cell.add(entry);
+    }
+
+    private void unlink(final Entry<T> entry) {
+        if (entry.cell != null) {
+            Cell<T> cell = entry.cell;
+            cell.remove(entry);
+            while (cell.count == 0 && cell.parent != null) {
+                cell.parent.children[cell.quadrant] = null;
+                cell = cell.parent;
+            }
+            if (root.count == 0) {
+                root = null;
+            }
+        }
+        else if (!entry.empty && !entry.finite) {
+            unboundedEntries.remove(entry);
+        }
+    }
+
+    /**
+     * Replaces the root with a cell twice its size that extends towards the given
+     * point and contains the old root as one of its children.
+     */
+    private void growRoot(final double towardsX, final double towardsY) {
+        final Cell<T> oldRoot = root;
+        final double halfSize = oldRoot.halfSize;
+
+        final double centerX;
+        if (towardsX < oldRoot.centerX) {
+            centerX = oldRoot.centerX - halfSize;
+        }
+        else {
+            centerX = oldRoot.centerX + halfSize;
+        }
+
+        final double centerY;
+        if (towardsY < oldRoot.centerY) {
+            centerY = oldRoot.centerY - halfSize;
+        }
+        else {
+            centerY = oldRoot.centerY + halfSize;
+        }
+
+        root = new Cell<T>(null, 0, centerX, centerY, halfSize * 2);
+        root.count = oldRoot.count;
+        if (oldRoot.count > 0) {
+            oldRoot.parent = root;
+            oldRoot.quadrant = root.quadrantOf(oldRoot.centerX, oldRoot.centerY);
+            root.children = newCellArray();
+            root.children[oldRoot.quadrant] = oldRoot;
+        }
+    }
+
+    /**
+     * An indexed object together with a copy of its bounds.
+     */
+    private static final class Entry<T> {
+        private final T object;
+        private double x;
+        private double y;
+        private double width;
+        private double height;
+        private boolean empty;
+        private boolean finite;
+        private Cell<T> cell;
+
+        Entry(final T object) {
+            this.object = object;
+            empty = true;
+        }
+
+        void setBounds(final Rectangle2D bounds) {
+            empty = bounds == null || bounds.isEmpty();
+            if (empty) {
+                x = 0;
+                y = 0;
+                width = 0;
+                height = 0;
+                finite = true;
+            }
+            else {
+                x = bounds.getX();
+                y = bounds.getY();
+                width = bounds.getWidth();
+                height = bounds.getHeight();
+                finite = isFinite(x) && isFinite(y) && isFinite(width) && isFinite(height);
+            }
+        }
+
+        boolean sameBounds(final Rectangle2D bounds) {
+            if (bounds == null) {
+                return empty;
+            }
+            return !empty && !bounds.isEmpty() && x == bounds.getX() && y == bounds.getY()
+                    && width == bounds.getWidth() && height == bounds.getHeight();
+        }
+
+        boolean overlaps(final double minX, final double minY, final double maxX, final double maxY) {
+            return x <= maxX && y <= maxY && x + width >= minX && y + height >= minY;
+        }
+    }
+
+    /**
+     * A node of the quadtree. Holds the entries that are too large for its
+     * children and the number of entries in its subtree.
+     */
+    private static final class Cell<T> {
+        private final double centerX;
+        private final double centerY;
+        private final double halfSize;
+        private Cell<T> parent;
+        private int quadrant;
+        private Cell<T>[] children;
+        private List<Entry<T>> entries;
+        private int count;
+
+        Cell(final Cell<T> parent, final int quadrant, final double centerX, final double centerY,
+                final double halfSize) {
+            this.parent = parent;
+            this.quadrant = quadrant;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.halfSize = halfSize;
+        }
+
+        boolean containsCenter(final double x, final double y) {
+            return x >= centerX - halfSize && x < centerX + halfSize && y >= centerY - halfSize
+                    && y < centerY + halfSize;
+        }
+
+        /**
+         * Returns true if bounds may be stored in this cell without violating the
+         * loose bounds of the cell.
+         */
+        boolean fits(final Rectangle2D bounds) {
+            if (bounds == null || bounds.isEmpty()) {
+                return false;
+            }
+            final double width = bounds.getWidth();
+            final double height = bounds.getHeight();
+            return Math.max(width, height) / 2 <= halfSize
+                    && containsCenter(bounds.getX() + width / 2, bounds.getY() + height / 2);
+        }
+
+        int quadrantOf(final double x, final double y) {
+            int result = 0;
+            if (x >= centerX) {
+                result |= 1;
+            }
+            if (y >= centerY) {
+                result |= 2;
+            }
+            return result;
+        }
+
+        Cell<T> getChild(final double x, final double y) {
+            if (children == null) {
+                children = newCellArray();
+            }
+            final int index = quadrantOf(x, y);
+            if (children[index] == null) {
+                final double childHalfSize = halfSize / 2;
+                final double childX;
+                if ((index & 1) == 0) {
+                    childX = centerX - childHalfSize;
+                }
+                else {
+                    childX = centerX + childHalfSize;
+                }
+                final double childY;
+                if ((index & 2) == 0) {
+                    childY = centerY - childHalfSize;
+                }
+                else {
+                    childY = centerY + childHalfSize;
+                }
+                children[index] = new Cell<T>(this, index, childX, childY, childHalfSize);
+            }
+            return children[index];
+        }
+
+        void add(final Entry<T> entry) {
+            if (entries == null) {
+                entries = new ArrayList<Entry<T>>();
+            }
+            entries.add(entry);
+            entry.cell = this;
+            for (Cell<T> c = this; c != null; c = c.parent) {
+                c.count++;
+            }
+        }
+
+        void remove(final Entry<T> entry) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                entries = null;
+            }
+            entry.cell = null;
+            for (Cell<T> c = this; c != null; c = c.parent) {
+                c.count--;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Cell<T>[] newCellArray() {
+        return (Cell<T>[]) new Cell<?>[4];
+    }
+
+    private static boolean isFinite(final double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <b>PRasterCache</b> bounds the memory held by cached rasters. Owners of
+ * cached rasters keep each raster in a {@link Handle} created by the cache.
+ * The cache tracks the bytes held by all of its handles and, when they exceed
+ * its budget, drops the rasters of the least recently used handles. An owner
+ * whose handle has lost its raster renders it again.
+ * <p>
+ * The cache only refers weakly to handles, so the raster of a handle whose
+ * owner is garbage collected is released without the owner having to clear
+ * it. Hits, misses and evictions are counted to help size the budget.
+ * </p>
+ * <p>
+ * A shared cache is used by default by <code>PNodeCache</code>,
+ * <code>PCacheCamera</code>, <code>PSwing</code>, <code>PShadow</code> and
+ * asynchronously loaded <code>PImage</code>s, so that a budget covers every
+ * cached raster of an application. This class is thread safe.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PRasterCache {
+    /** Default budget of the shared cache in bytes. */
+    public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    private static final PRasterCache SHARED = new PRasterCache(DEFAULT_BUDGET);
+
+    private final LinkedHashMap<Key, BufferedImage> rasters = new LinkedHashMap<Key, BufferedImage>(16, 0.75f, true);
+    private final ReferenceQueue<Handle> collectedHandles = new ReferenceQueue<Handle>();
+    private long budget;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a cache with the given budget.
+     * 
+     * @param budget maximum number of bytes of rasters held by the cache
+     */
+    public PRasterCache(final long budget) {
+        setBudget(budget);
+    }
+
+    /**
+     * Returns the cache shared by all cached nodes unless they are given
+     * another.
+     * 
+     * @return the shared cache
+     */
+    public static PRasterCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the maximum number of bytes of rasters held by this cache.
+     * 
+     * @return the budget in bytes
+     */
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the maximum number of bytes of rasters held by this cache, dropping
+     * the least recently used rasters if the cache holds more.
+     * 
+     * @param budget the budget in bytes
+     */
+    public synchronized void setBudget(final long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget must be non-negative: " + budget);
+        }
+        this.budget = budget;
+        evict(null);
+    }
+
+    /**
+     * Returns the number of bytes of rasters currently held by this cache.
+     * 
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        expungeCollectedHandles();
+        return size;
+    }
+
+    /**
+     * Returns the number of rasters currently held by this cache.
+     * 
+     * @return the number of rasters
+     */
+    public synchronized int getRasterCount() {
+        expungeCollectedHandles();
+        return rasters.size();
+    }
+
+    /**
+     * Returns the number of times a handle was asked for its raster and had
+     * it.
+     * 
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of times a handle was asked for its raster and did
+     * not have it, because it was never set, was cleared or was evicted.
+     * 
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of rasters dropped to stay within the budget.
+     * 
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counts to zero.
+     */
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    /**
+     * Drops every raster held by this cache.
+     */
+    public synchronized void clear() {
+        rasters.clear();
+        size = 0;
+        while (collectedHandles.poll() != null) {
+            // their rasters were cleared above
+        }
+    }
+
+    /**
+     * Creates an empty handle in this cache.
+     * 
+     * @return a new handle
+     */
+    public Handle createHandle() {
+        return new Handle(this, collectedHandles);
+    }
+
+    /**
+     * Returns the number of bytes held by the given raster.
+     * 
+     * @param raster a raster
+     * @return its size in bytes
+     */
+    public static long sizeOf(final BufferedImage raster) {
+        final int bits = raster.getColorModel().getPixelSize();
+        return (long) raster.getWidth() * raster.getHeight() * Math.max(1, (bits + 7) / 8);
+    }
+
+    private synchronized BufferedImage get(final Key key) {
+        final BufferedImage raster = rasters.get(key);
+        if (raster == null) {
+            missCount++;
+        }
+        else {
+            hitCount++;
+        }
+        return raster;
+    }
+
+    private synchronized void put(final Key key, final BufferedImage raster) {
+        expungeCollectedHandles();
+        remove(key);
+        if (raster != null) {
+            rasters.put(key, raster);
+            size += sizeOf(raster);
+            evict(key);
+        }
+    }
+
+    private void remove(final Key key) {
+        final BufferedImage old = rasters.remove(key);
+        if (old != null) {
+            size -= sizeOf(old);
+        }
+    }
+
+    /**
+     * Releases the rasters of handles that have been garbage collected.
+     */
+    private void expungeCollectedHandles() {
+        Reference<? extends Handle> collected = collectedHandles.poll();
+        while (collected != null) {
+            remove((Key) collected);
+            collected = collectedHandles.poll();
+        }
+    }
+
+    /**
+     * Drops least recently used rasters until this cache is within its budget,
+     * keeping the raster of the given key unless it alone exceeds the budget.
+     */
+    private void evict(final Key keep) {
+        final Iterator<Map.Entry<Key, BufferedImage>> i = rasters.entrySet().iterator();
+        while (size > budget && i.hasNext()) {
+            final Map.Entry<Key, BufferedImage> entry = i.next();
+            if (entry.getKey() != keep || rasters.size() == 1) {
+                size -= sizeOf(entry.getValue());
+                i.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * The key of a handle's raster, which refers weakly to the handle and is
+     * enqueued once the handle is garbage collected.
+     */
+    private static final class Key extends WeakReference<Handle> {
+        Key(final Handle handle, final ReferenceQueue<Handle> queue) {
+            super(handle, queue);
+        }
+    }
+
+    /**
+     * <b>Handle</b> holds one raster of an owner in a {@link PRasterCache}. The
+     * raster may be dropped by the cache at any time to stay within its
+     * budget.
+     */
+    public static final class Handle {
+        private final PRasterCache cache;
+        private final Key key;
+
+        private Handle(final PRasterCache cache, final ReferenceQueue<Handle> queue) {
+            this.cache = cache;
+            key = new Key(this, queue);
+        }
+
+        /**
+         * Returns the cache of this handle.
+         * 
+         * @return the cache
+         */
+        public PRasterCache getCache() {
+            return cache;
+        }
+
+        /**
+         * Returns the raster of this handle, marking it as the most recently
+         * used raster of the cache.
+         * 
+         * @return the raster, or null if none was set or it was dropped
+         */
+        public BufferedImage get() {
+            return cache.get(key);
+        }
+
+        /**
+         * Sets the raster of this handle, which may cause the rasters of other
+         * handles to be dropped.
+         * 
+         * @param raster the raster, or null to drop it
+         */
+        public void set(final BufferedImage raster) {
+            cache.put(key, raster);
+        }
+
+        /**
+         * Drops the raster of this handle.
+         */
+        public void clear() {
+            cache.put(key, null);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * <b>PStrokedOutline</b> caches the outline of a shape drawn with a stroke,
+ * along with the bounds of that outline, for nodes that need them for bounds
+ * and hit testing.
+ * <p>
+ * The outline is computed when first requested and kept until
+ * {@link #invalidate()} is called, so owners must invalidate it whenever their
+ * shape changes in place. A different stroke or shape instance is detected
+ * automatically, as is a change of the scale a {@link PFixedWidthStroke} or
+ * other semantic stroke is drawn at.
+ * </p>
+ * <p>
+ * Hit tests against a shape made only of straight line segments drawn with an
+ * undashed {@link BasicStroke} are answered from the distance of the segments
+ * to the rectangle, without computing the outline at all, unless the rectangle
+ * only comes close to the line near a join or an end cap.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PStrokedOutline {
+    private static final int MISS = 0;
+    private static final int HIT = 1;
+    private static final int UNKNOWN = 2;
+
+    private Stroke stroke;
+    private Shape shape;
+    private float scale;
+    private Shape outline;
+    private Rectangle2D bounds;
+
+    /**
+     * Discards the cached outline and bounds. Must be called whenever the
+     * shape they were computed from changes.
+     */
+    public void invalidate() {
+        stroke = null;
+        shape = null;
+        outline = null;
+        bounds = null;
+    }
+
+    /**
+     * Returns the outline of the given shape when drawn with the given stroke.
+     * The returned shape must not be modified.
+     * 
+     * @param stroke stroke used to draw the shape
+     * @param shape shape to outline
+     * @return the cached outline
+     */
+    public Shape getOutline(final Stroke stroke, final Shape shape) {
+        final float activeScale = getActiveScale(stroke);
+        if (outline == null || stroke != this.stroke || shape != this.shape || activeScale != scale) {
+            this.stroke = stroke;
+            this.shape = shape;
+            scale = activeScale;
+            outline = stroke.createStrokedShape(shape);
+            bounds = null;
+        }
+        return outline;
+    }
+
+    /**
+     * Returns the scale the outline of a semantic stroke depends on, 1 for
+     * other strokes.
+     */
+    private static float getActiveScale(final Stroke stroke) {
+        if (stroke instanceof PSemanticStroke) {
+            return ((PSemanticStroke) stroke).getActiveScale();
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the bounds of the outline of the given shape when drawn with the
+     * given stroke.
+     * 
+     * @param stroke stroke used to draw the shape
+     * @param shape shape to outline
+     * @return a copy of the cached bounds
+     */
+    public Rectangle2D getBounds(final Stroke stroke, final Shape shape) {
+        final Shape strokedShape = getOutline(stroke, shape);
+        if (bounds == null) {
+            bounds = strokedShape.getBounds2D();
+        }
+        return bounds.getBounds2D();
+    }
+
+    /**
+     * Returns true if the outline of the given shape when drawn with the given
+     * stroke intersects the given rectangle.
+     * 
+     * @param stroke stroke used to draw the shape
+     * @param shape shape to outline
+     * @param rectangle rectangle to test
+     * @return true if the outline intersects the rectangle
+     */
+    public boolean intersects(final Stroke stroke, final Shape shape, final Rectangle2D rectangle) {
+        if (stroke instanceof BasicStroke) {
+            final int result = intersectsPolyline((BasicStroke) stroke, shape, rectangle);
+            if (result != UNKNOWN) {
+                return result == HIT;
+            }
+        }
+        return getOutline(stroke, shape).intersects(rectangle);
+    }
+
+    /**
+     * Tests the rectangle against the band each line segment covers whatever
+     * the caps and joins, and against a box around each segment that contains
+     * everything its caps and joins may add.
+     */
+    private static int intersectsPolyline(final BasicStroke stroke, final Shape shape, final Rectangle2D rectangle) {
+        if (stroke.getDashArray() != null || stroke.getLineWidth() <= 0) {
+            return UNKNOWN;
+        }
+        if (rectangle.isEmpty()) {
+            return MISS;
+        }
+
+        final double halfWidth = stroke.getLineWidth() / 2.0;
+        double reach = halfWidth;
+        if (stroke.getLineJoin() == BasicStroke.JOIN_MITER) {
+            reach *= Math.max(1.0, stroke.getMiterLimit());
+        }
+
+        final Rectangle2D r = rectangle;
+        final double[] coords = new double[6];
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        boolean near = false;
+        for (final PathIterator i = shape.getPathIterator(null); !i.isDone(); i.next()) {
+            final double x;
+            final double y;
+            switch (i.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    startX = coords[0];
+                    startY = coords[1];
+                    lastX = startX;
+                    lastY = startY;
+                    continue;
+                case PathIterator.SEG_LINETO:
+                    x = coords[0];
+                    y = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    x = startX;
+                    y = startY;
+                    break;
+                default:
+                    return UNKNOWN;
+            }
+
+            final double dx = x - lastX;
+            final double dy = y - lastY;
+            final double length = Math.sqrt(dx * dx + dy * dy);
+            final double centerX = (lastX + x) / 2.0;
+            final double centerY = (lastY + y) / 2.0;
+            if (length == 0) {
+                near = near || boxIntersects(centerX, centerY, 1, 0, reach, reach, r);
+            }
+            else {
+                final double ux = dx / length;
+                final double uy = dy / length;
+                if (boxIntersects(centerX, centerY, ux, uy, length / 2.0, halfWidth, r)) {
+                    return HIT;
+                }
+                near = near || boxIntersects(centerX, centerY, ux, uy, length / 2.0 + reach, reach, r);
+            }
+            lastX = x;
+            lastY = y;
+        }
+        if (near) {
+            return UNKNOWN;
+        }
+        return MISS;
+    }
+
+    /**
+     * Returns true if the box centered at the given point, with its length
+     * along the given unit direction and its width across it, intersects the
+     * rectangle. Uses the separating axis test.
+     */
+    private static boolean boxIntersects(final double centerX, final double centerY, final double ux,
+            final double uy, final double halfLength, final double halfWidth, final Rectangle2D rectangle) {
+        final double halfRectWidth = rectangle.getWidth() / 2.0;
+        final double halfRectHeight = rectangle.getHeight() / 2.0;
+        final double dx = rectangle.getCenterX() - centerX;
+        final double dy = rectangle.getCenterY() - centerY;
+        final double absUx = Math.abs(ux);
+        final double absUy = Math.abs(uy);
+
+        if (Math.abs(dx) > halfRectWidth + absUx * halfLength + absUy * halfWidth) {
+            return false;
+        }
+        if (Math.abs(dy) > halfRectHeight + absUy * halfLength + absUx * halfWidth) {
+            return false;
+        }
+        if (Math.abs(dx * ux + dy * uy) > halfLength + halfRectWidth * absUx + halfRectHeight * absUy) {
+            return false;
+        }
+        return Math.abs(dy * ux - dx * uy) <= halfWidth + halfRectWidth * absUy + halfRectHeight * absUx;
+    }
+}
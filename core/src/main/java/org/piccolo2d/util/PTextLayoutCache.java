@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <b>PTextLayoutCache</b> shares the line layouts of text between text nodes.
+ * Laying out text is costly, and scenes often show the same text in the same
+ * font many times, so text nodes look their lines up here by text, font,
+ * wrapping width and font render context before laying the text out
+ * themselves, and add the lines they computed.
+ * <p>
+ * The cache holds at most its maximum size in lines and drops the layouts of
+ * the least recently used texts beyond that. Hits, misses and evictions are
+ * counted to help size the cache. Cached line arrays are shared and must not
+ * be modified. This class is thread safe.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PTextLayoutCache {
+    /** Default maximum size of the shared cache in lines. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 16384;
+
+    private static final PTextLayoutCache SHARED = new PTextLayoutCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final LinkedHashMap<Key, TextLayout[]> layouts = new LinkedHashMap<Key, TextLayout[]>(16, 0.75f, true);
+    private int maximumSize;
+    private int size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a cache with the given maximum size.
+     * 
+     * @param maximumSize maximum number of lines held by the cache
+     */
+    public PTextLayoutCache(final int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Returns the cache shared by all text nodes unless they are given another.
+     * 
+     * @return the shared cache
+     */
+    public static PTextLayoutCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the maximum number of lines held by this cache.
+     * 
+     * @return the maximum size in lines
+     */
+    public synchronized int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the maximum number of lines held by this cache, dropping the least
+     * recently used layouts if the cache holds more.
+     * 
+     * @param maximumSize the maximum size in lines
+     */
+    public synchronized void setMaximumSize(final int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must be non-negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        evict();
+    }
+
+    /**
+     * Returns the number of lines currently held by this cache.
+     * 
+     * @return the size in lines
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of laid out texts currently held by this cache.
+     * 
+     * @return the number of texts
+     */
+    public synchronized int getLayoutCount() {
+        return layouts.size();
+    }
+
+    /**
+     * Returns the number of lookups that found the lines of a text.
+     * 
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find the lines of a text.
+     * 
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of layouts dropped to stay within the maximum size.
+     * 
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counts to zero.
+     */
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    /**
+     * Drops every layout held by this cache.
+     */
+    public synchronized void clear() {
+        layouts.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the lines of the given text, marking them as the most recently
+     * used layout of the cache. The returned array must not be modified.
+     * 
+     * @param text text that was laid out
+     * @param font font of the text
+     * @param wrappingWidth width at which lines were wrapped
+     * @param fontRenderContext context in which the text was laid out
+     * @return the lines of the text, or null if they are not cached
+     */
+    public synchronized TextLayout[] get(final String text, final Font font, final float wrappingWidth,
+            final FontRenderContext fontRenderContext) {
+        final TextLayout[] lines = layouts.get(new Key(text, font, wrappingWidth, fontRenderContext));
+        if (lines == null) {
+            missCount++;
+        }
+        else {
+            hitCount++;
+        }
+        return lines;
+    }
+
+    /**
+     * Adds the lines of the given text, which may cause the layouts of other
+     * texts to be dropped. The array must not be modified afterwards.
+     * 
+     * @param text text that was laid out
+     * @param font font of the text
+     * @param wrappingWidth width at which lines were wrapped
+     * @param fontRenderContext context in which the text was laid out
+     * @param lines lines of the text
+     */
+    public synchronized void put(final String text, final Font font, final float wrappingWidth,
+            final FontRenderContext fontRenderContext, final TextLayout[] lines) {
+        final TextLayout[] old = layouts.put(new Key(text, font, wrappingWidth, fontRenderContext), lines);
+        if (old != null) {
+            size -= old.length;
+        }
+        size += lines.length;
+        evict();
+    }
+
+    /**
+     * Drops least recently used layouts until this cache is within its maximum
+     * size.
+     */
+    private void evict() {
+        final Iterator<TextLayout[]> i = layouts.values().iterator();
+        while (size > maximumSize && i.hasNext()) {
+            size -= i.next().length;
+            i.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * The key of the lines of a text.
+     */
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final float wrappingWidth;
+        private final FontRenderContext fontRenderContext;
+        private final int hashCode;
+
+        Key(final String text, final Font font, final float wrappingWidth, final FontRenderContext fontRenderContext) {
+            this.text = text;
+            this.font = font;
+            this.wrappingWidth = wrappingWidth;
+            this.fontRenderContext = fontRenderContext;
+            hashCode = ((text.hashCode() * 31 + font.hashCode()) * 31 + Float.floatToIntBits(wrappingWidth)) * 31
+                    + fontRenderContext.hashCode();
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hashCode == other.hashCode && Float.floatToIntBits(wrappingWidth) == Float
+                    .floatToIntBits(other.wrappingWidth) && text.equals(other.text) && font.equals(other.font)
+                    && fontRenderContext.equals(other.fontRenderContext);
+        }
+    }
+}
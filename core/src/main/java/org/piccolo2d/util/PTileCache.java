@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.piccolo2d.PNode;
+
+/**
+ * <b>PTileCache</b> retains rasterized tiles of a node, normally a layer, so
+ * that repainting the node at a scale it has already been painted at blits the
+ * retained tiles instead of painting the node again.
+ * <p>
+ * Tiles are rasterized at the device scale rounded up to a power of two, and
+ * are drawn shrunk by up to half to the actual device scale, so that zooming
+ * keeps reusing the tiles of a zoom level until the scale crosses the next
+ * power of two. Tiles are square images of <code>tileSize</code> pixels laid
+ * out on a grid anchored at the origin of the node's parent coordinate system,
+ * scaled by the rounded scale. Since translating the view does not move that
+ * grid, panning reuses the tiles that stay visible and only rasterizes tiles
+ * that are exposed. Each zoom level has its own tiles; the least recently used
+ * tiles of all zoom levels are evicted once more than <code>maxTiles</code>
+ * are retained, and their images are reused for the next tiles rasterized.
+ * </p>
+ * <p>
+ * The cache can only be used when the device transform is a positive scale
+ * followed by a translation. For other transforms, and when the paint clip
+ * would need more tiles than the cache may retain, {@link #paint paint} returns
+ * false and the caller is expected to paint the node directly. Cached content
+ * is translated by less than half a device pixel when the view translation is
+ * not a whole number of device pixels, and is resampled, with the
+ * interpolation of the paint context's graphics, when the device scale is not
+ * a power of two.
+ * </p>
+ * <p>
+ * Retained tiles must be invalidated whenever the node's appearance changes,
+ * see {@link #invalidate invalidate}. A tile cache may be used from several
+ * threads; painting from it holds its lock while missing tiles are rasterized.
+ * </p>
+ * 
+ * @since 3.1
+ */
+public class PTileCache {
+    /** Default width and height of a tile, in device pixels. */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /** Default maximum number of retained tiles. */
+    public static final int DEFAULT_MAX_TILES = 64;
+
+    /** Maximum number of evicted tile images kept for reuse. */
+    private static final int MAX_SPARE_TILES = 8;
+
+    /** Transform types for which tiles can be reused. */
+    private static final int SUPPORTED_TRANSFORM_TYPES = AffineTransform.TYPE_TRANSLATION
+            | AffineTransform.TYPE_UNIFORM_SCALE | AffineTransform.TYPE_GENERAL_SCALE;
+
+    private final int tileSize;
+    private final int maxTiles;
+    private final Map<TileKey, BufferedImage> tiles;
+    private final List<BufferedImage> spareTiles = new ArrayList<BufferedImage>();
+    private long renderedTileCount;
+
+    /**
+     * Creates an empty tile cache with the default tile size and maximum number
+     * of tiles.
+     */
+    public PTileCache() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_MAX_TILES);
+    }
+
+    /**
+     * Creates an empty tile cache.
+     * 
+     * @param tileSize width and height of a tile in device pixels, must be at
+     *            least one
+     * @param maxTiles maximum number of retained tiles, must be at least one
+     */
+    public PTileCache(final int tileSize, final int maxTiles) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tileSize must be at least one, was " + tileSize);
+        }
+        if (maxTiles < 1) {
+            throw new IllegalArgumentException("maxTiles must be at least one, was " + maxTiles);
+        }
+        this.tileSize = tileSize;
+        this.maxTiles = maxTiles;
+        tiles = new LinkedHashMap<TileKey, BufferedImage>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(final Map.Entry<TileKey, BufferedImage> eldest) {
+                if (size() > PTileCache.this.maxTiles) {
+                    recycle(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the width and height of a tile in device pixels.
+     * 
+     * @return tile size in device pixels
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the maximum number of retained tiles.
+     * 
+     * @return maximum number of tiles
+     */
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    /**
+     * Returns the number of currently retained tiles.
+     * 
+     * @return number of retained tiles
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the number of tiles rasterized since this cache was created.
+     * 
+     * @return number of rasterized tiles
+     */
+    public synchronized long getRenderedTileCount() {
+        return renderedTileCount;
+    }
+
+    /**
+     * Paints the node into the paint context using retained tiles where possible
+     * and rasterizing and retaining missing tiles. The paint context must be set
+     * up to paint the node, that is its local clip must be in the node's parent
+     * coordinate system.
+     * 
+     * @param node node to paint
+     * @param paintContext paint context to paint the node into
+     * @return true if the node has been painted, false if the cache cannot be
+     *         used with the paint context's transform or clip
+     */
+    public synchronized boolean paint(final PNode node, final PPaintContext paintContext) {
+        final Graphics2D graphics = paintContext.getGraphics();
+        final AffineTransform deviceTransform = graphics.getTransform();
+        if ((deviceTransform.getType() & ~SUPPORTED_TRANSFORM_TYPES) != 0) {
+            return false;
+        }
+
+        final double scaleX = getTileScale(deviceTransform.getScaleX());
+        final double scaleY = getTileScale(deviceTransform.getScaleY());
+        final int renderQuality = paintContext.getRenderQuality();
+        final Rectangle2D localClip = paintContext.getLocalClip();
+        final int minColumn = (int) Math.floor(localClip.getMinX() * scaleX / tileSize);
+        final int maxColumn = (int) Math.ceil(localClip.getMaxX() * scaleX / tileSize) - 1;
+        final int minRow = (int) Math.floor(localClip.getMinY() * scaleY / tileSize);
+        final int maxRow = (int) Math.ceil(localClip.getMaxY() * scaleY / tileSize) - 1;
+        if (maxColumn < minColumn || maxRow < minRow) {
+            return true;
+        }
+        if ((long) (maxColumn - minColumn + 1) * (maxRow - minRow + 1) > maxTiles) {
+            return false;
+        }
+
+        // Tile edges are rounded to device pixels so that adjacent tiles meet
+        final double translateX = deviceTransform.getTranslateX();
+        final double translateY = deviceTransform.getTranslateY();
+        final double tileWidth = tileSize * deviceTransform.getScaleX() / scaleX;
+        final double tileHeight = tileSize * deviceTransform.getScaleY() / scaleY;
+        final AffineTransform identity = new AffineTransform();
+
+        for (int row = minRow; row <= maxRow; row++) {
+            final int y = (int) Math.rint(translateY + row * tileHeight);
+            final int height = (int) Math.rint(translateY + (row + 1) * tileHeight) - y;
+            for (int column = minColumn; column <= maxColumn; column++) {
+                final TileKey key = new TileKey(scaleX, scaleY, renderQuality, column, row);
+                BufferedImage tile = tiles.get(key);
+                if (tile == null) {
+                    tile = renderTile(node, paintContext, key);
+                    tiles.put(key, tile);
+                }
+                final int x = (int) Math.rint(translateX + column * tileWidth);
+                final int width = (int) Math.rint(translateX + (column + 1) * tileWidth) - x;
+                graphics.setTransform(identity);
+                if (width == tileSize && height == tileSize) {
+                    graphics.drawImage(tile, x, y, null);
+                }
+                else {
+                    graphics.drawImage(tile, x, y, width, height, null);
+                }
+            }
+        }
+
+        graphics.setTransform(deviceTransform);
+        return true;
+    }
+
+    /**
+     * Returns the scale tiles are rasterized at for the given device scale, the
+     * smallest power of two at least as large.
+     */
+    private static double getTileScale(final double scale) {
+        final double floor = Math.scalb(1.0, Math.getExponent(scale));
+        if (floor == scale) {
+            return scale;
+        }
+        return floor * 2;
+    }
+
+    private BufferedImage renderTile(final PNode node, final PPaintContext paintContext, final TileKey key) {
+        final BufferedImage tile;
+        final Graphics2D graphics;
+        if (spareTiles.isEmpty()) {
+            tile = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB_PRE);
+            graphics = tile.createGraphics();
+        }
+        else {
+            tile = spareTiles.remove(spareTiles.size() - 1);
+            graphics = tile.createGraphics();
+            graphics.setComposite(AlphaComposite.Clear);
+            graphics.fillRect(0, 0, tileSize, tileSize);
+            graphics.setComposite(AlphaComposite.SrcOver);
+        }
+        graphics.setClip(0, 0, tileSize, tileSize);
+        graphics.translate(-key.column * tileSize, -key.row * tileSize);
+        graphics.scale(key.scaleX, key.scaleY);
+
+        final PPaintContext tileContext = new PPaintContext(graphics);
+        tileContext.setRenderQuality(key.renderQuality);
+        tileContext.pushCamera(paintContext.getCamera());
+        node.fullPaint(tileContext);
+        tileContext.popCamera();
+
+        graphics.dispose();
+        renderedTileCount++;
+        return tile;
+    }
+
+    /**
+     * Discards the retained tiles, at every zoom level, that overlap the given
+     * bounds.
+     * 
+     * @param bounds bounds whose appearance has changed, in the node's parent
+     *            coordinate system
+     */
+    public synchronized void invalidate(final Rectangle2D bounds) {
+        final Iterator<Map.Entry<TileKey, BufferedImage>> i = tiles.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<TileKey, BufferedImage> entry = i.next();
+            final TileKey each = entry.getKey();
+            // Grow the bounds by a tile pixel to account for antialiasing
+            final double minX = bounds.getMinX() * each.scaleX - 1;
+            final double maxX = bounds.getMaxX() * each.scaleX + 1;
+            final double minY = bounds.getMinY() * each.scaleY - 1;
+            final double maxY = bounds.getMaxY() * each.scaleY + 1;
+            final double tileX = (double) each.column * tileSize;
+            final double tileY = (double) each.row * tileSize;
+            if (maxX >= tileX && minX <= tileX + tileSize && maxY >= tileY && minY <= tileY + tileSize) {
+                recycle(entry.getValue());
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Discards all retained tiles.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        spareTiles.clear();
+    }
+
+    /**
+     * Keeps the image of a discarded tile for the next tile to be rasterized,
+     * unless enough are kept already.
+     */
+    private void recycle(final BufferedImage tile) {
+        if (spareTiles.size() < MAX_SPARE_TILES) {
+            spareTiles.add(tile);
+        }
+    }
+
+    /**
+     * Identifies a tile by the scale and render quality it was rasterized at and
+     * its position in the tile grid. Tiles rasterized at low quality while
+     * interacting are kept apart from the high quality ones.
+     */
+    private static final class TileKey {
+        private final double scaleX;
+        private final double scaleY;
+        private final int renderQuality;
+        private final int column;
+        private final int row;
+
+        TileKey(final double scaleX, final double scaleY, final int renderQuality, final int column, final int row) {
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+            this.renderQuality = renderQuality;
+            this.column = column;
+            this.row = row;
+        }
+
+        public boolean equals(final Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            final TileKey other = (TileKey) o;
+            return column == other.column && row == other.row && renderQuality == other.renderQuality
+                    && scaleX == other.scaleX && scaleY == other.scaleY;
+        }
+
+        public int hashCode() {
+            final long scaleBits = Double.doubleToLongBits(scaleX) * 31 + Double.doubleToLongBits(scaleY);
+            return ((int) (scaleBits ^ scaleBits >>> 32) * 31 + renderQuality) * 31 * 31 + column * 31 + row;
+        }
+    }
+}
@@ -59,7 +59,10 @@ public class PUtil {
      */
     public static final long DEFAULT_ACTIVITY_STEP_RATE = 20;
 
-    /** Rate in milliseconds at which the activity timer will get invoked. */
+    /**
+     * Delay in milliseconds before the activity timer first fires after an
+     * activity is added. Later frames are paced by the root's frame clock.
+     */
     public static final int ACTIVITY_SCHEDULER_FRAME_DELAY = 10;
 
     /** An iterator that iterates over an empty collection. */
@@ -175,6 +175,105 @@ public class PCameraTest extends TestCase {
         assertEquals(Color.RED.getRGB(), img.getRGB(15, 15));
     }
 
+    public void testLayersAreNotCachedByDefault() {
+        final PLayer layer = new PLayer();
+        camera.addLayer(layer);
+        assertFalse(camera.getLayerCached(layer));
+        assertNull(camera.getLayerTileCache(layer));
+    }
+
+    public void testSetLayerCachedRejectsLayersNotViewed() {
+        try {
+            camera.setLayerCached(new PLayer(), true);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testSetLayerCachedPersists() {
+        final PLayer layer = new PLayer();
+        camera.addLayer(layer);
+        camera.setLayerCached(layer, true);
+        assertTrue(camera.getLayerCached(layer));
+        assertNotNull(camera.getLayerTileCache(layer));
+        camera.setLayerCached(layer, false);
+        assertFalse(camera.getLayerCached(layer));
+    }
+
+    public void testRemoveLayerDropsTileCache() {
+        final PLayer layer = new PLayer();
+        camera.addLayer(layer);
+        camera.setLayerCached(layer, true);
+        camera.removeLayer(layer);
+        assertFalse(camera.getLayerCached(layer));
+    }
+
+    public void testCachedLayerIsPaintedFromRetainedTiles() {
+        final PLayer layer = new PLayer();
+        final PNode square = new PNode();
+        square.setPaint(Color.BLUE);
+        square.setBounds(0, 0, 10, 10);
+        layer.addChild(square);
+        camera.addLayer(layer);
+        camera.setBounds(0, 0, 20, 20);
+        camera.setLayerCached(layer, true);
+
+        BufferedImage img = paintCamera(20, 20);
+        assertEquals(Color.BLUE.getRGB(), img.getRGB(5, 5));
+        final long renderedTiles = camera.getLayerTileCache(layer).getRenderedTileCount();
+        assertTrue(renderedTiles > 0);
+
+        img = paintCamera(20, 20);
+        assertEquals(Color.BLUE.getRGB(), img.getRGB(5, 5));
+        assertEquals(renderedTiles, camera.getLayerTileCache(layer).getRenderedTileCount());
+    }
+
+    public void testRepaintingCachedLayerInvalidatesTiles() {
+        final PLayer layer = new PLayer();
+        final PNode square = new PNode();
+        square.setPaint(Color.BLUE);
+        square.setBounds(0, 0, 10, 10);
+        layer.addChild(square);
+        camera.addLayer(layer);
+        camera.setBounds(0, 0, 20, 20);
+        camera.setLayerCached(layer, true);
+        final PRoot root = new PRoot();
+        root.addChild(layer);
+        root.addChild(camera);
+        paintCamera(20, 20);
+
+        square.setPaint(Color.RED);
+        root.processInputs();
+        assertEquals(Color.RED.getRGB(), paintCamera(20, 20).getRGB(5, 5));
+    }
+
+    public void testCachedLayerIsPaintedNormallyWhenViewIsRotated() {
+        final PLayer layer = new PLayer();
+        final PNode square = new PNode();
+        square.setPaint(Color.BLUE);
+        square.setBounds(-10, -10, 20, 20);
+        layer.addChild(square);
+        camera.addLayer(layer);
+        camera.setBounds(0, 0, 20, 20);
+        camera.setLayerCached(layer, true);
+        final AffineTransform viewTransform = AffineTransform.getTranslateInstance(10, 10);
+        viewTransform.rotate(Math.PI / 4);
+        camera.setViewTransform(viewTransform);
+
+        assertEquals(Color.BLUE.getRGB(), paintCamera(20, 20).getRGB(10, 10));
+        assertEquals(0, camera.getLayerTileCache(layer).getRenderedTileCount());
+    }
+
+    private BufferedImage paintCamera(final int width, final int height) {
+        final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2 = GraphicsEnvironment.getLocalGraphicsEnvironment().createGraphics(img);
+        camera.fullPaint(new PPaintContext(g2));
+        g2.dispose();
+        return img;
+    }
+
     public void testPickPackWorksInSimpleCases() {
         final PLayer layer = new PLayer();
         camera.addChild(layer);
@@ -72,6 +72,27 @@ public class PCanvasTest extends TestCase {
         assertFalse(canvas.getAnimating());
     }
 
+    public void testRepaintsAreNotCoalescedByDefault() {
+        assertFalse(canvas.getCoalesceRepaints());
+        assertNull(canvas.getDamageRegion());
+    }
+
+    public void testSetCoalesceRepaintsPersists() {
+        canvas.setCoalesceRepaints(true);
+        assertTrue(canvas.getCoalesceRepaints());
+        assertNotNull(canvas.getDamageRegion());
+
+        canvas.setCoalesceRepaints(false);
+        assertFalse(canvas.getCoalesceRepaints());
+        assertNull(canvas.getDamageRegion());
+    }
+
+    public void testRepaintOfHiddenCanvasIsNotCoalesced() {
+        canvas.setCoalesceRepaints(true);
+        canvas.repaint(new PBounds(0, 0, 10, 10));
+        assertTrue(canvas.getDamageRegion().isEmpty());
+    }
+
     public void testSetInteractingPersists() {
         canvas.setInteracting(true);
         assertTrue(canvas.getInteracting());
@@ -30,9 +30,11 @@ package org.piccolo2d;
 
 import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 
 import org.piccolo2d.event.PInputEvent;
+import org.piccolo2d.nodes.PPath;
 import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PPickPath;
 
@@ -133,4 +135,34 @@ public class PInputManagerTest extends TestCase {
         manager.processInput();
     }
 
+    public void testRecyclePickPathsIsFalseByDefault() {
+        assertFalse(manager.getRecyclePickPaths());
+    }
+
+    public void testMouseMovesReusePickPathsNoLongerReferenced() {
+        final PCanvas canvas = new PCanvas();
+        canvas.setBounds(0, 0, 100, 100);
+        canvas.getLayer().addChild(PPath.createRectangle(0, 0, 100, 100));
+        manager.setRecyclePickPaths(true);
+        assertTrue(manager.getRecyclePickPaths());
+
+        moveMouse(canvas, 10);
+        final PPickPath first = manager.getMouseOver();
+        moveMouse(canvas, 20);
+        final PPickPath second = manager.getMouseOver();
+        moveMouse(canvas, 30);
+        moveMouse(canvas, 40);
+
+        assertNotSame(first, second);
+        // the first path is kept as the previous mouse over path
+        assertSame(second, manager.getMouseOver());
+        assertEquals(40, manager.getMouseOver().getPickBounds().getCenterX(), 0.0001);
+    }
+
+    private void moveMouse(final PCanvas canvas, final int x) {
+        final MouseEvent event = new MouseEvent(canvas, MouseEvent.MOUSE_MOVED, 0, 0, x, 50, 0, false);
+        manager.processEventFromCamera(event, MouseEvent.MOUSE_MOVED, canvas.getCamera());
+        manager.processInput();
+    }
+
 }
@@ -670,6 +670,100 @@ public class PNodeTest extends TestCase {
         assertEquals(11, point.getY(), 0.0001);
     }
 
+    public void testLocalToGlobalFollowsAncestorTransformChanges() {
+        final PNode parent = new PNode();
+        parent.addChild(node);
+        node.translate(10, 0);
+
+        assertEquals(11, node.localToGlobal(new Point2D.Double(1, 0)).getX(), 0.0001);
+        parent.scale(2);
+        assertEquals(22, node.localToGlobal(new Point2D.Double(1, 0)).getX(), 0.0001);
+        parent.setTransform(null);
+        assertEquals(11, node.localToGlobal(new Point2D.Double(1, 0)).getX(), 0.0001);
+        assertEquals(1, node.globalToLocal(new Point2D.Double(11, 0)).getX(), 0.0001);
+    }
+
+    public void testLocalToGlobalFollowsParentChanges() {
+        final PNode first = new PNode();
+        final PNode second = new PNode();
+        first.translate(5, 0);
+        second.translate(7, 0);
+        first.addChild(node);
+
+        assertEquals(5, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+        second.addChild(node);
+        assertEquals(7, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+        second.removeChild(node);
+        assertEquals(0, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+    }
+
+    public void testMovingUnrelatedNodeKeepsGlobalTransformCached() {
+        final PNode root = new PNode();
+        final PNode subtree = new PNode();
+        final PNode unrelated = new PNode();
+        root.addChild(subtree);
+        root.addChild(unrelated);
+        subtree.addChild(node);
+        subtree.translate(5, 0);
+        assertEquals(5, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+
+        unrelated.translate(3, 0);
+        unrelated.rotate(1);
+        unrelated.addChild(new PNode());
+        assertEquals(5, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+
+        subtree.translate(1, 0);
+        assertEquals(6, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+    }
+
+    public void testModifyingTransformReferenceUpdatesGlobalTransform() {
+        final PNode parent = new PNode();
+        parent.addChild(node);
+        parent.translate(5, 0);
+        assertEquals(5, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+
+        node.getTransformReference(true).translate(100, 0);
+        assertEquals(105, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+
+        parent.getTransformReference(true).translate(10, 0);
+        assertEquals(115, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+    }
+
+    public void testGetLocalToGlobalTransformReturnsCopy() {
+        final PNode parent = new PNode();
+        parent.addChild(node);
+        parent.translate(5, 0);
+
+        node.getLocalToGlobalTransform(null).translate(100, 0);
+        assertEquals(5, node.getLocalToGlobalTransform(null).getTranslateX(), 0.0001);
+    }
+
+    public void testBatchConversionsMatchSingleConversions() {
+        final PNode parent = new PNode();
+        parent.addChild(node);
+        parent.scale(2);
+        node.rotate(Math.PI / 2);
+        node.translate(3, 4);
+
+        final Point2D[] points = new Point2D[] { new Point2D.Double(1, 2), new Point2D.Double(-3, 5) };
+        final Rectangle2D[] rectangles = new Rectangle2D[] { new PBounds(0, 0, 10, 20), new PBounds(5, 5, 1, 1) };
+        node.localToGlobal(points);
+        node.localToGlobal(rectangles);
+        assertEquals(node.localToGlobal(new Point2D.Double(1, 2)), points[0]);
+        assertEquals(node.localToGlobal(new Point2D.Double(-3, 5)), points[1]);
+        assertEquals(node.localToGlobal(new PBounds(0, 0, 10, 20)), rectangles[0]);
+        assertEquals(node.localToGlobal(new PBounds(5, 5, 1, 1)), rectangles[1]);
+
+        node.globalToLocal(points);
+        node.globalToLocal(rectangles);
+        assertEquals(1, points[0].getX(), 0.0001);
+        assertEquals(2, points[0].getY(), 0.0001);
+        assertEquals(-3, points[1].getX(), 0.0001);
+        assertEquals(5, points[1].getY(), 0.0001);
+        assertEquals(10, rectangles[0].getWidth(), 0.0001);
+        assertEquals(20, rectangles[0].getHeight(), 0.0001);
+    }
+
     public void testRemoveEventListener() {
         final PBasicInputEventHandler eventListener = new PBasicInputEventHandler();
         node.addInputEventListener(eventListener);
@@ -32,8 +32,11 @@ import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
 
+import org.piccolo2d.nodes.PIndexedLayer;
 import org.piccolo2d.nodes.PPath;
+import org.piccolo2d.nodes.PText;
 import org.piccolo2d.util.PBounds;
 import org.piccolo2d.util.PPaintContext;
 
@@ -162,6 +165,102 @@ public class POffscreenCanvasTest extends TestCase {
         }
     }
 
+    public void testRenderParallelMatchesRender() {
+        final POffscreenCanvas canvas = new POffscreenCanvas(300, 170);
+        canvas.setTileSize(64);
+        canvas.setOpaque(true);
+        canvas.setBackground(Color.WHITE);
+        final PIndexedLayer indexedLayer = new PIndexedLayer();
+        canvas.getCamera().getRoot().addChild(indexedLayer);
+        canvas.getCamera().addLayer(indexedLayer);
+        for (int i = 0; i < 40; i++) {
+            final PPath ellipse = PPath.createEllipse(i * 7.3f, i * 3.9f, 40.0f, 25.0f);
+            ellipse.setPaint(new Color(i * 6, 255 - i * 6, 128, 160));
+            canvas.getCamera().getLayer(0).addChild(ellipse);
+            final PText text = new PText("tile " + i);
+            text.setOffset(290 - i * 7.1, i * 4.1);
+            indexedLayer.addChild(text);
+        }
+        canvas.getCamera().scaleView(1.3);
+
+        final BufferedImage expected = new BufferedImage(300, 170, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D expectedGraphics = expected.createGraphics();
+        canvas.render(expectedGraphics);
+        expectedGraphics.dispose();
+
+        final BufferedImage actual = new BufferedImage(300, 170, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D actualGraphics = actual.createGraphics();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            canvas.renderParallel(actualGraphics, pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+        actualGraphics.dispose();
+
+        for (int x = 0; x < 300; x++) {
+            for (int y = 0; y < 170; y++) {
+                // antialiased and translucent paint composited through a tile rounds differently
+                assertSimilarColor("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    private static void assertSimilarColor(final String message, final int expected, final int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            final int difference = ((expected >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF);
+            assertTrue(message + " expected:<" + Integer.toHexString(expected) + "> but was:<"
+                    + Integer.toHexString(actual) + ">", Math.abs(difference) <= 4);
+        }
+    }
+
+    public void testRenderParallelEmptyCanvas() {
+        final POffscreenCanvas canvas = new POffscreenCanvas(0, 0);
+        final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            canvas.renderParallel(image.createGraphics(), pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertEquals(0, image.getRGB(0, 0));
+    }
+
+    public void testRenderParallelNull() {
+        final POffscreenCanvas canvas = new POffscreenCanvas(100, 200);
+        final BufferedImage image = new BufferedImage(100, 200, BufferedImage.TYPE_INT_ARGB);
+        try {
+            canvas.renderParallel(null, new ForkJoinPool(1));
+            fail("renderParallel(null, ...) expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            canvas.renderParallel(image.createGraphics(), null);
+            fail("renderParallel(..., null) expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testTileSize() {
+        final POffscreenCanvas canvas = new POffscreenCanvas(100, 200);
+        assertEquals(POffscreenCanvas.DEFAULT_TILE_SIZE, canvas.getTileSize());
+        canvas.setTileSize(32);
+        assertEquals(32, canvas.getTileSize());
+        try {
+            canvas.setTileSize(0);
+            fail("setTileSize(0) expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     public void testRenderQuality() {
         final POffscreenCanvas canvas = new POffscreenCanvas(100, 200);
         assertEquals(POffscreenCanvas.DEFAULT_RENDER_QUALITY, canvas.getRenderQuality());
@@ -31,9 +31,15 @@ package org.piccolo2d;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import org.piccolo2d.activities.PActivity;
+import org.piccolo2d.event.PNotification;
+import org.piccolo2d.event.PNotificationCenter;
+import org.piccolo2d.event.PNotificationListener;
+import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PFrameClock;
 
 import junit.framework.TestCase;
 
@@ -119,6 +125,28 @@ public class PRootTest extends TestCase {
 
     }
 
+    public void testProcessInputsDeliversQueuedNotifications() throws Exception {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final int[] delivered = new int[1];
+        final PNotificationListener listener = new PNotificationListener() {
+            public void notificationPosted(final PNotification notification) {
+                delivered[0]++;
+            }
+        };
+        center.addListener(listener, "rootTest", root);
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                center.postNotificationLater("rootTest", root);
+                assertEquals(0, delivered[0]);
+                root.processInputs();
+                assertEquals(1, delivered[0]);
+            }
+        });
+        center.removeListener(listener);
+        assertEquals(1, delivered[0]);
+    }
+
     public void testSetFullBoundsInvalidPerists() {
         root.setFullBoundsInvalid(true);
         assertTrue(root.getFullBoundsInvalid());
@@ -158,6 +186,171 @@ public class PRootTest extends TestCase {
         }
     }
 
+    public void testGetFrameClockIsNotNullByDefault() {
+        assertNotNull(root.getFrameClock());
+    }
+
+    public void testSetFrameClockRejectsNull() {
+        try {
+            root.setFrameClock(null);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testProcessInputsTakesGlobalTimeFromFrameClock() {
+        root.setFrameClock(new PFrameClock() {
+            private static final long serialVersionUID = 1L;
+
+            public long currentTimeMillis() {
+                return 1234L;
+            }
+        });
+        root.processInputs();
+
+        assertEquals(1234L, root.getGlobalTime());
+    }
+
+    public void testEndBatchWithoutBeginBatchThrowsIllegalStateException() {
+        try {
+            root.endBatch();
+            fail("expected IllegalStateException");
+        }
+        catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testBatchCoalescesChildrenChangesPerParent() {
+        final PNode parent = new PNode();
+        root.addChild(parent);
+        parent.addPropertyChangeListener(PNode.PROPERTY_CHILDREN, mockListener);
+
+        root.beginBatch();
+        assertTrue(root.isBatching());
+        for (int i = 0; i < 100; i++) {
+            parent.addChild(new PNode());
+        }
+        parent.removeChild(0);
+        assertEquals(0, mockListener.getPropertyChangeCount());
+        root.endBatch();
+
+        assertFalse(root.isBatching());
+        assertEquals(1, mockListener.getPropertyChangeCount());
+        assertEquals(99, parent.getChildrenCount());
+    }
+
+    public void testNestedBatchCommitsAtOutermostEndBatch() {
+        final PNode parent = new PNode();
+        root.addChild(parent);
+        parent.addPropertyChangeListener(PNode.PROPERTY_CHILDREN, mockListener);
+
+        root.beginBatch();
+        root.beginBatch();
+        parent.addChild(new PNode());
+        root.endBatch();
+        assertEquals(0, mockListener.getPropertyChangeCount());
+        root.endBatch();
+
+        assertEquals(1, mockListener.getPropertyChangeCount());
+    }
+
+    public void testBatchValidatesFullBoundsWhenItEnds() {
+        final PNode parent = new PNode();
+        root.addChild(parent);
+
+        root.batch(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    final PNode child = new PNode();
+                    child.setBounds(i * 10, 0, 10, 10);
+                    parent.addChild(child);
+                }
+            }
+        });
+
+        assertFalse(root.getChildBoundsInvalid());
+        assertFalse(parent.getFullBoundsInvalid());
+        assertEquals(new PBounds(0, 0, 100, 10), parent.getFullBoundsReference());
+    }
+
+    public void testBatchCoalescesRepaintsIntoOneAreaPerParent() {
+        final PLayer layer = new PLayer();
+        root.addChild(layer);
+        final MockPCamera camera = new MockPCamera();
+        camera.setBounds(0, 0, 400, 400);
+        camera.addLayer(layer);
+        root.addChild(camera);
+
+        for (int i = 0; i < 10; i++) {
+            final PNode child = new PNode();
+            child.setBounds(i * 10, 0, 10, 10);
+            layer.addChild(child);
+        }
+        root.processInputs();
+        final int notificationCount = camera.getNotificationCount();
+
+        root.batch(new Runnable() {
+            public void run() {
+                layer.removeAllChildren();
+                for (int i = 0; i < 10; i++) {
+                    final PNode child = new PNode();
+                    child.setBounds(i * 10, 20, 10, 10);
+                    layer.addChild(child);
+                }
+                for (int i = 0; i < 5; i++) {
+                    layer.removeChild(0);
+                }
+            }
+        });
+
+        // the children are repainted as one area instead of one area each
+        final int batchNotificationCount = camera.getNotificationCount() - notificationCount;
+        assertTrue(batchNotificationCount < 5);
+        assertEquals(new PBounds(0, 20, 100, 10), camera.getNotification(camera.getNotificationCount() - 1)
+                .getBounds());
+    }
+
+    public void testBatchEndsWhenMutationsThrow() {
+        try {
+            root.batch(new Runnable() {
+                public void run() {
+                    throw new IllegalArgumentException();
+                }
+            });
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+        assertFalse(root.isBatching());
+    }
+
+    public void testBatchesOnRootsOfManyThreadsAllClose() throws InterruptedException {
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    final PRoot threadRoot = new PRoot();
+                    for (int j = 0; j < 100000; j++) {
+                        threadRoot.beginBatch();
+                        threadRoot.beginBatch();
+                        threadRoot.endBatch();
+                        threadRoot.endBatch();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertFalse(PRoot.isAnyBatchOpen());
+    }
+
     private static final class MockPActivity extends PActivity {
         private boolean activityStarted;
         private boolean activityFinished;
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.activities;
+
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.Timer;
+
+import org.piccolo2d.PRoot;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PActivityScheduler.
+ */
+public class PActivitySchedulerTest extends TestCase {
+    private static final long TIME = 1000000L;
+
+    private PActivityScheduler scheduler;
+    private List<PActivity> stepped;
+
+    public void setUp() {
+        scheduler = new ManualRoot().getActivityScheduler();
+        stepped = new ArrayList<PActivity>();
+    }
+
+    public void testActivityIsNotProcessedBeforeItsStartTime() {
+        final CountingActivity activity = new CountingActivity(1000, 0, TIME + 500);
+        scheduler.addActivity(activity);
+
+        for (int i = 0; i < 100; i++) {
+            scheduler.processActivities(TIME + i);
+        }
+        assertEquals(1, activity.processCount);
+
+        scheduler.processActivities(TIME + 500);
+        assertEquals(2, activity.processCount);
+        assertEquals(1, activity.stepCount);
+    }
+
+    public void testActivityIsSteppedAtItsStepRate() {
+        final CountingActivity activity = new CountingActivity(1000, 20, TIME);
+        scheduler.addActivity(activity);
+
+        for (int i = 0; i < 100; i++) {
+            scheduler.processActivities(TIME + i);
+        }
+        assertEquals(5, activity.stepCount);
+    }
+
+    public void testSlowActivityIsOnlyProcessedWhenDue() {
+        final CountingActivity activity = new CountingActivity(10000, 500, TIME);
+        scheduler.addActivity(activity);
+
+        for (int i = 0; i < 1000; i++) {
+            scheduler.processActivities(TIME + i);
+        }
+        assertEquals(2, activity.stepCount);
+        assertEquals(2, activity.processCount);
+    }
+
+    public void testActivityFinishesAfterItsStopTime() {
+        final CountingActivity activity = new CountingActivity(50, 40, TIME);
+        scheduler.addActivity(activity);
+
+        for (int i = 0; i <= 51; i++) {
+            scheduler.processActivities(TIME + i);
+        }
+        assertTrue(activity.finished);
+        assertEquals(0, scheduler.getActivitiesReference().size());
+    }
+
+    public void testDueActivitiesAreProcessedMostRecentlyAddedFirstAndProcessLastAtTheEnd() {
+        final CountingActivity last = new CountingActivity(1000, 0, TIME);
+        final CountingActivity first = new CountingActivity(1000, 0, TIME);
+        final CountingActivity second = new CountingActivity(1000, 0, TIME);
+        scheduler.addActivity(last, true);
+        scheduler.addActivity(second);
+        scheduler.addActivity(first);
+
+        scheduler.processActivities(TIME);
+
+        assertEquals(3, stepped.size());
+        assertSame(first, stepped.get(0));
+        assertSame(second, stepped.get(1));
+        assertSame(last, stepped.get(2));
+    }
+
+    public void testActivityRemovedDuringProcessingIsNotStepped() {
+        final CountingActivity victim = new CountingActivity(1000, 0, TIME);
+        final CountingActivity remover = new CountingActivity(1000, 0, TIME) {
+            protected void activityStep(final long elapsedTime) {
+                super.activityStep(elapsedTime);
+                scheduler.removeActivity(victim);
+            }
+        };
+        scheduler.addActivity(victim);
+        scheduler.addActivity(remover);
+
+        scheduler.processActivities(TIME);
+
+        assertEquals(1, remover.stepCount);
+        assertEquals(0, victim.stepCount);
+        assertFalse(scheduler.getActivitiesReference().contains(victim));
+    }
+
+    public void testChangingStartTimeReschedulesActivity() {
+        final CountingActivity activity = new CountingActivity(1000, 0, TIME + 10000);
+        scheduler.addActivity(activity);
+        scheduler.processActivities(TIME);
+
+        activity.setStartTime(TIME + 10);
+        scheduler.processActivities(TIME + 10);
+
+        assertTrue(activity.isStepping());
+    }
+
+    public void testGetAnimatingTracksAnimationActivities() {
+        final CountingActivity plain = new CountingActivity(1000, 0, TIME);
+        final CountingActivity animation = new CountingActivity(1000, 0, TIME) {
+            protected boolean isAnimation() {
+                return true;
+            }
+        };
+
+        scheduler.addActivity(plain);
+        assertFalse(scheduler.getAnimating());
+        scheduler.addActivity(animation);
+        assertTrue(scheduler.getAnimating());
+        scheduler.removeActivity(animation);
+        assertFalse(scheduler.getAnimating());
+    }
+
+    public void testRemovingManyActivitiesKeepsRemainingOnesScheduled() {
+        final List<CountingActivity> activities = new ArrayList<CountingActivity>();
+        for (int i = 0; i < 100; i++) {
+            final CountingActivity activity = new CountingActivity(1000, 0, TIME + (i * 37) % 100);
+            activities.add(activity);
+            scheduler.addActivity(activity);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            scheduler.removeActivity((PActivity) activities.get(i));
+        }
+        assertEquals(50, scheduler.getActivitiesReference().size());
+
+        scheduler.processActivities(TIME + 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2, ((CountingActivity) activities.get(i)).stepCount);
+        }
+    }
+
+    public void testActivitiesReferenceListsScheduledActivitiesByIndex() {
+        final List<CountingActivity> activities = new ArrayList<CountingActivity>();
+        for (int i = 0; i < 10; i++) {
+            final CountingActivity activity = new CountingActivity(1000, 0, TIME);
+            activities.add(activity);
+            scheduler.addActivity(activity);
+        }
+        scheduler.removeActivity((PActivity) activities.get(0));
+        scheduler.removeActivity((PActivity) activities.get(5));
+        scheduler.removeActivity((PActivity) activities.get(9));
+
+        final List<PActivity> reference = scheduler.getActivitiesReference();
+        assertEquals(7, reference.size());
+        final Set<PActivity> listed = new HashSet<PActivity>();
+        for (int i = 0; i < reference.size(); i++) {
+            listed.add(reference.get(i));
+        }
+        assertEquals(7, listed.size());
+        for (int i = 1; i < 9; i++) {
+            assertEquals(i != 5, listed.contains(activities.get(i)));
+        }
+
+        try {
+            reference.remove(0);
+            fail("activities reference must be read only");
+        }
+        catch (final UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testLoopingActivityIsRescheduled() {
+        final PInterpolatingActivity activity = new PInterpolatingActivity(10, 0, TIME, 2,
+                PInterpolatingActivity.SOURCE_TO_DESTINATION);
+        scheduler.addActivity(activity);
+
+        scheduler.processActivities(TIME + 11);
+        assertEquals(1, activity.getLoopCount());
+        assertTrue(scheduler.getActivitiesReference().contains(activity));
+    }
+
+    public void testTimerSleepsUntilNextActivityIsDue() {
+        scheduler.addActivity(new CountingActivity(1000, 0, TIME + 5000));
+        scheduler.processActivities(TIME);
+
+        assertEquals(5000, scheduler.getActivityTimer().getInitialDelay());
+    }
+
+    public void testTimerIsPacedByFrameClockWhileActivitiesAreActive() {
+        scheduler.addActivity(new CountingActivity(1000, 0, TIME));
+        scheduler.processActivities(TIME);
+
+        final long frameMillis = scheduler.getRoot().getFrameClock().getTargetFrameNanos() / 1000000L;
+        assertTrue(scheduler.getActivityTimer().getInitialDelay() <= frameMillis + 1);
+    }
+
+    public void testAddingActivityWakesSleepingTimer() {
+        scheduler.addActivity(new CountingActivity(1000, 0, TIME + 5000));
+        scheduler.processActivities(TIME);
+
+        scheduler.addActivity(new CountingActivity(1000, 0, TIME));
+
+        assertTrue(scheduler.getActivityTimer().getInitialDelay() < 5000);
+    }
+
+    private class CountingActivity extends PActivity {
+        private int processCount;
+        private int stepCount;
+        private boolean finished;
+
+        private CountingActivity(final long duration, final long stepRate, final long startTime) {
+            super(duration, stepRate, startTime);
+        }
+
+        public long processStep(final long currentTime) {
+            processCount++;
+            return super.processStep(currentTime);
+        }
+
+        protected void activityStep(final long elapsedTime) {
+            super.activityStep(elapsedTime);
+            stepCount++;
+            stepped.add(this);
+        }
+
+        protected void activityFinished() {
+            super.activityFinished();
+            finished = true;
+        }
+    }
+
+    /**
+     * A root whose activity timer never fires, so that activities are only
+     * processed by the test.
+     */
+    private static final class ManualRoot extends PRoot {
+        private static final long serialVersionUID = 1L;
+
+        public Timer createTimer(final int delay, final ActionListener listener) {
+            return new Timer(delay, listener) {
+                private static final long serialVersionUID = 1L;
+
+                public void start() {
+                    // never started
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.activities;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.swing.Timer;
+
+import org.piccolo2d.PNode;
+import org.piccolo2d.PRoot;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PBulkAnimationActivity.
+ */
+public class PBulkAnimationActivityTest extends TestCase {
+    private long time;
+    private PRoot root;
+    private PNode[] nodes;
+
+    public void setUp() {
+        time = System.currentTimeMillis() + 1000;
+        root = new ManualRoot();
+        nodes = new PNode[3];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new PNode();
+            nodes[i].setBounds(0, 0, 10, 10);
+            root.addChild(nodes[i]);
+        }
+    }
+
+    public void testOffsetsAreInterpolatedAndReachDestination() {
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 100, 0);
+        activity.setEasing(PEasing.LINEAR);
+        activity.setDestinationOffsets(new double[] { 100, 0, 0, 200, -100, -100 });
+
+        run(activity, 50);
+        assertEquals(50, nodes[0].getXOffset(), 1);
+        assertEquals(100, nodes[1].getYOffset(), 1);
+        assertEquals(-50, nodes[2].getXOffset(), 1);
+
+        run(activity, 101);
+        assertEquals(100, nodes[0].getXOffset(), 0);
+        assertEquals(200, nodes[1].getYOffset(), 0);
+        assertEquals(-100, nodes[2].getYOffset(), 0);
+        assertFalse(activity.isStepping());
+    }
+
+    public void testTransformsStartFromIdentityAndReachDestination() {
+        nodes[1].setScale(2);
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 100, 0);
+        activity.setDestinationTransforms(new double[] { 3, 0, 0, 3, 10, 20, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 5, 5 });
+
+        run(activity, 0);
+        assertEquals(1, nodes[0].getScale(), 0);
+        assertEquals(2, nodes[1].getScale(), 0);
+
+        run(activity, 101);
+        assertEquals(3, nodes[0].getScale(), 0);
+        assertEquals(20, nodes[0].getYOffset(), 0);
+        assertEquals(1, nodes[1].getScale(), 0);
+        assertEquals(5, nodes[2].getXOffset(), 0);
+    }
+
+    public void testBoundsTransparencyAndColorAreInterpolated() {
+        nodes[0].setPaint(Color.BLACK);
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(new PNode[] { nodes[0] }, 100, 0);
+        activity.setEasing(PEasing.LINEAR);
+        activity.setDestinationBounds(new double[] { 10, 10, 30, 50 });
+        activity.setDestinationTransparencies(new float[] { 0 });
+        activity.setDestinationColors(new int[] { 0xffc8c8c8 });
+
+        run(activity, 50);
+        assertEquals(5, nodes[0].getX(), 0.5);
+        assertEquals(30, nodes[0].getHeight(), 0.5);
+        assertEquals(0.5f, nodes[0].getTransparency(), 0.01f);
+        assertEquals(100, ((Color) nodes[0].getPaint()).getRed(), 1);
+
+        run(activity, 101);
+        assertEquals(30, nodes[0].getWidth(), 0);
+        assertEquals(0f, nodes[0].getTransparency(), 0f);
+        assertEquals(new Color(0xffc8c8c8, true), nodes[0].getPaint());
+    }
+
+    public void testNodesWithoutColorPaintJumpToDestinationColor() {
+        nodes[1].setPaint(new GradientPaint(0, 0, Color.RED, 10, 0, Color.BLUE));
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(new PNode[] { nodes[0], nodes[1] }, 100,
+                0);
+        activity.setDestinationColors(new int[] { 0xffc8c8c8, 0xff112233 });
+
+        run(activity, 0);
+        assertEquals(new Color(0xffc8c8c8, true), nodes[0].getPaint());
+        assertEquals(new Color(0xff112233, true), nodes[1].getPaint());
+
+        run(activity, 101);
+        assertEquals(new Color(0xffc8c8c8, true), nodes[0].getPaint());
+        assertEquals(new Color(0xff112233, true), nodes[1].getPaint());
+    }
+
+    public void testEasingIsApplied() {
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(new PNode[] { nodes[0] }, 100, 0);
+        activity.setEasing(PEasing.EASE_IN);
+        activity.setDestinationOffsets(new double[] { 100, 0 });
+
+        run(activity, 50);
+        assertEquals(25, nodes[0].getXOffset(), 1);
+    }
+
+    public void testCancelledNodeStopsWhileOthersContinue() {
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 100, 0);
+        activity.setEasing(PEasing.LINEAR);
+        activity.setDestinationOffsets(new double[] { 100, 0, 100, 0, 100, 0 });
+
+        run(activity, 50);
+        activity.cancel(1);
+        assertTrue(activity.isCancelled(1));
+        run(activity, 101);
+
+        assertEquals(100, nodes[0].getXOffset(), 0);
+        assertEquals(50, nodes[1].getXOffset(), 1);
+        assertEquals(100, nodes[2].getXOffset(), 0);
+    }
+
+    public void testTransformsAndOffsetsCanNotBothBeAnimated() {
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 100, 0);
+        activity.setDestinationOffsets(new double[6]);
+        try {
+            activity.setDestinationTransforms(new double[18]);
+            fail("expected IllegalStateException");
+        }
+        catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testDestinationArraysMustMatchNodeCount() {
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 100, 0);
+        try {
+            activity.setDestinationBounds(new double[8]);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testStepsAreBatchedOnTheRoot() {
+        final boolean[] batching = new boolean[1];
+        nodes[0].addPropertyChangeListener(PNode.PROPERTY_TRANSFORM, new PropertyChangeListener() {
+            public void propertyChange(final PropertyChangeEvent evt) {
+                batching[0] = root.isBatching();
+            }
+        });
+        final PBulkAnimationActivity activity = new PBulkAnimationActivity(nodes, 100, 0);
+        activity.setDestinationOffsets(new double[] { 10, 10, 10, 10, 10, 10 });
+
+        run(activity, 50);
+        assertTrue(batching[0]);
+        assertFalse(root.isBatching());
+    }
+
+    private void run(final PActivity activity, final long elapsed) {
+        if (activity.getActivityScheduler() == null) {
+            activity.setStartTime(time);
+            root.addActivity(activity);
+        }
+        root.getActivityScheduler().processActivities(time + elapsed);
+    }
+
+    private static final class ManualRoot extends PRoot {
+        private static final long serialVersionUID = 1L;
+
+        public Timer createTimer(final int delay, final ActionListener listener) {
+            return new Timer(delay, listener) {
+                private static final long serialVersionUID = 1L;
+
+                public void start() {
+                    // never started
+                }
+            };
+        }
+    }
+}
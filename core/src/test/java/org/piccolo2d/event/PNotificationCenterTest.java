@@ -28,8 +28,16 @@
  */
 package org.piccolo2d.event;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
 import org.piccolo2d.event.PNotification;
 import org.piccolo2d.event.PNotificationCenter;
+import org.piccolo2d.event.PNotificationListener;
 
 import junit.framework.TestCase;
 
@@ -44,6 +52,14 @@ public class PNotificationCenterTest extends TestCase {
         super(name);
     }
 
+    public void tearDown() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        center.setDeliveryExecutor(null);
+        center.setMaximumQueueSize(PNotificationCenter.DEFAULT_MAXIMUM_QUEUE_SIZE);
+        center.deliverQueuedNotifications();
+        center.resetStatistics();
+    }
+
     public void testToString() throws SecurityException, NoSuchMethodException {
         final PNotificationCenter center = PNotificationCenter.defaultCenter();
 
@@ -69,6 +85,326 @@ public class PNotificationCenterTest extends TestCase {
         changed1 = changed2 = changed3 = changed4 = false;
     }
 
+    public void testTypedListenersAreNotified() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener byName = new RecordingListener();
+        final RecordingListener byObject = new RecordingListener();
+        center.addListener(byName, "propertyChanged", null);
+        center.addListener(byObject, null, this);
+
+        center.postNotification("propertyChanged", new Object());
+        center.postNotification("otherPropertyChanged", this);
+        center.postNotification("unrelated", new Object());
+
+        assertEquals(1, byName.notifications.size());
+        assertEquals("propertyChanged", byName.notifications.get(0).getName());
+        assertEquals(1, byObject.notifications.size());
+        assertSame(this, byObject.notifications.get(0).getObject());
+
+        center.removeListener(byName);
+        center.removeListener(byObject);
+    }
+
+    public void testTypedListenerIsAddedOnce() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener listener = new RecordingListener();
+        center.addListener(listener, "propertyChanged", this);
+        center.addListener(listener, "propertyChanged", this);
+
+        center.postNotification("propertyChanged", this);
+        assertEquals(1, listener.notifications.size());
+
+        center.removeListener(listener);
+    }
+
+    public void testAnonymousTypedListenerIsHeldStrongly() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final List<PNotification> notifications = new ArrayList<PNotification>();
+        center.addListener(new PNotificationListener() {
+            public void notificationPosted(final PNotification notification) {
+                notifications.add(notification);
+            }
+        }, "propertyChanged", this);
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+
+        center.postNotification("propertyChanged", this);
+        assertEquals(1, notifications.size());
+
+        center.removeListener(null, "propertyChanged", this);
+        center.postNotification("propertyChanged", this);
+        assertEquals(1, notifications.size());
+    }
+
+    public void testRemoveListenerByNameOnly() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener listener = new RecordingListener();
+        final Object other = new Object();
+        center.addListener(listener, "propertyChanged", this);
+        center.addListener(listener, "propertyChanged", other);
+        center.addListener(listener, "otherPropertyChanged", this);
+
+        center.removeListener(listener, "propertyChanged", null);
+        center.postNotification("propertyChanged", this);
+        center.postNotification("propertyChanged", other);
+        center.postNotification("otherPropertyChanged", this);
+
+        assertEquals(1, listener.notifications.size());
+        assertEquals("otherPropertyChanged", listener.notifications.get(0).getName());
+
+        center.removeListener(listener);
+    }
+
+    public void testRemoveListenerByObjectOnly() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener listener = new RecordingListener();
+        final Object other = new Object();
+        center.addListener(listener, "propertyChanged", this);
+        center.addListener(listener, "otherPropertyChanged", this);
+        center.addListener(listener, "propertyChanged", other);
+
+        center.removeListener(listener, null, this);
+        center.postNotification("propertyChanged", this);
+        center.postNotification("otherPropertyChanged", this);
+        center.postNotification("propertyChanged", other);
+
+        assertEquals(1, listener.notifications.size());
+        assertSame(other, listener.notifications.get(0).getObject());
+
+        center.removeListener(listener);
+    }
+
+    public void testRemoveNullListenerRemovesAllMatching() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener listener1 = new RecordingListener();
+        final RecordingListener listener2 = new RecordingListener();
+        center.addListener(listener1, "propertyChanged", this);
+        center.addListener(listener2, "propertyChanged", this);
+
+        center.removeListener(null, "propertyChanged", this);
+        center.postNotification("propertyChanged", this);
+
+        assertTrue(listener1.notifications.isEmpty());
+        assertTrue(listener2.notifications.isEmpty());
+    }
+
+    public void testListenerMayRemoveItselfWhileNotified() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener listener = new RecordingListener() {
+            public void notificationPosted(final PNotification notification) {
+                super.notificationPosted(notification);
+                center.removeListener(this);
+            }
+        };
+        final RecordingListener other = new RecordingListener();
+        center.addListener(listener, "propertyChanged", this);
+        center.addListener(other, "propertyChanged", this);
+
+        center.postNotification("propertyChanged", this);
+        center.postNotification("propertyChanged", this);
+
+        assertEquals(1, listener.notifications.size());
+        assertEquals(2, other.notifications.size());
+
+        center.removeListener(other);
+    }
+
+    public void testListenerAddedWhileNotifiedWaitsForNextNotification() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final RecordingListener added = new RecordingListener();
+        final RecordingListener listener = new RecordingListener() {
+            public void notificationPosted(final PNotification notification) {
+                super.notificationPosted(notification);
+                center.addListener(added, null, null);
+            }
+        };
+        center.addListener(listener, "propertyChanged", this);
+
+        center.postNotification("propertyChanged", this);
+        assertTrue(added.notifications.isEmpty());
+
+        center.postNotification("propertyChanged", this);
+        assertEquals(1, added.notifications.size());
+
+        center.removeListener(listener);
+        center.removeListener(added);
+    }
+
+    public void testPostingFromManyThreads() throws InterruptedException {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final CountingListener counter = new CountingListener();
+        center.addListener(counter, "propertyChanged", this);
+
+        final Throwable[] failure = new Throwable[1];
+        final Thread[] posters = new Thread[4];
+        for (int i = 0; i < posters.length; i++) {
+            posters[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            center.postNotification("propertyChanged", PNotificationCenterTest.this);
+                        }
+                    }
+                    catch (final Throwable t) {
+                        failure[0] = t;
+                    }
+                }
+            };
+            posters[i].start();
+        }
+        for (int i = 0; i < 100; i++) {
+            final RecordingListener transientListener = new RecordingListener();
+            center.addListener(transientListener, "propertyChanged", this);
+            center.removeListener(transientListener);
+        }
+        for (int i = 0; i < posters.length; i++) {
+            posters[i].join();
+        }
+
+        assertNull(failure[0]);
+        assertEquals(4000, counter.getCount());
+
+        center.removeListener(counter);
+    }
+
+    public void testPostNotificationLaterDeliversOnEventDispatchThread() throws Exception {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final List<Boolean> deliveries = Collections.synchronizedList(new ArrayList<Boolean>());
+        final PNotificationListener listener = new PNotificationListener() {
+            public void notificationPosted(final PNotification notification) {
+                deliveries.add(Boolean.valueOf(SwingUtilities.isEventDispatchThread()));
+            }
+        };
+        center.addListener(listener, "propertyChanged", this);
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                center.postNotificationLater("propertyChanged", PNotificationCenterTest.this);
+                assertTrue(deliveries.isEmpty());
+                assertEquals(1, center.getQueueSize());
+            }
+        });
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                // the delivery queued before this has run
+            }
+        });
+
+        assertEquals(Collections.singletonList(Boolean.TRUE), deliveries);
+        assertEquals(0, center.getQueueSize());
+
+        center.removeListener(listener);
+    }
+
+    public void testQueuedDuplicatesAreCoalesced() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final ManualExecutor executor = new ManualExecutor();
+        center.setDeliveryExecutor(executor);
+        final RecordingListener listener = new RecordingListener();
+        center.addListener(listener, null, this);
+
+        center.postNotificationLater("first", this);
+        center.postNotificationLater("second", this);
+        center.postNotificationLater("first", this, Collections.singletonMap("value", "latest"));
+        center.postNotificationLater("first", this);
+
+        assertEquals(2, center.getQueueSize());
+        assertEquals(2, center.getCoalescedCount());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(2, listener.notifications.size());
+        assertEquals("first", listener.notifications.get(0).getName());
+        assertNull(listener.notifications.get(0).getProperty("value"));
+        assertEquals("second", listener.notifications.get(1).getName());
+        assertEquals(0, center.getQueueSize());
+
+        center.removeListener(listener);
+    }
+
+    public void testFullQueueDropsNotifications() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        center.setDeliveryExecutor(new ManualExecutor());
+        center.setMaximumQueueSize(2);
+
+        center.postNotificationLater("first", this);
+        center.postNotificationLater("second", this);
+        center.postNotificationLater("third", this);
+        center.postNotificationLater("first", this);
+
+        assertEquals(2, center.getQueueSize());
+        assertEquals(1, center.getDroppedCount());
+        assertEquals(1, center.getCoalescedCount());
+
+        center.resetStatistics();
+        assertEquals(0, center.getDroppedCount());
+        assertEquals(0, center.getCoalescedCount());
+    }
+
+    public void testMaximumQueueSizeMustBePositive() {
+        try {
+            PNotificationCenter.defaultCenter().setMaximumQueueSize(0);
+            fail("IllegalArgumentException expected");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testNotificationsQueuedWhileDeliveringWaitForNextDelivery() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        final ManualExecutor executor = new ManualExecutor();
+        center.setDeliveryExecutor(executor);
+        final RecordingListener listener = new RecordingListener() {
+            public void notificationPosted(final PNotification notification) {
+                super.notificationPosted(notification);
+                center.postNotificationLater("echo", notification.getName());
+            }
+        };
+        center.addListener(listener, "propertyChanged", this);
+        center.addListener(listener, "echo", null);
+
+        center.postNotificationLater("propertyChanged", this);
+        executor.runAll();
+        assertEquals(1, listener.notifications.size());
+        assertEquals(1, center.getQueueSize());
+
+        executor.runAll();
+        assertEquals(2, listener.notifications.size());
+        assertEquals("echo", listener.notifications.get(1).getName());
+
+        center.removeListener(listener);
+    }
+
+    public void testFailingListenerDoesNotStopBatch() {
+        final PNotificationCenter center = PNotificationCenter.defaultCenter();
+        center.setDeliveryExecutor(new ManualExecutor());
+        final PNotificationListener failing = new PNotificationListener() {
+            public void notificationPosted(final PNotification notification) {
+                throw new IllegalStateException();
+            }
+        };
+        final RecordingListener listener = new RecordingListener();
+        center.addListener(failing, "first", this);
+        center.addListener(listener, "second", this);
+
+        center.postNotificationLater("first", this);
+        center.postNotificationLater("second", this);
+        try {
+            center.deliverQueuedNotifications();
+            fail("IllegalStateException expected");
+        }
+        catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, listener.notifications.size());
+
+        center.removeListener(failing);
+        center.removeListener(listener);
+    }
+
     public void changed1(final PNotification notification) {
         changed1 = true;
     }
@@ -84,4 +420,40 @@ public class PNotificationCenterTest extends TestCase {
     public void changed4(final PNotification notification) {
         changed4 = true;
     }
+
+    private static class RecordingListener implements PNotificationListener {
+        final List<PNotification> notifications = new ArrayList<PNotification>();
+
+        public void notificationPosted(final PNotification notification) {
+            notifications.add(notification);
+        }
+    }
+
+    private static class CountingListener implements PNotificationListener {
+        private int count;
+
+        public synchronized void notificationPosted(final PNotification notification) {
+            count++;
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+    }
+
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(final Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            final List<Runnable> pending = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (int i = 0; i < pending.size(); i++) {
+                pending.get(i).run();
+            }
+        }
+    }
 }
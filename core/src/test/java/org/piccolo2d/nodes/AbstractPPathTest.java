@@ -31,6 +31,7 @@ package org.piccolo2d.nodes;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
+import java.awt.geom.Line2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -41,8 +42,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 
+import org.piccolo2d.PCamera;
+import org.piccolo2d.PCanvas;
 import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PFixedWidthStroke;
 import org.piccolo2d.util.PObjectOutputStream;
+import org.piccolo2d.util.PPickPath;
 
 /**
  * Abstract unit test for subclasses of PPath.
@@ -109,6 +114,24 @@ public abstract class AbstractPPathTest extends AbstractPShapeTest {
         out.close();
     }
 
+    public void testFixedWidthStrokeIsPickedAtCameraScale() {
+        // semantic strokes outside of picking use the scale of the last pick
+        PPickPath.CURRENT_PICK_PATH = null;
+        final PCanvas canvas = new PCanvas();
+        final PPath path = createPathNode();
+        path.append(new Line2D.Double(0, 0, 100, 0), false);
+        path.setStroke(new PFixedWidthStroke(10));
+        canvas.getLayer().addChild(path);
+        final PCamera camera = canvas.getCamera();
+        camera.setBounds(0, 0, 1000, 100);
+
+        assertSame(path, camera.pick(50, 4, 1).getPickedNode());
+
+        camera.scaleView(10);
+        assertNotSame(path, camera.pick(500, 40, 1).getPickedNode());
+        assertSame(path, camera.pick(500, 4, 1).getPickedNode());
+    }
+
     public void testCreateArcFloat() {
         assertNotNull(PPath.createArc(0.0f, 0.0f, 50.0f, 100.0f, 25.0f, 75.0f, Arc2D.OPEN));
     }
@@ -469,4 +492,28 @@ public abstract class AbstractPPathTest extends AbstractPShapeTest {
         path.closePath();
         assertEquals(1, mockListener.getPropertyChangeCount());
     }
+
+    public void testIntersectsFollowsPathChanges() {
+        PPath path = createPathNode();
+        path.setPaint(null);
+        path.moveTo(0.0d, 0.0d);
+        path.lineTo(100.0d, 0.0d);
+        Rectangle2D pick = new Rectangle2D.Double(99.0d, 49.0d, 2.0d, 2.0d);
+        assertFalse(path.intersects(pick));
+        path.lineTo(100.0d, 100.0d);
+        assertTrue(path.intersects(pick));
+    }
+
+    public void testIntersectsFollowsBoundsChanges() {
+        PPath path = createPathNode();
+        path.setPaint(null);
+        path.moveTo(0.0d, 0.0d);
+        path.lineTo(100.0d, 0.0d);
+        path.lineTo(100.0d, 100.0d);
+        Rectangle2D pick = new Rectangle2D.Double(99.0d, 49.0d, 2.0d, 2.0d);
+        assertTrue(path.intersects(pick));
+        path.setBounds(200.0d, 200.0d, 101.0d, 101.0d);
+        assertFalse(path.intersects(pick));
+        assertTrue(path.intersects(new Rectangle2D.Double(299.0d, 249.0d, 2.0d, 2.0d)));
+    }
 }
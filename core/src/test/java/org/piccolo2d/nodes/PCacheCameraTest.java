@@ -28,7 +28,17 @@
  */
 package org.piccolo2d.nodes;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.SwingUtilities;
+
+import org.piccolo2d.PLayer;
+import org.piccolo2d.PNode;
+import org.piccolo2d.PRoot;
 import org.piccolo2d.nodes.PCacheCamera;
+import org.piccolo2d.util.PPaintContext;
 
 import junit.framework.TestCase;
 
@@ -41,4 +51,134 @@ public class PCacheCameraTest extends TestCase {
         PCacheCamera cloned = (PCacheCamera) camera.clone();
         assertNotNull(cloned);      
     }
+
+    public void testViewIsNotCachedByDefault() {
+        assertFalse(new PCacheCamera().getViewCached());
+    }
+
+    public void testNegativeViewCacheMarginIsRejected() {
+        try {
+            new PCacheCamera().setViewCacheMargin(-1);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testCachedViewPansWithoutPaintingLayers() throws Exception {
+        final CountingNode node = new CountingNode();
+        final PCacheCamera camera = createCachedCamera(node);
+
+        paint(camera);
+        waitForViewCache(camera);
+        assertNotNull(camera.getViewCacheBounds());
+        assertTrue(camera.getViewCacheBounds().contains(camera.getViewBounds()));
+
+        final int paints = node.paints;
+        camera.translateView(-10, -10);
+        paint(camera);
+        assertEquals(paints, node.paints);
+    }
+
+    public void testLayerChangePaintsLayersDirectly() throws Exception {
+        final CountingNode node = new CountingNode();
+        final PCacheCamera camera = createCachedCamera(node);
+
+        paint(camera);
+        waitForViewCache(camera);
+        final int paints = node.paints;
+        node.repaint();
+        paint(camera);
+        assertTrue(node.paints > paints);
+    }
+
+    public void testDisablingViewCacheClearsBuffer() throws Exception {
+        final PCacheCamera camera = createCachedCamera(new CountingNode());
+
+        paint(camera);
+        waitForViewCache(camera);
+        camera.setViewCached(false);
+        assertNull(camera.getViewCacheBounds());
+    }
+
+    public void testViewCacheIsRenderedOnEventDispatchThread() throws Exception {
+        final CountingNode node = new CountingNode();
+        final PCacheCamera camera = createCachedCamera(node);
+
+        paint(camera);
+        waitForViewCache(camera);
+        assertNotNull(camera.getViewCacheBounds());
+        assertEquals(1, node.paintsOffEventDispatchThread);
+        assertTrue(node.paints > 2);
+    }
+
+    public void testLayerChangeAbandonsViewCacheRendering() throws Exception {
+        final CountingNode node = new CountingNode();
+        final PCacheCamera camera = createCachedCamera(node);
+
+        // painting and repainting on the event queue keeps the requested
+        // render from completing in between
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                paint(camera);
+                node.repaint();
+            }
+        });
+        flushEventQueue();
+        assertNull(camera.getViewCacheBounds());
+
+        paint(camera);
+        waitForViewCache(camera);
+        assertNotNull(camera.getViewCacheBounds());
+    }
+
+    private static PCacheCamera createCachedCamera(final PNode node) {
+        final PRoot root = new PRoot();
+        final PLayer layer = new PLayer();
+        final PCacheCamera camera = new PCacheCamera();
+        root.addChild(layer);
+        root.addChild(camera);
+        camera.addLayer(layer);
+        camera.setBounds(0, 0, 100, 100);
+        node.setBounds(0, 0, 200, 200);
+        layer.addChild(node);
+        camera.setViewCached(true);
+        return camera;
+    }
+
+    private static void waitForViewCache(final PCacheCamera camera) throws Exception {
+        for (int i = 0; i < 500 && camera.getViewCacheBounds() == null; i++) {
+            Thread.sleep(10);
+            flushEventQueue();
+        }
+    }
+
+    private static void flushEventQueue() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                // events queued before this one have been dispatched
+            }
+        });
+    }
+
+    private static void paint(final PCacheCamera camera) {
+        final BufferedImage target = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = target.createGraphics();
+        camera.fullPaint(new PPaintContext(g2));
+        g2.dispose();
+    }
+
+    private static final class CountingNode extends PNode {
+        private static final long serialVersionUID = 1L;
+        private volatile int paints;
+        private volatile int paintsOffEventDispatchThread;
+
+        protected void paint(final PPaintContext paintContext) {
+            paints++;
+            if (!SwingUtilities.isEventDispatchThread()) {
+                paintsOffEventDispatchThread++;
+            }
+        }
+    }
 }
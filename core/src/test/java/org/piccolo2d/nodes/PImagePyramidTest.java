@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.piccolo2d.util.PPaintContext;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PImagePyramid.
+ */
+public class PImagePyramidTest extends TestCase {
+
+    public void testBoundsAreTheSizeOfTheImage() {
+        final PImagePyramid pyramid = new PImagePyramid(new BufferedImage(1000, 600, BufferedImage.TYPE_INT_RGB));
+        assertEquals(1000, pyramid.getWidth(), 0);
+        assertEquals(600, pyramid.getHeight(), 0);
+    }
+
+    public void testLastLevelFitsInOneTile() {
+        final PImagePyramid.ImageTileSource source = new PImagePyramid.ImageTileSource(new BufferedImage(1000, 600,
+                BufferedImage.TYPE_INT_RGB), 256);
+        assertEquals(3, source.getLevelCount());
+        assertEquals(250, source.getLevelImage(2).getWidth());
+        assertEquals(150, source.getLevelImage(2).getHeight());
+        assertNull(source.getTile(2, 1, 0));
+    }
+
+    public void testLevelMatchesScale() {
+        final PImagePyramid pyramid = new PImagePyramid(new BufferedImage(1000, 600, BufferedImage.TYPE_INT_RGB));
+        assertEquals(0, pyramid.getLevel(2));
+        assertEquals(0, pyramid.getLevel(0.6));
+        assertEquals(1, pyramid.getLevel(0.5));
+        assertEquals(1, pyramid.getLevel(0.3));
+        assertEquals(2, pyramid.getLevel(0.25));
+        assertEquals(2, pyramid.getLevel(0.01));
+    }
+
+    public void testDownsampledLevelsKeepColors() {
+        final BufferedImage image = new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, 600, 600);
+        g2.dispose();
+
+        final PImagePyramid.ImageTileSource source = new PImagePyramid.ImageTileSource(image, 256);
+        assertEquals(Color.RED.getRGB(), source.getTile(2, 0, 0).getRGB(10, 10));
+    }
+
+    public void testZoomedOutPaintOnlyLoadsCoarseLevel() {
+        final CountingTileSource source = new CountingTileSource(2048, 2048);
+        final PImagePyramid pyramid = new PImagePyramid(source);
+
+        paint(pyramid, 0.125);
+
+        assertEquals(1, source.requests.size());
+        assertEquals("3,0,0", source.requests.get(0));
+    }
+
+    public void testPaintOnlyLoadsTilesIntersectingClip() {
+        final CountingTileSource source = new CountingTileSource(2048, 2048);
+        final PImagePyramid pyramid = new PImagePyramid(source);
+
+        final BufferedImage target = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = target.createGraphics();
+        g2.translate(-500, -500);
+        g2.clipRect(500, 500, 200, 200);
+        pyramid.paint(new PPaintContext(g2));
+
+        assertEquals(4, source.requests.size());
+        assertTrue(source.requests.contains("0,1,1"));
+        assertTrue(source.requests.contains("0,2,2"));
+    }
+
+    public void testTilesAreCachedAndEvictedBySize() {
+        final CountingTileSource source = new CountingTileSource(2048, 2048);
+        final PImagePyramid pyramid = new PImagePyramid(source);
+        pyramid.setMaximumCacheSize(2 * 256 * 256 * 4);
+
+        paint(pyramid, 0.125);
+        paint(pyramid, 0.125);
+        assertEquals(1, source.requests.size());
+        assertEquals(256 * 256 * 4, pyramid.getCacheSize());
+
+        paint(pyramid, 0.25);
+        assertEquals(5, source.requests.size());
+        assertEquals(2 * 256 * 256 * 4, pyramid.getCacheSize());
+
+        pyramid.clearCache();
+        assertEquals(0, pyramid.getCacheSize());
+    }
+
+    public void testAsynchronousTilesArePaintedFromCoarserLevelUntilLoaded() throws Exception {
+        final BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.RED);
+        g2.fillRect(0, 0, 512, 512);
+        g2.dispose();
+        final PImagePyramid pyramid = new PImagePyramid(image);
+        pyramid.setAsynchronousLoading(true);
+
+        paint(pyramid, 0.5);
+        waitForTiles(pyramid, 256 * 256 * 4);
+
+        final BufferedImage target = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D targetGraphics = target.createGraphics();
+        pyramid.paint(new PPaintContext(targetGraphics));
+        assertEquals(Color.RED.getRGB(), target.getRGB(300, 300));
+
+        waitForTiles(pyramid, 256 * 256 * 4 * 5);
+        assertEquals(256 * 256 * 4 * 5, pyramid.getCacheSize());
+    }
+
+    public void testClearingCacheDropsPendingTiles() throws Exception {
+        final CountingTileSource source = new CountingTileSource(2048, 2048);
+        final PImagePyramid pyramid = new PImagePyramid(source);
+        pyramid.setAsynchronousLoading(true);
+
+        paint(pyramid, 0.125);
+        pyramid.clearCache();
+        Thread.sleep(100);
+        flushEventQueue();
+        assertEquals(0, pyramid.getCacheSize());
+    }
+
+    private static void waitForTiles(final PImagePyramid pyramid, final long cacheSize) throws Exception {
+        for (int i = 0; i < 500 && pyramid.getCacheSize() < cacheSize; i++) {
+            Thread.sleep(10);
+            flushEventQueue();
+        }
+    }
+
+    private static void flushEventQueue() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                // events queued before this one have been dispatched
+            }
+        });
+    }
+
+    private static void paint(final PImagePyramid pyramid, final double scale) {
+        final BufferedImage target = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = target.createGraphics();
+        g2.transform(AffineTransform.getScaleInstance(scale, scale));
+        pyramid.paint(new PPaintContext(g2));
+    }
+
+    private static final class CountingTileSource implements PImagePyramid.TileSource {
+        private final int width;
+        private final int height;
+        private final List<String> requests = new ArrayList<String>();
+
+        CountingTileSource(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getTileSize() {
+            return 256;
+        }
+
+        public int getLevelCount() {
+            return 4;
+        }
+
+        public BufferedImage getTile(final int level, final int column, final int row) {
+            requests.add(level + "," + column + "," + row);
+            return new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+}
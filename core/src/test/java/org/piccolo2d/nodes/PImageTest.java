@@ -29,12 +29,22 @@
 package org.piccolo2d.nodes;
 
 import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import org.piccolo2d.PNode;
 
 import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PRasterCache;
 
 import junit.framework.TestCase;
 
@@ -108,4 +118,169 @@ public class PImageTest extends TestCase {
         imageNode.paint(paintContext);
     }
 
+    public void testAsyncImageIsDecodedOncePaintedAndKeepsItsNaturalBounds() throws Exception {
+        final PImage imageNode = new PImage();
+        imageNode.setImageAsync(createPngUrl(40, 30));
+        assertTrue(imageNode.isLoading());
+        assertNull(imageNode.getImage());
+
+        paintAndAwaitImage(imageNode);
+
+        assertFalse(imageNode.isLoading());
+        assertNotNull(imageNode.getImage());
+        assertEquals(40, imageNode.getWidth(), 0);
+        assertEquals(30, imageNode.getHeight(), 0);
+    }
+
+    public void testAsyncImageKeepsGivenBounds() throws Exception {
+        final PImage imageNode = new PImage();
+        imageNode.setImageAsync(createPngUrl(40, 30), 20, 15);
+        assertEquals(20, imageNode.getWidth(), 0);
+
+        paintAndAwaitImage(imageNode);
+
+        assertNotNull(imageNode.getImage());
+        assertEquals(20, imageNode.getWidth(), 0);
+        assertEquals(15, imageNode.getHeight(), 0);
+    }
+
+    public void testCancelledAsyncImageIsNotDeliveredUntilPaintedAgain() throws Exception {
+        final PImage imageNode = new PImage();
+        imageNode.setImageAsync(createPngUrl(40, 30));
+
+        onEventQueue(new Runnable() {
+            public void run() {
+                paint(imageNode);
+                imageNode.cancelLoading();
+            }
+        });
+        Thread.sleep(100);
+        flushEventQueue();
+        assertNull(imageNode.getImage());
+        assertTrue(imageNode.isLoading());
+
+        paintAndAwaitImage(imageNode);
+        assertNotNull(imageNode.getImage());
+    }
+
+    public void testRemovingNodeCancelsAsyncImage() throws Exception {
+        final PNode parent = new PNode();
+        final PImage imageNode = new PImage();
+        parent.addChild(imageNode);
+        imageNode.setImageAsync(createPngUrl(40, 30));
+
+        onEventQueue(new Runnable() {
+            public void run() {
+                paint(imageNode);
+                parent.removeChild(imageNode);
+            }
+        });
+        Thread.sleep(100);
+        flushEventQueue();
+        assertNull(imageNode.getImage());
+    }
+
+    public void testAsyncImageDroppedByRasterCacheIsLoadedAgain() throws Exception {
+        final PRasterCache rasterCache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        final PImage imageNode = new PImage();
+        imageNode.setRasterCache(rasterCache);
+        imageNode.setImageAsync(createPngUrl(40, 30));
+        paintAndAwaitImage(imageNode);
+        assertEquals(1, rasterCache.getRasterCount());
+
+        rasterCache.clear();
+        assertNull(imageNode.getImage());
+        assertTrue(imageNode.isLoading());
+
+        paintAndAwaitImage(imageNode);
+        assertFalse(imageNode.isLoading());
+        assertNotNull(imageNode.getImage());
+        assertEquals(40, imageNode.getImage().getWidth(null));
+    }
+
+    public void testSetRasterCacheMovesCachedImage() throws Exception {
+        final PRasterCache oldCache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        final PRasterCache newCache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        final PImage imageNode = new PImage();
+        imageNode.setRasterCache(oldCache);
+        imageNode.setImageAsync(createPngUrl(40, 30));
+        paintAndAwaitImage(imageNode);
+
+        imageNode.setRasterCache(newCache);
+        assertSame(newCache, imageNode.getRasterCache());
+        assertEquals(0, oldCache.getRasterCount());
+        assertEquals(1, newCache.getRasterCount());
+        assertNotNull(imageNode.getImage());
+    }
+
+    public void testSetImageReplacesPendingAsyncImage() throws Exception {
+        final PImage imageNode = new PImage();
+        imageNode.setImageAsync(createPngUrl(40, 30));
+        paint(imageNode);
+        final BufferedImage img = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        imageNode.setImage(img);
+
+        assertFalse(imageNode.isLoading());
+        Thread.sleep(100);
+        flushEventQueue();
+        assertSame(img, imageNode.getImage());
+    }
+
+    private static URL createPngUrl(final int width, final int height) throws IOException {
+        final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final File imgFile = File.createTempFile("test", ".png");
+        ImageIO.write(img, "PNG", imgFile);
+        imgFile.deleteOnExit();
+        return imgFile.toURI().toURL();
+    }
+
+    private static void paint(final PImage imageNode) {
+        final BufferedImage img = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        imageNode.paint(new PPaintContext(img.createGraphics()));
+    }
+
+    /**
+     * Paints the node on the event queue, as the image is delivered there, to
+     * start its load and waits until the loaded image has been swapped in.
+     */
+    private static void paintAndAwaitImage(final PImage imageNode) throws Exception {
+        final CountDownLatch swapped = new CountDownLatch(1);
+        final PropertyChangeListener listener = new PropertyChangeListener() {
+            public void propertyChange(final PropertyChangeEvent event) {
+                if (event.getNewValue() != null) {
+                    swapped.countDown();
+                }
+            }
+        };
+        imageNode.addPropertyChangeListener(PImage.PROPERTY_IMAGE, listener);
+        try {
+            onEventQueue(new Runnable() {
+                public void run() {
+                    paint(imageNode);
+                }
+            });
+            assertTrue(swapped.await(30, TimeUnit.SECONDS));
+            // the delivery that swapped the image in has finished
+            flushEventQueue();
+        }
+        finally {
+            imageNode.removePropertyChangeListener(PImage.PROPERTY_IMAGE, listener);
+        }
+    }
+
+    /**
+     * Runs the runnable on the event queue, so no asynchronous image can be
+     * delivered while it runs.
+     */
+    private static void onEventQueue(final Runnable runnable) throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(runnable);
+    }
+
+    private static void flushEventQueue() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                // events queued before this one have been dispatched
+            }
+        });
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.piccolo2d.PCamera;
+import org.piccolo2d.PLayer;
+import org.piccolo2d.PNode;
+import org.piccolo2d.PRoot;
+import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PPickPath;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PIndexedLayer.
+ */
+public class PIndexedLayerTest extends TestCase {
+    private PIndexedLayer layer;
+    private PCamera camera;
+
+    public void setUp() {
+        final PRoot root = new PRoot();
+        layer = new PIndexedLayer();
+        camera = new PCamera();
+        camera.setBounds(0, 0, 100, 100);
+        camera.addLayer(layer);
+        root.addChild(layer);
+        root.addChild(camera);
+    }
+
+    public void testAddedChildrenAreIndexed() {
+        layer.addChild(PPath.createRectangle(0, 0, 10, 10));
+        layer.addChild(PPath.createRectangle(20, 20, 10, 10));
+
+        assertEquals(2, layer.getIndexedChildrenCount());
+    }
+
+    public void testRemovedChildrenAreNotIndexed() {
+        final PNode child = PPath.createRectangle(0, 0, 10, 10);
+        layer.addChild(child);
+        layer.getFullBoundsReference();
+        layer.removeChild(child);
+
+        assertEquals(0, layer.getIndexedChildrenCount());
+
+        layer.addChild(child);
+        layer.removeAllChildren();
+        assertEquals(0, layer.getIndexedChildrenCount());
+    }
+
+    public void testPickFindsTopmostChild() {
+        final PNode a = PPath.createRectangle(0, 0, 50, 50);
+        final PNode b = PPath.createRectangle(10, 10, 50, 50);
+        layer.addChild(a);
+        layer.addChild(b);
+        for (int i = 0; i < 100; i++) {
+            layer.addChild(PPath.createRectangle(1000 + i * 20, 1000, 10, 10));
+        }
+
+        assertSame(b, camera.pick(20, 20, 1).getPickedNode());
+        assertSame(a, camera.pick(5, 5, 1).getPickedNode());
+
+        b.lowerToBottom();
+        assertSame(a, camera.pick(20, 20, 1).getPickedNode());
+    }
+
+    public void testPickFollowsMovedChild() {
+        final PNode a = PPath.createRectangle(0, 0, 10, 10);
+        layer.addChild(a);
+        for (int i = 0; i < 100; i++) {
+            layer.addChild(PPath.createRectangle(1000 + i * 20, 1000, 10, 10));
+        }
+        assertSame(a, camera.pick(5, 5, 1).getPickedNode());
+
+        a.setOffset(50, 50);
+        assertSame(camera, camera.pick(5, 5, 1).getPickedNode());
+        assertSame(a, camera.pick(55, 55, 1).getPickedNode());
+    }
+
+    public void testGrandchildChangesUpdateIndex() {
+        final PNode parent = new PNode();
+        final PNode grandchild = PPath.createRectangle(0, 0, 10, 10);
+        parent.addChild(grandchild);
+        layer.addChild(parent);
+        for (int i = 0; i < 100; i++) {
+            layer.addChild(PPath.createRectangle(1000 + i * 20, 1000, 10, 10));
+        }
+        assertSame(grandchild, camera.pick(5, 5, 1).getPickedNode());
+
+        grandchild.setOffset(60, 60);
+        assertSame(grandchild, camera.pick(65, 65, 1).getPickedNode());
+    }
+
+    public void testFindIntersectingNodesMatchesPlainLayer() {
+        final PLayer plainLayer = new PLayer();
+        final Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            final double x = random.nextDouble() * 5000;
+            final double y = random.nextDouble() * 5000;
+            final double size = random.nextDouble() * 100;
+            layer.addChild(PPath.createEllipse(x, y, size, size));
+            plainLayer.addChild(PPath.createEllipse(x, y, size, size));
+        }
+
+        for (int q = 0; q < 50; q++) {
+            final Rectangle2D query = new PBounds(random.nextDouble() * 5000, random.nextDouble() * 5000, 200, 200);
+            final ArrayList<PNode> expected = new ArrayList<PNode>();
+            final ArrayList<PNode> actual = new ArrayList<PNode>();
+            plainLayer.findIntersectingNodes(query, expected);
+            layer.findIntersectingNodes(query, actual);
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(plainLayer.indexOfChild((PNode) expected.get(i)), layer.indexOfChild((PNode) actual
+                        .get(i)));
+            }
+        }
+    }
+
+    public void testCloneRebuildsIndex() {
+        layer.addChild(PPath.createRectangle(0, 0, 10, 10));
+        final PIndexedLayer cloned = (PIndexedLayer) layer.clone();
+
+        assertEquals(1, cloned.getIndexedChildrenCount());
+        final ArrayList<PNode> results = new ArrayList<PNode>();
+        cloned.findIntersectingNodes(new PBounds(0, 0, 5, 5), results);
+        assertEquals(1, results.size());
+    }
+
+    public void testPickPathDoesNotIncludeUnrelatedChildren() {
+        layer.addChild(PPath.createRectangle(0, 0, 10, 10));
+        final PPickPath path = camera.pick(50, 50, 1);
+        assertSame(camera, path.getPickedNode());
+    }
+}
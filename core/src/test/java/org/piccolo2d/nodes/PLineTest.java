@@ -29,6 +29,7 @@
 package org.piccolo2d.nodes;
 
 import java.awt.Color;
+import java.awt.geom.Rectangle2D;
 
 import org.piccolo2d.nodes.PLine;
 
@@ -46,4 +47,15 @@ public class PLineTest extends TestCase {
         assertEquals(Color.RED, cloned.getStrokePaint());
         assertNotSame(line.getLineReference(), cloned.getLineReference());
     }
+
+    public void testIntersectsFollowsPointChanges() {
+        PLine line = new PLine();
+        line.addPoint(0, 0, 0);
+        line.addPoint(1, 100, 0);
+        line.addPoint(2, 100, 100);
+        Rectangle2D pick = new Rectangle2D.Double(99, 49, 2, 2);
+        assertTrue(line.intersects(pick));
+        line.setPoint(2, 100, 10);
+        assertFalse(line.intersects(pick));
+    }
 }
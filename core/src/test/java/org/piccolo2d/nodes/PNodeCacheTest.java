@@ -28,7 +28,16 @@
  */
 package org.piccolo2d.nodes;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+
+import org.piccolo2d.PNode;
 import org.piccolo2d.nodes.PNodeCache;
+import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PRasterCache;
 
 import junit.framework.TestCase;
 
@@ -41,4 +50,126 @@ public class PNodeCacheTest extends TestCase {
         PNodeCache cloned = (PNodeCache) line.clone();
         assertNotNull(cloned);                   
     }
+
+    public void testRepaintOnlyRendersDamagedRegion() {
+        final PNodeCache cache = new PNodeCache();
+        cache.setRasterCache(new PRasterCache(PRasterCache.DEFAULT_BUDGET));
+        final CountingNode left = new CountingNode(0, 0);
+        final CountingNode right = new CountingNode(200, 0);
+        cache.addChild(left);
+        cache.addChild(right);
+
+        paint(cache, 1);
+        assertEquals(1, left.paintCount);
+        assertEquals(1, right.paintCount);
+
+        paint(cache, 1);
+        assertEquals(1, left.paintCount);
+        assertEquals(1, right.paintCount);
+
+        left.repaint();
+        paint(cache, 1);
+        assertEquals(2, left.paintCount);
+        assertEquals(1, right.paintCount);
+    }
+
+    public void testRastersAreKeptPerScaleBucket() {
+        final PRasterCache rasterCache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        final PNodeCache cache = new PNodeCache();
+        cache.setRasterCache(rasterCache);
+        cache.addChild(new CountingNode(0, 0));
+
+        paint(cache, 1);
+        paint(cache, 0.9);
+        assertEquals(1, rasterCache.getRasterCount());
+        assertEquals(100 * 100 * 4, rasterCache.getSize());
+
+        paint(cache, 1.5);
+        assertEquals(2, rasterCache.getRasterCount());
+        assertEquals(100 * 100 * 4 * 5, rasterCache.getSize());
+    }
+
+    public void testRastersBeyondBudgetAreRenderedAgain() {
+        final PRasterCache rasterCache = new PRasterCache(100 * 100 * 4);
+        final PNodeCache first = new PNodeCache();
+        final PNodeCache second = new PNodeCache();
+        first.setRasterCache(rasterCache);
+        second.setRasterCache(rasterCache);
+        final CountingNode firstChild = new CountingNode(0, 0);
+        first.addChild(firstChild);
+        second.addChild(new CountingNode(0, 0));
+
+        paint(first, 1);
+        paint(second, 1);
+        assertEquals(1, rasterCache.getRasterCount());
+
+        final BufferedImage target = paint(first, 1);
+        assertEquals(2, firstChild.paintCount);
+        assertEquals(Color.RED.getRGB(), target.getRGB(50, 50));
+    }
+
+    public void testRastersAreRenderedAgainWhenRenderQualityChanges() {
+        final PNodeCache cache = new PNodeCache();
+        cache.setRasterCache(new PRasterCache(PRasterCache.DEFAULT_BUDGET));
+        final CountingNode child = new CountingNode(0, 0);
+        cache.addChild(child);
+
+        paint(cache, 1, PPaintContext.LOW_QUALITY_RENDERING);
+        assertEquals(1, child.paintCount);
+        assertEquals(PPaintContext.LOW_QUALITY_RENDERING, child.renderQuality);
+
+        paint(cache, 1, PPaintContext.HIGH_QUALITY_RENDERING);
+        assertEquals(2, child.paintCount);
+        assertEquals(PPaintContext.HIGH_QUALITY_RENDERING, child.renderQuality);
+
+        paint(cache, 1, PPaintContext.HIGH_QUALITY_RENDERING);
+        assertEquals(2, child.paintCount);
+    }
+
+    public void testCustomImageCacheIsPainted() {
+        final BufferedImage custom = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        final PNodeCache cache = new PNodeCache() {
+            private static final long serialVersionUID = 1L;
+
+            public Image createImageCache(final Dimension2D cacheOffsetRef) {
+                return custom;
+            }
+        };
+        cache.addChild(new CountingNode(0, 0));
+
+        paint(cache, 1);
+        assertSame(custom, cache.getImageCache());
+    }
+
+    private static BufferedImage paint(final PNode node, final double scale) {
+        return paint(node, scale, PPaintContext.HIGH_QUALITY_RENDERING);
+    }
+
+    private static BufferedImage paint(final PNode node, final double scale, final int renderQuality) {
+        final BufferedImage target = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g2 = target.createGraphics();
+        g2.scale(scale, scale);
+        final PPaintContext paintContext = new PPaintContext(g2);
+        paintContext.setRenderQuality(renderQuality);
+        node.fullPaint(paintContext);
+        g2.dispose();
+        return target;
+    }
+
+    private static final class CountingNode extends PNode {
+        private static final long serialVersionUID = 1L;
+        private int paintCount;
+        private int renderQuality;
+
+        CountingNode(final double x, final double y) {
+            setBounds(x, y, 100, 100);
+            setPaint(Color.RED);
+        }
+
+        protected void paint(final PPaintContext paintContext) {
+            paintCount++;
+            renderQuality = paintContext.getRenderQuality();
+            super.paint(paintContext);
+        }
+    }
 }
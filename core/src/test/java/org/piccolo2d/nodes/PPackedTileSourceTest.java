@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.piccolo2d.util.PPaintContext;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PPackedTileSource.
+ */
+public class PPackedTileSourceTest extends TestCase {
+    private File file;
+
+    public void setUp() throws IOException {
+        file = File.createTempFile("test", ".tiles");
+        file.deleteOnExit();
+    }
+
+    public void tearDown() {
+        file.delete();
+    }
+
+    public void testWrittenPyramidCanBeRead() throws IOException {
+        final BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.BLUE);
+        g2.fillRect(0, 0, 300, 200);
+        g2.setColor(Color.RED);
+        g2.fillRect(128, 0, 172, 200);
+        g2.dispose();
+
+        PPackedTileSource.write(new PImagePyramid.ImageTileSource(image, 128), "png", file);
+        final PPackedTileSource source = new PPackedTileSource(file);
+        try {
+            assertEquals(300, source.getWidth());
+            assertEquals(200, source.getHeight());
+            assertEquals(128, source.getTileSize());
+            assertEquals(3, source.getLevelCount());
+
+            final BufferedImage edgeTile = source.getTile(0, 2, 1);
+            assertEquals(44, edgeTile.getWidth());
+            assertEquals(72, edgeTile.getHeight());
+            assertEquals(Color.BLUE.getRGB(), source.getTile(0, 0, 0).getRGB(0, 0));
+            assertEquals(Color.RED.getRGB(), source.getTile(0, 1, 0).getRGB(0, 0));
+
+            final BufferedImage top = source.getTile(2, 0, 0);
+            assertEquals(75, top.getWidth());
+            assertEquals(50, top.getHeight());
+        }
+        finally {
+            source.close();
+        }
+    }
+
+    public void testTilesOutsideThePyramidAreMissing() throws IOException {
+        PPackedTileSource.write(new PImagePyramid.ImageTileSource(new BufferedImage(300, 200,
+                BufferedImage.TYPE_INT_RGB), 128), "png", file);
+        final PPackedTileSource source = new PPackedTileSource(file);
+        try {
+            assertNull(source.getTile(0, 3, 0));
+            assertNull(source.getTile(0, 0, 2));
+            assertNull(source.getTile(3, 0, 0));
+        }
+        finally {
+            source.close();
+        }
+    }
+
+    public void testOtherFilesAreRejected() throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[64]);
+        out.close();
+        try {
+            new PPackedTileSource(file);
+            fail("expected IOException");
+        }
+        catch (final IOException e) {
+            // expected
+        }
+    }
+
+    public void testPyramidPaintsPackedTiles() throws IOException {
+        PPackedTileSource.write(new PImagePyramid.ImageTileSource(new BufferedImage(300, 200,
+                BufferedImage.TYPE_INT_RGB), 128), "png", file);
+        final PPackedTileSource source = new PPackedTileSource(file);
+        try {
+            final PImagePyramid pyramid = new PImagePyramid(source);
+            final BufferedImage target = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D g2 = target.createGraphics();
+            pyramid.fullPaint(new PPaintContext(g2));
+            g2.dispose();
+
+            assertEquals(Color.BLACK.getRGB(), target.getRGB(299, 199));
+            assertEquals(300 * 200 * 4, pyramid.getCacheSize());
+        }
+        finally {
+            source.close();
+        }
+    }
+}
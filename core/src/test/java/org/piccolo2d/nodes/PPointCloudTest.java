@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.nodes;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import org.piccolo2d.PCamera;
+import org.piccolo2d.PLayer;
+import org.piccolo2d.util.PBounds;
+import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PPickPath;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PPointCloud.
+ */
+public class PPointCloudTest extends TestCase {
+    private PPointCloud cloud;
+
+    public void setUp() {
+        cloud = new PPointCloud();
+    }
+
+    public void testNewCloudIsEmpty() {
+        assertEquals(0, cloud.getItemCount());
+        assertTrue(cloud.getBoundsReference().isEmpty());
+    }
+
+    public void testAddItemStoresItemAndGrowsBounds() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, cloud.addItem(i, i * 2, 2, 0xff00ff00));
+        }
+
+        assertEquals(100, cloud.getItemCount());
+        assertEquals(99f, cloud.getItemX(99), 0);
+        assertEquals(198f, cloud.getItemY(99), 0);
+        assertEquals(2f, cloud.getItemSize(99), 0);
+        assertEquals(0xff00ff00, cloud.getItemColor(99));
+        assertEquals(new PBounds(-1, -1, 101, 200), cloud.getBoundsReference());
+    }
+
+    public void testSetItemsCopiesArrays() {
+        final float[] x = new float[] { 0, 10, 20 };
+        final float[] y = new float[] { 0, 10, 20 };
+        final float[] size = new float[] { 2, 2, 2 };
+        final int[] argb = new int[] { 1, 2, 3 };
+        cloud.setItems(x, y, size, argb, 2);
+        x[0] = 100;
+
+        assertEquals(2, cloud.getItemCount());
+        assertEquals(0f, cloud.getItemX(0), 0);
+        assertEquals(2, cloud.getItemColor(1));
+        assertEquals(new PBounds(-1, -1, 12, 12), cloud.getBoundsReference());
+    }
+
+    public void testRemoveItemShiftsItemsAndShrinksBounds() {
+        cloud.addItem(0, 0, 2, 1);
+        cloud.addItem(10, 10, 2, 2);
+        cloud.addItem(100, 100, 2, 3);
+
+        cloud.removeItem(2);
+        cloud.removeItem(0);
+
+        assertEquals(1, cloud.getItemCount());
+        assertEquals(2, cloud.getItemColor(0));
+        assertEquals(new PBounds(9, 9, 2, 2), cloud.getBoundsReference());
+    }
+
+    public void testAccessingItemOutOfRangeThrowsIndexOutOfBoundsException() {
+        cloud.addItem(0, 0, 1, 0);
+        try {
+            cloud.getItemX(1);
+            fail("expected IndexOutOfBoundsException");
+        }
+        catch (final IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    public void testSetItemShapeRejectsUnknownShape() {
+        try {
+            cloud.setItemShape(42);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testPickItemReturnsTopmostPickableItem() {
+        cloud.addItem(10, 10, 10, 0);
+        cloud.addItem(12, 12, 10, 0);
+        cloud.addItem(14, 14, 10, 0);
+        cloud.setItemFlags(2, PPointCloud.FLAG_UNPICKABLE);
+
+        assertEquals(1, cloud.pickItem(new Rectangle2D.Double(11, 11, 1, 1)));
+        cloud.setItemFlags(1, PPointCloud.FLAG_HIDDEN);
+        assertEquals(0, cloud.pickItem(new Rectangle2D.Double(11, 11, 1, 1)));
+        assertEquals(-1, cloud.pickItem(new Rectangle2D.Double(50, 50, 1, 1)));
+    }
+
+    public void testPickRecordsPickedItemOnPickPath() {
+        final PLayer layer = new PLayer();
+        final PCamera camera = new PCamera();
+        camera.setBounds(0, 0, 100, 100);
+        camera.addLayer(layer);
+        layer.addChild(cloud);
+        cloud.addItem(10, 10, 4, 0);
+        cloud.addItem(50, 50, 4, 0);
+
+        final PPickPath hit = camera.pick(50, 50, 1);
+        assertSame(cloud, hit.getPickedNode());
+        assertEquals(1, hit.getPickedItem());
+
+        final PPickPath miss = camera.pick(30, 30, 1);
+        assertNotSame(cloud, miss.getPickedNode());
+        assertEquals(-1, miss.getPickedItem());
+    }
+
+    public void testPaintFillsItemsWithTheirColors() {
+        cloud.addItem(5, 5, 4, Color.RED.getRGB());
+        cloud.addItem(15, 5, 4, Color.BLUE.getRGB());
+        cloud.addItem(25, 5, 4, Color.GREEN.getRGB());
+        cloud.setItemFlags(2, PPointCloud.FLAG_HIDDEN);
+
+        final BufferedImage image = new BufferedImage(30, 10, BufferedImage.TYPE_INT_ARGB);
+        cloud.paint(new PPaintContext(image.createGraphics()));
+
+        assertEquals(Color.RED.getRGB(), image.getRGB(5, 5));
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(15, 5));
+        assertEquals(0, image.getRGB(25, 5));
+        assertEquals(0, image.getRGB(10, 5));
+    }
+
+    public void testCloneCopiesItems() {
+        cloud.addItem(1, 2, 3, 4);
+        cloud.setItemFlags(0, PPointCloud.FLAG_UNPICKABLE);
+
+        final PPointCloud clone = (PPointCloud) cloud.clone();
+        cloud.setItemColor(0, 5);
+
+        assertEquals(1, clone.getItemCount());
+        assertEquals(4, clone.getItemColor(0));
+        assertEquals(PPointCloud.FLAG_UNPICKABLE, clone.getItemFlags(0));
+    }
+}
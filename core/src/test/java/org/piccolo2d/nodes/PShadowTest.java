@@ -34,6 +34,8 @@ import java.awt.Paint;
 import java.awt.image.BufferedImage;
 
 import org.piccolo2d.nodes.PShadow;
+import org.piccolo2d.util.PPaintContext;
+import org.piccolo2d.util.PRasterCache;
 
 import junit.framework.TestCase;
 
@@ -71,4 +73,24 @@ public final class PShadowTest extends TestCase {
         assertEquals(shadowNode.getImage().getWidth(null), clone.getImage().getWidth(null));
         assertEquals(shadowNode.getImage().getHeight(null), clone.getImage().getHeight(null));
     }
-}
+
+    public void testShadowDroppedByRasterCacheIsRecreatedByGetImage() {
+        PShadow shadowNode = new PShadow(src, shadowPaint, 4);
+        PRasterCache.getShared().clear();
+        assertNotNull(shadowNode.getImage());
+        assertEquals(TEST_IMAGE_WIDTH + 16, shadowNode.getImage().getWidth(null));
+    }
+
+    public void testShadowDroppedByRasterCacheIsRecreatedWhenPainted() {
+        PShadow shadowNode = new PShadow(src, shadowPaint, 4);
+        PRasterCache.getShared().clear();
+
+        BufferedImage target = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+        shadowNode.fullPaint(new PPaintContext(g));
+        g.dispose();
+
+        assertNotNull(shadowNode.getImage());
+        assertEquals(TEST_IMAGE_WIDTH + 16, shadowNode.getImage().getWidth(null));
+    }
+}
@@ -31,8 +31,11 @@ package org.piccolo2d.nodes;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.TextLayout;
 
 import org.piccolo2d.MockPropertyChangeListener;
+import org.piccolo2d.util.PTextLayoutCache;
 
 import junit.framework.TestCase;
 
@@ -202,4 +205,61 @@ public class PTextTest extends TestCase {
         assertEquals(1, mockListener.getPropertyChangeCount());
         assertEquals(PText.PROPERTY_FONT, mockListener.getPropertyChange(0).getPropertyName());
     }
+
+    public void testUsesSharedLayoutCacheByDefault() {
+        assertSame(PTextLayoutCache.getShared(), textNode.getLayoutCache());
+    }
+
+    public void testTextNodesShareLayouts() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        final PText other = new PText();
+        textNode.setLayoutCache(cache);
+        other.setLayoutCache(cache);
+
+        textNode.setText("shared label");
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getLayoutCount());
+
+        other.setText("shared label");
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getLayoutCount());
+        assertEquals(textNode.getWidth(), other.getWidth(), 0.0);
+        assertEquals(textNode.getHeight(), other.getHeight(), 0.0);
+    }
+
+    public void testWrappedTextIsCachedPerWidth() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        textNode.setLayoutCache(cache);
+        textNode.setConstrainWidthToTextWidth(false);
+        textNode.setText("a few words that wrap onto several lines");
+
+        textNode.setWidth(50);
+        final double narrowHeight = textNode.getHeight();
+        textNode.setWidth(500);
+        assertTrue(textNode.getHeight() < narrowHeight);
+        textNode.setWidth(50);
+        assertEquals(narrowHeight, textNode.getHeight(), 0.0);
+        assertTrue(cache.getHitCount() > 0);
+    }
+
+    public void testCustomLayoutIsNotShared() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        final PText custom = new PText() {
+            private static final long serialVersionUID = 1L;
+
+            protected TextLayout computeNextLayout(final LineBreakMeasurer measurer, final float availableWidth,
+                    final int nextLineBreakOffset) {
+                return measurer.nextLayout(availableWidth, nextLineBreakOffset, true);
+            }
+        };
+        custom.setLayoutCache(cache);
+        custom.setText("custom");
+        assertEquals(0, cache.getLayoutCount());
+    }
+
+    public void testLayoutIsNotSharedWithoutCache() {
+        textNode.setLayoutCache(null);
+        textNode.setText("uncached");
+        assertTrue(textNode.getWidth() > 0);
+    }
 }
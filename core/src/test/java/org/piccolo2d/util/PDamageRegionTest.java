@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Rectangle;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PDamageRegion.
+ */
+public class PDamageRegionTest extends TestCase {
+    private PDamageRegion region;
+
+    public void setUp() {
+        region = new PDamageRegion(4, 100);
+    }
+
+    public void testNewRegionIsEmpty() {
+        assertTrue(region.isEmpty());
+        assertEquals(0, region.getRegionCount());
+        assertEquals(new Rectangle(), region.getBounds());
+    }
+
+    public void testEmptyRectanglesAreIgnored() {
+        region.add(0, 0, 0, 10);
+        region.add(0, 0, 10, -1);
+        assertTrue(region.isEmpty());
+    }
+
+    public void testDistantRectanglesAreKeptSeparate() {
+        region.add(0, 0, 10, 10);
+        region.add(500, 500, 10, 10);
+
+        assertEquals(2, region.getRegionCount());
+        assertEquals(200, region.getArea());
+        assertEquals(new Rectangle(0, 0, 510, 510), region.getBounds());
+    }
+
+    public void testOverlappingRectanglesAreMerged() {
+        region.add(0, 0, 10, 10);
+        region.add(5, 5, 10, 10);
+
+        assertEquals(1, region.getRegionCount());
+        assertEquals(new Rectangle(0, 0, 15, 15), region.getRegion(0));
+    }
+
+    public void testCheapMergesAreMade() {
+        region.add(0, 0, 10, 10);
+        region.add(12, 0, 10, 10);
+
+        assertEquals(1, region.getRegionCount());
+        assertEquals(new Rectangle(0, 0, 22, 10), region.getRegion(0));
+    }
+
+    public void testMergedRegionAbsorbsRegionsItGrowsInto() {
+        region.add(0, 0, 10, 10);
+        region.add(40, 40, 10, 10);
+        region.add(0, 0, 50, 50);
+
+        assertEquals(1, region.getRegionCount());
+        assertEquals(new Rectangle(0, 0, 50, 50), region.getRegion(0));
+    }
+
+    public void testRegionCountIsBounded() {
+        for (int i = 0; i < 20; i++) {
+            region.add(i * 100, (i % 3) * 100, 10, 10);
+        }
+
+        assertTrue(region.getRegionCount() <= 4);
+        assertEquals(new Rectangle(0, 0, 1910, 210), region.getBounds());
+    }
+
+    public void testRegionsAreDisjoint() {
+        for (int i = 0; i < 50; i++) {
+            region.add((i * 37) % 400, (i * 91) % 300, 5 + i % 40, 5 + i % 25);
+        }
+
+        final Rectangle[] regions = region.getRegions();
+        for (int i = 0; i < regions.length; i++) {
+            for (int j = i + 1; j < regions.length; j++) {
+                assertFalse(regions[i].intersects(regions[j]));
+            }
+        }
+    }
+
+    public void testClear() {
+        region.add(0, 0, 10, 10);
+        region.clear();
+        assertTrue(region.isEmpty());
+    }
+
+    public void testSetMaxRegionsRejectsLessThanOne() {
+        try {
+            region.setMaxRegions(0);
+            fail("Exception should have been thrown");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testSetMaxRegionsMergesExistingRegions() {
+        region.add(0, 0, 10, 10);
+        region.add(500, 500, 10, 10);
+        region.setMaxRegions(1);
+
+        assertEquals(1, region.getRegionCount());
+        assertEquals(new Rectangle(0, 0, 510, 510), region.getRegion(0));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PFrameClock.
+ */
+public class PFrameClockTest extends TestCase {
+    private static final long MILLI = 1000000L;
+
+    private ManualClock clock;
+
+    public void setUp() {
+        clock = new ManualClock();
+    }
+
+    public void testDefaultTargetFps() {
+        assertEquals(PFrameClock.DEFAULT_TARGET_FPS, clock.getTargetFps());
+    }
+
+    public void testSetTargetFpsRejectsNonPositiveValues() {
+        try {
+            clock.setTargetFps(0);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testCurrentTimeMillisAdvancesWithTimeSource() {
+        final long start = clock.currentTimeMillis();
+        clock.nanos += 25 * MILLI;
+        assertEquals(start + 25, clock.currentTimeMillis());
+    }
+
+    public void testCurrentTimeMillisCatchesUpWithSystemTime() {
+        final long start = clock.currentTimeMillis();
+        clock.nanos += 10 * MILLI + MILLI / 2;
+        clock.millis += 11;
+        assertEquals(start + 11, clock.currentTimeMillis());
+        clock.nanos += MILLI / 2;
+        assertEquals(start + 11, clock.currentTimeMillis());
+        clock.millis += 1000;
+        assertEquals(start + 1011, clock.currentTimeMillis());
+    }
+
+    public void testCurrentTimeMillisDoesNotGoBackWithSystemTime() {
+        final long start = clock.currentTimeMillis();
+        clock.millis -= 1000;
+        clock.nanos += 5 * MILLI;
+        assertEquals(start + 5, clock.currentTimeMillis());
+    }
+
+    public void testFrameDelayFillsRestOfTargetFrame() {
+        clock.setTargetFps(50);
+        clock.frameStarted();
+        clock.nanos += 5 * MILLI;
+        clock.paintFinished(3 * MILLI);
+
+        assertEquals(12, clock.getFrameDelayMillis());
+    }
+
+    public void testFrameDelaySkipsToNextWholeFrameUnderLoad() {
+        clock.setTargetFps(50);
+        clock.frameStarted();
+        clock.nanos += 30 * MILLI;
+        clock.paintFinished(5 * MILLI);
+
+        assertEquals(5, clock.getFrameDelayMillis());
+    }
+
+    public void testPacedFramesAreMeasured() {
+        clock.setTargetFps(50);
+        clock.frameStarted();
+        clock.getFrameDelayMillis();
+        clock.nanos += 20 * MILLI;
+        clock.frameStarted();
+        clock.getFrameDelayMillis();
+        clock.nanos += 60 * MILLI;
+        clock.frameStarted();
+
+        assertEquals(2, clock.getFrameCount());
+        assertEquals(2, clock.getSkippedFrameCount());
+        assertEquals(60 * MILLI, clock.getLastFrameNanos());
+        assertTrue(clock.getAverageFps() > 0);
+    }
+
+    public void testFramesAfterSleepingAreNotMeasured() {
+        clock.frameStarted();
+        clock.nanos += 5000 * MILLI;
+        clock.frameStarted();
+
+        assertEquals(0, clock.getFrameCount());
+        assertEquals(0, clock.getSkippedFrameCount());
+    }
+
+    public void testResetStatistics() {
+        clock.frameStarted();
+        clock.getFrameDelayMillis();
+        clock.nanos += 100 * MILLI;
+        clock.frameStarted();
+        clock.paintFinished(MILLI);
+
+        clock.resetStatistics();
+
+        assertEquals(0, clock.getFrameCount());
+        assertEquals(0, clock.getSkippedFrameCount());
+        assertEquals(0, clock.getLastPaintNanos());
+        assertEquals(0, clock.getAverageFps(), 0);
+    }
+
+    private static final class ManualClock extends PFrameClock {
+        private static final long serialVersionUID = 1L;
+
+        private long nanos;
+        private long millis = 1000000;
+
+        protected long nanoTime() {
+            return nanos;
+        }
+
+        protected long systemTimeMillis() {
+            return millis;
+        }
+    }
+}
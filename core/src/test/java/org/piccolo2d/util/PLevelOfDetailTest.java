@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+import org.piccolo2d.PNode;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PLevelOfDetail.
+ */
+public class PLevelOfDetailTest extends TestCase {
+    private PLevelOfDetail levelOfDetail;
+    private PNode parent;
+    private CountingNode child;
+
+    public void setUp() {
+        levelOfDetail = new PLevelOfDetail();
+        parent = new PNode();
+        parent.setPaint(Color.BLUE);
+        parent.setBounds(0, 0, 100, 100);
+        child = new CountingNode();
+        child.setPaint(Color.RED);
+        child.setBounds(10, 10, 20, 20);
+        parent.addChild(child);
+        parent.setLevelOfDetail(levelOfDetail);
+    }
+
+    public void testDefaultsPaintNormally() {
+        assertEquals(0, levelOfDetail.getRepresentationCount());
+        assertEquals(0, levelOfDetail.getCollapseSize(), 0);
+        assertNull(levelOfDetail.getRepresentation(0.01));
+        paint(1.0);
+        assertEquals(1, child.paintCount);
+    }
+
+    public void testInvalidArgumentsAreRejected() {
+        try {
+            levelOfDetail.setCollapseSize(-1);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            levelOfDetail.addRepresentation(0, PLevelOfDetail.createBoundsRepresentation(null));
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            levelOfDetail.addRepresentation(1, null);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testRepresentationWithSmallestApplicableMaxScaleIsChosen() {
+        final PLevelOfDetail.Representation coarse = PLevelOfDetail.createBoundsRepresentation(null);
+        final PLevelOfDetail.Representation fine = PLevelOfDetail.createShapeRepresentation(new Ellipse2D.Double(0,
+                0, 100, 100), null);
+        levelOfDetail.addRepresentation(0.5, fine);
+        levelOfDetail.addRepresentation(0.1, coarse);
+        assertSame(coarse, levelOfDetail.getRepresentation(0.05));
+        assertSame(fine, levelOfDetail.getRepresentation(0.2));
+        assertNull(levelOfDetail.getRepresentation(0.5));
+        assertTrue(levelOfDetail.removeRepresentation(coarse));
+        assertSame(fine, levelOfDetail.getRepresentation(0.05));
+    }
+
+    public void testRepresentationReplacesSubtreeBelowMaxScale() {
+        levelOfDetail.addRepresentation(0.5, PLevelOfDetail.createBoundsRepresentation(Color.GREEN));
+        BufferedImage image = paint(0.25);
+        assertEquals(0, child.paintCount);
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(5, 5));
+
+        image = paint(1.0);
+        assertEquals(1, child.paintCount);
+        assertEquals(Color.RED.getRGB(), image.getRGB(15, 15));
+    }
+
+    public void testRepresentationScaleIncludesNodeTransform() {
+        levelOfDetail.addRepresentation(0.5, PLevelOfDetail.createBoundsRepresentation(Color.GREEN));
+        parent.setScale(0.25);
+        paint(1.0);
+        assertEquals(0, child.paintCount);
+    }
+
+    public void testSmallSubtreeIsCollapsedIntoSingleFill() {
+        levelOfDetail.setCollapseSize(10);
+        final BufferedImage image = paint(0.05);
+        assertEquals(0, child.paintCount);
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(2, 2));
+
+        paint(0.5);
+        assertEquals(1, child.paintCount);
+    }
+
+    public void testCollapsePaintOverridesNodePaint() {
+        levelOfDetail.setCollapseSize(10);
+        levelOfDetail.setCollapsePaint(Color.GREEN);
+        assertEquals(Color.GREEN, levelOfDetail.getCollapsePaint());
+        assertEquals(Color.GREEN.getRGB(), paint(0.05).getRGB(2, 2));
+    }
+
+    public void testImageRepresentationIsScaledToFullBounds() {
+        final BufferedImage cached = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = cached.createGraphics();
+        graphics.setColor(Color.GREEN);
+        graphics.fillRect(0, 0, 10, 10);
+        graphics.dispose();
+        levelOfDetail.addRepresentation(0.5, PLevelOfDetail.createImageRepresentation(cached));
+        assertEquals(Color.GREEN.getRGB(), paint(0.25).getRGB(20, 20));
+    }
+
+    public void testLevelOfDetailSurvivesCloning() {
+        levelOfDetail.addRepresentation(0.5, PLevelOfDetail.createBoundsRepresentation(Color.GREEN));
+        levelOfDetail.setCollapseSize(3);
+        final PNode clone = (PNode) parent.clone();
+        assertNotNull(clone.getLevelOfDetail());
+        assertEquals(1, clone.getLevelOfDetail().getRepresentationCount());
+        assertEquals(3, clone.getLevelOfDetail().getCollapseSize(), 0);
+    }
+
+    private BufferedImage paint(final double scale) {
+        child.paintCount = 0;
+        final BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.scale(scale, scale);
+        parent.fullPaint(new PPaintContext(graphics));
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Node that counts how often it is painted.
+     */
+    private static final class CountingNode extends PNode {
+        private static final long serialVersionUID = 1L;
+        private int paintCount;
+
+        protected void paint(final PPaintContext paintContext) {
+            paintCount++;
+            super.paint(paintContext);
+        }
+    }
+}
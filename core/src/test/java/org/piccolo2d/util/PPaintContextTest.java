@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PPaintContext.
+ */
+public class PPaintContextTest extends TestCase {
+    private Graphics2D graphics;
+    private PPaintContext paintContext;
+
+    public void setUp() {
+        graphics = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        graphics.setClip(0, 0, 100, 100);
+        paintContext = new PPaintContext(graphics);
+    }
+
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    public void testLocalClipStartsAsGraphicsClip() {
+        assertEquals(new Rectangle2D.Double(0, 0, 100, 100), paintContext.getLocalClip());
+    }
+
+    public void testPushTransformInverseTransformsLocalClip() {
+        final PAffineTransform transform = new PAffineTransform();
+        transform.translate(10, 20);
+        transform.scale(2, 2);
+        paintContext.pushTransform(transform);
+        assertEquals(new Rectangle2D.Double(-5, -10, 50, 50), paintContext.getLocalClip());
+        assertEquals(transform, graphics.getTransform());
+        assertEquals(2, paintContext.getScale(), 0.0001);
+
+        paintContext.popTransform(transform);
+        assertEquals(new Rectangle2D.Double(0, 0, 100, 100), paintContext.getLocalClip());
+        assertTrue(graphics.getTransform().isIdentity());
+        assertEquals(1, paintContext.getScale(), 0.0001);
+    }
+
+    public void testRotatedLocalClipIsBoundingBox() {
+        final PAffineTransform transform = new PAffineTransform();
+        transform.rotate(Math.PI / 2);
+        paintContext.pushTransform(transform);
+        final Rectangle2D clip = paintContext.getLocalClip();
+        assertEquals(0, clip.getX(), 0.0001);
+        assertEquals(-100, clip.getY(), 0.0001);
+        assertEquals(100, clip.getWidth(), 0.0001);
+        assertEquals(100, clip.getHeight(), 0.0001);
+        assertEquals(1, paintContext.getScale(), 0.0001);
+        paintContext.popTransform(transform);
+    }
+
+    public void testDeeplyNestedTransformsAreRestored() {
+        final PAffineTransform transform = new PAffineTransform();
+        transform.translate(1, 0);
+        for (int i = 0; i < 100; i++) {
+            paintContext.pushTransform(transform);
+        }
+        assertEquals(100, graphics.getTransform().getTranslateX(), 0.0001);
+        assertEquals(-100, paintContext.getLocalClip().getX(), 0.0001);
+        for (int i = 0; i < 100; i++) {
+            paintContext.popTransform(transform);
+        }
+        assertEquals(new AffineTransform(), graphics.getTransform());
+        assertEquals(new Rectangle2D.Double(0, 0, 100, 100), paintContext.getLocalClip());
+    }
+
+    public void testNullTransformIsIgnored() {
+        paintContext.pushTransform(null);
+        paintContext.popTransform(null);
+        assertEquals(new Rectangle2D.Double(0, 0, 100, 100), paintContext.getLocalClip());
+    }
+
+    public void testPushClipIntersectsLocalClip() {
+        final PBounds clip = new PBounds(50, 50, 100, 100);
+        paintContext.pushClip(clip);
+        assertEquals(new Rectangle2D.Double(50, 50, 50, 50), paintContext.getLocalClip());
+        paintContext.popClip(clip);
+        assertEquals(new Rectangle2D.Double(0, 0, 100, 100), paintContext.getLocalClip());
+    }
+
+    public void testTransparenciesMultiplyAndRestore() {
+        paintContext.pushTransparency(0.5f);
+        paintContext.pushTransparency(0.5f);
+        assertEquals(0.25f, ((AlphaComposite) graphics.getComposite()).getAlpha(), 0.0001f);
+        paintContext.popTransparency(0.5f);
+        assertEquals(0.5f, ((AlphaComposite) graphics.getComposite()).getAlpha(), 0.0001f);
+        paintContext.popTransparency(0.5f);
+        assertEquals(1.0f, ((AlphaComposite) graphics.getComposite()).getAlpha(), 0.0001f);
+    }
+
+    public void testAlphaCompositesAreReused() {
+        paintContext.pushTransparency(0.3f);
+        final Object first = graphics.getComposite();
+        paintContext.popTransparency(0.3f);
+        paintContext.pushTransparency(0.3f);
+        assertSame(first, graphics.getComposite());
+        paintContext.popTransparency(0.3f);
+    }
+}
@@ -28,6 +28,9 @@
  */
 package org.piccolo2d.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.piccolo2d.PCamera;
 import org.piccolo2d.PCanvas;
 import org.piccolo2d.PLayer;
@@ -69,4 +72,86 @@ public class PPickPathTest extends TestCase {
         assertTrue(pickPath.nextPickedNode() == null);
         assertTrue(pickPath.nextPickedNode() == null);
     }
+
+    public void testPickAllCollectsHitsInNextPickedNodeOrder() {
+        final PCanvas canvas = new PCanvas();
+        final PCamera camera = canvas.getCamera();
+        final PLayer layer = canvas.getLayer();
+
+        camera.setBounds(0, 0, 100, 100);
+
+        final PNode a = PPath.createRectangle(0, 0, 100, 100);
+        final PNode b = PPath.createRectangle(0, 0, 100, 100);
+        final PNode c = PPath.createRectangle(60, 60, 10, 10);
+        final PNode d = PPath.createRectangle(0, 0, 100, 100);
+        d.setPickable(false);
+
+        layer.addChild(a);
+        b.addChild(c);
+        layer.addChild(b);
+        layer.addChild(d);
+
+        final List<PNode> hits = camera.pickAll(50, 50, 2, new ArrayList<PNode>());
+        assertEquals(3, hits.size());
+        assertSame(b, hits.get(0));
+        assertSame(a, hits.get(1));
+        assertSame(camera, hits.get(2));
+
+        final PPickPath pickPath = camera.pick(50, 50, 2);
+        for (int i = 0; i < hits.size(); i++) {
+            assertSame(hits.get(i), pickPath.getPickedNode());
+            pickPath.nextPickedNode();
+        }
+    }
+
+    public void testPickIntoReusedPath() {
+        final PCanvas canvas = new PCanvas();
+        final PCamera camera = canvas.getCamera();
+        final PLayer layer = canvas.getLayer();
+
+        camera.setBounds(0, 0, 100, 100);
+
+        final PNode a = PPath.createRectangle(0, 0, 50, 50);
+        final PNode b = PPath.createRectangle(25, 25, 25, 25);
+        b.scale(2);
+        layer.addChild(a);
+        layer.addChild(b);
+
+        final PPickPath pickPath = camera.pick(25, 25, 1);
+        assertSame(a, pickPath.getPickedNode());
+
+        assertSame(pickPath, camera.pick(75, 75, 1, pickPath));
+        assertSame(b, pickPath.getPickedNode());
+        assertEquals(2, pickPath.getScale(), 0.0001);
+        assertEquals(new PBounds(37, 37, 1, 1), pickPath.getPickBounds());
+
+        assertSame(pickPath, camera.pick(25, 25, 1, pickPath));
+        assertSame(a, pickPath.getPickedNode());
+        assertEquals(1, pickPath.getScale(), 0.0001);
+    }
+
+    public void testPickIntoPathOfOtherCameraCreatesNewPath() {
+        final PCamera camera = new PCamera();
+        final PPickPath pickPath = new PPickPath(new PCamera(), new PBounds(0, 0, 1, 1));
+        assertNotSame(pickPath, camera.pick(0, 0, 1, pickPath));
+        assertNotNull(camera.pick(0, 0, 1, null));
+    }
+
+    public void testDeepPathsGrowStacks() {
+        final PCamera camera = new PCamera();
+        camera.setBounds(0, 0, 100, 100);
+        final PLayer layer = new PLayer();
+        camera.addLayer(layer);
+        PNode parent = layer;
+        for (int i = 0; i < 40; i++) {
+            final PNode child = new PNode();
+            child.setBounds(0, 0, 100, 100);
+            child.translate(0.5, 0);
+            parent.addChild(child);
+            parent = child;
+        }
+        final PPickPath pickPath = camera.pick(30, 10, 1);
+        assertSame(parent, pickPath.getPickedNode());
+        assertEquals(9, pickPath.getPickBounds().getX(), 0.0001);
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PQuadTree.
+ */
+public class PQuadTreeTest extends TestCase {
+    private PQuadTree<String> tree;
+
+    public void setUp() {
+        tree = new PQuadTree<String>();
+    }
+
+    private Set<String> query(final double x, final double y, final double width, final double height) {
+        final Set<String> results = new HashSet<String>();
+        tree.query(new Rectangle2D.Double(x, y, width, height), results);
+        return results;
+    }
+
+    public void testNewTreeIsEmpty() {
+        assertEquals(0, tree.size());
+        assertTrue(query(-1000, -1000, 2000, 2000).isEmpty());
+    }
+
+    public void testQueryFindsOnlyOverlappingObjects() {
+        tree.put("a", new PBounds(0, 0, 10, 10));
+        tree.put("b", new PBounds(100, 100, 10, 10));
+
+        final Set<String> results = query(5, 5, 10, 10);
+        assertEquals(1, results.size());
+        assertTrue(results.contains("a"));
+    }
+
+    public void testPutUpdatesBounds() {
+        tree.put("a", new PBounds(0, 0, 10, 10));
+        tree.put("a", new PBounds(500, 500, 10, 10));
+
+        assertEquals(1, tree.size());
+        assertTrue(query(0, 0, 20, 20).isEmpty());
+        assertTrue(query(495, 495, 10, 10).contains("a"));
+    }
+
+    public void testRemove() {
+        tree.put("a", new PBounds(0, 0, 10, 10));
+        assertTrue(tree.remove("a"));
+        assertFalse(tree.remove("a"));
+        assertFalse(tree.contains("a"));
+        assertTrue(query(0, 0, 20, 20).isEmpty());
+    }
+
+    public void testEmptyBoundsAreNeverReturned() {
+        tree.put("a", new PBounds());
+        tree.put("b", null);
+
+        assertEquals(2, tree.size());
+        assertTrue(query(-1000, -1000, 2000, 2000).isEmpty());
+    }
+
+    public void testInfiniteBoundsMatchEveryQuery() {
+        tree.put("a", new PBounds(Double.NEGATIVE_INFINITY, 0, Double.POSITIVE_INFINITY, 10));
+        assertTrue(query(1e9, 5, 1, 1).contains("a"));
+
+        tree.remove("a");
+        assertTrue(query(1e9, 5, 1, 1).isEmpty());
+    }
+
+    public void testGetBounds() {
+        tree.put("a", new PBounds(0, 0, 10, 10));
+        tree.put("b", new PBounds(-20, 5, 10, 30));
+
+        assertEquals(new PBounds(-20, 0, 30, 35), tree.getBounds(null));
+    }
+
+    public void testClear() {
+        tree.put("a", new PBounds(0, 0, 10, 10));
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertTrue(query(0, 0, 10, 10).isEmpty());
+    }
+
+    public void testQueryMatchesLinearScan() {
+        final Random random = new Random(42);
+        final PBounds[] bounds = new PBounds[500];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = randomBounds(random);
+            tree.put(String.valueOf(i), bounds[i]);
+        }
+        for (int i = 0; i < bounds.length; i += 3) {
+            bounds[i] = randomBounds(random);
+            tree.put(String.valueOf(i), bounds[i]);
+        }
+        for (int i = 1; i < bounds.length; i += 7) {
+            bounds[i] = null;
+            tree.remove(String.valueOf(i));
+        }
+
+        for (int q = 0; q < 100; q++) {
+            final PBounds query = randomBounds(random);
+            final Set<String> expected = new HashSet<String>();
+            for (int i = 0; i < bounds.length; i++) {
+                if (bounds[i] != null && bounds[i].intersects(query)) {
+                    expected.add(String.valueOf(i));
+                }
+            }
+
+            final Set<String> actual = new HashSet<String>();
+            tree.query(query, actual);
+            assertTrue(actual.containsAll(expected));
+        }
+    }
+
+    private PBounds randomBounds(final Random random) {
+        return new PBounds(random.nextDouble() * 10000 - 5000, random.nextDouble() * 10000 - 5000,
+                random.nextDouble() * random.nextDouble() * 2000, random.nextDouble() * 50);
+    }
+}
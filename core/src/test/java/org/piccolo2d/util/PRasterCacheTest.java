@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PRasterCache.
+ */
+public class PRasterCacheTest extends TestCase {
+    private static final long RASTER_SIZE = 10 * 10 * 4;
+
+    public void testHandleKeepsItsRaster() {
+        final PRasterCache cache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        final PRasterCache.Handle handle = cache.createHandle();
+        assertNull(handle.get());
+
+        final BufferedImage raster = createRaster();
+        handle.set(raster);
+        assertSame(raster, handle.get());
+        assertEquals(RASTER_SIZE, cache.getSize());
+
+        handle.clear();
+        assertNull(handle.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    public void testReplacingRasterUpdatesSize() {
+        final PRasterCache cache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        final PRasterCache.Handle handle = cache.createHandle();
+        handle.set(createRaster());
+        handle.set(new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(2 * RASTER_SIZE, cache.getSize());
+        assertEquals(1, cache.getRasterCount());
+    }
+
+    public void testLeastRecentlyUsedRasterIsDroppedBeyondBudget() {
+        final PRasterCache cache = new PRasterCache(2 * RASTER_SIZE);
+        final PRasterCache.Handle first = cache.createHandle();
+        final PRasterCache.Handle second = cache.createHandle();
+        final PRasterCache.Handle third = cache.createHandle();
+        first.set(createRaster());
+        second.set(createRaster());
+        first.get();
+        third.set(createRaster());
+
+        assertNotNull(first.get());
+        assertNull(second.get());
+        assertNotNull(third.get());
+        assertEquals(2 * RASTER_SIZE, cache.getSize());
+    }
+
+    public void testLoweringBudgetDropsRasters() {
+        final PRasterCache cache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        cache.createHandle().set(createRaster());
+        cache.createHandle().set(createRaster());
+        cache.setBudget(RASTER_SIZE);
+        assertEquals(1, cache.getRasterCount());
+    }
+
+    public void testRasterLargerThanBudgetIsDropped() {
+        final PRasterCache cache = new PRasterCache(RASTER_SIZE / 2);
+        final PRasterCache.Handle handle = cache.createHandle();
+        handle.set(createRaster());
+        assertNull(handle.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static BufferedImage createRaster() {
+        return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    public void testHitsMissesAndEvictionsAreCounted() {
+        final PRasterCache cache = new PRasterCache(RASTER_SIZE);
+        final PRasterCache.Handle first = cache.createHandle();
+        final PRasterCache.Handle second = cache.createHandle();
+        first.get();
+        first.set(createRaster());
+        first.get();
+        second.set(createRaster());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    public void testRasterOfCollectedHandleIsReleased() throws InterruptedException {
+        final PRasterCache cache = new PRasterCache(PRasterCache.DEFAULT_BUDGET);
+        cache.createHandle().set(createRaster());
+        for (int i = 0; i < 50 && cache.getRasterCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getRasterCount());
+        assertEquals(0, cache.getSize());
+    }
+}
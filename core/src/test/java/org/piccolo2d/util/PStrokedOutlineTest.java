@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PStrokedOutline.
+ */
+public class PStrokedOutlineTest extends TestCase {
+    private static final int[] CAPS = { BasicStroke.CAP_BUTT, BasicStroke.CAP_ROUND, BasicStroke.CAP_SQUARE };
+    private static final int[] JOINS = { BasicStroke.JOIN_MITER, BasicStroke.JOIN_ROUND, BasicStroke.JOIN_BEVEL };
+
+    public void testOutlineIsCached() {
+        final PStrokedOutline outline = new PStrokedOutline();
+        final BasicStroke stroke = new BasicStroke(4);
+        final Shape shape = createPolyline();
+
+        final Shape first = outline.getOutline(stroke, shape);
+        assertSame(first, outline.getOutline(stroke, shape));
+        outline.invalidate();
+        assertNotSame(first, outline.getOutline(stroke, shape));
+    }
+
+    public void testNewStrokeReplacesOutline() {
+        final PStrokedOutline outline = new PStrokedOutline();
+        final Shape shape = createPolyline();
+
+        final Rectangle2D thin = outline.getBounds(new BasicStroke(2), shape);
+        final Rectangle2D thick = outline.getBounds(new BasicStroke(10), shape);
+        assertTrue(thick.getWidth() > thin.getWidth());
+    }
+
+    public void testBoundsMatchStrokedShape() {
+        final BasicStroke stroke = new BasicStroke(6);
+        final Shape shape = createPolyline();
+        assertEquals(stroke.createStrokedShape(shape).getBounds2D(), new PStrokedOutline().getBounds(stroke, shape));
+    }
+
+    public void testPolylineHitsMatchStrokedShape() {
+        assertHitsMatchStrokedShape(createPolyline());
+    }
+
+    public void testClosedPolygonHitsMatchStrokedShape() {
+        final Path2D polygon = new Path2D.Double();
+        polygon.moveTo(10, 10);
+        polygon.lineTo(60, 15);
+        polygon.lineTo(30, 55);
+        polygon.closePath();
+        assertHitsMatchStrokedShape(polygon);
+    }
+
+    public void testCurveHitsMatchStrokedShape() {
+        assertHitsMatchStrokedShape(new Ellipse2D.Double(10, 10, 40, 30));
+    }
+
+    public void testDashedHitsMatchStrokedShape() {
+        final BasicStroke stroke = new BasicStroke(4, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10,
+                new float[] { 5, 5 }, 0);
+        assertHitsMatchStrokedShape(stroke, createPolyline());
+    }
+
+    public void testEmptyRectangleDoesNotIntersect() {
+        assertFalse(new PStrokedOutline().intersects(new BasicStroke(4), createPolyline(), new Rectangle2D.Double(
+                10, 10, 0, 0)));
+    }
+
+    private static void assertHitsMatchStrokedShape(final Shape shape) {
+        for (int i = 0; i < CAPS.length; i++) {
+            for (int j = 0; j < JOINS.length; j++) {
+                assertHitsMatchStrokedShape(new BasicStroke(7, CAPS[i], JOINS[j], 4), shape);
+            }
+        }
+    }
+
+    private static void assertHitsMatchStrokedShape(final BasicStroke stroke, final Shape shape) {
+        final Shape strokedShape = stroke.createStrokedShape(shape);
+        final PStrokedOutline outline = new PStrokedOutline();
+        for (double x = -10.37; x < 80; x += 1.5) {
+            for (double y = -10.37; y < 80; y += 1.5) {
+                final Rectangle2D rectangle = new Rectangle2D.Double(x, y, 1, 1);
+                assertEquals("at " + x + ", " + y, strokedShape.intersects(rectangle), outline.intersects(stroke,
+                        shape, rectangle));
+            }
+        }
+    }
+
+    private static Path2D createPolyline() {
+        final Path2D polyline = new Path2D.Double();
+        polyline.moveTo(0, 0);
+        polyline.lineTo(20, 40);
+        polyline.lineTo(40, 5);
+        polyline.lineTo(70, 60);
+        polyline.lineTo(70, 60);
+        polyline.lineTo(40, 70);
+        return polyline;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Font;
+import java.awt.font.TextLayout;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PTextLayoutCache.
+ */
+public class PTextLayoutCacheTest extends TestCase {
+    private static final Font FONT = new Font("Serif", Font.PLAIN, 12);
+
+    public void testGetReturnsPutLines() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        final TextLayout[] lines = createLines("label", 1);
+        assertNull(cache.get("label", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+        cache.put("label", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, lines);
+
+        assertSame(lines, cache.get("label", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getLayoutCount());
+    }
+
+    public void testKeyIncludesFontWidthAndContext() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        cache.put("label", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("label", 1));
+
+        assertNull(cache.get("label", FONT.deriveFont(14f), 100, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+        assertNull(cache.get("label", FONT, 50, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+        assertNull(cache.get("label", FONT, 100, PPaintContext.RENDER_QUALITY_LOW_FRC));
+        assertNull(cache.get("other", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+    }
+
+    public void testLeastRecentlyUsedLayoutsAreEvicted() {
+        final PTextLayoutCache cache = new PTextLayoutCache(4);
+        cache.put("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("a", 2));
+        cache.put("b", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("b", 2));
+        cache.get("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC);
+        cache.put("c", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("c", 2));
+
+        assertEquals(4, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+        assertNull(cache.get("b", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC));
+    }
+
+    public void testReplacingLinesUpdatesSize() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        cache.put("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("a", 3));
+        cache.put("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("a", 1));
+        assertEquals(1, cache.getSize());
+    }
+
+    public void testClearAndResetStatistics() {
+        final PTextLayoutCache cache = new PTextLayoutCache(PTextLayoutCache.DEFAULT_MAXIMUM_SIZE);
+        cache.put("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC, createLines("a", 1));
+        cache.get("a", FONT, 100, PPaintContext.RENDER_QUALITY_HIGH_FRC);
+        cache.clear();
+        cache.resetStatistics();
+
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getLayoutCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    public void testNegativeMaximumSizeIsRejected() {
+        try {
+            new PTextLayoutCache(-1);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static TextLayout[] createLines(final String text, final int count) {
+        final TextLayout[] lines = new TextLayout[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = new TextLayout(text, FONT, PPaintContext.RENDER_QUALITY_HIGH_FRC);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2019, Piccolo2D project, http://piccolo2d.org
+ * Copyright (c) 1998-2008, University of Maryland
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice, this list of conditions
+ * and the following disclaimer in the documentation and/or other materials provided with the
+ * distribution.
+ *
+ * None of the name of the University of Maryland, the name of the Piccolo2D project, or the names of its
+ * contributors may be used to endorse or promote products derived from this software without specific
+ * prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.piccolo2d.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import org.piccolo2d.PNode;
+import org.piccolo2d.nodes.PPath;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PTileCache.
+ */
+public class PTileCacheTest extends TestCase {
+    private PTileCache cache;
+    private PNode node;
+
+    public void setUp() {
+        cache = new PTileCache(10, 16);
+        node = new PNode();
+        node.setPaint(Color.BLUE);
+        node.setBounds(0, 0, 20, 20);
+    }
+
+    public void testConstructorRejectsInvalidArguments() {
+        try {
+            new PTileCache(0, 1);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new PTileCache(1, 0);
+            fail("expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testPaintRendersTilesCoveringClip() {
+        final BufferedImage image = paint(new AffineTransform(), 20, 20);
+        assertTrue(cache.paint(node, createContext(image, new AffineTransform())));
+        assertEquals(4, cache.getTileCount());
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(5, 5));
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(15, 15));
+    }
+
+    public void testRepaintReusesTiles() {
+        paint(new AffineTransform(), 20, 20);
+        final long rendered = cache.getRenderedTileCount();
+        paint(new AffineTransform(), 20, 20);
+        assertEquals(rendered, cache.getRenderedTileCount());
+    }
+
+    public void testPanningRendersOnlyExposedTiles() {
+        paint(new AffineTransform(), 20, 20);
+        final long rendered = cache.getRenderedTileCount();
+        final BufferedImage image = paint(AffineTransform.getTranslateInstance(-10, 0), 20, 20);
+        assertEquals(rendered + 2, cache.getRenderedTileCount());
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(5, 5));
+        assertEquals(0, image.getRGB(15, 5) & 0xFFFFFF);
+    }
+
+    public void testZoomLevelsHaveSeparateTiles() {
+        paint(new AffineTransform(), 20, 20);
+        final long rendered = cache.getRenderedTileCount();
+        final BufferedImage image = paint(AffineTransform.getScaleInstance(2, 2), 20, 20);
+        assertTrue(cache.getRenderedTileCount() > rendered);
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(15, 15));
+    }
+
+    public void testZoomingWithinPowerOfTwoReusesTiles() {
+        cache = new PTileCache(10, 64);
+        paint(AffineTransform.getScaleInstance(1.2, 1.2), 40, 40);
+        final long rendered = cache.getRenderedTileCount();
+        final BufferedImage image = paint(AffineTransform.getScaleInstance(1.5, 1.5), 40, 40);
+        assertEquals(rendered, cache.getRenderedTileCount());
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(28, 28));
+        assertEquals(0, image.getRGB(32, 32) & 0xFFFFFF);
+    }
+
+    public void testRenderQualitiesHaveSeparateTiles() {
+        node = PPath.createEllipse(1, 1, 17, 17);
+        node.setPaint(Color.BLUE);
+
+        final BufferedImage lowQuality = paint(new AffineTransform(), 20, 20, PPaintContext.LOW_QUALITY_RENDERING);
+        final BufferedImage highQuality = paint(new AffineTransform(), 20, 20, PPaintContext.HIGH_QUALITY_RENDERING);
+        cache = new PTileCache(10, 16);
+        final BufferedImage reference = paint(new AffineTransform(), 20, 20, PPaintContext.HIGH_QUALITY_RENDERING);
+
+        assertFalse(samePixels(lowQuality, reference));
+        assertTrue(samePixels(highQuality, reference));
+    }
+
+    public void testInvalidateDiscardsOverlappingTiles() {
+        paint(new AffineTransform(), 20, 20);
+        cache.invalidate(new PBounds(2, 2, 4, 4));
+        assertEquals(3, cache.getTileCount());
+    }
+
+    public void testLeastRecentlyUsedTilesAreEvicted() {
+        cache = new PTileCache(10, 4);
+        paint(new AffineTransform(), 20, 20);
+        paint(AffineTransform.getTranslateInstance(-20, 0), 20, 20);
+        assertEquals(4, cache.getTileCount());
+    }
+
+    public void testEvictedTileImagesAreClearedWhenReused() {
+        cache = new PTileCache(10, 4);
+        paint(new AffineTransform(), 20, 20);
+        final BufferedImage image = paint(AffineTransform.getTranslateInstance(-20, 0), 20, 20);
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 20; y++) {
+                assertEquals(0, image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    public void testPaintRefusesRotatedTransforms() {
+        final AffineTransform rotation = AffineTransform.getRotateInstance(0.5);
+        final BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        assertFalse(cache.paint(node, createContext(image, rotation)));
+        assertEquals(0, cache.getTileCount());
+    }
+
+    public void testPaintRefusesClipsNeedingTooManyTiles() {
+        cache = new PTileCache(10, 3);
+        final BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        assertFalse(cache.paint(node, createContext(image, new AffineTransform())));
+    }
+
+    public void testClearDiscardsAllTiles() {
+        paint(new AffineTransform(), 20, 20);
+        cache.clear();
+        assertEquals(0, cache.getTileCount());
+    }
+
+    private BufferedImage paint(final AffineTransform transform, final int width, final int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        assertTrue(cache.paint(node, createContext(image, transform)));
+        return image;
+    }
+
+    private BufferedImage paint(final AffineTransform transform, final int width, final int height,
+            final int renderQuality) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final PPaintContext paintContext = createContext(image, transform);
+        paintContext.setRenderQuality(renderQuality);
+        assertTrue(cache.paint(node, paintContext));
+        return image;
+    }
+
+    private static boolean samePixels(final BufferedImage image1, final BufferedImage image2) {
+        for (int x = 0; x < image1.getWidth(); x++) {
+            for (int y = 0; y < image1.getHeight(); y++) {
+                if (image1.getRGB(x, y) != image2.getRGB(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private PPaintContext createContext(final BufferedImage image, final AffineTransform transform) {
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setClip(0, 0, image.getWidth(), image.getHeight());
+        graphics.transform(transform);
+        return new PPaintContext(graphics);
+    }
+}